@@ -0,0 +1,90 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RouterPriorityQueueBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup.RoutingPriorityQueueType;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.FastDijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * Compares the priority queues available for the fast routers (see
+ * {@link RoutingPriorityQueueType}) by routing the same random origin-destination
+ * pairs with {@link org.matsim.core.router.FastDijkstra} using each of them.
+ * <p>
+ * Usage: <code>RouterPriorityQueueBenchmark network.xml [numberOfRoutes] [numberOfRounds]</code>
+ * <p>
+ * The first round only warms up the JIT and is not reported.
+ */
+public class RouterPriorityQueueBenchmark {
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: RouterPriorityQueueBenchmark network.xml [numberOfRoutes] [numberOfRounds]");
+			System.exit(1);
+		}
+		int numberOfRoutes = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int numberOfRounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario.getNetwork()).readFile(args[0]);
+		Network network = scenario.getNetwork();
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(4711);
+		Node[] fromNodes = new Node[numberOfRoutes];
+		Node[] toNodes = new Node[numberOfRoutes];
+		for (int i = 0; i < numberOfRoutes; i++) {
+			fromNodes[i] = nodes.get(random.nextInt(nodes.size()));
+			toNodes[i] = nodes.get(random.nextInt(nodes.size()));
+		}
+
+		FreespeedTravelTimeAndDisutility costs = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		for (int round = 0; round <= numberOfRounds; round++) {
+			for (RoutingPriorityQueueType type : RoutingPriorityQueueType.values()) {
+				LeastCostPathCalculator router = new FastDijkstraFactory(null, type).createPathCalculator(network, costs, costs);
+				double totalCost = 0.0;
+				long start = System.nanoTime();
+				for (int i = 0; i < numberOfRoutes; i++) {
+					totalCost += router.calcLeastCostPath(fromNodes[i], toNodes[i], 8.0 * 3600, null, null).travelCost;
+				}
+				long duration = System.nanoTime() - start;
+				if (round > 0) {
+					System.out.println("round " + round + "\t" + type + "\t" + (duration / 1000000) + " ms\t"
+							+ (duration / 1000 / numberOfRoutes) + " us/route\ttotal cost " + totalCost);
+				}
+			}
+		}
+	}
+
+}
@@ -19,37 +19,37 @@
 
 package org.matsim.contrib.dvrp.router;
 
-import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.contrib.dvrp.util.TimeDiscretizer;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.vehicles.Vehicle;
 
-import com.google.common.collect.*;
-
 
+/**
+ * Caches the paths computed by the wrapped calculator in a {@link LeastCostPathCache}. The
+ * wrapped calculator is used by one thread only; to share cached paths between threads, create
+ * one instance per thread on top of the same {@link LeastCostPathCache}.
+ */
 public class DefaultLeastCostPathCalculatorWithCache
     implements LeastCostPathCalculatorWithCache
 {
     private final LeastCostPathCalculator calculator;
-    private final TimeDiscretizer timeDiscretizer;
-    private final Table<Id<Node>, Id<Node>, Path>[] pathCache;
-
-    private CacheStats cacheStats = new CacheStats();
+    private final LeastCostPathCache pathCache;
 
 
-    @SuppressWarnings("unchecked")
     public DefaultLeastCostPathCalculatorWithCache(LeastCostPathCalculator calculator,
             TimeDiscretizer timeDiscretizer)
     {
-        this.calculator = calculator;
-        this.timeDiscretizer = timeDiscretizer;
+        this(calculator, new LeastCostPathCache(timeDiscretizer));
+    }
+
 
-        pathCache = new Table[timeDiscretizer.getIntervalCount()];
-        for (int i = 0; i < pathCache.length; i++) {
-            pathCache[i] = HashBasedTable.create();
-        }
+    public DefaultLeastCostPathCalculatorWithCache(LeastCostPathCalculator calculator,
+            LeastCostPathCache pathCache)
+    {
+        this.calculator = calculator;
+        this.pathCache = pathCache;
     }
 
 
@@ -57,26 +57,13 @@ public class DefaultLeastCostPathCalculatorWithCache
     public Path calcLeastCostPath(Node fromNode, Node toNode, double startTime, Person person,
             Vehicle vehicle)
     {
-        Table<Id<Node>, Id<Node>, Path> spCacheSlice = pathCache[timeDiscretizer.getIdx(startTime)];
-        Path path = spCacheSlice.get(fromNode.getId(), toNode.getId());
-
-        if (path == null) {
-            cacheStats.incMisses();
-            path = calculator.calcLeastCostPath(fromNode, toNode,
-                    timeDiscretizer.discretize(startTime), person, vehicle);
-            spCacheSlice.put(fromNode.getId(), toNode.getId(), path);
-        }
-        else {
-            cacheStats.incHits();
-        }
-
-        return path;
+        return pathCache.calcLeastCostPath(calculator, fromNode, toNode, startTime, person, vehicle);
     }
 
 
     @Override
     public CacheStats getCacheStats()
     {
-        return cacheStats;
+        return pathCache.getCacheStats();
     }
 }
@@ -0,0 +1,204 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.router;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.network.*;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.dvrp.router.LeastCostPathCalculatorWithCache.CacheStats;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.vehicles.Vehicle;
+
+import com.google.common.cache.*;
+
+
+/**
+ * Thread-safe, size-bounded cache of least-cost paths, keyed by the (from node, to node)
+ * index pair and the time bin of the departure time. Paths are stored compactly as a link
+ * array; the node list is restored from the links on each hit. Once the estimated memory
+ * footprint exceeds the budget, least recently used paths are evicted.
+ * <p>
+ * One instance can be shared by several {@link DefaultLeastCostPathCalculatorWithCache}s,
+ * e.g. one per optimizer thread, each with its own (non-thread-safe) calculator.
+ */
+public class LeastCostPathCache
+{
+    public static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+
+    private final TimeDiscretizer timeDiscretizer;
+    private final Cache<PathKey, CachedPath> cache;
+    private final CacheStats cacheStats = new CacheStats();
+
+
+    public LeastCostPathCache(TimeDiscretizer timeDiscretizer)
+    {
+        this(timeDiscretizer, DEFAULT_MEMORY_BUDGET);
+    }
+
+
+    /**
+     * @param memoryBudget approximate upper bound (in bytes) of the memory used by the cached paths
+     */
+    public LeastCostPathCache(TimeDiscretizer timeDiscretizer, long memoryBudget)
+    {
+        this.timeDiscretizer = timeDiscretizer;
+        this.cache = CacheBuilder.newBuilder()//
+                .maximumWeight(memoryBudget)//
+                .weigher(new Weigher<PathKey, CachedPath>() {
+                    @Override
+                    public int weigh(PathKey key, CachedPath value)
+                    {
+                        return value.estimateMemory();
+                    }
+                })//
+                .removalListener(new RemovalListener<PathKey, CachedPath>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<PathKey, CachedPath> notification)
+                    {
+                        if (notification.wasEvicted()) {
+                            cacheStats.incEvictions();
+                        }
+                    }
+                })//
+                .build();
+    }
+
+
+    /**
+     * Returns the cached path, or computes it with <code>calculator</code> at the beginning
+     * of the time bin of <code>startTime</code> and caches it.
+     */
+    public Path calcLeastCostPath(LeastCostPathCalculator calculator, Node fromNode, Node toNode,
+            double startTime, Person person, Vehicle vehicle)
+    {
+        PathKey key = new PathKey(fromNode.getId().index(), toNode.getId().index(),
+                timeDiscretizer.getIdx(startTime));
+        CachedPath cachedPath = cache.getIfPresent(key);
+        if (cachedPath != null) {
+            cacheStats.incHits();
+            return cachedPath.toPath(fromNode);
+        }
+
+        cacheStats.incMisses();
+        Path path = calculator.calcLeastCostPath(fromNode, toNode,
+                timeDiscretizer.discretize(startTime), person, vehicle);
+        if (path != null) {
+            cache.put(key, new CachedPath(path));
+        }
+        return path;
+    }
+
+
+    public TimeDiscretizer getTimeDiscretizer()
+    {
+        return timeDiscretizer;
+    }
+
+
+    public CacheStats getCacheStats()
+    {
+        return cacheStats;
+    }
+
+
+    public long size()
+    {
+        return cache.size();
+    }
+
+
+    public void clear()
+    {
+        cache.invalidateAll();
+    }
+
+
+    private static final class PathKey
+    {
+        private final int fromNode;
+        private final int toNode;
+        private final int timeBin;
+
+
+        private PathKey(int fromNode, int toNode, int timeBin)
+        {
+            this.fromNode = fromNode;
+            this.toNode = toNode;
+            this.timeBin = timeBin;
+        }
+
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (! (obj instanceof PathKey)) {
+                return false;
+            }
+            PathKey other = (PathKey)obj;
+            return fromNode == other.fromNode && toNode == other.toNode && timeBin == other.timeBin;
+        }
+
+
+        @Override
+        public int hashCode()
+        {
+            return (fromNode * 31 + toNode) * 31 + timeBin;
+        }
+    }
+
+
+    private static final class CachedPath
+    {
+        private final Link[] links;
+        private final double travelTime;
+        private final double travelCost;
+
+
+        private CachedPath(Path path)
+        {
+            this.links = path.links.toArray(new Link[path.links.size()]);
+            this.travelTime = path.travelTime;
+            this.travelCost = path.travelCost;
+        }
+
+
+        private Path toPath(Node fromNode)
+        {
+            Node[] nodes = new Node[links.length + 1];
+            nodes[0] = fromNode;
+            for (int i = 0; i < links.length; i++) {
+                nodes[i + 1] = links[i].getToNode();
+            }
+            return new Path(Arrays.asList(nodes), Arrays.asList(links.clone()), travelTime, travelCost);
+        }
+
+
+        /**
+         * Object headers, fields, the link array and the key, with compressed references.
+         */
+        private int estimateMemory()
+        {
+            return 96 + 4 * links.length;
+        }
+    }
+}
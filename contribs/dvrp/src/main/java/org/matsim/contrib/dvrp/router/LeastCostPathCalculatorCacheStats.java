@@ -28,21 +28,24 @@ public class LeastCostPathCalculatorCacheStats
 {
     private final SummaryStatistics hitStats = new SummaryStatistics();
     private final SummaryStatistics missStats = new SummaryStatistics();
+    private final SummaryStatistics evictionStats = new SummaryStatistics();
 
 
     public void updateStats(LeastCostPathCalculatorWithCache calculatorWithCache)
     {
         hitStats.addValue(calculatorWithCache.getCacheStats().getHits());
         missStats.addValue(calculatorWithCache.getCacheStats().getMisses());
+        evictionStats.addValue(calculatorWithCache.getCacheStats().getEvictions());
     }
 
 
-    public static final String HEADER = "cfg\tHits\tMisses";
+    public static final String HEADER = "cfg\tHits\tMisses\tEvictions";
 
 
     public void printStats(PrintWriter pw, String id)
     {
-        pw.printf("%10s\t%f\t%f\n", id, hitStats.getMean(), missStats.getMean());
+        pw.printf("%10s\t%f\t%f\t%f\n", id, hitStats.getMean(), missStats.getMean(),
+                evictionStats.getMean());
     }
 
 
@@ -50,5 +53,6 @@ public class LeastCostPathCalculatorCacheStats
     {
         hitStats.clear();
         missStats.clear();
+        evictionStats.clear();
     }
 }
@@ -0,0 +1,147 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.router;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+import org.matsim.api.core.v01.*;
+import org.matsim.api.core.v01.network.*;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.dvrp.router.LeastCostPathCalculatorWithCache.CacheStats;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.vehicles.Vehicle;
+
+
+public class LeastCostPathCacheTest
+{
+    private static final int NODE_COUNT = 20;
+
+    private final Node[] nodes = new Node[NODE_COUNT];
+    private final Link[] links = new Link[NODE_COUNT - 1];
+    private final CountingCalculator calculator = new CountingCalculator();
+
+
+    @Before
+    public void createNetwork()
+    {
+        Network network = NetworkUtils.createNetwork();
+        NetworkFactory factory = network.getFactory();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            nodes[i] = factory.createNode(Id.createNodeId("cache_test_" + i), new Coord(i * 100, 0));
+            network.addNode(nodes[i]);
+        }
+        for (int i = 0; i < NODE_COUNT - 1; i++) {
+            links[i] = factory.createLink(Id.createLinkId("cache_test_" + i), nodes[i], nodes[i + 1]);
+            network.addLink(links[i]);
+        }
+    }
+
+
+    @Test
+    public void testHitsAndMisses()
+    {
+        LeastCostPathCache cache = new LeastCostPathCache(TimeDiscretizer.ACYCLIC_15_MIN);
+
+        Path computed = cache.calcLeastCostPath(calculator, nodes[0], nodes[3], 100, null, null);
+        assertEquals(0., calculator.lastStartTime, 0.);
+        Path cached = cache.calcLeastCostPath(calculator, nodes[0], nodes[3], 800, null, null);
+        cache.calcLeastCostPath(calculator, nodes[0], nodes[3], 1000, null, null);
+        assertEquals(900., calculator.lastStartTime, 0.);
+
+        CacheStats stats = cache.getCacheStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(0, stats.getEvictions());
+        assertEquals(2, calculator.calls);
+        assertEquals(2, cache.size());
+
+        assertNotSame(computed, cached);
+        assertEquals(computed.nodes, cached.nodes);
+        assertEquals(computed.links, cached.links);
+        assertEquals(computed.travelTime, cached.travelTime, 0.);
+        assertEquals(computed.travelCost, cached.travelCost, 0.);
+    }
+
+
+    @Test
+    public void testSizeBoundAndEviction()
+    {
+        // every path has a single link and thus an estimated size of 100 bytes
+        long memoryBudget = 1000;
+        LeastCostPathCache cache = new LeastCostPathCache(TimeDiscretizer.ACYCLIC_15_MIN,
+                memoryBudget);
+
+        int requests = 0;
+        for (int i = 0; i < NODE_COUNT - 1; i++) {
+            for (int t = 0; t < 5; t++) {
+                cache.calcLeastCostPath(calculator, nodes[i], nodes[i + 1], t * 900, null, null);
+                requests++;
+            }
+        }
+
+        CacheStats stats = cache.getCacheStats();
+        assertTrue(cache.size() <= memoryBudget / 100);
+        assertEquals(0, stats.getHits());
+        assertEquals(requests, stats.getMisses());
+        assertEquals(requests - cache.size(), stats.getEvictions());
+
+        // evicted paths are computed again
+        for (int i = 0; i < NODE_COUNT - 1; i++) {
+            for (int t = 0; t < 5; t++) {
+                cache.calcLeastCostPath(calculator, nodes[i], nodes[i + 1], t * 900, null, null);
+            }
+        }
+        assertTrue(stats.getHits() <= memoryBudget / 100);
+        assertEquals(2 * requests, stats.getHits() + stats.getMisses());
+        assertEquals(stats.getMisses(), calculator.calls);
+        assertTrue(cache.size() <= memoryBudget / 100);
+    }
+
+
+    /**
+     * Returns the path along the chain of links and counts the calls.
+     */
+    private class CountingCalculator
+        implements LeastCostPathCalculator
+    {
+        private int calls = 0;
+        private double lastStartTime = Double.NaN;
+
+
+        @Override
+        public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person,
+                Vehicle vehicle)
+        {
+            calls++;
+            lastStartTime = starttime;
+            int from = Arrays.asList(nodes).indexOf(fromNode);
+            int to = Arrays.asList(nodes).indexOf(toNode);
+            List<Node> pathNodes = new ArrayList<>(Arrays.asList(nodes).subList(from, to + 1));
+            List<Link> pathLinks = new ArrayList<>(Arrays.asList(links).subList(from, to));
+            return new Path(pathNodes, pathLinks, 10. * (to - from), 20. * (to - from));
+        }
+    }
+}
@@ -20,8 +20,10 @@
 
 package org.matsim.api.core.v01;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Node;
@@ -39,7 +41,7 @@ import org.matsim.vehicles.Vehicle;
  */
 public abstract class Id<T> implements Comparable<Id<T>> {
 
-	private final static Map<Class<?>, Map<String, Id<?>>> cache = new ConcurrentHashMap<Class<?>, Map<String, Id<?>>>();
+	private final static ConcurrentMap<Class<?>, IdCache> cache = new ConcurrentHashMap<Class<?>, IdCache>();
 	
 	
 	public static <T> Id<T> create(final long key, final Class<T> type) {
@@ -57,19 +59,62 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	 * This method supports a cache where ids are stored and re-used per type.   
 	 */
 	public static <T> Id<T> create(final String key, final Class<T> type) {
-		Map<String, Id<?>> map = cache.get(type);
-		if (map == null) {
-			map = new ConcurrentHashMap<String, Id<?>>();
-			cache.put(type, map);
-		}
-		Id<?> id = map.get(key);
+		IdCache idCache = getCache(type);
+		Id<?> id = idCache.ids.get(key);
 		if (id == null) {
-			id = new IdImpl<T>(key);
-			map.put(key, id);
+			id = idCache.add(key);
 		}
 		
 		return (Id<T>) id;
 	}
+
+	/**
+	 * @return the id of the given type which has the given index, or <code>null</code> if there is none.
+	 *
+	 * @see #index()
+	 */
+	public static <T> Id<T> get(final int index, final Class<T> type) {
+		IdCache idCache = cache.get(type);
+		if (idCache == null) {
+			return null;
+		}
+		return (Id<T>) idCache.get(index);
+	}
+
+	/**
+	 * @return the number of ids created so far for the given type. All indices of ids of this type are smaller than this number.
+	 */
+	public static <T> int getNumberOfIds(final Class<T> type) {
+		IdCache idCache = cache.get(type);
+		return idCache == null ? 0 : idCache.size;
+	}
+
+	/**
+	 * Looks up an existing id without creating a new one.
+	 */
+	/*package*/ static <T> Id<T> find(final String key, final Class<T> type) {
+		IdCache idCache = cache.get(type);
+		return idCache == null ? null : (Id<T>) idCache.ids.get(key);
+	}
+
+	private static IdCache getCache(final Class<?> type) {
+		IdCache idCache = cache.get(type);
+		if (idCache == null) {
+			IdCache newCache = new IdCache();
+			idCache = cache.putIfAbsent(type, newCache);
+			if (idCache == null) {
+				idCache = newCache;
+			}
+		}
+		return idCache;
+	}
+
+	/**
+	 * Returns a dense index of this id. Ids of the same type are numbered 0, 1, 2, ... in the order they are created,
+	 * so the index can be used to store data about the identified objects in arrays instead of hash maps
+	 * (see {@link IdMap} and {@link IdSet}). Ids of different types may have the same index.
+	 */
+	public abstract int index();
 	
 	/**
 	 * @return <code>0</code> when the two objects being compared are the same objects, other values according to their ids being compared to each other.
@@ -111,9 +156,16 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	private static class IdImpl<T> extends Id<T> {
 
 		private final String id; 
+		private final int index;
 		
-		/*package*/ IdImpl(final String id) {
+		/*package*/ IdImpl(final String id, final int index) {
 			this.id = id;
+			this.index = index;
+		}
+
+		@Override
+		public int index() {
+			return this.index;
 		}
 
 		@Override
@@ -127,6 +179,40 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 		}
 	}
 
+	/**
+	 * The ids of one type, both by key and by index. New ids are only created while holding the lock,
+	 * so that the indices stay dense even when ids are created concurrently.
+	 */
+	private static class IdCache {
+
+		private final Map<String, Id<?>> ids = new ConcurrentHashMap<String, Id<?>>();
+		private volatile Id<?>[] byIndex = new Id<?>[16];
+		private volatile int size = 0;
+
+		synchronized Id<?> add(final String key) {
+			Id<?> id = this.ids.get(key);
+			if (id == null) {
+				Id<?>[] array = this.byIndex;
+				if (this.size == array.length) {
+					array = Arrays.copyOf(array, array.length * 2);
+				}
+				id = new IdImpl<Object>(key, this.size);
+				array[this.size] = id;
+				this.byIndex = array;
+				this.size++;
+				this.ids.put(key, id);
+			}
+			return id;
+		}
+
+		Id<?> get(final int index) {
+			if (index < 0 || index >= this.size) {
+				return null;
+			}
+			return this.byIndex[index];
+		}
+	}
+
 	// helper classes for some common cases:
 	public static Id<Person> createPersonId( final long key ) {
 		return create( key, Person.class ) ;
@@ -0,0 +1,332 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdMap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map with {@link Id}s of one type as keys which stores its values in an array, using {@link Id#index()} as position.
+ * Lookups of contained keys are plain array accesses, and no entry objects are created, which makes this map both
+ * faster and considerably smaller than a <code>HashMap</code> when most of the ids of a type are used as keys
+ * (e.g. one entry per link or per person). A lookup of a key that is not contained needs one look-up of the id type;
+ * only ids of other types are looked up by their text.
+ * <p></p>
+ * Iteration is in the order of the id indices, i.e. in the order the ids were created. The map is not thread-safe.
+ *
+ * @param <T> the type of the ids used as keys
+ * @param <V> the type of the values
+ */
+public class IdMap<T, V> extends AbstractMap<Id<T>, V> {
+
+	private final Class<T> idClass;
+	private Id<T>[] keys;
+	private Object[] values;
+	private int size = 0;
+	private int modCount = 0;
+
+	private EntrySet entrySet = null;
+
+	public IdMap(final Class<T> idClass) {
+		this(idClass, Math.max(16, Id.getNumberOfIds(idClass)));
+	}
+
+	public IdMap(final Class<T> idClass, final int initialCapacity) {
+		this.idClass = idClass;
+		this.keys = new Id[initialCapacity];
+		this.values = new Object[initialCapacity];
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public V get(final Object key) {
+		int index = indexOf(key);
+		return index < 0 ? null : (V) this.values[index];
+	}
+
+	/**
+	 * @return the value stored for the id with the given index, or <code>null</code> if there is none.
+	 */
+	public V get(final int index) {
+		if (index < 0 || index >= this.values.length) {
+			return null;
+		}
+		return (V) this.values[index];
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the key is not an id of this map's type. Since the generic type is erased,
+	 * such ids can only be passed in via raw types or unchecked casts.
+	 */
+	@Override
+	public V put(final Id<T> key, final V value) {
+		int index = key.index();
+		if (Id.get(index, this.idClass) != key) {
+			throw new IllegalArgumentException("Id " + key + " is not of type " + this.idClass.getName() + ".");
+		}
+		ensureCapacity(index);
+		V old = (V) this.values[index];
+		if (this.keys[index] == null) {
+			this.keys[index] = key;
+			this.size++;
+			this.modCount++;
+		}
+		this.values[index] = value;
+		return old;
+	}
+
+	@Override
+	public V remove(final Object key) {
+		int index = indexOf(key);
+		if (index < 0) {
+			return null;
+		}
+		V old = (V) this.values[index];
+		this.keys[index] = null;
+		this.values[index] = null;
+		this.size--;
+		this.modCount++;
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.keys, null);
+		Arrays.fill(this.values, null);
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Set<Entry<Id<T>, V>> entrySet() {
+		if (this.entrySet == null) {
+			this.entrySet = new EntrySet();
+		}
+		return this.entrySet;
+	}
+
+	@Override
+	public Collection<V> values() {
+		return new AbstractCollection<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return new IdMapIterator<V>() {
+					@Override
+					V get(final int index) {
+						return (V) IdMap.this.values[index];
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return IdMap.this.size;
+			}
+		};
+	}
+
+	/**
+	 * Returns the position of the given key in the arrays, or <code>-1</code> if the key is not contained in this map.
+	 * The index stored in the id can be used directly if the key is of the right type. Ids of other types with the same
+	 * textual representation are considered equal (see {@link Id#equals(Object)}), so they are mapped to the
+	 * corresponding id of the right type.
+	 */
+	private int indexOf(final Object key) {
+		if (!(key instanceof Id)) {
+			return -1;
+		}
+		int index = ((Id<?>) key).index();
+		if (index < this.keys.length && this.keys[index] == key) {
+			return index;
+		}
+		if (Id.get(index, this.idClass) == key) {
+			// an id of this map's type which is not contained
+			return -1;
+		}
+		Id<T> id = Id.find(key.toString(), this.idClass);
+		if (id == null || id == key) {
+			return -1;
+		}
+		index = id.index();
+		if (index < this.keys.length && this.keys[index] == id) {
+			return index;
+		}
+		return -1;
+	}
+
+	private void ensureCapacity(final int index) {
+		if (index >= this.keys.length) {
+			int newLength = Math.max(index + 1, Math.max(this.keys.length * 2, Id.getNumberOfIds(this.idClass)));
+			this.keys = Arrays.copyOf(this.keys, newLength);
+			this.values = Arrays.copyOf(this.values, newLength);
+		}
+	}
+
+	private abstract class IdMapIterator<E> implements Iterator<E> {
+
+		private int next = 0;
+		private int current = -1;
+		private int expectedModCount = IdMap.this.modCount;
+
+		IdMapIterator() {
+			findNext();
+		}
+
+		abstract E get(int index);
+
+		private void findNext() {
+			Id<T>[] keys = IdMap.this.keys;
+			while (this.next < keys.length && keys[this.next] == null) {
+				this.next++;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next < IdMap.this.keys.length;
+		}
+
+		@Override
+		public E next() {
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.current = this.next;
+			this.next++;
+			findNext();
+			return get(this.current);
+		}
+
+		@Override
+		public void remove() {
+			if (this.current < 0) {
+				throw new IllegalStateException();
+			}
+			if (IdMap.this.modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			IdMap.this.keys[this.current] = null;
+			IdMap.this.values[this.current] = null;
+			IdMap.this.size--;
+			IdMap.this.modCount++;
+			this.expectedModCount = IdMap.this.modCount;
+			this.current = -1;
+		}
+	}
+
+	private class EntrySet extends AbstractSet<Entry<Id<T>, V>> {
+
+		@Override
+		public Iterator<Entry<Id<T>, V>> iterator() {
+			return new IdMapIterator<Entry<Id<T>, V>>() {
+				@Override
+				Entry<Id<T>, V> get(final int index) {
+					return new IdMapEntry(index);
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return IdMap.this.size;
+		}
+
+		@Override
+		public void clear() {
+			IdMap.this.clear();
+		}
+	}
+
+	private class IdMapEntry implements Map.Entry<Id<T>, V> {
+
+		private final int index;
+		private final Id<T> key;
+
+		IdMapEntry(final int index) {
+			this.index = index;
+			this.key = IdMap.this.keys[index];
+		}
+
+		@Override
+		public Id<T> getKey() {
+			return this.key;
+		}
+
+		@Override
+		public V getValue() {
+			return (V) IdMap.this.values[this.index];
+		}
+
+		@Override
+		public V setValue(final V value) {
+			V old = (V) IdMap.this.values[this.index];
+			IdMap.this.values[this.index] = value;
+			return old;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			Object value = getValue();
+			return this.key.equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			Object value = getValue();
+			return this.key.hashCode() ^ (value == null ? 0 : value.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return this.key + "=" + getValue();
+		}
+	}
+
+}
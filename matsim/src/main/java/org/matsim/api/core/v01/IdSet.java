@@ -0,0 +1,171 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdSet.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of {@link Id}s of one type, stored as a bit set using {@link Id#index()} as position. Needs one bit per
+ * id of the type. Ids of the set's type are checked with one look-up of the id type and a bit access; only ids of
+ * other types are looked up by their text.
+ * <p></p>
+ * Iteration is in the order of the id indices, i.e. in the order the ids were created. The set is not thread-safe.
+ *
+ * @param <T> the type of the ids
+ *
+ * @see IdMap
+ */
+public class IdSet<T> extends AbstractSet<Id<T>> {
+
+	private final Class<T> idClass;
+	private final BitSet bits;
+	private int size = 0;
+	private int modCount = 0;
+
+	public IdSet(final Class<T> idClass) {
+		this.idClass = idClass;
+		this.bits = new BitSet(Math.max(64, Id.getNumberOfIds(idClass)));
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		int index = indexOf(o);
+		return index >= 0 && this.bits.get(index);
+	}
+
+	/**
+	 * @return <code>true</code> if the id of this set's type with the given index is contained in this set.
+	 */
+	public boolean contains(final int index) {
+		return index >= 0 && this.bits.get(index);
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the id is not of this set's type, see {@link IdMap#put(Id, Object)}
+	 */
+	@Override
+	public boolean add(final Id<T> id) {
+		int index = id.index();
+		if (Id.get(index, this.idClass) != id) {
+			throw new IllegalArgumentException("Id " + id + " is not of type " + this.idClass.getName() + ".");
+		}
+		if (this.bits.get(index)) {
+			return false;
+		}
+		this.bits.set(index);
+		this.size++;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		int index = indexOf(o);
+		if (index < 0 || !this.bits.get(index)) {
+			return false;
+		}
+		this.bits.clear(index);
+		this.size--;
+		this.modCount++;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		this.bits.clear();
+		this.size = 0;
+		this.modCount++;
+	}
+
+	@Override
+	public Iterator<Id<T>> iterator() {
+		return new Iterator<Id<T>>() {
+
+			private int next = IdSet.this.bits.nextSetBit(0);
+			private int current = -1;
+			private int expectedModCount = IdSet.this.modCount;
+
+			@Override
+			public boolean hasNext() {
+				return this.next >= 0;
+			}
+
+			@Override
+			public Id<T> next() {
+				if (IdSet.this.modCount != this.expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (this.next < 0) {
+					throw new NoSuchElementException();
+				}
+				this.current = this.next;
+				this.next = IdSet.this.bits.nextSetBit(this.current + 1);
+				return Id.get(this.current, IdSet.this.idClass);
+			}
+
+			@Override
+			public void remove() {
+				if (this.current < 0) {
+					throw new IllegalStateException();
+				}
+				if (IdSet.this.modCount != this.expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				IdSet.this.bits.clear(this.current);
+				IdSet.this.size--;
+				IdSet.this.modCount++;
+				this.expectedModCount = IdSet.this.modCount;
+				this.current = -1;
+			}
+		};
+	}
+
+	/**
+	 * Returns the index of the id of this set's type which equals the given object, or <code>-1</code> if there is none.
+	 * Ids of other types with the same textual representation are considered equal (see {@link Id#equals(Object)}).
+	 */
+	private int indexOf(final Object o) {
+		if (!(o instanceof Id)) {
+			return -1;
+		}
+		Id<?> id = (Id<?>) o;
+		if (Id.get(id.index(), this.idClass) == id) {
+			return id.index();
+		}
+		Id<T> ownId = Id.find(id.toString(), this.idClass);
+		return ownId == null ? -1 : ownId.index();
+	}
+
+}
@@ -45,6 +45,16 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 	private final static String ONE_THREAD_PER_HANDLER = "oneThreadPerHandler"; 
 	private Boolean oneThreadPerHandler = false;
 	
+	private final static String USE_RING_BUFFER = "useRingBuffer";
+	private Boolean useRingBuffer = false;
+
+	private final static String RING_BUFFER_SIZE = "ringBufferSize";
+	private Integer ringBufferSize = 65536;
+
+	public static enum WaitStrategy { busySpin, yield, park }
+	private final static String WAIT_STRATEGY = "waitStrategy";
+	private WaitStrategy waitStrategy = WaitStrategy.yield;
+
 	private boolean locked = false;
 
 	public ParallelEventHandlingConfigGroup() {
@@ -60,6 +70,15 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 				+ "before the next time step is simulated. E.g. neccessary when within-day replanning is used.");
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
+		comments.put(USE_RING_BUFFER, "If enabled (and " + SYNCHRONIZE_ON_SIMSTEPS + " is disabled), events are handed to the events handling threads "
+				+ "through a lock-free ring buffer instead of a locked queue.  This feature is still experimental!");
+		comments.put(RING_BUFFER_SIZE, "Number of events the ring buffer can hold.  Rounded up to a power of two.");
+		StringBuilder options = new StringBuilder();
+		for (WaitStrategy strategy : WaitStrategy.values()) {
+			options.append(" ").append(strategy);
+		}
+		comments.put(WAIT_STRATEGY, "What threads do while waiting for the ring buffer: busySpin burns a core but reacts fastest, "
+				+ "yield gives the core to other threads, park sleeps briefly.  Options:" + options);
 		return comments;
 	}
 
@@ -127,6 +146,48 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		}
 	}
 	
+	@StringGetter( USE_RING_BUFFER )
+	public Boolean getUseRingBuffer() {
+		return this.useRingBuffer;
+	}
+
+	@StringSetter( USE_RING_BUFFER )
+	public void setUseRingBuffer(Boolean useRingBuffer) {
+		if ( !this.locked ) {
+			this.useRingBuffer = useRingBuffer;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
+	@StringGetter( RING_BUFFER_SIZE )
+	public Integer getRingBufferSize() {
+		return this.ringBufferSize;
+	}
+
+	@StringSetter( RING_BUFFER_SIZE )
+	public void setRingBufferSize(Integer ringBufferSize) {
+		if ( !this.locked ) {
+			this.ringBufferSize = ringBufferSize;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
+	@StringGetter( WAIT_STRATEGY )
+	public WaitStrategy getWaitStrategy() {
+		return this.waitStrategy;
+	}
+
+	@StringSetter( WAIT_STRATEGY )
+	public void setWaitStrategy(WaitStrategy waitStrategy) {
+		if ( !this.locked ) {
+			this.waitStrategy = waitStrategy;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+	
 	public void makeLocked() {
 		this.locked = true;
 	}
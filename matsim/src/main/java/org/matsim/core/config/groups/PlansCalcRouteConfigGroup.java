@@ -75,6 +75,20 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	private static final String RANDOMNESS = "routingRandomness" ;
 	private double routingRandomness = 3. ;
 
+	private static final String ROUTE_CACHE = "routeCache" ;
+	private boolean routeCache = false ;
+
+	private static final String ROUTE_CACHE_THRESHOLD = "routeCacheTravelTimeChangeThreshold" ;
+	private double routeCacheTravelTimeChangeThreshold = 0.05 ;
+
+	private static final String ROUTE_CACHE_MEMORY = "routeCacheMemoryBudgetMB" ;
+	private int routeCacheMemoryBudgetMB = 256 ;
+
+	public enum RoutingPriorityQueueType { BinaryMinHeap, FourAryMinHeap, RadixMinHeap }
+
+	private static final String ROUTING_PRIORITY_QUEUE = "routingPriorityQueue" ;
+	private RoutingPriorityQueueType routingPriorityQueue = RoutingPriorityQueueType.BinaryMinHeap ;
+
 	// ---
 
 	public static class ModeRoutingParams extends ReflectiveConfigGroup implements MatsimParameters {
@@ -363,6 +377,14 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 			setTeleportedModeSpeed(UNDEFINED, Double.parseDouble(value));
 		} else if (NETWORK_MODES.equals(key)) {
 			setNetworkModes(Arrays.asList(CollectionUtils.stringToArray(value)));
+		} else if (ROUTE_CACHE.equals(key)) {
+			setRouteCache(Boolean.parseBoolean(value));
+		} else if (ROUTE_CACHE_THRESHOLD.equals(key)) {
+			setRouteCacheTravelTimeChangeThreshold(Double.parseDouble(value));
+		} else if (ROUTE_CACHE_MEMORY.equals(key)) {
+			setRouteCacheMemoryBudgetMB(Integer.parseInt(value));
+		} else if (ROUTING_PRIORITY_QUEUE.equals(key)) {
+			setRoutingPriorityQueue(RoutingPriorityQueueType.valueOf(value));
 		} else if (key.startsWith(TELEPORTED_MODE_SPEEDS)) {
 			setTeleportedModeSpeed(key.substring(TELEPORTED_MODE_SPEEDS.length()), Double.parseDouble(value));
 		} else if (key.startsWith(TELEPORTED_MODE_FREESPEED_FACTORS)) {
@@ -376,6 +398,10 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	public final Map<String, String> getParams() {
 		Map<String, String> map = super.getParams();
 		map.put( NETWORK_MODES, CollectionUtils.arrayToString(this.networkModes.toArray(new String[this.networkModes.size()])));
+		map.put( ROUTE_CACHE, Boolean.toString(this.routeCache) );
+		map.put( ROUTE_CACHE_THRESHOLD, Double.toString(this.routeCacheTravelTimeChangeThreshold) );
+		map.put( ROUTE_CACHE_MEMORY, Integer.toString(this.routeCacheMemoryBudgetMB) );
+		map.put( ROUTING_PRIORITY_QUEUE, this.routingPriorityQueue.toString() );
 
 		//		map.put( BEELINE_DISTANCE_FACTOR, Double.toString(this.getBeelineDistanceFactor()) );
 
@@ -401,6 +427,18 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	        map.put(RANDOMNESS, "strength of the randomness for the utility of money in routing under toll.  "
 	          		+ "Leads to Pareto-optimal route with randomly drawn money-vs-other-attributes tradeoff. "
 	          		+ "Technically the width parameter of a log-normal distribution. 3.0 seems to be a good value. " ) ;
+		map.put(ROUTE_CACHE, "if true, network routes are re-used across iterations for the same mode, origin and destination node " +
+				"and departure time bin, as long as the travel times of their links did not change by more than " + ROUTE_CACHE_THRESHOLD + ". " +
+				"Person-specific travel disutilities (e.g. routing randomness) are then not taken into account for cached routes. Default is false.") ;
+		map.put(ROUTE_CACHE_THRESHOLD, "relative change of a link's travel time in any time bin above which all cached routes using the link " +
+				"are discarded. Default is 0.05.") ;
+		map.put(ROUTE_CACHE_MEMORY, "approximate upper bound of the memory used by the cached routes of each mode, in MB; least recently used " +
+				"routes are evicted beyond it. Default is 256.") ;
+		map.put(ROUTING_PRIORITY_QUEUE, "priority queue used by the fast routers (" + ControlerConfigGroup.RoutingAlgorithmType.FastDijkstra + ", " +
+				ControlerConfigGroup.RoutingAlgorithmType.FastAStarLandmarks + "), one of " + Arrays.toString(RoutingPriorityQueueType.values()) + ". " +
+				RoutingPriorityQueueType.BinaryMinHeap + " is the default d-ary heap, " + RoutingPriorityQueueType.FourAryMinHeap + " the same heap with " +
+				"four children per node, " + RoutingPriorityQueueType.RadixMinHeap + " a bucket based queue with constant time insertion and " +
+				"decrease-key, which requires non-negative link disutilities: it fails if a priority is below the last polled one by more than rounding.") ;
 		return map;
 	}
 
@@ -491,6 +529,38 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		this.insertingAccessEgressWalk = val ;
 	}
 
+	public boolean isRouteCache() {
+		return this.routeCache ;
+	}
+	public void setRouteCache( boolean val ) {
+		testForLocked() ;
+		this.routeCache = val ;
+	}
+
+	public double getRouteCacheTravelTimeChangeThreshold() {
+		return this.routeCacheTravelTimeChangeThreshold ;
+	}
+	public void setRouteCacheTravelTimeChangeThreshold( double val ) {
+		testForLocked() ;
+		this.routeCacheTravelTimeChangeThreshold = val ;
+	}
+
+	public int getRouteCacheMemoryBudgetMB() {
+		return this.routeCacheMemoryBudgetMB ;
+	}
+	public void setRouteCacheMemoryBudgetMB( int val ) {
+		testForLocked() ;
+		this.routeCacheMemoryBudgetMB = val ;
+	}
+
+	public RoutingPriorityQueueType getRoutingPriorityQueue() {
+		return this.routingPriorityQueue ;
+	}
+	public void setRoutingPriorityQueue( RoutingPriorityQueueType val ) {
+		testForLocked() ;
+		this.routingPriorityQueue = val ;
+	}
+
 	@StringGetter(RANDOMNESS)
 	public double getRoutingRandomness() {
 		return routingRandomness;
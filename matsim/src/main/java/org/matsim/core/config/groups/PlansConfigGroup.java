@@ -37,6 +37,8 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	}
 
 	public static enum ActivityDurationInterpretation { minOfDurationAndEndTime, tryEndTimeThenDuration, @Deprecated endTimeOnly }
+
+	public static enum InMemoryRepresentation { objects, columnar }
 	private static final String INPUT_FILE = "inputPlansFile";
 	private static final String INPUT_PERSON_ATTRIBUTES_FILE = "inputPersonAttributesFile";
 	private static final String NETWORK_ROUTE_TYPE = "networkRouteType";
@@ -90,6 +92,10 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
+		comments.put( IN_MEMORY_REPRESENTATION , "Defines how plans are stored in memory. " + InMemoryRepresentation.objects +
+				" (default) uses one object per activity and leg. " + InMemoryRepresentation.columnar + " stores the activities and legs " +
+				"of a plan in arrays, which needs considerably less memory for large populations. Plans are converted when persons are added " +
+				"to the population, so persons must be complete at that point, and again after each replanning." );
 
 		return comments;
 	}
@@ -189,4 +195,19 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	}
 
 
+
+	// ---
+
+	private static final String IN_MEMORY_REPRESENTATION = "inMemoryRepresentation";
+	private InMemoryRepresentation inMemoryRepresentation = InMemoryRepresentation.objects;
+
+	@StringGetter( IN_MEMORY_REPRESENTATION )
+	public InMemoryRepresentation getInMemoryRepresentation() {
+		return this.inMemoryRepresentation;
+	}
+
+	@StringSetter( IN_MEMORY_REPRESENTATION )
+	public void setInMemoryRepresentation(final InMemoryRepresentation inMemoryRepresentation) {
+		this.inMemoryRepresentation = inMemoryRepresentation;
+	}
 }
@@ -236,6 +236,24 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(USE_PERSON_ID_FOR_MISSING_VEHICLE_ID, "If a route does not reference a vehicle, agents will use the vehicle with the same id as their own.");
 		map.put(USING_THREADPOOL, "if the qsim should use as many runners as there are threads (Christoph's dissertation version)"
 				+ " or more of them, together with a thread pool (seems to be faster in some situations, but is not tested).") ;
+		{
+			StringBuilder stb = new StringBuilder() ;
+			for ( NetworkPartitioning np : NetworkPartitioning.values() ) {
+				stb.append(" ").append( np.toString() ) ;
+			}
+			map.put(NETWORK_PARTITIONING, "How nodes and links are distributed over the threads of the netsim engine.  "
+					+ "roundRobin ignores the network structure; spatial assigns contiguous regions, so that threads touch "
+					+ "less memory.  Possible values:" + stb ) ;
+		}
+		map.put(USING_LOCAL_RUNNER_SYNCHRONIZATION, "if true, a runner of the netsim engine only waits for the runners owning the downstream nodes "
+				+ "of its links before moving its links, instead of waiting for all runners.  Only has an effect if " + USING_THREADPOOL 
+				+ " is false.  Works best together with a " + NETWORK_PARTITIONING + " that produces contiguous regions.") ;
+		map.put(USING_LINK_WAKE_UP_SCHEDULE, "if true, an active link of the netsim engine is only visited when it can next do something, "
+				+ "i.e. when the first vehicle on it may leave or the next hole arrives, instead of in every time step.  Only has an effect "
+				+ "together with " + FAST_CAPACITY_UPDATE + ", without inflow constraint and without seepage; otherwise links are still "
+				+ "visited in every time step.") ;
+		map.put(NETSIM_REBALANCING_INTERVAL, "time in seconds.  If larger than zero, the netsim engine measures the work of its runners and "
+				+ "moves nodes and links from busy runners to less busy neighbouring runners at this interval.  Default: 0 (off).") ;
 		map.put(FAST_CAPACITY_UPDATE, "normally, the qsim accumulates fractional flows up to one flow unit in every time step.  If this switch is set to true, "
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer."
 				+ "Will probably become the default eventually.") ;
@@ -485,6 +503,51 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.usingThreadpool = val ;
 	}
 
+	public static enum NetworkPartitioning { roundRobin, spatial } ;
+	private static final String NETWORK_PARTITIONING = "networkPartitioning" ;
+	private NetworkPartitioning networkPartitioning = NetworkPartitioning.roundRobin ;
+	@StringGetter(NETWORK_PARTITIONING)
+	public NetworkPartitioning getNetworkPartitioning() {
+		return this.networkPartitioning ;
+	}
+	@StringSetter(NETWORK_PARTITIONING)
+	public void setNetworkPartitioning( NetworkPartitioning networkPartitioning ) {
+		this.networkPartitioning = networkPartitioning ;
+	}
+
+	private static final String USING_LOCAL_RUNNER_SYNCHRONIZATION = "usingLocalRunnerSynchronization" ;
+	private boolean usingLocalRunnerSynchronization = false ;
+	@StringGetter(USING_LOCAL_RUNNER_SYNCHRONIZATION)
+	public boolean isUsingLocalRunnerSynchronization() {
+		return this.usingLocalRunnerSynchronization ;
+	}
+	@StringSetter(USING_LOCAL_RUNNER_SYNCHRONIZATION)
+	public void setUsingLocalRunnerSynchronization( boolean val ) {
+		this.usingLocalRunnerSynchronization = val ;
+	}
+
+	private static final String USING_LINK_WAKE_UP_SCHEDULE = "usingLinkWakeUpSchedule" ;
+	private boolean usingLinkWakeUpSchedule = false ;
+	@StringGetter(USING_LINK_WAKE_UP_SCHEDULE)
+	public boolean isUsingLinkWakeUpSchedule() {
+		return this.usingLinkWakeUpSchedule ;
+	}
+	@StringSetter(USING_LINK_WAKE_UP_SCHEDULE)
+	public void setUsingLinkWakeUpSchedule( boolean val ) {
+		this.usingLinkWakeUpSchedule = val ;
+	}
+
+	private static final String NETSIM_REBALANCING_INTERVAL = "netsimRebalancingInterval" ;
+	private double netsimRebalancingInterval = 0. ;
+	@StringGetter(NETSIM_REBALANCING_INTERVAL)
+	public double getNetsimRebalancingInterval() {
+		return this.netsimRebalancingInterval ;
+	}
+	@StringSetter(NETSIM_REBALANCING_INTERVAL)
+	public void setNetsimRebalancingInterval( double netsimRebalancingInterval ) {
+		this.netsimRebalancingInterval = netsimRebalancingInterval ;
+	}
+
 	private static final String USE_LANES="useLanes" ;
 	private boolean useLanes = false ;
 
@@ -0,0 +1,256 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventHandlerAdapter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.events.handler.ActivityEndEventHandler;
+import org.matsim.api.core.v01.events.handler.ActivityStartEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonEntersVehicleEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonLeavesVehicleEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonMoneyEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonStuckEventHandler;
+import org.matsim.api.core.v01.events.handler.TransitDriverStartsEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleAbortsEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleLeavesTrafficEventHandler;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.api.experimental.events.handler.AgentWaitingForPtEventHandler;
+import org.matsim.core.api.experimental.events.handler.TeleportationArrivalEventHandler;
+import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
+import org.matsim.core.api.experimental.events.handler.VehicleDepartsAtFacilityEventHandler;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Calls the <code>handleEvent</code> method of an event handler for one specific event class.  Adapters are created once
+ * per event class when the handlers are looked up, so that dispatching an event neither needs to find out which
+ * method to call nor uses reflection.
+ * <p></p>
+ * The event classes of the core get an adapter that simply casts.  All other event classes (e.g. the ones of
+ * emissions, noise or dvrp) get an adapter around a {@link MethodHandle}, which, in contrast to
+ * {@link Method#invoke(Object, Object...)}, neither allocates an argument array nor does access checks per call.
+ *
+ * @see EventsManagerImpl
+ * @see SingleHandlerEventsManager
+ */
+abstract class EventHandlerAdapter {
+
+	abstract void handleEvent(EventHandler handler, Event event);
+
+	/**
+	 * @param eventClass the event class the handler method was registered for
+	 * @param method the <code>handleEvent</code> method of the handler interface
+	 */
+	static EventHandlerAdapter create(final Class<?> eventClass, final Method method) {
+		// add an appropriate line here for speeding up the execution of new core events
+		final Class<?> handlerInterface = method.getDeclaringClass();
+		if (eventClass == LinkLeaveEvent.class && LinkLeaveEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((LinkLeaveEventHandler) handler).handleEvent((LinkLeaveEvent) event);
+				}
+			};
+		} else if (eventClass == LinkEnterEvent.class && LinkEnterEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((LinkEnterEventHandler) handler).handleEvent((LinkEnterEvent) event);
+				}
+			};
+		} else if (eventClass == VehicleEntersTrafficEvent.class && VehicleEntersTrafficEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((VehicleEntersTrafficEventHandler) handler).handleEvent((VehicleEntersTrafficEvent) event);
+				}
+			};
+		} else if (eventClass == VehicleLeavesTrafficEvent.class && VehicleLeavesTrafficEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((VehicleLeavesTrafficEventHandler) handler).handleEvent((VehicleLeavesTrafficEvent) event);
+				}
+			};
+		} else if (eventClass == PersonArrivalEvent.class && PersonArrivalEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((PersonArrivalEventHandler) handler).handleEvent((PersonArrivalEvent) event);
+				}
+			};
+		} else if (eventClass == PersonDepartureEvent.class && PersonDepartureEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((PersonDepartureEventHandler) handler).handleEvent((PersonDepartureEvent) event);
+				}
+			};
+		} else if (eventClass == ActivityEndEvent.class && ActivityEndEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((ActivityEndEventHandler) handler).handleEvent((ActivityEndEvent) event);
+				}
+			};
+		} else if (eventClass == ActivityStartEvent.class && ActivityStartEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((ActivityStartEventHandler) handler).handleEvent((ActivityStartEvent) event);
+				}
+			};
+		} else if (eventClass == TeleportationArrivalEvent.class && TeleportationArrivalEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((TeleportationArrivalEventHandler) handler).handleEvent((TeleportationArrivalEvent) event);
+				}
+			};
+		} else if (eventClass == TransitDriverStartsEvent.class && TransitDriverStartsEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((TransitDriverStartsEventHandler) handler).handleEvent((TransitDriverStartsEvent) event);
+				}
+			};
+		} else if (eventClass == PersonStuckEvent.class && PersonStuckEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((PersonStuckEventHandler) handler).handleEvent((PersonStuckEvent) event);
+				}
+			};
+		} else if (eventClass == PersonMoneyEvent.class && PersonMoneyEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((PersonMoneyEventHandler) handler).handleEvent((PersonMoneyEvent) event);
+				}
+			};
+		} else if (eventClass == AgentWaitingForPtEvent.class && AgentWaitingForPtEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((AgentWaitingForPtEventHandler) handler).handleEvent((AgentWaitingForPtEvent) event);
+				}
+			};
+		} else if (eventClass == PersonEntersVehicleEvent.class && PersonEntersVehicleEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((PersonEntersVehicleEventHandler) handler).handleEvent((PersonEntersVehicleEvent) event);
+				}
+			};
+		} else if (eventClass == PersonLeavesVehicleEvent.class && PersonLeavesVehicleEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((PersonLeavesVehicleEventHandler) handler).handleEvent((PersonLeavesVehicleEvent) event);
+				}
+			};
+		} else if (eventClass == VehicleDepartsAtFacilityEvent.class && VehicleDepartsAtFacilityEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((VehicleDepartsAtFacilityEventHandler) handler).handleEvent((VehicleDepartsAtFacilityEvent) event);
+				}
+			};
+		} else if (eventClass == VehicleArrivesAtFacilityEvent.class && VehicleArrivesAtFacilityEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((VehicleArrivesAtFacilityEventHandler) handler).handleEvent((VehicleArrivesAtFacilityEvent) event);
+				}
+			};
+		} else if (eventClass == VehicleAbortsEvent.class && VehicleAbortsEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((VehicleAbortsEventHandler) handler).handleEvent((VehicleAbortsEvent) event);
+				}
+			};
+		} else if (eventClass == Event.class && BasicEventHandler.class.isAssignableFrom(handlerInterface)) {
+			return new EventHandlerAdapter() {
+				@Override
+				void handleEvent(EventHandler handler, Event event) {
+					((BasicEventHandler) handler).handleEvent(event);
+				}
+			};
+		}
+		return new MethodHandleAdapter(method);
+	}
+
+	private static final class MethodHandleAdapter extends EventHandlerAdapter {
+		private static final MethodType HANDLE_EVENT_TYPE = MethodType.methodType(void.class, EventHandler.class, Event.class);
+
+		private final MethodHandle handle;
+
+		MethodHandleAdapter(Method method) {
+			try {
+				// the handler interface may not be accessible from here, although its method is public
+				method.setAccessible(true);
+				this.handle = MethodHandles.lookup().unreflect(method).asType(HANDLE_EVENT_TYPE);
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException("problem accessing handler method " + method, e);
+			}
+		}
+
+		@Override
+		void handleEvent(EventHandler handler, Event event) {
+			try {
+				this.handle.invokeExact(handler, event);
+			} catch (Throwable e) {
+				// same exception chain as with reflective calls, which is what callers used to see for these events
+				throw new RuntimeException("problem invoking EventHandler " + handler.getClass().getCanonicalName() + " for event-class "
+						+ event.getClass().getCanonicalName(), new InvocationTargetException(e));
+			}
+		}
+	}
+
+}
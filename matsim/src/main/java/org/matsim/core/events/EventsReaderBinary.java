@@ -0,0 +1,238 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads events files written by {@link EventWriterBinary}.
+ * <p></p>
+ * Using the block index at the end of the file, the reader can restrict reading to a time window
+ * (see {@link #setTimeWindow(double, double)}) and/or to a set of event types
+ * (see {@link #setEventTypes(Set)}). Blocks that cannot contain any matching event are skipped
+ * without being decompressed. The events are created in the same way as by {@link EventsReaderXMLv1},
+ * including the handling of custom event mappers.
+ */
+public final class EventsReaderBinary implements MatsimReader {
+
+	private final static Logger log = Logger.getLogger(EventsReaderBinary.class);
+
+	public static final int MAGIC = 0x4d455642; // "MEVB"
+	public static final int VERSION = 1;
+
+	private final EventsReaderXMLv1 delegate;
+
+	private double fromTime = Double.NEGATIVE_INFINITY;
+	private double toTime = Double.POSITIVE_INFINITY;
+	private Set<String> eventTypes = null;
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.delegate = new EventsReaderXMLv1(events);
+	}
+
+	public void addCustomEventMapper(String eventType, CustomEventMapper cem) {
+		this.delegate.addCustomEventMapper(eventType, cem);
+	}
+
+	/**
+	 * Only events with <code>fromTime &lt;= time &lt;= toTime</code> will be read.
+	 */
+	public void setTimeWindow(final double fromTime, final double toTime) {
+		this.fromTime = fromTime;
+		this.toTime = toTime;
+	}
+
+	/**
+	 * Only events of the given types will be read. <code>null</code> reads all events (the default).
+	 */
+	public void setEventTypes(final Set<String> eventTypes) {
+		this.eventTypes = eventTypes == null ? null : new HashSet<>(eventTypes);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+			read(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void read(final RandomAccessFile file) throws IOException {
+		long length = file.length();
+		if (length < 20 || file.readInt() != MAGIC) {
+			throw new IllegalArgumentException("Not a binary events file.");
+		}
+		int version = file.readInt();
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported version of binary events file: " + version);
+		}
+		file.seek(length - 12);
+		long footerOffset = file.readLong();
+		if (file.readInt() != MAGIC) {
+			throw new IllegalArgumentException("Binary events file is incomplete, it was probably not closed correctly.");
+		}
+		byte[] footerBytes = new byte[(int) (length - 12 - footerOffset)];
+		file.seek(footerOffset);
+		file.readFully(footerBytes);
+		DataInputStream footer = new DataInputStream(new ByteArrayInputStream(footerBytes));
+
+		String[] strings = new String[footer.readInt()];
+		byte[] buffer = new byte[256];
+		for (int i = 0; i < strings.length; i++) {
+			int len = footer.readInt();
+			if (len > buffer.length) {
+				buffer = new byte[Math.max(len, 2 * buffer.length)];
+			}
+			footer.readFully(buffer, 0, len);
+			strings[i] = new String(buffer, 0, len, StandardCharsets.UTF_8);
+		}
+		BitSet acceptedTypes = null;
+		if (this.eventTypes != null) {
+			acceptedTypes = new BitSet();
+			for (int i = 0; i < strings.length; i++) {
+				if (this.eventTypes.contains(strings[i])) {
+					acceptedTypes.set(i);
+				}
+			}
+		}
+
+		int nOfBlocks = footer.readInt();
+		int blocksRead = 0;
+		Inflater inflater = new Inflater();
+		byte[] compressed = new byte[1 << 16];
+		byte[] raw = new byte[1 << 16];
+		AttributesImpl atts = new AttributesImpl();
+		try {
+			for (int b = 0; b < nOfBlocks; b++) {
+				long offset = footer.readLong();
+				footer.readInt(); // number of events
+				double minTime = footer.readDouble();
+				double maxTime = footer.readDouble();
+				boolean containsType = acceptedTypes == null;
+				int nOfTypes = footer.readInt();
+				for (int t = 0; t < nOfTypes; t++) {
+					int type = footer.readInt();
+					containsType = containsType || acceptedTypes.get(type);
+				}
+				if (!containsType || maxTime < this.fromTime || minTime > this.toTime) {
+					continue;
+				}
+
+				file.seek(offset);
+				int rawLength = file.readInt();
+				int compressedLength = file.readInt();
+				if (compressed.length < compressedLength) {
+					compressed = new byte[compressedLength];
+				}
+				if (raw.length < rawLength) {
+					raw = new byte[rawLength];
+				}
+				file.readFully(compressed, 0, compressedLength);
+				inflater.reset();
+				inflater.setInput(compressed, 0, compressedLength);
+				int inflated = 0;
+				while (inflated < rawLength) {
+					int n = inflater.inflate(raw, inflated, rawLength - inflated);
+					if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+						throw new IOException("Corrupt block at position " + offset + " in binary events file.");
+					}
+					inflated += n;
+				}
+				readBlock(new DataInputStream(new ByteArrayInputStream(raw, 0, rawLength)), strings, acceptedTypes, atts);
+				blocksRead++;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		} finally {
+			inflater.end();
+		}
+		log.info("read " + blocksRead + " of " + nOfBlocks + " blocks of binary events.");
+	}
+
+	private void readBlock(final DataInputStream in, final String[] strings, final BitSet acceptedTypes,
+			final AttributesImpl atts) throws IOException {
+		while (in.available() > 0) {
+			double time = in.readDouble();
+			int type = readVarInt(in);
+			int nOfAttributes = readVarInt(in);
+			boolean accept = (acceptedTypes == null || acceptedTypes.get(type)) && time >= this.fromTime && time <= this.toTime;
+			atts.clear();
+			for (int i = 0; i < nOfAttributes; i++) {
+				int key = readVarInt(in);
+				int value = readVarInt(in);
+				if (accept) {
+					String name = strings[key];
+					atts.addAttribute("", name, name, "CDATA", value == 0 ? null : strings[value - 1]);
+				}
+			}
+			if (accept) {
+				this.delegate.processEvent(time, strings[type], atts);
+			}
+		}
+	}
+
+	private static int readVarInt(final DataInputStream in) throws IOException {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.readByte();
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	/**
+	 * @return <code>true</code> if the given file exists and starts with the header of a binary events file.
+	 */
+	public static boolean isBinaryEventsFile(final String filename) {
+		File f = new File(filename);
+		if (!f.isFile() || f.length() < 4) {
+			return false;
+		}
+		try (RandomAccessFile file = new RandomAccessFile(f, "r")) {
+			return file.readInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+}
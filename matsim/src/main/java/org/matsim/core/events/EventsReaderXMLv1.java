@@ -103,7 +103,14 @@ public class EventsReaderXMLv1 extends MatsimXmlParser {
 	private void startEvent(final Attributes atts) {
 		double time = Double.parseDouble(atts.getValue("time"));
 		String eventType = atts.getValue("type");
+		processEvent(time, eventType, atts);
+	}
 
+	/**
+	 * Creates the event of the given type from its attributes and passes it to the events manager. Also
+	 * used by {@link EventsReaderBinary}, which provides the attributes without <code>time</code> and <code>type</code>.
+	 */
+	/*package*/ void processEvent(final double time, final String eventType, final Attributes atts) {
 		// === material related to wait2link below here ===
 		if (LinkLeaveEvent.EVENT_TYPE.equals(eventType)) {
 			this.events.processEvent(new LinkLeaveEvent(time, 
@@ -0,0 +1,207 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsRingBuffer.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.WaitStrategy;
+
+/**
+ * A bounded, lock-free buffer through which any number of threads publish events and a fixed number of consumers
+ * each receive every event, in the order of publication.
+ * <p></p>
+ * Producers claim a slot by incrementing a shared sequence, write the event into a pre-allocated array and mark the
+ * slot as available.  Every consumer has its own sequence; a slot can only be reused once all consumers have
+ * passed it.  Consumers take all events that are available at once and publish their progress once per batch.
+ * Nothing is allocated per event.
+ *
+ * @see RingBufferParallelEventsManagerImpl
+ */
+final class EventsRingBuffer {
+
+	private final Event[] entries;
+	private final int mask;
+	private final int indexShift;
+
+	/*
+	 * For every slot, the "round" (sequence / size) of the event that was last published into it.  Needed since
+	 * multiple producers may finish writing their slots in a different order than they claimed them.
+	 */
+	private final AtomicIntegerArray availableRounds;
+
+	private final AtomicLong claimedSequence = new AtomicLong(-1);
+
+	private final AtomicLong[] consumerSequences;
+
+	/*
+	 * The minimum of the consumer sequences, as last seen by a producer.  Only ever too small, never too large, so
+	 * producers only need to look at the consumer sequences if it tells them that the buffer may be full.
+	 */
+	private volatile long cachedGatingSequence = -1;
+
+	private final WaitStrategy waitStrategy;
+
+	EventsRingBuffer(final int minimumSize, final int numberOfConsumers, final WaitStrategy waitStrategy) {
+		int size = 1;
+		while (size < minimumSize) {
+			size <<= 1;
+		}
+		this.entries = new Event[size];
+		this.mask = size - 1;
+		this.indexShift = Integer.numberOfTrailingZeros(size);
+		this.availableRounds = new AtomicIntegerArray(size);
+		for (int i = 0; i < size; i++) {
+			this.availableRounds.set(i, -1);
+		}
+		this.consumerSequences = new AtomicLong[numberOfConsumers];
+		for (int i = 0; i < numberOfConsumers; i++) {
+			this.consumerSequences[i] = new AtomicLong(-1);
+		}
+		this.waitStrategy = waitStrategy;
+	}
+
+	/**
+	 * Publishes the event, waiting for the slowest consumer if the buffer is full.
+	 *
+	 * @return the sequence of the event
+	 */
+	long publish(final Event event) {
+		long sequence = this.claimedSequence.incrementAndGet();
+		long wrapPoint = sequence - this.entries.length;
+		int counter = 0;
+		while (wrapPoint > this.cachedGatingSequence) {
+			long gatingSequence = getMinimumConsumerSequence();
+			this.cachedGatingSequence = gatingSequence;
+			if (wrapPoint > gatingSequence) {
+				idle(counter++);
+			}
+		}
+		write(sequence, event);
+		return sequence;
+	}
+
+	/**
+	 * Publishes the event only if this is possible without waiting.
+	 *
+	 * @return <code>false</code> if the buffer is full
+	 */
+	boolean tryPublish(final Event event) {
+		long sequence;
+		do {
+			sequence = this.claimedSequence.get() + 1;
+			if (sequence - this.entries.length > getMinimumConsumerSequence()) {
+				return false;
+			}
+		} while (!this.claimedSequence.compareAndSet(sequence - 1, sequence));
+		write(sequence, event);
+		return true;
+	}
+
+	private void write(final long sequence, final Event event) {
+		int index = (int) (sequence & this.mask);
+		this.entries[index] = event;
+		// the ordered write makes the entry visible to any consumer that sees the new round
+		this.availableRounds.lazySet(index, (int) (sequence >>> this.indexShift));
+	}
+
+	private long getMinimumConsumerSequence() {
+		long minimum = Long.MAX_VALUE;
+		for (AtomicLong consumerSequence : this.consumerSequences) {
+			minimum = Math.min(minimum, consumerSequence.get());
+		}
+		return minimum;
+	}
+
+	private boolean isAvailable(final long sequence) {
+		return this.availableRounds.get((int) (sequence & this.mask)) == (int) (sequence >>> this.indexShift);
+	}
+
+	/**
+	 * Waits until at least the next event for the given consumer is available.
+	 *
+	 * @return the highest sequence up to which all events are available
+	 */
+	long waitFor(final int consumer) {
+		long next = this.consumerSequences[consumer].get() + 1;
+		int counter = 0;
+		while (!isAvailable(next)) {
+			idle(counter++);
+		}
+		long available = next;
+		long claimed = this.claimedSequence.get();
+		while (available < claimed && available - next < this.mask && isAvailable(available + 1)) {
+			available++;
+		}
+		return available;
+	}
+
+	long getClaimedSequence() {
+		return this.claimedSequence.get();
+	}
+
+	long getSequence(final int consumer) {
+		return this.consumerSequences[consumer].get();
+	}
+
+	Event get(final long sequence) {
+		return this.entries[(int) (sequence & this.mask)];
+	}
+
+	/**
+	 * Releases all slots up to and including the given sequence for the given consumer.
+	 */
+	void release(final int consumer, final long sequence) {
+		this.consumerSequences[consumer].lazySet(sequence);
+	}
+
+	/**
+	 * Removes the consumer from the gating, e.g. because it crashed, so that the producers do not wait for it forever.
+	 */
+	void detach(final int consumer) {
+		this.consumerSequences[consumer].set(Long.MAX_VALUE);
+	}
+
+	private void idle(final int counter) {
+		switch (this.waitStrategy) {
+		case busySpin:
+			break;
+		case yield:
+			Thread.yield();
+			break;
+		case park:
+			// spin and yield a little before going to sleep, since the other side is often only a few events behind
+			if (counter < 100) {
+				break;
+			} else if (counter < 200) {
+				Thread.yield();
+			} else {
+				LockSupport.parkNanos(1000);
+			}
+			break;
+		default:
+			throw new RuntimeException("unknown wait strategy " + this.waitStrategy);
+		}
+	}
+
+}
@@ -33,7 +33,8 @@ import org.xml.sax.SAXException;
 
 /**
  * A reader for events-files of MATSim. This reader recognizes the format of the events-file and uses
- * the correct reader for the specific events-version, without manual setting.
+ * the correct reader for the specific events-version, without manual setting. Binary events files
+ * (see {@link EventsReaderBinary}) are recognized by their header, independent of the file name.
  *
  * @author mrieser
  */
@@ -59,7 +60,9 @@ public class MatsimEventsReader implements MatsimReader {
 	@Override
 	public void readFile(final String filename) {
 		String lcFilename = filename.toLowerCase(Locale.ROOT);
-		if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz")) {
+		if (EventsReaderBinary.isBinaryEventsFile(filename)) {
+			new EventsReaderBinary(this.events).readFile(filename);
+		} else if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz")) {
 			new XmlEventsReader(this.events).readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
@@ -165,7 +165,8 @@ public class ParallelEventsManagerImpl implements EventsManager {
 		this.threads = new Thread[numberOfThreads];
 		// the additional 1 is for the simulation barrier
 		for (int i = 0; i < numberOfThreads; i++) {
-			events[i] = (EventsManagerImpl) EventsUtils.createEventsManager();
+			// every handler is registered with exactly one of these, which is only fed by one thread at a time
+			events[i] = new EventsManagerImpl(false);
 		}
 	}
 
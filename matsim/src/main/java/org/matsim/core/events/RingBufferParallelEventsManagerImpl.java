@@ -0,0 +1,226 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferParallelEventsManagerImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.WaitStrategy;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.Gbl;
+
+/**
+ * Like the {@link ParallelEventsManagerImpl}, this distributes the event handlers over a number of threads, each of which
+ * gets all events.  The events are handed over through an {@link EventsRingBuffer} instead of synchronized queues, so
+ * that the mobsim threads neither lock nor allocate when throwing events.
+ * <p></p>
+ * Usage via config.xml:
+ *
+ * <pre>
+ * &lt;module name="parallelEventHandling"&gt;
+ *  &lt;param name="numberOfThreads" value="2" /&gt;
+ *  &lt;param name="synchronizeOnSimSteps" value="false" /&gt;
+ *  &lt;param name="useRingBuffer" value="true" /&gt;
+ * &lt;/module&gt;
+ * </pre>
+ *
+ * Events thrown by event handlers (i.e. from the events handling threads) are not allowed to wait for the ring buffer,
+ * since this could wait for the throwing thread itself.  They are buffered separately if the ring buffer is full and
+ * passed on with the next event of the mobsim, or at the end of the iteration.
+ */
+public final class RingBufferParallelEventsManagerImpl implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(RingBufferParallelEventsManagerImpl.class);
+
+	private final int numberOfThreads;
+	private final int ringBufferSize;
+	private final WaitStrategy waitStrategy;
+	private final EventsManagerImpl[] events;
+	private int numberOfAddedEventsHandler = 0;
+
+	private volatile boolean parallelMode = false;
+	private EventsRingBuffer ringBuffer = null;
+	private Thread[] threads = null;
+	private final ConcurrentLinkedQueue<Event> overflow = new ConcurrentLinkedQueue<>();
+
+	private final AtomicBoolean hadException = new AtomicBoolean(false);
+	private final UncaughtExceptionHandler uncaughtExceptionHandler = new UncaughtExceptionHandler() {
+		@Override
+		public void uncaughtException(Thread t, Throwable e) {
+			log.error("Thread " + t.getName() + " died with exception while handling events.", e);
+			hadException.set(true);
+		}
+	};
+
+	@Inject
+	RingBufferParallelEventsManagerImpl(Config config) {
+		this(config.parallelEventHandling().getNumberOfThreads(), config.parallelEventHandling().getRingBufferSize(),
+				config.parallelEventHandling().getWaitStrategy());
+	}
+
+	public RingBufferParallelEventsManagerImpl(int numberOfThreads, int ringBufferSize, WaitStrategy waitStrategy) {
+		this.numberOfThreads = numberOfThreads;
+		this.ringBufferSize = ringBufferSize;
+		this.waitStrategy = waitStrategy;
+		this.events = new EventsManagerImpl[numberOfThreads];
+		for (int i = 0; i < numberOfThreads; i++) {
+			// every handler is registered with exactly one of these, which is only fed by one thread at a time
+			this.events[i] = new EventsManagerImpl(false);
+		}
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		if (this.parallelMode) {
+			if (Thread.currentThread() instanceof ConsumerThread) {
+				if (!this.overflow.isEmpty() || !this.ringBuffer.tryPublish(event)) {
+					this.overflow.add(event);
+				}
+			} else {
+				if (!this.overflow.isEmpty()) {
+					publishOverflow();
+				}
+				this.ringBuffer.publish(event);
+			}
+		} else {
+			for (EventsManagerImpl manager : this.events) {
+				manager.processEvent(event);
+			}
+		}
+	}
+
+	private void publishOverflow() {
+		Event event;
+		while ((event = this.overflow.poll()) != null) {
+			this.ringBuffer.publish(event);
+		}
+	}
+
+	@Override
+	public synchronized void addHandler(final EventHandler handler) {
+		log.info("adding Event-Handler " + handler.getClass().getName() + " to thread " + this.numberOfAddedEventsHandler);
+		this.events[this.numberOfAddedEventsHandler].addHandler(handler);
+		this.numberOfAddedEventsHandler = (this.numberOfAddedEventsHandler + 1) % this.numberOfThreads;
+	}
+
+	@Override
+	public synchronized void removeHandler(final EventHandler handler) {
+		for (EventsManagerImpl manager : this.events) {
+			manager.removeHandler(handler);
+		}
+	}
+
+	@Override
+	public synchronized void resetHandlers(final int iteration) {
+		for (EventsManagerImpl manager : this.events) {
+			manager.resetHandlers(iteration);
+		}
+	}
+
+	@Override
+	public void initProcessing() {
+		this.hadException.set(false);
+		this.ringBuffer = new EventsRingBuffer(this.ringBufferSize, this.numberOfThreads, this.waitStrategy);
+		this.threads = new Thread[this.numberOfThreads];
+		for (int i = 0; i < this.numberOfThreads; i++) {
+			this.threads[i] = new ConsumerThread(this.ringBuffer, i, this.events[i]);
+			this.threads[i].setUncaughtExceptionHandler(this.uncaughtExceptionHandler);
+			this.threads[i].start();
+		}
+		this.parallelMode = true;
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		// nothing to do in this implementation
+	}
+
+	@Override
+	public void finishProcessing() {
+		publishOverflow();
+		long lastSequence = this.ringBuffer.publish(new LastEventOfIteration(0.0));
+		try {
+			for (Thread thread : this.threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		this.parallelMode = false;
+
+		// events that were thrown by event handlers after the end of the iteration was announced
+		for (long sequence = lastSequence + 1; sequence <= this.ringBuffer.getClaimedSequence(); sequence++) {
+			processEvent(this.ringBuffer.get(sequence));
+		}
+		Event event;
+		while ((event = this.overflow.poll()) != null) {
+			processEvent(event);
+		}
+
+		if (this.hadException.get()) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.");
+		}
+	}
+
+	private static final class ConsumerThread extends Thread {
+		private final EventsRingBuffer ringBuffer;
+		private final int consumer;
+		private final EventsManager events;
+
+		ConsumerThread(EventsRingBuffer ringBuffer, int consumer, EventsManager events) {
+			super("Events-" + consumer);
+			this.ringBuffer = ringBuffer;
+			this.consumer = consumer;
+			this.events = events;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					long available = this.ringBuffer.waitFor(this.consumer);
+					long sequence = this.ringBuffer.getSequence(this.consumer) + 1;
+					for (; sequence <= available; sequence++) {
+						Event event = this.ringBuffer.get(sequence);
+						if (event instanceof LastEventOfIteration) {
+							this.ringBuffer.release(this.consumer, sequence);
+							Gbl.printCurrentThreadCpuTime();
+							return;
+						}
+						this.events.processEvent(event);
+					}
+					this.ringBuffer.release(this.consumer, available);
+				}
+			} catch (RuntimeException | Error e) {
+				this.ringBuffer.detach(this.consumer);
+				throw e;
+			}
+		}
+	}
+
+}
@@ -88,7 +88,8 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		this.delegate = new EventsManagerImpl();
 
 		this.eventsManagers = new EventsManagerImpl[this.numOfThreads];
-		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
+		// each of these is only fed by its own ProcessEventsRunnable, so the handlers need not be locked
+		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl(false);
 	}
 
 	@Override
@@ -20,7 +20,6 @@
 
 package org.matsim.core.events;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -192,8 +191,10 @@ public class SingleHandlerEventsManager implements EventsManager {
 	
 	static private class HandlerInfo {
 		protected final Method method;
-		protected HandlerInfo(final Method method) {
+		protected final EventHandlerAdapter adapter;
+		protected HandlerInfo(final Class<?> eventClass, final Method method) {
 			this.method = method;
+			this.adapter = method == null ? null : EventHandlerAdapter.create(eventClass, method);
 		}
 	}
 
@@ -259,31 +260,25 @@ public class SingleHandlerEventsManager implements EventsManager {
 	
 	private void computeEvent(final Event event) {
 		if (callHandlerFast(event)) return;
-		try {
-			Method method = this.getHandlersForClass(event.getClass());
-			if (method != null) method.invoke(this.eventHandler, event);
-		} catch (IllegalArgumentException e) {
-			throw new RuntimeException("problem invoking EventHandler " + this.eventHandler.getClass().getCanonicalName() + " for event-class " + event.getClass().getCanonicalName(), e);
-		} catch (IllegalAccessException e) {
-			throw new RuntimeException("problem invoking EventHandler " + this.eventHandler.getClass().getCanonicalName() + " for event-class " + event.getClass().getCanonicalName(), e);
-		} catch (InvocationTargetException e) {
-			throw new RuntimeException("problem invoking EventHandler " + this.eventHandler.getClass().getCanonicalName() + " for event-class " + event.getClass().getCanonicalName(), e);
-		}
+		EventHandlerAdapter adapter = this.getHandlersForClass(event.getClass());
+		if (adapter != null) adapter.handleEvent(this.eventHandler, event);
 	}
 	
-	private Method getHandlersForClass(final Class<?> eventClass) {
+	private EventHandlerAdapter getHandlersForClass(final Class<?> eventClass) {
 		Class<?> klass = eventClass;
 		
 		HandlerInfo info = this.methodToHandle.get(eventClass);
-		if (info != null) return info.method;
+		if (info != null) return info.adapter;
 
 		Method method = null;
+		Class<?> handledClass = null;
 		
 		// first search in class-hierarchy
 		while (klass != Object.class) {
 			info = this.methodToHandle.get(klass);
 			if (info != null) {
 				method = info.method;
+				handledClass = klass;
 				break;
 			}
 			klass = klass.getSuperclass();
@@ -295,15 +290,16 @@ public class SingleHandlerEventsManager implements EventsManager {
 				info = this.methodToHandle.get(intfc);
 				if (info != null) {
 					method = info.method;
+					handledClass = intfc;
 					break;
 				}
 			}			
 		}
 
-		info = new HandlerInfo(method);
-		this.methodToHandle.put(eventClass, new HandlerInfo(info.method));
+		info = new HandlerInfo(handledClass, method);
+		this.methodToHandle.put(eventClass, info);
 		
-		return method;
+		return info.adapter;
 	}
 	
 	private void addHandlerInterfaces(final Class<?> handlerClass) {
@@ -315,7 +311,7 @@ public class SingleHandlerEventsManager implements EventsManager {
 					Class<?> eventClass = params[0];
 					log.info("    > " + eventClass.getName());
 					if (!this.methodToHandle.containsKey(eventClass)) {
-						HandlerInfo info = new HandlerInfo(method);
+						HandlerInfo info = new HandlerInfo(eventClass, method);
 						this.methodToHandle.put(eventClass, info);
 					}
 				}
@@ -0,0 +1,247 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events into a compact binary file that can be read with {@link EventsReaderBinary}
+ * (or {@link org.matsim.core.events.MatsimEventsReader}, which recognizes the format).
+ * <p></p>
+ * All strings (event types, attribute names and values) are replaced by indices into a
+ * dictionary. Events are grouped into blocks which are compressed individually; a new block is
+ * started whenever the block is full or the events cross into a new time bin. The dictionary and
+ * an index of all blocks (time range, event types contained, file position) are written at the end
+ * of the file, so readers can skip blocks that are outside of a requested time window or do not
+ * contain any of the requested event types without decompressing them.
+ * <p></p>
+ * File layout (all numbers big endian):
+ * <pre>
+ * int magic, int version
+ * blocks: { int uncompressedLength, int compressedLength, byte[] deflated }*
+ * footer: int nOfStrings, { int length, byte[] utf8 }*,
+ *         int nOfBlocks, { long offset, int nOfEvents, double minTime, double maxTime, int nOfTypes, int[] types }*
+ * long footerOffset, int magic
+ * </pre>
+ * Within a block, every event is stored as <code>double time, varint type, varint nOfAttributes,
+ * { varint key, varint value+1 }*</code>, where a value of 0 encodes <code>null</code>.
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final double DEFAULT_TIME_BIN_SIZE = 900.0;
+	public static final int DEFAULT_EVENTS_PER_BLOCK = 16384;
+
+	private final DataOutputStream out;
+	private long position = 0;
+
+	private final double timeBinSize;
+	private final int eventsPerBlock;
+
+	private final Map<String, Integer> stringIndices = new HashMap<>();
+	private final List<String> strings = new ArrayList<>();
+
+	private final ByteArrayOutputStream blockBytes = new ByteArrayOutputStream(1 << 16);
+	private final DataOutputStream block = new DataOutputStream(this.blockBytes);
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+	private byte[] compressed = new byte[1 << 16];
+
+	private int blockEvents = 0;
+	private double blockMinTime = Double.POSITIVE_INFINITY;
+	private double blockMaxTime = Double.NEGATIVE_INFINITY;
+	private long blockTimeBin = Long.MIN_VALUE;
+	private final BitSet blockTypes = new BitSet();
+
+	private final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+	private final DataOutputStream index = new DataOutputStream(this.indexBytes);
+	private int nOfBlocks = 0;
+
+	public EventWriterBinary(final String filename) {
+		this(filename, DEFAULT_TIME_BIN_SIZE, DEFAULT_EVENTS_PER_BLOCK);
+	}
+
+	/**
+	 * @param filename the file to write to. The file is compressed block-wise, so it should <em>not</em> end with ".gz".
+	 * @param timeBinSize events of different time bins are never written to the same block. Smaller values make
+	 *        seeking to a time window more precise, at the cost of smaller blocks and thus a worse compression.
+	 * @param eventsPerBlock the maximum number of events written to a single block.
+	 */
+	public EventWriterBinary(final String filename, final double timeBinSize, final int eventsPerBlock) {
+		if (timeBinSize <= 0 || eventsPerBlock <= 0) {
+			throw new IllegalArgumentException("timeBinSize and eventsPerBlock must be positive.");
+		}
+		this.timeBinSize = timeBinSize;
+		this.eventsPerBlock = eventsPerBlock;
+		try {
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16));
+			this.out.writeInt(EventsReaderBinary.MAGIC);
+			this.out.writeInt(EventsReaderBinary.VERSION);
+			this.position = 8;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iteration) {
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		double time = event.getTime();
+		long timeBin = (long) Math.floor(time / this.timeBinSize);
+		if (this.blockEvents > 0 && (this.blockEvents >= this.eventsPerBlock || timeBin != this.blockTimeBin)) {
+			flushBlock();
+		}
+		this.blockTimeBin = timeBin;
+		int type = stringIndex(event.getEventType());
+		Map<String, String> attributes = event.getAttributes();
+		try {
+			this.block.writeDouble(time);
+			writeVarInt(this.block, type);
+			int nOfAttributes = attributes.size();
+			if (attributes.containsKey(Event.ATTRIBUTE_TIME)) {
+				nOfAttributes--;
+			}
+			if (attributes.containsKey(Event.ATTRIBUTE_TYPE)) {
+				nOfAttributes--;
+			}
+			writeVarInt(this.block, nOfAttributes);
+			for (Map.Entry<String, String> e : attributes.entrySet()) {
+				String key = e.getKey();
+				if (Event.ATTRIBUTE_TIME.equals(key) || Event.ATTRIBUTE_TYPE.equals(key)) {
+					continue;
+				}
+				writeVarInt(this.block, stringIndex(key));
+				String value = e.getValue();
+				writeVarInt(this.block, value == null ? 0 : stringIndex(value) + 1);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.blockEvents++;
+		this.blockTypes.set(type);
+		if (time < this.blockMinTime) {
+			this.blockMinTime = time;
+		}
+		if (time > this.blockMaxTime) {
+			this.blockMaxTime = time;
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		if (this.blockEvents > 0) {
+			flushBlock();
+		}
+		try {
+			long footerOffset = this.position;
+			this.out.writeInt(this.strings.size());
+			for (String s : this.strings) {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				this.out.writeInt(bytes.length);
+				this.out.write(bytes);
+			}
+			this.out.writeInt(this.nOfBlocks);
+			this.indexBytes.writeTo(this.out);
+			this.out.writeLong(footerOffset);
+			this.out.writeInt(EventsReaderBinary.MAGIC);
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.deflater.end();
+		}
+	}
+
+	private void flushBlock() {
+		byte[] raw = this.blockBytes.toByteArray();
+		this.deflater.reset();
+		this.deflater.setInput(raw);
+		this.deflater.finish();
+		int length = 0;
+		while (!this.deflater.finished()) {
+			if (length == this.compressed.length) {
+				byte[] tmp = new byte[this.compressed.length * 2];
+				System.arraycopy(this.compressed, 0, tmp, 0, length);
+				this.compressed = tmp;
+			}
+			length += this.deflater.deflate(this.compressed, length, this.compressed.length - length);
+		}
+		try {
+			this.index.writeLong(this.position);
+			this.index.writeInt(this.blockEvents);
+			this.index.writeDouble(this.blockMinTime);
+			this.index.writeDouble(this.blockMaxTime);
+			this.index.writeInt(this.blockTypes.cardinality());
+			for (int t = this.blockTypes.nextSetBit(0); t >= 0; t = this.blockTypes.nextSetBit(t + 1)) {
+				this.index.writeInt(t);
+			}
+
+			this.out.writeInt(raw.length);
+			this.out.writeInt(length);
+			this.out.write(this.compressed, 0, length);
+			this.position += 8 + length;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.nOfBlocks++;
+		this.blockBytes.reset();
+		this.blockEvents = 0;
+		this.blockMinTime = Double.POSITIVE_INFINITY;
+		this.blockMaxTime = Double.NEGATIVE_INFINITY;
+		this.blockTypes.clear();
+	}
+
+	private int stringIndex(final String s) {
+		Integer index = this.stringIndices.get(s);
+		if (index == null) {
+			index = this.strings.size();
+			this.strings.add(s);
+			this.stringIndices.put(s, index);
+		}
+		return index;
+	}
+
+	private static void writeVarInt(final DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+}
@@ -0,0 +1,218 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ActivityEndsQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+/**
+ * Priority queue of the agents performing an activity, ordered by their activity end times.
+ * <p>
+ * Other than a {@link java.util.PriorityQueue}, every entry knows its position in the heap, and
+ * the entries can be looked up by their agent. Thus, removing an agent (e.g. when its activity end
+ * is rescheduled) takes O(log n) instead of a linear scan over all queued agents. The sift operations
+ * are the same as in {@link java.util.PriorityQueue}, so agents leave their activities in exactly the
+ * same order as they did with the priority queue that was used before.
+ * <p>
+ * The queue is not synchronized. Agents are handed to the {@link ActivityEngine} via
+ * {@link InternalInterface#arrangeNextAgentState(MobsimAgent)}, which is synchronized, and the engine
+ * itself is only called from the simulation thread.
+ */
+/*package*/ final class ActivityEndsQueue implements Iterable<ActivityEndsQueue.Entry> {
+
+	/**
+	 * Agents cannot be added directly to the activityEndsList since that would
+	 * not be thread-safe when within-day replanning is used. There, an agent's
+	 * activity end time can be modified. As a result, the agent is located at
+	 * the wrong position in the activityEndsList until it is updated by using
+	 * rescheduleActivityEnd(...). However, if another agent is added to the list
+	 * in the mean time, it might be inserted at the wrong position.
+	 * cdobler, apr'12
+	 */
+	/*package*/ static final class Entry {
+		final MobsimAgent agent;
+		final double activityEndTime;
+		int position = -1;
+
+		Entry(MobsimAgent agent, double activityEndTime) {
+			this.agent = agent;
+			this.activityEndTime = activityEndTime;
+		}
+	}
+
+	private Entry[] heap;
+	private int size = 0;
+	private final Map<MobsimAgent, Entry> entries = new IdentityHashMap<>();
+
+	/*package*/ ActivityEndsQueue(int initialCapacity) {
+		this.heap = new Entry[Math.max(1, initialCapacity)];
+	}
+
+	/**
+	 * Adds the agent with the given activity end time. If the agent is already queued,
+	 * its old entry is replaced.
+	 */
+	/*package*/ void add(MobsimAgent agent, double activityEndTime) {
+		Entry entry = new Entry(agent, activityEndTime);
+		Entry oldEntry = this.entries.put(agent, entry);
+		if (oldEntry != null) {
+			removeAt(oldEntry.position);
+		}
+		if (this.size == this.heap.length) {
+			this.heap = Arrays.copyOf(this.heap, this.heap.length * 2);
+		}
+		siftUp(this.size++, entry);
+	}
+
+	/**
+	 * @return the removed entry of the agent, or <code>null</code> if the agent is not queued
+	 */
+	/*package*/ Entry remove(MobsimAgent agent) {
+		Entry entry = this.entries.remove(agent);
+		if (entry != null) {
+			removeAt(entry.position);
+		}
+		return entry;
+	}
+
+	/*package*/ Entry peek() {
+		return this.size == 0 ? null : this.heap[0];
+	}
+
+	/*package*/ Entry poll() {
+		if (this.size == 0) return null;
+		Entry first = this.heap[0];
+		this.entries.remove(first.agent);
+		removeAt(0);
+		return first;
+	}
+
+	/*package*/ int size() {
+		return this.size;
+	}
+
+	/*package*/ void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.heap[i].position = -1;
+			this.heap[i] = null;
+		}
+		this.size = 0;
+		this.entries.clear();
+	}
+
+	/**
+	 * Returns the entries in the order of the underlying array, i.e. NOT sorted by their
+	 * activity end times. Removing entries via the iterator is not supported.
+	 */
+	@Override
+	public Iterator<Entry> iterator() {
+		return new Iterator<Entry>() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return this.next < ActivityEndsQueue.this.size;
+			}
+
+			@Override
+			public Entry next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				return ActivityEndsQueue.this.heap[this.next++];
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	private void removeAt(int i) {
+		this.heap[i].position = -1;
+		int last = --this.size;
+		if (last == i) {
+			this.heap[i] = null;
+		} else {
+			Entry moved = this.heap[last];
+			this.heap[last] = null;
+			siftDown(i, moved);
+			if (this.heap[i] == moved) {
+				siftUp(i, moved);
+			}
+		}
+	}
+
+	private void siftUp(int k, Entry entry) {
+		while (k > 0) {
+			int parent = (k - 1) >>> 1;
+			Entry e = this.heap[parent];
+			if (compare(entry, e) >= 0) break;
+			set(k, e);
+			k = parent;
+		}
+		set(k, entry);
+	}
+
+	private void siftDown(int k, Entry entry) {
+		int half = this.size >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			Entry c = this.heap[child];
+			int right = child + 1;
+			if (right < this.size && compare(c, this.heap[right]) > 0) {
+				c = this.heap[child = right];
+			}
+			if (compare(entry, c) <= 0) break;
+			set(k, c);
+			k = child;
+		}
+		set(k, entry);
+	}
+
+	private void set(int k, Entry entry) {
+		this.heap[k] = entry;
+		entry.position = k;
+	}
+
+	private static int compare(Entry arg0, Entry arg1) {
+		int cmp = Double.compare(arg0.activityEndTime, arg1.activityEndTime);
+		if (cmp == 0) {
+			// Both depart at the same time -> let the one with the larger id be first (=smaller)
+			//
+			// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
+			// to say that the agent with the larger ID should be "smaller" one in the comparison.
+			// In practice, it seems
+			// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
+			// It is unclear why this convention is supposed to be helpful.
+			// kai & dominik, jul'12
+			//
+			return arg1.agent.getId().compareTo(arg0.agent.getId());
+		}
+		return cmp;
+	}
+
+}
@@ -0,0 +1,210 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TeleportationCalendarQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+/**
+ * Calendar queue for the arrivals of teleported agents, with one bucket per simulated second.
+ * <p>
+ * An agent arriving at time t is stored in the bucket of second ceil(t), so it is due in the time step
+ * of that second. The buckets form a ring of {@value #BUCKETS} seconds. Arrivals further in the future
+ * share the bucket with earlier ones, which is why each bucket is a small heap ordered by the arrival
+ * time and, for equal times, by descending agent id. Agents thus leave the queue in the same order as
+ * with a single priority queue over all arrivals, but adding an agent only costs a sift in a bucket
+ * with the few agents arriving in the same second.
+ * <p>
+ * Arrival times and agents are kept in plain arrays, so no objects are created per teleported agent.
+ */
+/*package*/ final class TeleportationCalendarQueue {
+
+	private static final int BUCKETS = 1 << 13;
+	private static final int MASK = BUCKETS - 1;
+
+	private final Bucket[] buckets = new Bucket[BUCKETS];
+	private int size = 0;
+	/**
+	 * First second whose bucket may still contain arrivals that are due. Arrivals that are added for
+	 * an earlier second are put into this bucket.
+	 */
+	private long currentSecond = Long.MIN_VALUE;
+
+	/*package*/ void add(MobsimAgent agent, double arrivalTime) {
+		long second = (long) Math.ceil(arrivalTime);
+		if (second < this.currentSecond) {
+			second = this.currentSecond;
+		}
+		int index = (int) (second & MASK);
+		Bucket bucket = this.buckets[index];
+		if (bucket == null) {
+			bucket = new Bucket();
+			this.buckets[index] = bucket;
+		}
+		bucket.add(agent, arrivalTime);
+		this.size++;
+	}
+
+	/**
+	 * Removes and returns the next agent whose arrival time is not after <code>now</code>, or returns
+	 * <code>null</code> if there is no such agent.
+	 */
+	/*package*/ MobsimAgent pollDue(double now) {
+		if (this.size == 0) {
+			this.currentSecond = Math.max(this.currentSecond, (long) Math.floor(now) + 1);
+			return null;
+		}
+		if (this.currentSecond == Long.MIN_VALUE) {
+			this.currentSecond = Math.min(firstOccupiedSecond(), (long) Math.floor(now) + 1);
+		}
+		long lastSecond = (long) Math.ceil(now);
+		while (this.currentSecond <= lastSecond) {
+			Bucket bucket = this.buckets[(int) (this.currentSecond & MASK)];
+			double bound = Math.min(now, this.currentSecond);
+			if (bucket != null && bucket.size > 0 && bucket.times[0] <= bound) {
+				this.size--;
+				return bucket.poll();
+			}
+			if (this.currentSecond > now) {
+				// only the arrivals until now are due in this bucket
+				break;
+			}
+			this.currentSecond++;
+		}
+		return null;
+	}
+
+	/*package*/ int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return all queued agents, sorted by their arrival times
+	 */
+	/*package*/ List<MobsimAgent> getAgents() {
+		final double[] times = new double[this.size];
+		final MobsimAgent[] agents = new MobsimAgent[this.size];
+		Integer[] order = new Integer[this.size];
+		int n = 0;
+		for (Bucket bucket : this.buckets) {
+			if (bucket == null) continue;
+			for (int i = 0; i < bucket.size; i++) {
+				times[n] = bucket.times[i];
+				agents[n] = bucket.agents[i];
+				order[n] = n;
+				n++;
+			}
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				return TeleportationCalendarQueue.compare(times[i1], agents[i1], times[i2], agents[i2]);
+			}
+		});
+		List<MobsimAgent> sorted = new ArrayList<>(n);
+		for (Integer i : order) {
+			sorted.add(agents[i]);
+		}
+		return sorted;
+	}
+
+	/*package*/ void clear() {
+		Arrays.fill(this.buckets, null);
+		this.size = 0;
+		this.currentSecond = Long.MIN_VALUE;
+	}
+
+	private long firstOccupiedSecond() {
+		long first = Long.MAX_VALUE;
+		for (Bucket bucket : this.buckets) {
+			if (bucket != null && bucket.size > 0) {
+				first = Math.min(first, (long) Math.ceil(bucket.times[0]));
+			}
+		}
+		return first;
+	}
+
+	private static int compare(double time1, MobsimAgent agent1, double time2, MobsimAgent agent2) {
+		int ret = Double.compare(time1, time2); // first compare time information
+		if (ret == 0) {
+			ret = agent2.getId().compareTo(agent1.getId()); // if they're equal, compare the Ids: the one with the larger Id should be first
+		}
+		return ret;
+	}
+
+	/**
+	 * Binary min-heap of the agents arriving in one second of the calendar.
+	 */
+	private static final class Bucket {
+		double[] times = new double[4];
+		MobsimAgent[] agents = new MobsimAgent[4];
+		int size = 0;
+
+		void add(MobsimAgent agent, double time) {
+			if (this.size == this.times.length) {
+				this.times = Arrays.copyOf(this.times, this.size * 2);
+				this.agents = Arrays.copyOf(this.agents, this.size * 2);
+			}
+			int k = this.size++;
+			while (k > 0) {
+				int parent = (k - 1) >>> 1;
+				if (compare(time, agent, this.times[parent], this.agents[parent]) >= 0) break;
+				this.times[k] = this.times[parent];
+				this.agents[k] = this.agents[parent];
+				k = parent;
+			}
+			this.times[k] = time;
+			this.agents[k] = agent;
+		}
+
+		MobsimAgent poll() {
+			MobsimAgent first = this.agents[0];
+			int last = --this.size;
+			double time = this.times[last];
+			MobsimAgent agent = this.agents[last];
+			this.agents[last] = null;
+			if (last > 0) {
+				int k = 0;
+				int half = last >>> 1;
+				while (k < half) {
+					int child = (k << 1) + 1;
+					int right = child + 1;
+					if (right < last && compare(this.times[child], this.agents[child], this.times[right], this.agents[right]) > 0) {
+						child = right;
+					}
+					if (compare(time, agent, this.times[child], this.agents[child]) <= 0) break;
+					this.times[k] = this.times[child];
+					this.agents[k] = this.agents[child];
+					k = child;
+				}
+				this.times[k] = time;
+				this.agents[k] = agent;
+			}
+			return first;
+		}
+	}
+
+}
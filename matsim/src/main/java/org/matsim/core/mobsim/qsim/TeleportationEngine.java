@@ -13,7 +13,6 @@ import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.network.NetworkUtils;
-import org.matsim.core.utils.collections.Tuple;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.facilities.Facility;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
@@ -31,19 +30,13 @@ public final class TeleportationEngine implements DepartureHandler, MobsimEngine
 VisData {
 	private static final Logger log = Logger.getLogger( TeleportationEngine.class ) ;
 	
-	private final Queue<Tuple<Double, MobsimAgent>> teleportationList = new PriorityQueue<>(
-			30, new Comparator<Tuple<Double, MobsimAgent>>() {
-
-		@Override
-		public int compare(Tuple<Double, MobsimAgent> o1, Tuple<Double, MobsimAgent> o2) {
-			int ret = o1.getFirst().compareTo(o2.getFirst()); // first compare time information
-			if (ret == 0) {
-				ret = o2.getSecond().getId().compareTo(o1.getSecond().getId()); // if they're equal, compare the Ids: the one with the larger Id should be first
-			}
-			return ret;
-		}
-	});
+	private final TeleportationCalendarQueue teleportationList = new TeleportationCalendarQueue();
 	private final LinkedHashMap<Id<Person>, TeleportationVisData> teleportationData = new LinkedHashMap<>();
+	/**
+	 * Vis data is only collected once somebody asked for it, i.e. when a visualizer shows teleported agents.
+	 * Agents that are already teleported at that moment are shown from their next teleported leg on.
+	 */
+	private boolean collectVisData = false;
 	private InternalInterface internalInterface;
 	private Scenario scenario;
 	private EventsManager eventsManager;
@@ -75,9 +68,12 @@ VisData {
 		}
     	
 		double arrivalTime = now + travelTime ;
-		this.teleportationList.add(new Tuple<>(arrivalTime, agent));
+		this.teleportationList.add(agent, arrivalTime);
 		
 		// === below here is only visualization, no dynamics ===
+		if (!this.collectVisData) {
+			return true;
+		}
 		Id<Person> agentId = agent.getId();
 		Link currLink = this.scenario .getNetwork().getLinks().get(linkId);
 		Link destLink = this.scenario .getNetwork().getLinks().get(agent.getDestinationLinkId());
@@ -91,6 +87,7 @@ VisData {
 
 	@Override
 	public Collection<AgentSnapshotInfo> addAgentSnapshotInfo(Collection<AgentSnapshotInfo> snapshotList) {
+		this.collectVisData = true;
 		double time = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
 		for (TeleportationVisData teleportationVisData : teleportationData.values()) {
 			teleportationVisData.updatePosition(time);
@@ -106,11 +103,9 @@ VisData {
 
 	private void handleTeleportationArrivals() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		while (teleportationList.peek() != null) {
-			Tuple<Double, MobsimAgent> entry = teleportationList.peek();
-			if (entry.getFirst() <= now) {
-				teleportationList.poll();
-				MobsimAgent personAgent = entry.getSecond();
+		while (true) {
+			MobsimAgent personAgent = teleportationList.pollDue(now);
+			if (personAgent != null) {
 				personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent
 						.getDestinationLinkId());
 				double distance = personAgent.getExpectedTravelDistance();
@@ -132,8 +127,7 @@ VisData {
 	@Override
 	public void afterSim() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		for (Tuple<Double, MobsimAgent> entry : teleportationList) {
-			MobsimAgent agent = entry.getSecond();
+		for (MobsimAgent agent : teleportationList.getAgents()) {
 			eventsManager.processEvent(new PersonStuckEvent(now, agent.getId(), agent.getDestinationLinkId(), agent.getMode()));
 		}
 		teleportationList.clear();
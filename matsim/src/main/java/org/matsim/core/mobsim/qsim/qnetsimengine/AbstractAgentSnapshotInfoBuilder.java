@@ -42,7 +42,7 @@ import org.matsim.core.mobsim.framework.MobsimDriverAgent;
 import org.matsim.core.mobsim.framework.PassengerAgent;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.pt.TransitDriverAgent;
-import org.matsim.core.mobsim.qsim.qnetsimengine.QueueWithBuffer.Hole;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QueueWithBuffer.Holes;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo.AgentState;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfoFactory;
@@ -169,13 +169,13 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 	public final Collection<AgentSnapshotInfo> positionVehiclesAlongLine(Collection<AgentSnapshotInfo> positions,
 			double now, Collection<MobsimVehicle> vehs, double curvedLength, double storageCapacity, 
 			Coord upstreamCoord, Coord downstreamCoord, double inverseFlowCapPerTS, double freeSpeed, 
-			int numberOfLanesAsInt, Queue<Hole> holes)
+			int numberOfLanesAsInt, Holes holes)
 	{
 		double spacingOfOnePCE = this.calculateVehicleSpacing( curvedLength, storageCapacity, vehs );
 
 		double ttimeOfHoles = curvedLength / (QueueWithBuffer.HOLE_SPEED_KM_H*1000./3600.);
 
-		TreeMap<Double,Hole> consumableHoles = new TreeMap<>() ;
+		TreeMap<Double,Double> consumableHoles = new TreeMap<>() ; // distance from from node -> size in equivalents
 		
 		// holes, if applicable:
 		if ( QSimConfigGroup.SnapshotStyle.withHoles==scenario.getConfig().qsim().getSnapshotStyle() ) {
@@ -183,9 +183,10 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 				double firstHolePosition = Double.NaN ;
 				double distanceOfHoleFromFromNode = Double.NaN ;
 				double sum = 0 ;
-				for (Hole hole : holes) {
-					sum += hole.getSizeInEquivalents() ;
-					distanceOfHoleFromFromNode = computeHolePositionAndReturnDistance( ttimeOfHoles, hole, now, curvedLength);
+				for ( int ii = 0 ; ii < holes.size() ; ii++ ) {
+					final double sizeOfHole = holes.getSizeInEquivalents( ii ) ;
+					sum += sizeOfHole ;
+					distanceOfHoleFromFromNode = computeHolePositionAndReturnDistance( ttimeOfHoles, holes.getEarliestLinkExitTime( ii ), now, curvedLength);
 					if ( Double.isNaN( firstHolePosition ) ) {
 						firstHolePosition = distanceOfHoleFromFromNode ;
 						sum = 0 ; // don't include first vehicle
@@ -195,11 +196,11 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 						// since hole is already created even if vehicle is in buffer, thus excluding such holes in vehicle position updating
 						// probably, don't create hole in visualizer also. amit May 2016						
 					} else {
-						consumableHoles.put( distanceOfHoleFromFromNode, hole ) ;
+						consumableHoles.put( distanceOfHoleFromFromNode, sizeOfHole ) ;
 					}
 
 					if ( QSimConfigGroup.SnapshotStyle.withHolesAndShowHoles==scenario.getConfig().qsim().getSnapshotStyle() ) {
-					addHolePosition( positions, distanceOfHoleFromFromNode, hole, curvedLength, upstreamCoord, downstreamCoord ) ;
+					addHolePosition( positions, distanceOfHoleFromFromNode, curvedLength, upstreamCoord, downstreamCoord ) ;
 					}
 				}
 				final double spaceConsumptionOfHoles = sum*spacingOfOnePCE;
@@ -238,8 +239,8 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 
 			if ( this.scenario.getConfig().qsim().getTrafficDynamics()==TrafficDynamics.withHoles ) {
 				while ( !consumableHoles.isEmpty() && distanceFromFromNode < consumableHoles.lastKey() ) {
-					Entry<Double, Hole> entry = consumableHoles.pollLastEntry() ;
-					distanceFromFromNode -= spacingOfOnePCE * entry.getValue().getSizeInEquivalents() ;
+					Entry<Double, Double> entry = consumableHoles.pollLastEntry() ;
+					distanceFromFromNode -= spacingOfOnePCE * entry.getValue() ;
 				}
 			}
 		}
@@ -256,14 +257,14 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 
 
 
-	 private static double computeHolePositionAndReturnDistance(double freespeedTraveltime, Hole hole, double now, double curvedLength) 
+	 private static double computeHolePositionAndReturnDistance(double freespeedTraveltime, double earliestLinkExitTimeOfHole, double now, double curvedLength) 
 	{
-		double remainingTravelTime = hole.getEarliestLinkExitTime() - now ;
+		double remainingTravelTime = earliestLinkExitTimeOfHole - now ;
 		double distanceFromFromNode = remainingTravelTime/freespeedTraveltime * curvedLength ;
 		return distanceFromFromNode;
 	}
 		
-	private void addHolePosition(final Collection<AgentSnapshotInfo> positions, double distanceFromFromNode, Hole veh, 
+	private void addHolePosition(final Collection<AgentSnapshotInfo> positions, double distanceFromFromNode, 
 			double curvedLength, Coord upstreamCoord, Coord downstreamCoord)
 	{
 		Integer lane = 20 ;
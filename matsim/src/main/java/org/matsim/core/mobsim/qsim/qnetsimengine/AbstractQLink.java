@@ -129,6 +129,9 @@ abstract class AbstractQLink extends QLinkI {
 		if (!this.active) {
 			netElementActivationRegistry.registerLinkAsActive(this);
 			this.active = true;
+		} else {
+			// the link might currently be skipped until some later time
+			netElementActivationRegistry.wakeUpLink(this);
 		}
 		// This is a bit involved since we do not want to ask the registry in every time step if the link is already active.
 	}
@@ -0,0 +1,207 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkWakeUpSchedule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The active links of a {@link QNetsimEngineRunner}, each with the time at which it needs to be visited next.  Links that
+ * are due in a time step are handed out in the order in which they were activated, which is the order in which a plain list
+ * of active links would visit them.
+ * <p></p>
+ * The links are kept in a binary heap ordered by their wake-up time.  An entry remembers its position in the heap, so that a
+ * link can be woken up early without searching for it.
+ */
+final class LinkWakeUpSchedule {
+
+	static final class Entry {
+		final QLinkI link;
+		private double wakeUpTime;
+		private long sequenceNumber;
+		private int position = -1;
+
+		private Entry(QLinkI link) {
+			this.link = link;
+		}
+	}
+
+	private static final Comparator<Entry> SEQUENCE_COMPARATOR = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			return Long.compare(e1.sequenceNumber, e2.sequenceNumber);
+		}
+	};
+
+	private final Map<QLinkI, Entry> entries = new IdentityHashMap<>();
+	private final List<Entry> dueEntries = new ArrayList<>();
+	private Entry[] heap = new Entry[64];
+	private int size = 0;
+	private long nextSequenceNumber = 0;
+
+	/**
+	 * Adds a newly activated link, which is due immediately.
+	 */
+	void add(QLinkI link) {
+		add(link, Double.NEGATIVE_INFINITY);
+	}
+
+	private void add(QLinkI link, double wakeUpTime) {
+		Entry entry = new Entry(link);
+		entry.sequenceNumber = this.nextSequenceNumber++;
+		this.entries.put(link, entry);
+		insert(entry, wakeUpTime);
+	}
+
+	/**
+	 * Makes an active link due immediately.  Does nothing if the link is not active or already due.
+	 */
+	void wakeUp(QLinkI link) {
+		Entry entry = this.entries.get(link);
+		if (entry != null && entry.position >= 0 && entry.wakeUpTime > Double.NEGATIVE_INFINITY) {
+			entry.wakeUpTime = Double.NEGATIVE_INFINITY;
+			siftUp(entry.position, entry);
+		}
+	}
+
+	/**
+	 * Removes all entries with a wake-up time not after <code>now</code> from the schedule and returns them in activation order.
+	 * Each of them must be passed to either {@link #reschedule(Entry, double)} or {@link #remove(Entry)} afterwards.  The returned
+	 * list is reused by the next call.
+	 */
+	List<Entry> pollDue(double now) {
+		this.dueEntries.clear();
+		while (this.size > 0 && this.heap[0].wakeUpTime <= now) {
+			this.dueEntries.add(removeAt(0));
+		}
+		if (this.dueEntries.size() > 1) {
+			Collections.sort(this.dueEntries, SEQUENCE_COMPARATOR);
+		}
+		return this.dueEntries;
+	}
+
+	void reschedule(Entry entry, double wakeUpTime) {
+		insert(entry, wakeUpTime);
+	}
+
+	/**
+	 * Removes a polled entry whose link is no longer active.
+	 */
+	void remove(Entry entry) {
+		this.entries.remove(entry.link);
+	}
+
+	int size() {
+		return this.entries.size();
+	}
+
+	Collection<QLinkI> getLinks() {
+		return Collections.unmodifiableSet(this.entries.keySet());
+	}
+
+	/**
+	 * Moves the given links, as far as they are in this schedule, to the receiver.  They keep their wake-up times and are
+	 * appended to the activation order of the receiver in their current order.
+	 */
+	void migrate(LinkWakeUpSchedule receiver, Set<QLinkI> links) {
+		List<Entry> migrated = new ArrayList<>();
+		for (QLinkI link : links) {
+			Entry entry = this.entries.get(link);
+			if (entry != null) {
+				migrated.add(entry);
+			}
+		}
+		Collections.sort(migrated, SEQUENCE_COMPARATOR);
+		for (Entry entry : migrated) {
+			removeAt(entry.position);
+			this.entries.remove(entry.link);
+			receiver.add(entry.link, entry.wakeUpTime);
+		}
+	}
+
+	private void insert(Entry entry, double wakeUpTime) {
+		entry.wakeUpTime = wakeUpTime;
+		if (this.size == this.heap.length) {
+			this.heap = Arrays.copyOf(this.heap, this.size * 2);
+		}
+		siftUp(this.size++, entry);
+	}
+
+	private Entry removeAt(int position) {
+		Entry result = this.heap[position];
+		int last = --this.size;
+		Entry moved = this.heap[last];
+		this.heap[last] = null;
+		if (position != last) {
+			siftDown(position, moved);
+			if (this.heap[position] == moved) {
+				siftUp(position, moved);
+			}
+		}
+		result.position = -1;
+		return result;
+	}
+
+	private void siftUp(int position, Entry entry) {
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			Entry e = this.heap[parent];
+			if (entry.wakeUpTime >= e.wakeUpTime) {
+				break;
+			}
+			this.heap[position] = e;
+			e.position = position;
+			position = parent;
+		}
+		this.heap[position] = entry;
+		entry.position = position;
+	}
+
+	private void siftDown(int position, Entry entry) {
+		int half = this.size >>> 1;
+		while (position < half) {
+			int child = (position << 1) + 1;
+			Entry c = this.heap[child];
+			int right = child + 1;
+			if (right < this.size && c.wakeUpTime > this.heap[right].wakeUpTime) {
+				child = right;
+				c = this.heap[child];
+			}
+			if (entry.wakeUpTime <= c.wakeUpTime) {
+				break;
+			}
+			this.heap[position] = c;
+			c.position = position;
+			position = child;
+		}
+		this.heap[position] = entry;
+		entry.position = position;
+	}
+
+}
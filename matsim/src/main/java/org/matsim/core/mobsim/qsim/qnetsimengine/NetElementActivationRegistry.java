@@ -31,4 +31,11 @@ abstract class NetElementActivationRegistry {
 	abstract void registerLinkAsActive(final QLinkI link);
 
 	abstract int getNumberOfSimulatedLinks();
+
+	/**
+	 * Tells the registry that something was added to an already active link, so that the link is visited again in the next
+	 * time step even if it was scheduled for a later time.
+	 */
+	void wakeUpLink(final QLinkI link) {
+	}
 } 
\ No newline at end of file
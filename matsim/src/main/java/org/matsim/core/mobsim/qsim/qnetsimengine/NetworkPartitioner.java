@@ -0,0 +1,44 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Decides which {@link QNetsimEngineRunner} is responsible for which node of the network.  The out-links of a node
+ * are always handled by the runner of that node (see {@link QNetsimEngine}), so a partitioning of the nodes is a
+ * partitioning of the whole network.
+ * <p></p>
+ * Runners that own contiguous regions of the network touch less memory and (in the future) need to synchronize with fewer
+ * neighbouring runners.  The default is still round robin, see {@link RoundRobinNetworkPartitioner}.
+ */
+public interface NetworkPartitioner {
+
+	/**
+	 * @return for every node of the network the index of the partition it belongs to, in the range <tt>[0, numberOfPartitions)</tt>
+	 */
+	Map<Id<Node>, Integer> partition(Network network, int numberOfPartitions);
+
+}
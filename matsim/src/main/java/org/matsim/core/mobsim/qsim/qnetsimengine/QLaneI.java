@@ -73,6 +73,13 @@ abstract class QLaneI implements Identifiable<Lane> {
 
 	abstract boolean doSimStep();
 
+	/**
+	 * see {@link QLinkI#getEarliestTimeOfNextSimStep()}
+	 */
+	double getEarliestTimeOfNextSimStep() {
+		return Double.NEGATIVE_INFINITY ;
+	}
+
 	abstract void clearVehicles();
 
 	abstract Collection<MobsimVehicle> getAllVehicles();
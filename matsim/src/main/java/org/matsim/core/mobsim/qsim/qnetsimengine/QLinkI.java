@@ -132,6 +132,15 @@ abstract class QLinkI implements NetsimLink, TimeVariantLink {
 	 */
 	abstract boolean doSimStep();
 
+	/**
+	 * Earliest time at which {@link #doSimStep()} can change something on this link, provided that nothing is added to the link in
+	 * the meantime.  Only asked right after {@link #doSimStep()} returned true.  The default, negative infinity, means that the link
+	 * needs to be visited again in the next time step.
+	 */
+	double getEarliestTimeOfNextSimStep() {
+		return Double.NEGATIVE_INFINITY ;
+	}
+
 	/**
 	 * Seems ok as public interface function. kai, aug'15 
 	 */
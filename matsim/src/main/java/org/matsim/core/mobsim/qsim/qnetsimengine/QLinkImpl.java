@@ -129,6 +129,14 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 	}
 
 
+	@Override
+	double getEarliestTimeOfNextSimStep() {
+		if ( !this.getWaitingList().isEmpty() || !this.getTransitQLink().getTransitVehicleStopQueue().isEmpty() ) {
+			return Double.NEGATIVE_INFINITY ;
+		}
+		return qlane.getEarliestTimeOfNextSimStep() ;
+	}
+
 	/**
 	 * Move as many waiting cars to the link as it is possible
 	 */
@@ -24,6 +24,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -42,6 +44,7 @@ import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
@@ -129,6 +132,18 @@ public class QNetsimEngine implements MobsimEngine {
 	private ExecutorService pool;
 
 	private final boolean usingThreadpool;
+
+	private final boolean usingLocalRunnerSynchronization;
+
+	private NetworkPartitioner networkPartitioner;
+
+	private final double rebalancingInterval;
+
+	private double nextRebalancingTime;
+
+	private QNetsimEngineLoadBalancer loadBalancer;
+
+	private int numberOfMigratedNodes = 0;
 	
 	// for detailed run time analysis - used in combination with QSim.analyzeRunTimes
 	public static int numObservedTimeSteps = 24*3600;
@@ -150,6 +165,10 @@ public class QNetsimEngine implements MobsimEngine {
 		final Config config = sim.getScenario().getConfig();
 		final QSimConfigGroup qsimConfigGroup = config.qsim();
 		this.usingThreadpool = qsimConfigGroup.isUsingThreadpool();
+		this.usingLocalRunnerSynchronization = qsimConfigGroup.isUsingLocalRunnerSynchronization() && !this.usingThreadpool;
+		if (qsimConfigGroup.isUsingLocalRunnerSynchronization() && this.usingThreadpool) {
+			log.warn("local runner synchronization is only available without thread pool; using the thread pool with global synchronization.");
+		}
 
 
 		// configuring the car departure hander (including the vehicle behavior)
@@ -189,6 +208,18 @@ public class QNetsimEngine implements MobsimEngine {
 		network.initialize(this, sim.getAgentCounter(), sim.getSimTimer() );
 
 		this.numOfThreads = sim.getScenario().getConfig().qsim().getNumberOfThreads();
+		this.rebalancingInterval = qSimConfigGroup.getNetsimRebalancingInterval();
+
+		switch (qSimConfigGroup.getNetworkPartitioning()) {
+		case roundRobin:
+			this.networkPartitioner = new RoundRobinNetworkPartitioner();
+			break;
+		case spatial:
+			this.networkPartitioner = new SpatialNetworkPartitioner();
+			break;
+		default:
+			throw new RuntimeException("Unknown network partitioning option.");
+		}
 	}
 
 	private static int wrnCnt = 0;
@@ -236,6 +267,11 @@ public class QNetsimEngine implements MobsimEngine {
 		 */
 
 		initQSimEngineThreads();
+
+		if (this.rebalancingInterval > 0 && this.numOfRunners > 1) {
+			this.loadBalancer = new QNetsimEngineLoadBalancer(this.network, this.engines);
+			this.nextRebalancingTime = internalInterface.getMobsim().getSimTimer().getSimStartTime() + this.rebalancingInterval;
+		}
 	}
 
 	@Override
@@ -294,7 +330,9 @@ public class QNetsimEngine implements MobsimEngine {
 	private void run(double time) {
 		// yy Acceleration options to try out (kai, jan'15):
 
-		// (a) Try to do without barriers.  With our 
+		// (a) Try to do without barriers.  (Between nodes and links, this is now available as an option, see
+		// QSimConfigGroup.usingLocalRunnerSynchronization.  The start and end barriers remain, since the other engines
+		// and the departure handler access the links between the time steps.)  With our 
 		// message-based experiments a decade ago, it was better to let each runner decide locally when to proceed.  For intuition, imagine that
 		// one runner is slowest on the links, and some other runner slowest on the nodes.  With the barriers, this cannot overlap.
 		// With message passing, this was achieved by waiting for all necessary messages.  Here, it could (for example) be achieved with runner-local
@@ -311,11 +349,23 @@ public class QNetsimEngine implements MobsimEngine {
 		// myTime += 0.5 ;
 
 		// (b) Do deliberate domain decomposition rather than round robin (fewer runners to wait for at (*) and (**)).
+		// Available via QSimConfigGroup.NetworkPartitioning / NetworkPartitioner.
 
 		// (c) One thread that is much faster than all others is much more efficient than one thread that is much slower than all others. 
 		// So make sure that no thread sticks out in terms of slowness.  Difficult to achieve, though.  A decade back, we used a "typical" run
 		// as input for the domain decomposition under (b).
 
+		// (c) is approximated by moving nodes between runners from time to time, based on the work done since the last time.
+		// This happens here, since all runners are waiting for the next time step.
+		if (this.loadBalancer != null && time >= this.nextRebalancingTime) {
+			this.nextRebalancingTime += this.rebalancingInterval;
+			int migratedNodes = this.loadBalancer.rebalance(time);
+			this.numberOfMigratedNodes += migratedNodes;
+			if (migratedNodes > 0 && this.usingLocalRunnerSynchronization) {
+				assignDownstreamRunners();
+			}
+		}
+
 		// set current Time
 		for (QNetsimEngineRunner engine : this.engines) {
 			engine.setTime(time);
@@ -380,6 +430,13 @@ public class QNetsimEngine implements MobsimEngine {
 		return numNodes;
 	}
 
+	/**
+	 * @return the number of nodes that were moved between runners by rebalancing so far
+	 */
+	int getNumberOfMigratedNodes() {
+		return this.numberOfMigratedNodes;
+	}
+
 //	QSim getMobsim() {
 //		return this.qsim;
 //	}
@@ -446,6 +503,12 @@ public class QNetsimEngine implements MobsimEngine {
 			QNetsimEngineRunner engine ;
 			if (this.usingThreadpool) {
 				engine = new QNetsimEngineRunner();
+			} else if (this.usingLocalRunnerSynchronization) {
+				engine = new QNetsimEngineRunner(this.startBarrier, endBarrier);
+				Thread thread = new Thread(engine);
+				thread.setName("QNetsimEngineRunner_" + i);
+				thread.setDaemon(true);	// make the Thread Daemons so they will terminate automatically
+				thread.start();
 			} else {
 				engine = new QNetsimEngineRunner(this.startBarrier, separationBarrier, endBarrier);
 				Thread thread = new Thread(engine);
@@ -453,6 +516,7 @@ public class QNetsimEngine implements MobsimEngine {
 				thread.setDaemon(true);	// make the Thread Daemons so they will terminate automatically
 				thread.start();
 			}
+			engine.setUsingLinkWakeUpSchedule(this.qsim.getScenario().getConfig().qsim().isUsingLinkWakeUpSchedule());
 			this.engines.add(engine);
 		}
 
@@ -475,9 +539,14 @@ public class QNetsimEngine implements MobsimEngine {
 		int nodes[] = new int[numOfRunners];
 		int links[] = new int[numOfRunners];
 
-		int roundRobin = 0;
+		Map<Id<Node>, Integer> partition = this.networkPartitioner.partition(network.getNetwork(), this.numOfRunners);
+
 		for (QNode node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.numOfRunners;
+			Integer i = partition.get(node.getNode().getId());
+			if (i == null || i < 0 || i >= this.numOfRunners) {
+				throw new RuntimeException("network partitioner assigned node " + node.getNode().getId() + " to runner " + i
+						+ ", but there are only " + this.numOfRunners + " runners.") ;
+			}
 			node.setNetElementActivationRegistry(this.engines.get(i));
 			nodes[i]++;
 
@@ -501,8 +570,6 @@ public class QNetsimEngine implements MobsimEngine {
 				links[i]++;
 
 			}
-
-			roundRobin++;
 		}
 
 		// print some statistics
@@ -511,6 +578,33 @@ public class QNetsimEngine implements MobsimEngine {
 		}
 
 		this.linksToActivateInitially.clear();
+
+		if (this.usingLocalRunnerSynchronization) {
+			assignDownstreamRunners();
+		}
+	}
+
+	/*
+	 * A runner needs to wait for all runners that take vehicles out of the buffers of its links, i.e. the runners
+	 * that handle the toNodes of its links.
+	 */
+	private void assignDownstreamRunners() {
+		Map<QNetsimEngineRunner, Set<QNetsimEngineRunner>> downstreamRunners = new LinkedHashMap<>();
+		for (QNetsimEngineRunner engine : this.engines) {
+			downstreamRunners.put(engine, new LinkedHashSet<QNetsimEngineRunner>());
+		}
+		for (Link link : network.getNetwork().getLinks().values()) {
+			NetElementActivationRegistry from = network.getNetsimNodes().get(link.getFromNode().getId()).getNetElementActivationRegistry();
+			NetElementActivationRegistry to = network.getNetsimNodes().get(link.getToNode().getId()).getNetElementActivationRegistry();
+			if (from != to) {
+				downstreamRunners.get(from).add((QNetsimEngineRunner) to);
+			}
+		}
+		for (int i = 0; i < this.numOfRunners; i++) {
+			Set<QNetsimEngineRunner> runners = downstreamRunners.get(this.engines.get(i));
+			this.engines.get(i).setDownstreamRunners(runners);
+			log.info("QSimEngineRunner #" + i + " synchronizes with " + runners.size() + " downstream runners");
+		}
 	}
 
 	public void printEngineRunTimes() {
@@ -0,0 +1,227 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineLoadBalancer.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.utils.misc.Time;
+
+/**
+ * Moves nodes (together with their out-links) from runners that did more work than the others since the last call to
+ * less busy neighbouring runners.  Work is measured as the number of node and link sim steps, which keeps the result
+ * independent of the machine and thus reproducible.
+ * <p></p>
+ * Nodes are taken from the border between the two runners first and then further into the region of the overloaded
+ * runner, so that contiguous partitions stay (more or less) contiguous.  How much is moved is estimated from the
+ * currently active nodes and links, since these are what causes the work in the next time steps.
+ * <p></p>
+ * Must only be called between two time steps, when no runner moves nodes or links.
+ */
+final class QNetsimEngineLoadBalancer {
+	private static final Logger log = Logger.getLogger(QNetsimEngineLoadBalancer.class);
+
+	/**
+	 * Runners that worked less than this factor times the average are left alone.
+	 */
+	private static final double TOLERANCE = 1.1;
+
+	private final QNetwork network;
+	private final List<QNetsimEngineRunner> runners;
+
+	QNetsimEngineLoadBalancer(QNetwork network, List<QNetsimEngineRunner> runners) {
+		this.network = network;
+		this.runners = runners;
+	}
+
+	/**
+	 * @return the number of migrated nodes
+	 */
+	int rebalance(double time) {
+		final Map<QNetsimEngineRunner, Double> work = new HashMap<>();
+		double sum = 0.;
+		for (QNetsimEngineRunner runner : this.runners) {
+			double w = runner.getAndResetWork();
+			work.put(runner, w);
+			sum += w;
+		}
+		if (this.runners.size() < 2 || sum == 0.) {
+			return 0;
+		}
+		double average = sum / this.runners.size();
+
+		List<QNetsimEngineRunner> donors = new ArrayList<>(this.runners);
+		Collections.sort(donors, new Comparator<QNetsimEngineRunner>() {
+			@Override
+			public int compare(QNetsimEngineRunner o1, QNetsimEngineRunner o2) {
+				return Double.compare(work.get(o2), work.get(o1));
+			}
+		});
+
+		int migrated = 0;
+		for (QNetsimEngineRunner donor : donors) {
+			double donorWork = work.get(donor);
+			if (donorWork <= TOLERANCE * average) {
+				break;
+			}
+			QNetsimEngineRunner receiver = null;
+			for (QNetsimEngineRunner neighbour : getNeighbours(donor)) {
+				if (receiver == null || work.get(neighbour) < work.get(receiver)) {
+					receiver = neighbour;
+				}
+			}
+			if (receiver == null) {
+				continue;
+			}
+			double shift = Math.min(donorWork - average, (donorWork - work.get(receiver)) / 2.);
+			if (shift <= 0.) {
+				continue;
+			}
+			int movedNodes = migrate(donor, receiver, shift / donorWork);
+			if (movedNodes > 0) {
+				migrated += movedNodes;
+				work.put(donor, donorWork - shift);
+				work.put(receiver, work.get(receiver) + shift);
+				log.info("At " + Time.writeTime(time) + ": moved " + movedNodes + " nodes from QNetsimEngineRunner #"
+						+ this.runners.indexOf(donor) + " to QNetsimEngineRunner #" + this.runners.indexOf(receiver));
+			}
+		}
+		return migrated;
+	}
+
+	private Set<QNetsimEngineRunner> getNeighbours(QNetsimEngineRunner runner) {
+		Set<QNetsimEngineRunner> neighbours = new LinkedHashSet<>();
+		for (QLinkI qLink : this.network.getNetsimLinks().values()) {
+			QNetsimEngineRunner from = getOwner(qLink.getLink().getFromNode().getId());
+			QNetsimEngineRunner to = getOwner(qLink.getLink().getToNode().getId());
+			if (from == runner && to != runner) {
+				neighbours.add(to);
+			} else if (to == runner && from != runner) {
+				neighbours.add(from);
+			}
+		}
+		return neighbours;
+	}
+
+	/**
+	 * Moves nodes from donor to receiver until the given share of the donor's active nodes and links is moved, or half of
+	 * the donor's nodes.
+	 *
+	 * @return the number of migrated nodes
+	 */
+	private int migrate(QNetsimEngineRunner donor, QNetsimEngineRunner receiver, double share) {
+		// estimate the work per node from what is currently active
+		Map<QNode, Integer> activity = new HashMap<>();
+		int totalActivity = 0;
+		for (QNode node : donor.getActiveNodes()) {
+			increment(activity, node);
+			totalActivity++;
+		}
+		for (QLinkI qLink : donor.getActiveLinks()) {
+			increment(activity, this.network.getNetsimNodes().get(qLink.getLink().getFromNode().getId()));
+			totalActivity++;
+		}
+		double targetActivity = share * totalActivity;
+
+		int donorNodes = 0;
+		Queue<QNode> queue = new ArrayDeque<>();
+		Set<QNode> visited = new HashSet<>();
+		for (QNode node : this.network.getNetsimNodes().values()) {
+			if (node.getNetElementActivationRegistry() != donor) {
+				continue;
+			}
+			donorNodes++;
+			if (isAdjacentTo(node, receiver)) {
+				queue.add(node);
+				visited.add(node);
+			}
+		}
+
+		Set<QNode> movedNodes = new HashSet<>();
+		Set<QLinkI> movedLinks = new HashSet<>();
+		int movedActivity = 0;
+		while (!queue.isEmpty() && movedActivity < targetActivity && movedNodes.size() < donorNodes / 2) {
+			QNode node = queue.poll();
+			node.setNetElementActivationRegistry(receiver);
+			movedNodes.add(node);
+			for (Link outLink : node.getNode().getOutLinks().values()) {
+				AbstractQLink qLink = (AbstractQLink) this.network.getNetsimLink(outLink.getId());
+				qLink.setNetElementActivationRegistry(receiver);
+				movedLinks.add(qLink);
+			}
+			Integer nodeActivity = activity.get(node);
+			if (nodeActivity != null) {
+				movedActivity += nodeActivity;
+			}
+			for (Link link : node.getNode().getOutLinks().values()) {
+				enqueueIfOwnedBy(this.network.getNetsimNodes().get(link.getToNode().getId()), donor, queue, visited);
+			}
+			for (Link link : node.getNode().getInLinks().values()) {
+				enqueueIfOwnedBy(this.network.getNetsimNodes().get(link.getFromNode().getId()), donor, queue, visited);
+			}
+		}
+		donor.migrateActiveElements(receiver, movedNodes, movedLinks);
+		return movedNodes.size();
+	}
+
+	private boolean isAdjacentTo(QNode node, QNetsimEngineRunner runner) {
+		for (Link link : node.getNode().getOutLinks().values()) {
+			if (getOwner(link.getToNode().getId()) == runner) {
+				return true;
+			}
+		}
+		for (Link link : node.getNode().getInLinks().values()) {
+			if (getOwner(link.getFromNode().getId()) == runner) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void enqueueIfOwnedBy(QNode node, QNetsimEngineRunner runner, Queue<QNode> queue, Set<QNode> visited) {
+		if (node.getNetElementActivationRegistry() == runner && visited.add(node)) {
+			queue.add(node);
+		}
+	}
+
+	private QNetsimEngineRunner getOwner(Id<Node> nodeId) {
+		return (QNetsimEngineRunner) this.network.getNetsimNodes().get(nodeId).getNetElementActivationRegistry();
+	}
+
+	private static void increment(Map<QNode, Integer> map, QNode node) {
+		Integer value = map.get(node);
+		map.put(node, value == null ? 1 : value + 1);
+	}
+
+}
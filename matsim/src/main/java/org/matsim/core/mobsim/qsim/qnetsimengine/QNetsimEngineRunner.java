@@ -62,6 +62,13 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	 */
 	private final List<QLinkI> linksList = new LinkedList<>();
 
+	/*
+	 * Replaces the linksList if QSimConfigGroup.usingLinkWakeUpSchedule is set.  A link is then only visited at the time
+	 * returned by its getEarliestTimeOfNextSimStep(), or in the next time step if something is added to it before.  Same
+	 * threading assumptions as for the linksList.
+	 */
+	private LinkWakeUpSchedule linkSchedule = null;
+
 	/*
 	 * Ensure that nodes and links are only activate during times where we expect it.
 	 * Otherwise this could result in unpredictable behavior. Therefore we throw
@@ -76,6 +83,22 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 	private boolean movingNodes;
 
+	/*
+	 * Only used if the runner synchronizes locally instead of via the separationBarrier.  The counter is incremented
+	 * after moving the nodes and after moving the links, and it is only written by the thread of this runner.
+	 * Before moving its links, a runner waits until all runners owning the toNodes of its links have moved their nodes,
+	 * since these nodes take vehicles out of the buffers of our links and activate nodes we might want to activate as well.
+	 * All other dependencies between runners are covered by the start and end barriers.
+	 */
+	private volatile long completedHalfSteps = 0;
+	private QNetsimEngineRunner[] downstreamRunners = new QNetsimEngineRunner[0];
+
+	/*
+	 * Number of node and link doSimStep calls since the last reset.  Only written by the thread of this runner and
+	 * only read by the QNetsimEngine while the runner waits at a barrier, so it does not need to be volatile.
+	 */
+	private long work = 0;
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -88,6 +111,13 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		this.separationBarrier = separationBarrier;
 		this.endBarrier = endBarrier;
 	}
+	/**
+	 * Creates a runner that synchronizes only with its downstream runners between moving nodes and moving links.
+	 * The downstream runners need to be set before the simulation starts.
+	 */
+	/*package*/ QNetsimEngineRunner(Phaser startBarrier, Phaser endBarrier) {
+		this(startBarrier, null, endBarrier);
+	}
 	QNetsimEngineRunner() {
 		// this is the execution path with invokeAll and the threadpool; it does not need (and should not use) the barriers.
 		// kai, jan'14
@@ -147,9 +177,13 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			moveNodes();
 
 			// After moving the QNodes all we use a Phaser to synchronize the threads.
-			this.separationBarrier.arriveAndAwaitAdvance();
+			if (this.separationBarrier != null) this.separationBarrier.arriveAndAwaitAdvance();
+			else awaitNodesOfDownstreamRunners();
 
 			moveLinks();
+			if (this.separationBarrier == null) {
+				this.completedHalfSteps = this.completedHalfSteps + 1;
+			}
 
 			if (QSim.analyzeRunTimes) {
 				long end = System.nanoTime();
@@ -164,6 +198,34 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			this.endBarrier.arriveAndAwaitAdvance();
 		}
 	}
+
+	/*
+	 * Only the runners that own the toNodes of our links need to be done with their nodes.
+	 */
+	private void awaitNodesOfDownstreamRunners() {
+		this.completedHalfSteps = this.completedHalfSteps + 1;
+		awaitDownstreamRunners(this.completedHalfSteps);
+	}
+
+	private void awaitDownstreamRunners(long halfSteps) {
+		for (QNetsimEngineRunner runner : this.downstreamRunners) {
+			while (runner.completedHalfSteps < halfSteps) {
+				Thread.yield();
+			}
+		}
+	}
+
+	/*package*/ void setUsingLinkWakeUpSchedule(boolean usingLinkWakeUpSchedule) {
+		if (!this.linksList.isEmpty() || (this.linkSchedule != null && this.linkSchedule.size() > 0)) {
+			throw new IllegalStateException("cannot change the way active links are kept while links are active.");
+		}
+		this.linkSchedule = usingLinkWakeUpSchedule ? new LinkWakeUpSchedule() : null;
+	}
+
+	/*package*/ void setDownstreamRunners(Collection<QNetsimEngineRunner> runners) {
+		this.downstreamRunners = runners.toArray(new QNetsimEngineRunner[runners.size()]);
+	}
+
 	private void moveNodes() {
 		boolean remainsActive;
 		this.lockNodes = true;
@@ -173,10 +235,15 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			node = simNodes.next();
 			remainsActive = node.doSimStep(time);
 			if (!remainsActive) simNodes.remove();
+			this.work++;
 		}
 		this.lockNodes = false;
 	}
 	private void moveLinks() {
+		if (this.linkSchedule != null) {
+			moveScheduledLinks();
+			return;
+		}
 		boolean remainsActive;
 		lockLinks = true;
 		QLinkI link;
@@ -187,10 +254,69 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			remainsActive = link.doSimStep();
 
 			if (!remainsActive) simLinks.remove();
+			this.work++;
+		}
+		lockLinks = false;
+	}
+
+	private void moveScheduledLinks() {
+		lockLinks = true;
+		List<LinkWakeUpSchedule.Entry> dueLinks = this.linkSchedule.pollDue(time);
+		for (int i = 0; i < dueLinks.size(); i++) {
+			LinkWakeUpSchedule.Entry entry = dueLinks.get(i);
+			if (entry.link.doSimStep()) {
+				this.linkSchedule.reschedule(entry, entry.link.getEarliestTimeOfNextSimStep());
+			} else {
+				this.linkSchedule.remove(entry);
+			}
+			this.work++;
 		}
 		lockLinks = false;
 	}
 
+	/*package*/ long getAndResetWork() {
+		long result = this.work;
+		this.work = 0;
+		return result;
+	}
+
+	/*package*/ Collection<QNode> getActiveNodes() {
+		return Collections.unmodifiableCollection(this.nodesQueue);
+	}
+
+	/*package*/ Collection<QLinkI> getActiveLinks() {
+		if (this.linkSchedule != null) return this.linkSchedule.getLinks();
+		return Collections.unmodifiableCollection(this.linksList);
+	}
+
+	/*
+	 * Hands the active ones of the given nodes and links over to another runner.  Must only be called while neither runner
+	 * moves nodes or links, i.e. from the QNetsimEngine between two time steps.  The caller is responsible for setting
+	 * the NetElementActivationRegistry of the migrated elements.
+	 */
+	/*package*/ void migrateActiveElements(QNetsimEngineRunner receiver, Set<QNode> nodes, Set<QLinkI> links) {
+		Iterator<QNode> nodeIterator = this.nodesQueue.iterator();
+		while (nodeIterator.hasNext()) {
+			QNode node = nodeIterator.next();
+			if (nodes.contains(node)) {
+				nodeIterator.remove();
+				receiver.nodesQueue.add(node);
+			}
+		}
+		if (this.linkSchedule != null) {
+			this.linkSchedule.migrate(receiver.linkSchedule, links);
+			return;
+		}
+		Iterator<QLinkI> linkIterator = this.linksList.iterator();
+		while (linkIterator.hasNext()) {
+			QLinkI link = linkIterator.next();
+			if (links.contains(link)) {
+				linkIterator.remove();
+				receiver.linksList.add(link);
+			}
+		}
+	}
+
 	/*
 	 * This method is only called while links are NOT "moved", i.e. their
 	 * doStimStep(...) methods are called. To ensure that, we  use a boolean lock.
@@ -198,12 +324,19 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	 */
 	@Override
 	protected void registerLinkAsActive(QLinkI link) {
-		if (!lockLinks) linksList.add(link);
-		else throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
+		if (lockLinks) throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
+		if (this.linkSchedule != null) this.linkSchedule.add(link);
+		else linksList.add(link);
+	}
+
+	@Override
+	void wakeUpLink(QLinkI link) {
+		if (this.linkSchedule != null) this.linkSchedule.wakeUp(link);
 	}
 
 	@Override
 	public int getNumberOfSimulatedLinks() {
+		if (this.linkSchedule != null) return this.linkSchedule.size();
 		return this.linksList.size();
 	}
 
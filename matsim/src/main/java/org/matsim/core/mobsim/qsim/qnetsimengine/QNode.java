@@ -135,6 +135,10 @@ public class QNode implements NetsimNode {
 		this.activator = activator;
 	}
 
+	/*package*/ NetElementActivationRegistry getNetElementActivationRegistry() {
+		return this.activator;
+	}
+
 	/*
 	 * This method is called from QueueWithBuffer.addToBuffer(...) which is triggered at 
 	 * some placed, but always initially by a QLink's doSomStep(...) method. I.e. QNodes
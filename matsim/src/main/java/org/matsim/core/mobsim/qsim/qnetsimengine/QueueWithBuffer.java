@@ -19,10 +19,10 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Queue;
 
 import org.apache.log4j.Logger;
@@ -153,7 +153,7 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 	private double usedBufferStorageCapacity = 0.0 ;
 	private double remainingHolesStorageCapacity = 0.0 ;
 
-	private final Queue<QueueWithBuffer.Hole> holes = new LinkedList<>();
+	private final Holes holes = new Holes();
 
 	private double freespeedTravelTime = Double.NaN;
 	/** the last time-step the front-most vehicle in the buffer was moved. Used for detecting dead-locks. */
@@ -169,7 +169,7 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 	/**
 	 * Holds all vehicles that are ready to cross the outgoing intersection
 	 */
-	private final Queue<QVehicle> buffer = new LinkedList<>() ;
+	private final Queue<QVehicle> buffer = new ArrayDeque<>() ;
 	/**
 	 * null if the link is not signalized
 	 */
@@ -428,11 +428,65 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 		return true ;
 	}
 
+	@Override
+	final double getEarliestTimeOfNextSimStep() {
+		// without fast capacity update and with inflow constraint, capacity is accumulated in every time step.  Seepage may
+		// take vehicles from behind the first one.
+		if ( !context.qsimConfig.isUsingFastCapacityUpdate() || context.qsimConfig.getInflowConstraint()!=InflowConstraint.none
+				|| context.qsimConfig.getLinkDynamics()==LinkDynamics.SeepageQ ) {
+			return Double.NEGATIVE_INFINITY ;
+		}
+		double earliestTime = Double.POSITIVE_INFINITY ;
+		QVehicle veh = this.vehQueue.peek() ;
+		if ( veh != null ) {
+			// moveQueueToBuffer() does nothing as long as the first vehicle cannot leave
+			earliestTime = veh.getEarliestLinkExitTime() ;
+		}
+		if ( !this.holes.isEmpty() ) {
+			// processArrivalOfHoles() takes holes with an exit time strictly before now
+			earliestTime = Math.min( earliestTime, Math.nextUp( this.holes.peekEarliestLinkExitTime() ) ) ;
+		}
+		if ( earliestTime == Double.POSITIVE_INFINITY ) {
+			// only the buffer is occupied: keep visiting so that the link is deactivated as soon as the buffer is empty
+			return Double.NEGATIVE_INFINITY ;
+		}
+		if ( this.flowcap_accumulate.getValue() <= 0. ) {
+			// every visit calls updateFlowAccumulation(), which stops accumulating at the first positive value.  Skipping that
+			// visit would accumulate more, so that vehicles would leave at other times if 1/flowCapacityPerTimeStep is no integer.
+			if ( !this.isNotOfferingVehicle() ) {
+				// accumulation resumes once a node has emptied the buffer, which may happen in any time step
+				return Double.NEGATIVE_INFINITY ;
+			}
+			earliestTime = Math.min( earliestTime, getTimeOfPositiveFlowAccumulation() ) ;
+		}
+		return earliestTime ;
+	}
+
+	/**
+	 * @return the time step in which updateFlowAccumulation() will first lead to a positive flow capacity if the link is
+	 * visited in every time step; the same additions are repeated here, so that the result is exactly the same.
+	 */
+	private double getTimeOfPositiveFlowAccumulation() {
+		if ( this.flowCapacityPerTimeStep <= 0. ) {
+			return Double.POSITIVE_INFINITY ;
+		}
+		double timeStepSize = context.getSimTimer().getSimTimestepSize() ;
+		double time = context.getSimTimer().getTimeOfDay() ;
+		double lastTimeStep = this.flowcap_accumulate.getTimeStep() ;
+		double value = this.flowcap_accumulate.getValue() ;
+		while ( value <= 0. ) {
+			time += timeStepSize ;
+			double accumulateFlowCap = (time - lastTimeStep) * flowCapacityPerTimeStep;
+			value = Math.min( value + accumulateFlowCap, flowCapacityPerTimeStep ) ;
+			lastTimeStep = time ;
+		}
+		return time ;
+	}
+
 	private void processArrivalOfHoles() {
 		double now = context.getSimTimer().getTimeOfDay() ;
-		while ( this.holes.size()>0 && this.holes.peek().getEarliestLinkExitTime() < now ) {
-			Hole hole = this.holes.poll() ; // ???
-			this.remainingHolesStorageCapacity += hole.getSizeInEquivalents() ;
+		while ( this.holes.size()>0 && this.holes.peekEarliestLinkExitTime() < now ) {
+			this.remainingHolesStorageCapacity += this.holes.pollSizeInEquivalents() ;
 		}
 	}
 	
@@ -509,7 +563,6 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 		}
 
 		if ( context.qsimConfig.getTrafficDynamics()==TrafficDynamics.withHoles ) {
-			QueueWithBuffer.Hole hole = new QueueWithBuffer.Hole() ;
 			double ttimeOfHoles = length*3600./HOLE_SPEED_KM_H/1000. ;
 			
 //			double offset = this.storageCapacity/this.flowCapacityPerTimeStep ;
@@ -526,9 +579,7 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 //			double nLanes = 2. * flowCapacityPerTimeStep ; // pseudo-lanes
 //			double ttimeOfHoles = 0.1 * this.storageCapacity/this.flowCapacityPerTimeStep/nLanes ;
 			
-			hole.setEarliestLinkExitTime( now + 1.0*ttimeOfHoles + 0.0*MatsimRandom.getRandom().nextDouble()*ttimeOfHoles ) ;
-			hole.setSizeInEquivalents(veh2Remove.getSizeInEquivalents());
-			holes.add( hole ) ;
+			holes.add( now + 1.0*ttimeOfHoles + 0.0*MatsimRandom.getRandom().nextDouble()*ttimeOfHoles, veh2Remove.getSizeInEquivalents() ) ;
 		}
 		return veh ;
 	}
@@ -816,42 +867,79 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 		return this.id;
 	}
 
-	static final class Hole extends QItem {
-		private double earliestLinkEndTime ;
-		private double pcu;
+	/**
+	 * The holes travelling backwards over the lane, as (earliest link exit time, size in equivalents) pairs in
+	 * a circular array. Holes are added with non-decreasing exit times, so the first hole is always the next to
+	 * arrive at the upstream end. This replaces one object per vehicle leaving the lane.
+	 */
+	static final class Holes {
+		private double[] earliestLinkExitTimes = new double[8];
+		private double[] sizesInEquivalents = new double[8];
+		private int head = 0;
+		private int size = 0;
+
+		final void add(double earliestLinkExitTime, double sizeInEquivalents) {
+			if (this.size == this.earliestLinkExitTimes.length) {
+				grow();
+			}
+			int index = (this.head + this.size) % this.earliestLinkExitTimes.length;
+			this.earliestLinkExitTimes[index] = earliestLinkExitTime;
+			this.sizesInEquivalents[index] = sizeInEquivalents;
+			this.size++;
+		}
 
-		@Override
-		final double getEarliestLinkExitTime() {
-			return earliestLinkEndTime;
+		final double peekEarliestLinkExitTime() {
+			return this.earliestLinkExitTimes[this.head];
 		}
 
-		@Override
-		final void setEarliestLinkExitTime(double earliestLinkEndTime) {
-			this.earliestLinkEndTime = earliestLinkEndTime;
+		/**
+		 * Removes the first hole and returns its size in equivalents.
+		 */
+		final double pollSizeInEquivalents() {
+			double sizeInEquivalents = this.sizesInEquivalents[this.head];
+			this.head = (this.head + 1) % this.earliestLinkExitTimes.length;
+			this.size--;
+			return sizeInEquivalents;
 		}
 
-		@Override
-		public final double getSizeInEquivalents() {
-			return this.pcu;
+		/**
+		 * @param i position of the hole, starting with 0 for the first hole
+		 */
+		final double getEarliestLinkExitTime(int i) {
+			return this.earliestLinkExitTimes[(this.head + i) % this.earliestLinkExitTimes.length];
 		}
 
-		final void setSizeInEquivalents(double pcuFactorOfHole) {
-			this.pcu = pcuFactorOfHole;
+		/**
+		 * @param i position of the hole, starting with 0 for the first hole
+		 */
+		final double getSizeInEquivalents(int i) {
+			return this.sizesInEquivalents[(this.head + i) % this.sizesInEquivalents.length];
 		}
 
-		@Override
-		public Vehicle getVehicle() {
-			return null ;
+		final int size() {
+			return this.size;
 		}
 
-		@Override
-		public MobsimDriverAgent getDriver() {
-			return null ;
+		final boolean isEmpty() {
+			return this.size == 0;
 		}
 
-		@Override
-		public Id<Vehicle> getId() {
-			return null ;
+		final void clear() {
+			this.head = 0;
+			this.size = 0;
+		}
+
+		private void grow() {
+			int capacity = this.earliestLinkExitTimes.length;
+			double[] times = new double[capacity * 2];
+			double[] sizes = new double[capacity * 2];
+			for (int i = 0; i < this.size; i++) {
+				times[i] = getEarliestLinkExitTime(i);
+				sizes[i] = getSizeInEquivalents(i);
+			}
+			this.earliestLinkExitTimes = times;
+			this.sizesInEquivalents = sizes;
+			this.head = 0;
 		}
 	}
 
@@ -0,0 +1,47 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RoundRobinNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Hands out the nodes to the partitions in the order in which they are stored in the network.  This is the
+ * assignment the {@link QNetsimEngine} has always used; it balances the number of nodes per runner but ignores locality.
+ */
+public final class RoundRobinNetworkPartitioner implements NetworkPartitioner {
+
+	@Override
+	public Map<Id<Node>, Integer> partition(Network network, int numberOfPartitions) {
+		Map<Id<Node>, Integer> partition = new HashMap<>();
+		int roundRobin = 0;
+		for (Node node : network.getNodes().values()) {
+			partition.put(node.getId(), roundRobin % numberOfPartitions);
+			roundRobin++;
+		}
+		return partition;
+	}
+
+}
@@ -0,0 +1,119 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpatialNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Partitions the network by recursive coordinate bisection: the nodes are sorted along the longer extent of their
+ * bounding box and cut such that both halves get a share of the nodes proportional to the number of partitions
+ * they will eventually be split into.  The resulting partitions are spatially compact, which means that most links
+ * connect nodes of the same partition.
+ * <p></p>
+ * All nodes count the same.  Uneven work between the partitions is left to the rebalancing of the runners, see
+ * {@link org.matsim.core.config.groups.QSimConfigGroup#getNetsimRebalancingInterval()}.
+ */
+public final class SpatialNetworkPartitioner implements NetworkPartitioner {
+
+	@Override
+	public Map<Id<Node>, Integer> partition(Network network, int numberOfPartitions) {
+		List<NodeCoord> nodes = new ArrayList<>(network.getNodes().size());
+		for (Node node : network.getNodes().values()) {
+			nodes.add(new NodeCoord(node));
+		}
+		Map<Id<Node>, Integer> partition = new HashMap<>();
+		bisect(nodes, 0, nodes.size(), 0, numberOfPartitions, partition);
+		return partition;
+	}
+
+	/**
+	 * Assigns the nodes in <tt>[from, to)</tt> to the partitions <tt>[firstPartition, firstPartition + numberOfPartitions)</tt>.
+	 */
+	private static void bisect(List<NodeCoord> nodes, int from, int to, int firstPartition, int numberOfPartitions,
+			Map<Id<Node>, Integer> partition) {
+		if (numberOfPartitions == 1 || to - from <= 1) {
+			for (int i = from; i < to; i++) {
+				partition.put(nodes.get(i).node.getId(), firstPartition);
+			}
+			return;
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = from; i < to; i++) {
+			NodeCoord nc = nodes.get(i);
+			minX = Math.min(minX, nc.x);
+			maxX = Math.max(maxX, nc.x);
+			minY = Math.min(minY, nc.y);
+			maxY = Math.max(maxY, nc.y);
+		}
+		Collections.sort(nodes.subList(from, to), maxX - minX >= maxY - minY ? BY_X : BY_Y);
+
+		int lowerPartitions = numberOfPartitions / 2;
+		int cut = from + (int) Math.round((double) (to - from) * lowerPartitions / numberOfPartitions);
+		// make sure both halves get at least one node
+		cut = Math.max(cut, from + 1);
+		cut = Math.min(cut, to - 1);
+
+		bisect(nodes, from, cut, firstPartition, lowerPartitions, partition);
+		bisect(nodes, cut, to, firstPartition + lowerPartitions, numberOfPartitions - lowerPartitions, partition);
+	}
+
+	private static final Comparator<NodeCoord> BY_X = new Comparator<NodeCoord>() {
+		@Override
+		public int compare(NodeCoord o1, NodeCoord o2) {
+			int cmp = Double.compare(o1.x, o2.x);
+			return cmp != 0 ? cmp : Double.compare(o1.y, o2.y);
+		}
+	};
+
+	private static final Comparator<NodeCoord> BY_Y = new Comparator<NodeCoord>() {
+		@Override
+		public int compare(NodeCoord o1, NodeCoord o2) {
+			int cmp = Double.compare(o1.y, o2.y);
+			return cmp != 0 ? cmp : Double.compare(o1.x, o2.x);
+		}
+	};
+
+	private static final class NodeCoord {
+		final Node node;
+		final double x;
+		final double y;
+
+		NodeCoord(Node node) {
+			this.node = node;
+			this.x = node.getCoord().getX();
+			this.y = node.getCoord().getY();
+		}
+	}
+
+}
@@ -1,6 +1,9 @@
 package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
 
-import java.util.*;
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
 
@@ -8,28 +11,65 @@ public final class PassingVehicleQ extends AbstractQueue<QVehicle> implements Ve
 
 	public PassingVehicleQ() {} // to find calls 
 	
-	private final Queue<QVehicle> delegate = new PriorityQueue<>(11, new Comparator<QVehicle>() {
-
-		@Override
-		public int compare(QVehicle arg0, QVehicle arg1) {
-			return Double.compare(arg0.getEarliestLinkExitTime(), arg1.getEarliestLinkExitTime());
-		}
-
-	});
+	/*
+	 * Binary min-heap over the earliest link exit times. The exit times are stored next to the vehicles
+	 * at insertion, so that sifting neither needs a comparator nor calls to the vehicles. The sift
+	 * operations are those of java.util.PriorityQueue, which was used before, thus vehicles with equal
+	 * exit times still leave in the same order. A vehicle whose exit time is raised while it is in the
+	 * queue, i.e. a transit vehicle at a stop that blocks the lane, keeps its position, so it still
+	 * blocks the vehicles behind it until it leaves.
+	 */
+	private QVehicle[] vehicles = new QVehicle[11];
+	private double[] exitTimes = new double[11];
+	private int size = 0;
 
 	@Override
 	public boolean offer(QVehicle e) {
-		return delegate.offer(e);
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		if (size == vehicles.length) {
+			int capacity = size < 64 ? size * 2 + 2 : size + (size >> 1);
+			vehicles = Arrays.copyOf(vehicles, capacity);
+			exitTimes = Arrays.copyOf(exitTimes, capacity);
+		}
+		siftUp(size++, e, e.getEarliestLinkExitTime());
+		return true;
 	}
 
 	@Override
 	public QVehicle peek() {
-		return delegate.peek();
+		return size == 0 ? null : vehicles[0];
 	}
 
 	@Override
 	public QVehicle poll() {
-		return delegate.poll();
+		if (size == 0) {
+			return null;
+		}
+		QVehicle result = vehicles[0];
+		removeAt(0);
+		return result;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (o == null) {
+			return false;
+		}
+		for (int i = 0; i < size; i++) {
+			if (o.equals(vehicles[i])) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(vehicles, 0, size, null);
+		size = 0;
 	}
 
 	@Override
@@ -38,14 +78,86 @@ public final class PassingVehicleQ extends AbstractQueue<QVehicle> implements Ve
 		this.add(qveh) ; // uses the AbstractQueue.add, which in turn uses the PassingVehicleQ.offer.
 	}
 
+	/**
+	 * Returns the vehicles in the order of the underlying heap, i.e. NOT sorted by their exit times.
+	 * Removing vehicles via the iterator is not supported.
+	 */
 	@Override
 	public Iterator<QVehicle> iterator() {
-		return delegate.iterator();
+		return new Iterator<QVehicle>() {
+			private int cursor = 0;
+
+			@Override
+			public boolean hasNext() {
+				return cursor < size;
+			}
+
+			@Override
+			public QVehicle next() {
+				if (cursor >= size) {
+					throw new NoSuchElementException();
+				}
+				return vehicles[cursor++];
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
 	}
 
 	@Override
 	public int size() {
-		return delegate.size();
+		return size;
+	}
+
+	private void removeAt(int i) {
+		int s = --size;
+		if (s == i) {
+			vehicles[i] = null;
+		} else {
+			QVehicle moved = vehicles[s];
+			double movedExitTime = exitTimes[s];
+			vehicles[s] = null;
+			siftDown(i, moved, movedExitTime);
+			if (vehicles[i] == moved) {
+				siftUp(i, moved, movedExitTime);
+			}
+		}
+	}
+
+	private void siftUp(int k, QVehicle vehicle, double exitTime) {
+		while (k > 0) {
+			int parent = (k - 1) >>> 1;
+			if (Double.compare(exitTime, exitTimes[parent]) >= 0) {
+				break;
+			}
+			vehicles[k] = vehicles[parent];
+			exitTimes[k] = exitTimes[parent];
+			k = parent;
+		}
+		vehicles[k] = vehicle;
+		exitTimes[k] = exitTime;
+	}
+
+	private void siftDown(int k, QVehicle vehicle, double exitTime) {
+		int half = size >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			int right = child + 1;
+			if (right < size && Double.compare(exitTimes[child], exitTimes[right]) > 0) {
+				child = right;
+			}
+			if (Double.compare(exitTime, exitTimes[child]) <= 0) {
+				break;
+			}
+			vehicles[k] = vehicles[child];
+			exitTimes[k] = exitTimes[child];
+			k = child;
+		}
+		vehicles[k] = vehicle;
+		exitTimes[k] = exitTime;
 	}
 
 }
\ No newline at end of file
@@ -29,6 +29,10 @@ import org.matsim.core.utils.misc.Time;
 /**
  * This class follows the rules assumed in {@link TravelTimeCalculator}: The constructor arguments
  * timeSlice and maxTime have the same meaning as there, and the last time bin is open ended.
+ * <br>
+ * The per-bin values are published as one immutable {@link Bins} instance, so
+ * {@link #getValue(double)} needs no locking; mutators are expected to be called under
+ * the owning link's monitor.
  */
  class FixedIntervalTimeVariantAttribute
     implements TimeVariantAttribute
@@ -36,11 +40,9 @@ import org.matsim.core.utils.misc.Time;
     private final int timeSlice;
     private final int numSlots;
 
-    private double baseValue;
-    private double[] values;
-
-    private int eventsCount = 0;
-    private int eventsCountWhenLastRecalc = -1;
+    private volatile int eventsCount = 0;
+    private volatile int modCount = 0;
+    private volatile Bins bins;
 
 
     public FixedIntervalTimeVariantAttribute(int timeSlice, int maxTime)
@@ -53,7 +55,8 @@ import org.matsim.core.utils.misc.Time;
     @Override
     public boolean isRecalcRequired()
     {
-        return eventsCountWhenLastRecalc != eventsCount;
+        Bins b = this.bins;
+        return (b == null) || (b.modCount != this.modCount);
     }
 
 
@@ -62,18 +65,15 @@ import org.matsim.core.utils.misc.Time;
     public void recalc(TreeMap<Double, NetworkChangeEvent> changeEvents,
             ChangeValueGetter valueGetter, double baseValue1)
     {
-        this.baseValue = baseValue1;
-
         if (eventsCount == 0) {
+            this.bins = new Bins(baseValue1, null, this.modCount);
             return;
         }
 
         //To save memory, the array is constructed only if there is at least one ChangeEvent.
         //This saves a lot of memory in cases when only one attribute is time variant, while
         //the remaining two are invariant.
-        if (values == null) {
-            values = new double[numSlots];
-        }
+        double[] values = new double[numSlots];
 
         int numEvent = 0;
         int fromBin = 0;//inclusive
@@ -98,24 +98,25 @@ import org.matsim.core.utils.misc.Time;
             }
         }
         Arrays.fill(values, fromBin, values.length, currentValue);
-        eventsCountWhenLastRecalc = eventsCount;
 
         if (numEvent != this.eventsCount) {
             throw new RuntimeException("Expected number of change events (" + (this.eventsCount)
                     + ") differs from the number of events found (" + numEvent + ")!");
         }
+        this.bins = new Bins(baseValue1, values, this.modCount);
     }
 
 
     @Override
     public double getValue(final double time)
     {
-        if (time == Time.UNDEFINED_TIME || eventsCount == 0) {
-            return baseValue;
+        Bins b = this.bins;
+        if (time == Time.UNDEFINED_TIME || b.values == null) {
+            return b.baseValue;
         }
 
         int bin = TimeBinUtils.getTimeBinIndex(time, timeSlice, numSlots);
-        return values[bin];
+        return b.values[bin];
     }
 
 
@@ -123,6 +124,7 @@ import org.matsim.core.utils.misc.Time;
     public void incChangeEvents()
     {
         eventsCount++;
+        modCount++;
     }
 
 
@@ -130,7 +132,22 @@ import org.matsim.core.utils.misc.Time;
     public void clearEvents()
     {
         eventsCount = 0;
-        eventsCountWhenLastRecalc = -1;
-        values = null;
+        modCount++;
+    }
+
+
+    private static final class Bins
+    {
+        private final double baseValue;
+        private final double[] values;
+        private final int modCount;
+
+
+        Bins(double baseValue, double[] values, int modCount)
+        {
+            this.baseValue = baseValue;
+            this.values = values;
+            this.modCount = modCount;
+        }
     }
 }
@@ -26,6 +26,11 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.*;
 
 /**
+ * The time-variant attributes are compiled into immutable step functions which are
+ * rebuilt only after change events were added or cleared. Reading them is lock-free,
+ * so many routing threads can query the same link concurrently; only the rebuild
+ * and the mutators synchronize on the link.
+ *
  * @author laemmel
  * @author illenberger
  *
@@ -121,10 +126,10 @@ import org.matsim.api.core.v01.network.*;
 	 * @return the freespeed at time <tt>time</tt>.
 	 */
 	@Override
-	public synchronized double getFreespeed(final double time) {
+	public double getFreespeed(final double time) {
 
 		if (variableFreespeed.isRecalcRequired()) {
-			recalcFreespeed();
+			recalcFreespeedIfRequired();
 		}
 
 		return variableFreespeed.getValue(time);
@@ -147,10 +152,10 @@ import org.matsim.api.core.v01.network.*;
 	 * @return the flow capacity at time <tt>time</tt>.
 	 */
 	@Override
-	public synchronized double getFlowCapacityPerSec(final double time) {
+	public double getFlowCapacityPerSec(final double time) {
 
 		if (variableFlowCapacity.isRecalcRequired()) {
-			recalcFlowCapacity();
+			recalcFlowCapacityIfRequired();
 		}
 
 		return variableFlowCapacity.getValue(time);
@@ -171,7 +176,7 @@ import org.matsim.api.core.v01.network.*;
 	 * @return the capacity per network's capperiod timestep
 	 */
 	@Override
-	public synchronized double getCapacity(final double time) {
+	public double getCapacity(final double time) {
 		return getFlowCapacityPerSec(time) * getCapacityPeriod();
 	}
 
@@ -193,9 +198,9 @@ import org.matsim.api.core.v01.network.*;
 	 * encode the (min) width of the link to calculate the flow capacity - [GL] 13may08
 	 */
 	@Override
-	public synchronized double getNumberOfLanes(final double time) {
+	public double getNumberOfLanes(final double time) {
 		if (variableLanes.isRecalcRequired()) {
-			recalcLanes();
+			recalcLanesIfRequired();
 		}
 
 		return variableLanes.getValue(time);
@@ -208,6 +213,21 @@ import org.matsim.api.core.v01.network.*;
 	}
 
 
+	/*
+	 * The getters check for a required recalc without locking; another thread might have done it in the meantime.
+	 */
+	private synchronized void recalcFreespeedIfRequired() {
+		if (variableFreespeed.isRecalcRequired()) recalcFreespeed();
+	}
+
+	private synchronized void recalcFlowCapacityIfRequired() {
+		if (variableFlowCapacity.isRecalcRequired()) recalcFlowCapacity();
+	}
+
+	private synchronized void recalcLanesIfRequired() {
+		if (variableLanes.isRecalcRequired()) recalcLanes();
+	}
+
 	private synchronized void recalcFreespeed() {
 		variableFreespeed.recalc(changeEvents, TimeVariantAttribute.FREESPEED_GETTER, this.getFreespeed() );
 	}
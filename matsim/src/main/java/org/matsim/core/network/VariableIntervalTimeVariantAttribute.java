@@ -24,18 +24,25 @@ import java.util.*;
 import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
 
 
+/**
+ * Step function with arbitrary change times. The compiled times and values are
+ * published as one immutable {@link StepFunction}, so {@link #getValue(double)}
+ * needs no locking; mutators are expected to be called under the owning link's
+ * monitor.
+ */
 final class VariableIntervalTimeVariantAttribute
     implements TimeVariantAttribute
 {
-    private int aEvents = 1;
-    private double[] aValues;
-    private double[] aTimes;
+    private volatile int aEvents = 1;
+    private volatile int modCount = 0;
+    private volatile StepFunction function;
 
 
     @Override
     public boolean isRecalcRequired()
     {
-        return (this.aTimes == null) || (this.aTimes.length != this.aEvents);
+        StepFunction f = this.function;
+        return (f == null) || (f.modCount != this.modCount);
     }
 
 
@@ -43,10 +50,10 @@ final class VariableIntervalTimeVariantAttribute
     public void recalc(TreeMap<Double, NetworkChangeEvent> changeEvents,
             ChangeValueGetter valueGetter, double baseValue)
     {
-        this.aTimes = new double[this.aEvents];
-        this.aValues = new double[this.aEvents];
-        this.aTimes[0] = Double.NEGATIVE_INFINITY;
-        this.aValues[0] = baseValue;
+        double[] times = new double[this.aEvents];
+        double[] values = new double[this.aEvents];
+        times[0] = Double.NEGATIVE_INFINITY;
+        values[0] = baseValue;
 
         int numEvent = 0;
         if (changeEvents != null) {
@@ -54,13 +61,13 @@ final class VariableIntervalTimeVariantAttribute
                 ChangeValue value = valueGetter.getChangeValue(event);
                 if (value != null) {
                     if (value.getType() == NetworkChangeEvent.ChangeType.FACTOR) {
-                        double currentValue = this.aValues[numEvent];
-                        this.aValues[++numEvent] = currentValue * value.getValue();
-                        this.aTimes[numEvent] = event.getStartTime();
+                        double currentValue = values[numEvent];
+                        values[++numEvent] = currentValue * value.getValue();
+                        times[numEvent] = event.getStartTime();
                     }
                     else {
-                        this.aValues[++numEvent] = value.getValue();
-                        this.aTimes[numEvent] = event.getStartTime();
+                        values[++numEvent] = value.getValue();
+                        times[numEvent] = event.getStartTime();
                     }
                 }
             }
@@ -70,15 +77,14 @@ final class VariableIntervalTimeVariantAttribute
             throw new RuntimeException("Expected number of change events (" + (this.aEvents - 1)
                     + ") differs from the number of events found (" + numEvent + ")!");
         }
+        this.function = new StepFunction(times, values, this.modCount);
     }
 
 
     @Override
     public double getValue(final double time)
     {
-        int key = Arrays.binarySearch(this.aTimes, time);
-        key = key >= 0 ? key : -key - 2;
-        return this.aValues[key];
+        return this.function.getValue(time);
     }
 
 
@@ -86,14 +92,45 @@ final class VariableIntervalTimeVariantAttribute
     public void incChangeEvents()
     {
         aEvents++;
+        modCount++;
     }
 
 
+    /**
+     * The last compiled function stays readable for concurrent readers until it
+     * is replaced by the next recalc.
+     */
     @Override
     public void clearEvents()
     {
-        aTimes = null;
-        aValues = null;
         aEvents = 1;
+        modCount++;
+    }
+
+
+    private static final class StepFunction
+    {
+        private final double[] times;
+        private final double[] values;
+        private final int modCount;
+
+
+        StepFunction(double[] times, double[] values, int modCount)
+        {
+            this.times = times;
+            this.values = values;
+            this.modCount = modCount;
+        }
+
+
+        double getValue(final double time)
+        {
+            if (this.times.length == 1) {
+                return this.values[0];
+            }
+            int key = Arrays.binarySearch(this.times, time);
+            key = key >= 0 ? key : -key - 2;
+            return this.values[key];
+        }
     }
 }
@@ -0,0 +1,263 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryNetworkReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributeconverters.BooleanConverter;
+import org.matsim.utils.objectattributes.attributeconverters.DoubleConverter;
+import org.matsim.utils.objectattributes.attributeconverters.FloatConverter;
+import org.matsim.utils.objectattributes.attributeconverters.IntegerConverter;
+import org.matsim.utils.objectattributes.attributeconverters.LongConverter;
+import org.matsim.utils.objectattributes.attributeconverters.StringConverter;
+
+/**
+ * Reads networks written by {@link BinaryNetworkWriter}. Local files are memory-mapped, so the operating system
+ * pages the data in directly without any stream buffering, and nothing has to be parsed: numbers are read in their
+ * binary representation and every string is decoded exactly once from the string table.
+ * <p></p>
+ * The nodes and links are created with the network's factory, so the resulting network is the same as when reading
+ * the corresponding <code>network_v2</code> file and can be modified afterwards.
+ *
+ * @see #isBinaryNetworkFile(URL)
+ */
+public final class BinaryNetworkReader implements MatsimReader {
+
+	private static final Logger log = Logger.getLogger(BinaryNetworkReader.class);
+
+	/* package */ static final int MAGIC = 0x4d41544e; // "MATN"
+	/* package */ static final int VERSION = 1;
+
+	private final Network network;
+	private final CoordinateTransformation transformation;
+	private final Map<String, AttributeConverter<?>> converters = new HashMap<>();
+	private final Set<String> missingConverters = new HashSet<>();
+
+	public BinaryNetworkReader(final Network network) {
+		this(new IdentityTransformation(), network);
+	}
+
+	public BinaryNetworkReader(final CoordinateTransformation transformation, final Network network) {
+		this.transformation = transformation;
+		this.network = network;
+		this.converters.put(String.class.getCanonicalName(), new StringConverter());
+		this.converters.put(Integer.class.getCanonicalName(), new IntegerConverter());
+		this.converters.put(Float.class.getCanonicalName(), new FloatConverter());
+		this.converters.put(Double.class.getCanonicalName(), new DoubleConverter());
+		this.converters.put(Boolean.class.getCanonicalName(), new BooleanConverter());
+		this.converters.put(Long.class.getCanonicalName(), new LongConverter());
+	}
+
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		this.converters.put(clazz.getCanonicalName(), converter);
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		for (Map.Entry<Class<?>, AttributeConverter<?>> e : converters.entrySet()) {
+			putAttributeConverter(e.getKey(), e.getValue());
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the file at the given location starts like a binary network file.
+	 */
+	public static boolean isBinaryNetworkFile(final URL url) {
+		try (InputStream in = url.openStream()) {
+			int magic = 0;
+			for (int i = 0; i < 4; i++) {
+				int b = in.read();
+				if (b < 0) {
+					return false;
+				}
+				magic = (magic << 8) | b;
+			}
+			return magic == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		read(new File(filename));
+	}
+
+	public void parse(final URL url) {
+		if ("file".equals(url.getProtocol())) {
+			try {
+				read(new File(url.toURI()));
+				return;
+			} catch (URISyntaxException | IllegalArgumentException e) {
+				// fall through and read it as a stream
+			}
+		}
+		try (InputStream in = IOUtils.getInputStream(url)) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			IOUtils.copyStream(in, bytes);
+			read(ByteBuffer.wrap(bytes.toByteArray()));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void read(final File file) {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new UncheckedIOException("Binary network files larger than 2 GB are not supported: " + file, null);
+			}
+			log.info("memory-mapping binary network file " + file);
+			read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void read(final ByteBuffer buffer) {
+		if (buffer.getInt() != MAGIC) {
+			throw new IllegalArgumentException("Not a binary network file.");
+		}
+		int version = buffer.getInt();
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported version of binary network file: " + version);
+		}
+
+		String[] strings = new String[buffer.getInt()];
+		byte[] bytes = new byte[256];
+		for (int i = 0; i < strings.length; i++) {
+			int length = buffer.getInt();
+			if (length > bytes.length) {
+				bytes = new byte[Math.max(length, 2 * bytes.length)];
+			}
+			buffer.get(bytes, 0, length);
+			strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+		}
+
+		Set<String>[] modeSets = new Set[buffer.getInt()];
+		for (int i = 0; i < modeSets.length; i++) {
+			Set<String> modes = new HashSet<>();
+			for (int n = buffer.getInt(); n > 0; n--) {
+				modes.add(strings[buffer.getInt()].intern());
+			}
+			modeSets[i] = modes;
+		}
+
+		this.network.setName(string(strings, buffer.getInt()));
+		this.network.setCapacityPeriod(buffer.getDouble());
+		this.network.setEffectiveCellSize(buffer.getDouble());
+		this.network.setEffectiveLaneWidth(buffer.getDouble());
+		readAttributes(buffer, strings, this.network.getAttributes());
+
+		NetworkFactory factory = this.network.getFactory();
+		Node[] nodes = new Node[buffer.getInt()];
+		for (int i = 0; i < nodes.length; i++) {
+			Id<Node> id = Id.create(strings[buffer.getInt()], Node.class);
+			double x = buffer.getDouble();
+			double y = buffer.getDouble();
+			double z = buffer.getDouble();
+			Coord coord = Double.isNaN(z) ? new Coord(x, y) : new Coord(x, y, z);
+			Node node = factory.createNode(id, this.transformation.transform(coord));
+			this.network.addNode(node);
+			String type = string(strings, buffer.getInt());
+			if (type != null) {
+				NetworkUtils.setType(node, type);
+			}
+			String origId = string(strings, buffer.getInt());
+			if (origId != null) {
+				NetworkUtils.setOrigId(node, origId);
+			}
+			readAttributes(buffer, strings, node.getAttributes());
+			nodes[i] = node;
+		}
+
+		int linkCount = buffer.getInt();
+		for (int i = 0; i < linkCount; i++) {
+			Id<Link> id = Id.create(strings[buffer.getInt()], Link.class);
+			Node fromNode = nodes[buffer.getInt()];
+			Node toNode = nodes[buffer.getInt()];
+			Link link = factory.createLink(id, fromNode, toNode);
+			link.setLength(buffer.getDouble());
+			link.setFreespeed(buffer.getDouble());
+			link.setCapacity(buffer.getDouble());
+			link.setNumberOfLanes(buffer.getDouble());
+			link.setAllowedModes(modeSets[buffer.getInt()]);
+			this.network.addLink(link);
+			String type = string(strings, buffer.getInt());
+			if (type != null) {
+				NetworkUtils.setType(link, type);
+			}
+			String origId = string(strings, buffer.getInt());
+			if (origId != null) {
+				NetworkUtils.setOrigId(link, origId);
+			}
+			readAttributes(buffer, strings, link.getAttributes());
+		}
+		log.info("read " + nodes.length + " nodes and " + linkCount + " links.");
+	}
+
+	private void readAttributes(final ByteBuffer buffer, final String[] strings, final Attributes attributes) {
+		for (int n = buffer.getInt(); n > 0; n--) {
+			String name = strings[buffer.getInt()];
+			String clazz = strings[buffer.getInt()];
+			String value = strings[buffer.getInt()];
+			AttributeConverter<?> converter = this.converters.get(clazz);
+			if (converter == null) {
+				if (this.missingConverters.add(clazz)) {
+					log.warn("No AttributeConverter found for class " + clazz + ". Not all attribute values can be read.");
+				}
+			} else {
+				attributes.putAttribute(name, converter.convert(value));
+			}
+		}
+	}
+
+	private static String string(final String[] strings, final int index) {
+		return index < 0 ? null : strings[index];
+	}
+
+}
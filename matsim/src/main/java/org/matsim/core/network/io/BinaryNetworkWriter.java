@@ -0,0 +1,248 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryNetworkWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.internal.MatsimWriter;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+import org.matsim.utils.objectattributes.attributeconverters.BooleanConverter;
+import org.matsim.utils.objectattributes.attributeconverters.DoubleConverter;
+import org.matsim.utils.objectattributes.attributeconverters.FloatConverter;
+import org.matsim.utils.objectattributes.attributeconverters.IntegerConverter;
+import org.matsim.utils.objectattributes.attributeconverters.LongConverter;
+import org.matsim.utils.objectattributes.attributeconverters.StringConverter;
+
+/**
+ * Writes a network in MATSim's binary network format, which can be read much faster than the xml formats,
+ * see {@link BinaryNetworkReader}. The file contains the same information as a <code>network_v2</code> file.
+ * <p></p>
+ * All strings (ids, types, modes, attributes) are stored once in a string table at the beginning of the file,
+ * and referenced by their index afterwards. Sets of allowed modes are stored once as well. Attribute values are
+ * stored in their string representation, like in the xml formats, so the same {@link AttributeConverter}s are used.
+ */
+public final class BinaryNetworkWriter implements MatsimWriter {
+
+	private static final Logger log = Logger.getLogger(BinaryNetworkWriter.class);
+
+	private final Network network;
+	private final CoordinateTransformation transformation;
+	private final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
+	private final Set<Class<?>> missingConverters = new HashSet<>();
+
+	private final Map<String, Integer> strings = new LinkedHashMap<>();
+	private final Map<Set<String>, Integer> modeSets = new LinkedHashMap<>();
+
+	public BinaryNetworkWriter(final Network network) {
+		this(new IdentityTransformation(), network);
+	}
+
+	public BinaryNetworkWriter(final CoordinateTransformation transformation, final Network network) {
+		this.transformation = transformation;
+		this.network = network;
+		this.converters.put(String.class, new StringConverter());
+		this.converters.put(Integer.class, new IntegerConverter());
+		this.converters.put(Float.class, new FloatConverter());
+		this.converters.put(Double.class, new DoubleConverter());
+		this.converters.put(Boolean.class, new BooleanConverter());
+		this.converters.put(Long.class, new LongConverter());
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.converters.putAll(converters);
+	}
+
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		this.converters.put(clazz, converter);
+	}
+
+	@Override
+	public void write(final String filename) {
+		log.info("Writing binary network to file: " + filename + "...");
+		Node[] nodes = NetworkUtils.getSortedNodes(this.network);
+		Link[] links = NetworkUtils.getSortedLinks(this.network);
+		this.strings.clear();
+		this.modeSets.clear();
+		collectStrings(nodes, links);
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))) {
+			out.writeInt(BinaryNetworkReader.MAGIC);
+			out.writeInt(BinaryNetworkReader.VERSION);
+
+			out.writeInt(this.strings.size());
+			for (String s : this.strings.keySet()) {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+
+			out.writeInt(this.modeSets.size());
+			for (Set<String> modes : this.modeSets.keySet()) {
+				out.writeInt(modes.size());
+				for (String mode : modes) {
+					out.writeInt(stringIndex(mode));
+				}
+			}
+
+			out.writeInt(stringIndex(this.network.getName()));
+			out.writeDouble(this.network.getCapacityPeriod());
+			out.writeDouble(this.network.getEffectiveCellSize());
+			out.writeDouble(this.network.getEffectiveLaneWidth());
+			writeAttributes(out, this.network.getAttributes());
+
+			IdMap<Node, Integer> nodeIndices = new IdMap<>(Node.class);
+			out.writeInt(nodes.length);
+			for (Node node : nodes) {
+				nodeIndices.put(node.getId(), nodeIndices.size());
+				Coord coord = this.transformation.transform(node.getCoord());
+				out.writeInt(stringIndex(node.getId().toString()));
+				out.writeDouble(coord.getX());
+				out.writeDouble(coord.getY());
+				out.writeDouble(coord.hasZ() ? coord.getZ() : Double.NaN);
+				out.writeInt(stringIndex(NetworkUtils.getType(node)));
+				out.writeInt(stringIndex(NetworkUtils.getOrigId(node)));
+				writeAttributes(out, node.getAttributes());
+			}
+
+			out.writeInt(links.length);
+			for (Link link : links) {
+				out.writeInt(stringIndex(link.getId().toString()));
+				out.writeInt(nodeIndices.get(link.getFromNode().getId()));
+				out.writeInt(nodeIndices.get(link.getToNode().getId()));
+				out.writeDouble(link.getLength());
+				out.writeDouble(link.getFreespeed());
+				out.writeDouble(link.getCapacity());
+				out.writeDouble(link.getNumberOfLanes());
+				out.writeInt(this.modeSets.get(modeSetOf(link)));
+				out.writeInt(stringIndex(NetworkUtils.getType(link)));
+				out.writeInt(stringIndex(NetworkUtils.getOrigId(link)));
+				writeAttributes(out, link.getAttributes());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info("done.");
+	}
+
+	private void collectStrings(final Node[] nodes, final Link[] links) {
+		addString(this.network.getName());
+		collectAttributeStrings(this.network.getAttributes());
+		for (Node node : nodes) {
+			addString(node.getId().toString());
+			addString(NetworkUtils.getType(node));
+			addString(NetworkUtils.getOrigId(node));
+			collectAttributeStrings(node.getAttributes());
+		}
+		for (Link link : links) {
+			addString(link.getId().toString());
+			Set<String> modes = modeSetOf(link);
+			if (!this.modeSets.containsKey(modes)) {
+				this.modeSets.put(modes, this.modeSets.size());
+				for (String mode : modes) {
+					addString(mode);
+				}
+			}
+			addString(NetworkUtils.getType(link));
+			addString(NetworkUtils.getOrigId(link));
+			collectAttributeStrings(link.getAttributes());
+		}
+	}
+
+	private static Set<String> modeSetOf(final Link link) {
+		// sorted, so equal sets are written identically
+		return new TreeSet<>(link.getAllowedModes());
+	}
+
+	private void collectAttributeStrings(final Attributes attributes) {
+		for (Map.Entry<String, Object> e : AttributesUtils.toMap(attributes).entrySet()) {
+			String value = convert(e.getValue());
+			if (value != null) {
+				addString(e.getKey());
+				addString(e.getValue().getClass().getCanonicalName());
+				addString(value);
+			}
+		}
+	}
+
+	private void writeAttributes(final DataOutputStream out, final Attributes attributes) throws IOException {
+		Map<String, Object> map = AttributesUtils.toMap(attributes);
+		List<int[]> entries = new ArrayList<>(map.size());
+		for (Map.Entry<String, Object> e : map.entrySet()) {
+			String value = convert(e.getValue());
+			if (value != null) {
+				entries.add(new int[] { stringIndex(e.getKey()), stringIndex(e.getValue().getClass().getCanonicalName()), stringIndex(value) });
+			}
+		}
+		out.writeInt(entries.size());
+		for (int[] entry : entries) {
+			out.writeInt(entry[0]);
+			out.writeInt(entry[1]);
+			out.writeInt(entry[2]);
+		}
+	}
+
+	private String convert(final Object value) {
+		Class<?> clazz = value.getClass();
+		AttributeConverter<?> converter = this.converters.get(clazz);
+		if (converter == null) {
+			if (this.missingConverters.add(clazz)) {
+				log.warn("No AttributeConverter found for class " + clazz.getCanonicalName() + ". Not all attribute values will be written.");
+			}
+			return null;
+		}
+		return converter.convertToString(value);
+	}
+
+	private void addString(final String s) {
+		if (s != null && !this.strings.containsKey(s)) {
+			this.strings.put(s, this.strings.size());
+		}
+	}
+
+	private int stringIndex(final String s) {
+		return s == null ? -1 : this.strings.get(s);
+	}
+
+}
@@ -0,0 +1,851 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ColumnarPlan.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+
+/**
+ * A plan which stores its activities and legs column-wise in arrays instead of one object per plan element.
+ * Coordinates and times are stored as primitive doubles, activity types, modes and ids as references to the
+ * (interned) shared instances, and attributes are only allocated when they are used. This needs a fraction
+ * of the memory of {@link PlanImpl} with {@link ActivityImpl}s and {@link LegImpl}s, which matters mostly
+ * for the non-selected plans which are just kept around.
+ * <p></p>
+ * The plan elements are exposed as light-weight views, which are created when an element is accessed for the
+ * first time and then kept, so that the identity of the elements is stable as long as they are in the plan.
+ * Elements of other implementations which are added to the plan are stored as they are, so that later changes
+ * to them are still reflected in the plan; they are only copied into the columns by {@link #compact()}, or when
+ * the plan is copied. The population does this when a person is added and, via
+ * {@link PopulationUtils#compactPlans(org.matsim.api.core.v01.population.Population)}, after each replanning of the
+ * default controler. For the latter, a plan registers itself with its population when its list of elements is
+ * changed for the first time since it was compacted, so that only the plans which were copied or changed by the
+ * replanning strategies are compacted, and the plan objects stay the same. Code which changes plans elsewhere,
+ * e.g. during the mobsim, leaves them partially compacted until the next replanning. Plans of other
+ * implementations which are added to a person later on are kept as they are.
+ *
+ * @see org.matsim.core.config.groups.PlansConfigGroup.InMemoryRepresentation
+ */
+/* deliberately package */ final class ColumnarPlan implements Plan {
+
+	/** position value for elements which are not stored in the columns, but in {@link #elements} */
+	private static final int FOREIGN = -1;
+
+	private Double score = null;
+	private Person person = null;
+	private String type = null;
+	private Customizable customizableDelegate;
+
+	/* where to register when the elements are changed, shared by all plans of a population; may be null */
+	private Queue<ColumnarPlan> modifiedPlans = null;
+	private boolean modified = false;
+
+	/*
+	 * For every position in the plan: activity row * 2, leg row * 2 + 1, or FOREIGN. Removed rows
+	 * are not reused; they disappear when the plan is copied.
+	 */
+	private int size = 0;
+	private int[] positions;
+	/* the views of the column-stored elements and the foreign elements by position, allocated on first access */
+	private PlanElement[] elements = null;
+	private PlanElementList list = null;
+
+	private int actCount = 0;
+	private String[] actTypes;
+	private double[] actXs;
+	private double[] actYs;
+	private double[] actZs = null;
+	private Id<Link>[] actLinkIds;
+	private Id<ActivityFacility>[] actFacilityIds;
+	private double[] actStartTimes;
+	private double[] actEndTimes;
+	private double[] actMaxDurations;
+	private Attributes[] actAttributes = null;
+
+	private int legCount = 0;
+	private String[] legModes;
+	private double[] legDepartureTimes;
+	private double[] legTravelTimes;
+	private Route[] legRoutes;
+	private Attributes[] legAttributes = null;
+
+	/* package */ ColumnarPlan() {
+		this(8);
+	}
+
+	private ColumnarPlan(final int capacity) {
+		this.positions = new int[capacity];
+		int acts = capacity / 2 + 1;
+		int legs = capacity / 2;
+		this.actTypes = new String[acts];
+		this.actXs = new double[acts];
+		this.actYs = new double[acts];
+		this.actLinkIds = new Id[acts];
+		this.actFacilityIds = new Id[acts];
+		this.actStartTimes = new double[acts];
+		this.actEndTimes = new double[acts];
+		this.actMaxDurations = new double[acts];
+		this.legModes = new String[legs];
+		this.legDepartureTimes = new double[legs];
+		this.legTravelTimes = new double[legs];
+		this.legRoutes = new Route[legs];
+	}
+
+	/**
+	 * Creates a copy of the given plan, with all elements stored in the columns. Like
+	 * {@link PopulationUtils#copyFromTo(Plan, Plan)}, routes are cloned and the person is not set.
+	 */
+	/* package */ static ColumnarPlan copyOf(final Plan plan) {
+		ColumnarPlan copy = copyOf(plan, true);
+		if (plan instanceof ColumnarPlan) {
+			copy.modifiedPlans = ((ColumnarPlan) plan).modifiedPlans;
+		}
+		return copy;
+	}
+
+	private static ColumnarPlan copyOf(final Plan plan, final boolean cloneRoutes) {
+		List<PlanElement> planElements = plan.getPlanElements();
+		ColumnarPlan copy = new ColumnarPlan(planElements.size());
+		copy.score = plan.getScore();
+		copy.type = plan.getType();
+		for (PlanElement pe : planElements) {
+			copy.positions[copy.size++] = copy.store(pe, cloneRoutes);
+		}
+		copy.trimToSize();
+		return copy;
+	}
+
+	/**
+	 * Moves all elements which are not stored in the columns yet into the columns, and drops the rows of removed
+	 * elements. Afterwards, the moved element objects are not part of this plan any more, so this may only be
+	 * called when nobody holds references to them, e.g. right after a plan was read or replanned. Views of the
+	 * elements in the plan stay valid; views of elements which were removed from the plan must not be used any more.
+	 */
+	/* package */ void compact() {
+		this.modified = false;
+		if (this.elements != null) {
+			boolean hasViews = false;
+			for (int i = 0; i < this.size; i++) {
+				if (this.positions[i] == FOREIGN) {
+					this.positions[i] = store(this.elements[i], false);
+					this.elements[i] = null;
+				} else if (this.elements[i] != null) {
+					hasViews = true;
+				}
+			}
+			if (!hasViews) {
+				this.elements = null;
+			}
+		}
+		if (hasRemovedRows()) {
+			dropRemovedRows();
+		}
+		trimToSize();
+	}
+
+	/**
+	 * Converts all plans of the person to column-wise storage. Plans of other implementations are replaced by
+	 * copies, which keep the person and the selection. Like {@link #compact()}, this may only be called when
+	 * nobody holds references to the plans or their elements.
+	 *
+	 * @param modifiedPlans where the plans register when their elements are changed later on, see
+	 * {@link #compactModifiedPlans(Queue)}. May be <code>null</code>.
+	 */
+	/* package */ static void makeColumnar(final Person person, final Queue<ColumnarPlan> modifiedPlans) {
+		List<? extends Plan> plans = person.getPlans();
+		Plan selectedPlan = person.getSelectedPlan();
+		for (int i = 0; i < plans.size(); i++) {
+			Plan plan = plans.get(i);
+			if (plan instanceof ColumnarPlan) {
+				((ColumnarPlan) plan).modifiedPlans = modifiedPlans;
+				((ColumnarPlan) plan).compact();
+			} else {
+				// take over the route objects instead of cloning them, the original plan is discarded
+				ColumnarPlan copy = copyOf(plan, false);
+				copy.person = person;
+				copy.modifiedPlans = modifiedPlans;
+				((List<Plan>) plans).set(i, copy);
+				if (plan == selectedPlan) {
+					person.setSelectedPlan(copy);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compacts the plans which registered since the last call because their elements were changed. Like
+	 * {@link #compact()}, this may only be called when nobody holds references to the changed elements.
+	 */
+	/* package */ static void compactModifiedPlans(final Queue<ColumnarPlan> modifiedPlans) {
+		ColumnarPlan plan;
+		while ((plan = modifiedPlans.poll()) != null) {
+			plan.compact();
+		}
+	}
+
+	private void markModified() {
+		if (!this.modified) {
+			this.modified = true;
+			if (this.modifiedPlans != null) {
+				this.modifiedPlans.add(this);
+			}
+		}
+	}
+
+	/**
+	 * Rows of removed elements are not reused, e.g. when replanning replaces the legs of a trip; they are only
+	 * dropped by {@link #compact()} or by copying the plan.
+	 */
+	private boolean hasRemovedRows() {
+		int rows = 0;
+		for (int i = 0; i < this.size; i++) {
+			if (this.positions[i] != FOREIGN) {
+				rows++;
+			}
+		}
+		return rows < this.actCount + this.legCount;
+	}
+
+	/**
+	 * Renumbers the rows in the order of the plan elements, without the rows of removed elements, and moves
+	 * the views along.
+	 */
+	private void dropRemovedRows() {
+		int[] actRows = new int[this.actCount];
+		int[] legRows = new int[this.legCount];
+		int acts = 0;
+		int legs = 0;
+		for (int i = 0; i < this.size; i++) {
+			int position = this.positions[i];
+			if (position == FOREIGN) {
+				continue;
+			}
+			PlanElement view = this.elements == null ? null : this.elements[i];
+			if ((position & 1) == 0) {
+				actRows[acts] = position >> 1;
+				if (view != null) {
+					((ActivityView) view).row = acts;
+				}
+				this.positions[i] = acts++ * 2;
+			} else {
+				legRows[legs] = position >> 1;
+				if (view != null) {
+					((LegView) view).row = legs;
+				}
+				this.positions[i] = legs++ * 2 + 1;
+			}
+		}
+
+		this.actTypes = select(this.actTypes, actRows, acts);
+		this.actXs = select(this.actXs, actRows, acts);
+		this.actYs = select(this.actYs, actRows, acts);
+		if (this.actZs != null) {
+			this.actZs = select(this.actZs, actRows, acts);
+		}
+		this.actLinkIds = select(this.actLinkIds, actRows, acts);
+		this.actFacilityIds = select(this.actFacilityIds, actRows, acts);
+		this.actStartTimes = select(this.actStartTimes, actRows, acts);
+		this.actEndTimes = select(this.actEndTimes, actRows, acts);
+		this.actMaxDurations = select(this.actMaxDurations, actRows, acts);
+		if (this.actAttributes != null) {
+			this.actAttributes = select(this.actAttributes, actRows, acts);
+		}
+		this.actCount = acts;
+
+		this.legModes = select(this.legModes, legRows, legs);
+		this.legDepartureTimes = select(this.legDepartureTimes, legRows, legs);
+		this.legTravelTimes = select(this.legTravelTimes, legRows, legs);
+		this.legRoutes = select(this.legRoutes, legRows, legs);
+		if (this.legAttributes != null) {
+			this.legAttributes = select(this.legAttributes, legRows, legs);
+		}
+		this.legCount = legs;
+	}
+
+	private static double[] select(final double[] column, final int[] rows, final int length) {
+		double[] selected = new double[length];
+		for (int i = 0; i < length; i++) {
+			selected[i] = column[rows[i]];
+		}
+		return selected;
+	}
+
+	private static <E> E[] select(final E[] column, final int[] rows, final int length) {
+		E[] selected = Arrays.copyOf(column, length);
+		for (int i = 0; i < length; i++) {
+			selected[i] = column[rows[i]];
+		}
+		return selected;
+	}
+
+	private int store(final PlanElement pe, final boolean cloneRoute) {
+		if (pe instanceof Activity) {
+			Activity act = (Activity) pe;
+			int row = addActivityRow(act.getType());
+			setCoord(row, act.getCoord());
+			this.actLinkIds[row] = act.getLinkId();
+			this.actFacilityIds[row] = act.getFacilityId();
+			this.actStartTimes[row] = act.getStartTime();
+			this.actEndTimes[row] = act.getEndTime();
+			this.actMaxDurations[row] = act.getMaximumDuration();
+			Attributes attributes = getAttributesIfAny(act);
+			if (attributes != null) {
+				AttributesUtils.copyTo(attributes, getActivityAttributes(row));
+			}
+			return row * 2;
+		} else if (pe instanceof Leg) {
+			Leg leg = (Leg) pe;
+			int row = addLegRow(leg.getMode());
+			this.legDepartureTimes[row] = leg.getDepartureTime();
+			this.legTravelTimes[row] = leg.getTravelTime();
+			Route route = leg.getRoute();
+			this.legRoutes[row] = (cloneRoute && route != null) ? route.clone() : route;
+			Attributes attributes = getAttributesIfAny(leg);
+			if (attributes != null) {
+				AttributesUtils.copyTo(attributes, getLegAttributes(row));
+			}
+			return row * 2 + 1;
+		}
+		throw new IllegalArgumentException("unrecognized plan element type discovered");
+	}
+
+	private static Attributes getAttributesIfAny(final PlanElement pe) {
+		Attributes attributes;
+		if (pe instanceof ActivityView) {
+			ActivityView view = (ActivityView) pe;
+			attributes = view.plan().actAttributes == null ? null : view.plan().actAttributes[view.row];
+		} else if (pe instanceof LegView) {
+			LegView view = (LegView) pe;
+			attributes = view.plan().legAttributes == null ? null : view.plan().legAttributes[view.row];
+		} else {
+			attributes = pe.getAttributes();
+		}
+		return attributes == null || AttributesUtils.isEmpty(attributes) ? null : attributes;
+	}
+
+	private int addActivityRow(final String actType) {
+		int row = this.actCount++;
+		if (row == this.actTypes.length) {
+			int n = Math.max(4, row * 2);
+			this.actTypes = Arrays.copyOf(this.actTypes, n);
+			this.actXs = Arrays.copyOf(this.actXs, n);
+			this.actYs = Arrays.copyOf(this.actYs, n);
+			if (this.actZs != null) {
+				this.actZs = copyOf(this.actZs, n, Double.NEGATIVE_INFINITY);
+			}
+			this.actLinkIds = Arrays.copyOf(this.actLinkIds, n);
+			this.actFacilityIds = Arrays.copyOf(this.actFacilityIds, n);
+			this.actStartTimes = Arrays.copyOf(this.actStartTimes, n);
+			this.actEndTimes = Arrays.copyOf(this.actEndTimes, n);
+			this.actMaxDurations = Arrays.copyOf(this.actMaxDurations, n);
+			if (this.actAttributes != null) {
+				this.actAttributes = Arrays.copyOf(this.actAttributes, n);
+			}
+		}
+		this.actTypes[row] = actType.intern();
+		this.actXs[row] = Double.NaN;
+		this.actYs[row] = Double.NaN;
+		this.actStartTimes[row] = Time.UNDEFINED_TIME;
+		this.actEndTimes[row] = Time.UNDEFINED_TIME;
+		this.actMaxDurations[row] = Time.UNDEFINED_TIME;
+		return row;
+	}
+
+	private int addLegRow(final String mode) {
+		int row = this.legCount++;
+		if (row == this.legModes.length) {
+			int n = Math.max(4, row * 2);
+			this.legModes = Arrays.copyOf(this.legModes, n);
+			this.legDepartureTimes = Arrays.copyOf(this.legDepartureTimes, n);
+			this.legTravelTimes = Arrays.copyOf(this.legTravelTimes, n);
+			this.legRoutes = Arrays.copyOf(this.legRoutes, n);
+			if (this.legAttributes != null) {
+				this.legAttributes = Arrays.copyOf(this.legAttributes, n);
+			}
+		}
+		this.legModes[row] = mode;
+		this.legDepartureTimes[row] = Time.UNDEFINED_TIME;
+		this.legTravelTimes[row] = Time.UNDEFINED_TIME;
+		return row;
+	}
+
+	private static double[] copyOf(final double[] array, final int length, final double fill) {
+		double[] copy = Arrays.copyOf(array, length);
+		if (length > array.length) {
+			Arrays.fill(copy, array.length, length, fill);
+		}
+		return copy;
+	}
+
+	private void setCoord(final int row, final Coord coord) {
+		if (coord == null) {
+			this.actXs[row] = Double.NaN;
+			this.actYs[row] = Double.NaN;
+		} else {
+			this.actXs[row] = coord.getX();
+			this.actYs[row] = coord.getY();
+		}
+		if (coord != null && coord.hasZ()) {
+			if (this.actZs == null) {
+				this.actZs = new double[this.actTypes.length];
+				Arrays.fill(this.actZs, Double.NEGATIVE_INFINITY);
+			}
+			this.actZs[row] = coord.getZ();
+		} else if (this.actZs != null) {
+			this.actZs[row] = Double.NEGATIVE_INFINITY;
+		}
+	}
+
+	private Coord getCoord(final int row) {
+		double x = this.actXs[row];
+		if (Double.isNaN(x)) {
+			return null;
+		}
+		if (this.actZs != null && this.actZs[row] != Double.NEGATIVE_INFINITY) {
+			return new Coord(x, this.actYs[row], this.actZs[row]);
+		}
+		return new Coord(x, this.actYs[row]);
+	}
+
+	private Attributes getActivityAttributes(final int row) {
+		if (this.actAttributes == null) {
+			this.actAttributes = new Attributes[this.actTypes.length];
+		}
+		Attributes attributes = this.actAttributes[row];
+		if (attributes == null) {
+			attributes = new Attributes();
+			this.actAttributes[row] = attributes;
+		}
+		return attributes;
+	}
+
+	private Attributes getLegAttributes(final int row) {
+		if (this.legAttributes == null) {
+			this.legAttributes = new Attributes[this.legModes.length];
+		}
+		Attributes attributes = this.legAttributes[row];
+		if (attributes == null) {
+			attributes = new Attributes();
+			this.legAttributes[row] = attributes;
+		}
+		return attributes;
+	}
+
+	private void trimToSize() {
+		if (this.positions.length > this.size) {
+			this.positions = Arrays.copyOf(this.positions, this.size);
+			if (this.elements != null) {
+				this.elements = Arrays.copyOf(this.elements, this.size);
+			}
+		}
+		int n = this.actCount;
+		if (this.actTypes.length > n) {
+			this.actTypes = Arrays.copyOf(this.actTypes, n);
+			this.actXs = Arrays.copyOf(this.actXs, n);
+			this.actYs = Arrays.copyOf(this.actYs, n);
+			if (this.actZs != null) {
+				this.actZs = Arrays.copyOf(this.actZs, n);
+			}
+			this.actLinkIds = Arrays.copyOf(this.actLinkIds, n);
+			this.actFacilityIds = Arrays.copyOf(this.actFacilityIds, n);
+			this.actStartTimes = Arrays.copyOf(this.actStartTimes, n);
+			this.actEndTimes = Arrays.copyOf(this.actEndTimes, n);
+			this.actMaxDurations = Arrays.copyOf(this.actMaxDurations, n);
+			if (this.actAttributes != null) {
+				this.actAttributes = Arrays.copyOf(this.actAttributes, n);
+			}
+		}
+		n = this.legCount;
+		if (this.legModes.length > n) {
+			this.legModes = Arrays.copyOf(this.legModes, n);
+			this.legDepartureTimes = Arrays.copyOf(this.legDepartureTimes, n);
+			this.legTravelTimes = Arrays.copyOf(this.legTravelTimes, n);
+			this.legRoutes = Arrays.copyOf(this.legRoutes, n);
+			if (this.legAttributes != null) {
+				this.legAttributes = Arrays.copyOf(this.legAttributes, n);
+			}
+		}
+	}
+
+	@Override
+	public final Person getPerson() {
+		return this.person;
+	}
+
+	@Override
+	public void setPerson(final Person person) {
+		this.person = person;
+	}
+
+	@Override
+	public final Double getScore() {
+		return this.score;
+	}
+
+	@Override
+	public void setScore(final Double score) {
+		this.score = score;
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type;
+	}
+
+	@Override
+	public final List<PlanElement> getPlanElements() {
+		if (this.list == null) {
+			this.list = new PlanElementList();
+		}
+		return this.list;
+	}
+
+	@Override
+	public final void addLeg(final Leg leg) {
+		getPlanElements().add(leg);
+	}
+
+	@Override
+	public final void addActivity(final Activity act) {
+		getPlanElements().add(act);
+	}
+
+	@Override
+	public final String toString() {
+		String scoreString = "undefined";
+		if (this.getScore() != null) {
+			scoreString = this.getScore().toString();
+		}
+		String personIdString = "undefined" ;
+		if ( this.getPerson() != null ) {
+			personIdString = this.getPerson().getId().toString() ;
+		}
+		return "[score=" + scoreString + "]" +
+				"[nof_acts_legs=" + this.size + "]" +
+				"[type=" + this.type + "]" +
+				"[personId=" + personIdString + "]" ;
+	}
+
+	@Override
+	public final Map<String, Object> getCustomAttributes() {
+		if (this.customizableDelegate == null) {
+			this.customizableDelegate = CustomizableUtils.createCustomizable();
+		}
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+	/**
+	 * The list of plan elements. Elements stored in the columns are represented by their views,
+	 * everything else is kept as it is.
+	 */
+	private final class PlanElementList extends AbstractList<PlanElement> {
+
+		@Override
+		public PlanElement get(final int index) {
+			rangeCheck(index, size);
+			if (elements == null) {
+				elements = new PlanElement[positions.length];
+			}
+			PlanElement pe = elements[index];
+			if (pe == null) {
+				int position = positions[index];
+				if ((position & 1) == 0) {
+					pe = new ActivityView(position >> 1);
+				} else {
+					pe = new LegView(position >> 1);
+				}
+				elements[index] = pe;
+			}
+			return pe;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public PlanElement set(final int index, final PlanElement element) {
+			checkElement(element);
+			PlanElement old = get(index);
+			positions[index] = positionOf(element);
+			elements[index] = element;
+			markModified();
+			return old;
+		}
+
+		@Override
+		public void add(final int index, final PlanElement element) {
+			rangeCheck(index, size + 1);
+			checkElement(element);
+			if (size == positions.length) {
+				int n = Math.max(4, size * 2);
+				positions = Arrays.copyOf(positions, n);
+				if (elements != null) {
+					elements = Arrays.copyOf(elements, n);
+				}
+			}
+			if (elements == null) {
+				elements = new PlanElement[positions.length];
+			}
+			System.arraycopy(positions, index, positions, index + 1, size - index);
+			System.arraycopy(elements, index, elements, index + 1, size - index);
+			positions[index] = positionOf(element);
+			elements[index] = element;
+			size++;
+			this.modCount++;
+			markModified();
+		}
+
+		@Override
+		public PlanElement remove(final int index) {
+			PlanElement old = get(index);
+			System.arraycopy(positions, index + 1, positions, index, size - index - 1);
+			System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+			size--;
+			elements[size] = null;
+			this.modCount++;
+			markModified();
+			return old;
+		}
+
+		private void rangeCheck(final int index, final int limit) {
+			if (index < 0 || index >= limit) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			}
+		}
+
+		private void checkElement(final PlanElement element) {
+			if (element == null) {
+				throw new NullPointerException("plan elements must not be null");
+			}
+		}
+
+		private int positionOf(final PlanElement element) {
+			if (element instanceof ActivityView && ((ActivityView) element).plan() == ColumnarPlan.this) {
+				return ((ActivityView) element).row * 2;
+			}
+			if (element instanceof LegView && ((LegView) element).plan() == ColumnarPlan.this) {
+				return ((LegView) element).row * 2 + 1;
+			}
+			return FOREIGN;
+		}
+	}
+
+	private final class ActivityView implements Activity {
+
+		/* changes when the rows are renumbered by compact() */
+		private int row;
+		/* Coord is immutable, so it is created once instead of on every call */
+		private Coord coord = null;
+
+		ActivityView(final int row) {
+			this.row = row;
+		}
+
+		ColumnarPlan plan() {
+			return ColumnarPlan.this;
+		}
+
+		@Override
+		public double getEndTime() {
+			return actEndTimes[this.row];
+		}
+
+		@Override
+		public void setEndTime(final double seconds) {
+			actEndTimes[this.row] = seconds;
+		}
+
+		@Override
+		public String getType() {
+			return actTypes[this.row];
+		}
+
+		@Override
+		public void setType(final String type) {
+			actTypes[this.row] = type.intern();
+		}
+
+		@Override
+		public Coord getCoord() {
+			if (this.coord == null) {
+				this.coord = ColumnarPlan.this.getCoord(this.row);
+			}
+			return this.coord;
+		}
+
+		@Override
+		public void setCoord(final Coord coord) {
+			ColumnarPlan.this.setCoord(this.row, coord);
+			this.coord = coord;
+		}
+
+		@Override
+		public double getStartTime() {
+			return actStartTimes[this.row];
+		}
+
+		@Override
+		public void setStartTime(final double seconds) {
+			actStartTimes[this.row] = seconds;
+		}
+
+		@Override
+		public double getMaximumDuration() {
+			return actMaxDurations[this.row];
+		}
+
+		@Override
+		public void setMaximumDuration(final double seconds) {
+			actMaxDurations[this.row] = seconds;
+		}
+
+		@Override
+		public Id<Link> getLinkId() {
+			return actLinkIds[this.row];
+		}
+
+		@Override
+		public void setLinkId(final Id<Link> id) {
+			actLinkIds[this.row] = id;
+		}
+
+		@Override
+		public Id<ActivityFacility> getFacilityId() {
+			return actFacilityIds[this.row];
+		}
+
+		@Override
+		public void setFacilityId(final Id<ActivityFacility> id) {
+			actFacilityIds[this.row] = id;
+		}
+
+		@Override
+		public Attributes getAttributes() {
+			return getActivityAttributes(this.row);
+		}
+
+		@Override
+		public String toString() {
+			return "[type=" + this.getType() + "]" +
+					"[coord=" + this.getCoord() + "]" +
+					"[linkId=" + this.getLinkId() + "]" +
+					"[startTime=" + Time.writeTime(this.getStartTime()) + "]" +
+					"[endTime=" + Time.writeTime(this.getEndTime()) + "]" +
+					"[duration=" + Time.writeTime(this.getMaximumDuration()) + "]" +
+					"[facilityId=" + this.getFacilityId() + "]" ;
+		}
+	}
+
+	private final class LegView implements Leg {
+
+		/* changes when the rows are renumbered by compact() */
+		private int row;
+
+		LegView(final int row) {
+			this.row = row;
+		}
+
+		ColumnarPlan plan() {
+			return ColumnarPlan.this;
+		}
+
+		@Override
+		public String getMode() {
+			return legModes[this.row];
+		}
+
+		@Override
+		public void setMode(final String mode) {
+			legModes[this.row] = mode;
+		}
+
+		@Override
+		public Route getRoute() {
+			return legRoutes[this.row];
+		}
+
+		@Override
+		public void setRoute(final Route route) {
+			legRoutes[this.row] = route;
+		}
+
+		@Override
+		public double getDepartureTime() {
+			return legDepartureTimes[this.row];
+		}
+
+		@Override
+		public void setDepartureTime(final double seconds) {
+			legDepartureTimes[this.row] = seconds;
+		}
+
+		@Override
+		public double getTravelTime() {
+			return legTravelTimes[this.row];
+		}
+
+		@Override
+		public void setTravelTime(final double seconds) {
+			legTravelTimes[this.row] = seconds;
+		}
+
+		@Override
+		public Attributes getAttributes() {
+			return getLegAttributes(this.row);
+		}
+
+		@Override
+		public String toString() {
+			return "[mode=" + this.getMode() + "]" +
+					"[depTime=" + Time.writeTime(this.getDepartureTime()) + "]" +
+					"[travTime=" + Time.writeTime(this.getTravelTime()) + "]" +
+					"[arrTime=" + Time.writeTime(this.getDepartureTime() + this.getTravelTime()) + "]" +
+					"[route=" + this.getRoute() + "]";
+		}
+	}
+
+}
@@ -80,6 +80,14 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 		if (oldPlan == null) {
 			return null;
 		}
+		if (oldPlan instanceof ColumnarPlan) {
+			// keep columnar plans columnar
+			Plan newPlan = ColumnarPlan.copyOf(oldPlan);
+			newPlan.setPerson(oldPlan.getPerson());
+			this.getPlans().add(newPlan);
+			this.setSelectedPlan(newPlan);
+			return newPlan;
+		}
 		Plan newPlan = PopulationUtils.createPlan(oldPlan.getPerson());
 		PopulationUtils.copyFromTo(oldPlan, newPlan);
 		this.getPlans().add(newPlan);
@@ -20,6 +20,8 @@ package org.matsim.core.population;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -44,9 +46,21 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 	private final ObjectAttributes personAttributes = new ObjectAttributes();
 	private long counter = 0;
 	private long nextMsg = 1;
+	private final boolean columnar;
+	/* column-wise plans whose elements were changed since the last compaction; replanning may run in several threads */
+	private final Queue<ColumnarPlan> modifiedPlans = new ConcurrentLinkedQueue<>();
 
 	PopulationImpl(PopulationFactory populationFactory2) {
+		this(populationFactory2, false);
+	}
+
+	/**
+	 * @param columnar if <code>true</code>, the plans of the persons are converted to {@link ColumnarPlan}s when the
+	 * persons are added.
+	 */
+	PopulationImpl(PopulationFactory populationFactory2, boolean columnar) {
 		this.populationFactory = populationFactory2 ;
+		this.columnar = columnar;
 	}
 
 	@Override
@@ -55,6 +69,9 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 		if (this.getPersons().containsKey(p.getId())) {
 			throw new IllegalArgumentException("Person with id = " + p.getId() + " already exists.");
 		}
+		if ( this.columnar ) {
+			ColumnarPlan.makeColumnar(p, this.modifiedPlans);
+		}
 		if ( p instanceof Lockable ) {
 			((Lockable) p).setLocked();
 		}
@@ -69,6 +86,18 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 		this.persons.put( p.getId(), p ) ;
 	}
 
+	/**
+	 * Moves plan elements which were added to column-wise plans since the last call, e.g. by replanning, into the
+	 * columns. Only the plans whose elements were changed are visited, and they are compacted in place. Plans of other
+	 * implementations which were added to the persons later on are kept as they are. Does nothing if this population
+	 * does not store its plans column-wise.
+	 */
+	void compactPlans() {
+		if ( this.columnar ) {
+			ColumnarPlan.compactModifiedPlans(this.modifiedPlans);
+		}
+	}
+
 	@Override
 	public Person removePerson(Id<Person> personId) {
 		return this.persons.remove(personId) ;
@@ -121,7 +121,8 @@ public final class PopulationUtils {
 			throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
 		}
 		routeFactory.setRouteFactory(NetworkRoute.class, factory);
-		return new PopulationImpl(new PopulationFactoryImpl(routeFactory));
+		boolean columnar = PlansConfigGroup.InMemoryRepresentation.columnar.equals(plansConfigGroup.getInMemoryRepresentation());
+		return new PopulationImpl(new PopulationFactoryImpl(routeFactory), columnar);
 	}
 	
 //	public static Population createStreamingPopulation(PlansConfigGroup plansConfigGroup, Network network) {
@@ -390,6 +391,18 @@ public final class PopulationUtils {
 		map.putAll(treeMap);
 	}
 
+	/**
+	 * If the population stores its plans column-wise (see {@link PlansConfigGroup.InMemoryRepresentation}), moves
+	 * plan elements which were added after the persons were added to the population, e.g. by replanning, into the
+	 * columns of their plans. Only the plans whose elements were changed are visited, and the plan objects stay the
+	 * same. May only be called when nobody holds references to the changed plan elements.
+	 */
+	public static void compactPlans(final Population population) {
+		if (population instanceof PopulationImpl) {
+			((PopulationImpl) population).compactPlans();
+		}
+	}
+
 	/**
 	 * Computes the (expected or planned) activity end time, depending on the configured time interpretation.
 	 */
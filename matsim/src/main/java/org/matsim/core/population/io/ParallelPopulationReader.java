@@ -0,0 +1,390 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.households.Households;
+import org.matsim.lanes.data.Lanes;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.utils.objectattributes.ObjectAttributes;
+import org.matsim.vehicles.Vehicles;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Parallel wrapper around the population readers for population_v5 and population_v6.
+ * <p></p>
+ * The parser thread only records the tags (and copies of their attributes) of chunks of persons.
+ * Each chunk is then interpreted by a separate reader instance on a worker thread, which creates the
+ * persons including their plans, routes and attributes. The created persons are added to the
+ * population by the parser thread, chunk by chunk in the order of the file, so the order of the
+ * persons is the same as with the non-parallel readers and populations that process persons when
+ * they are added (e.g. streaming) keep working. Everything outside of <code>person</code> elements
+ * (population name and attributes) is handled directly on the parser thread.
+ *
+ * @see ParallelPopulationReaderMatsimV4
+ */
+/* deliberately package */ class ParallelPopulationReader extends MatsimXmlParser {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReader.class);
+
+	/**
+	 * Creates the non-parallel reader for a specific file format. The readers are used from
+	 * one thread at a time only.
+	 */
+	interface ReaderFactory {
+		MatsimXmlParser createReader(Scenario scenario);
+	}
+
+	private final static String PERSON = "person";
+	private final static int PERSONS_PER_CHUNK = 256;
+
+	private final Scenario scenario;
+	private final ReaderFactory factory;
+	private final MatsimXmlParser reader;
+	private final int numThreads;
+
+	private ExecutorService executor = null;
+	private BlockingQueue<Worker> idleWorkers = null;
+	private final Deque<Future<List<Person>>> pending = new ArrayDeque<>();
+
+	private Chunk currentChunk = null;
+	private boolean inPerson = false;
+	private int nOfPersons = 0;
+
+	ParallelPopulationReader(final Scenario scenario, final int numThreads, final ReaderFactory factory) {
+		this.scenario = scenario;
+		this.factory = factory;
+		this.reader = factory.createReader(scenario);
+		this.numThreads = Math.max(1, numThreads);
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (PERSON.equals(name)) {
+			this.inPerson = true;
+			if (this.currentChunk == null) {
+				this.currentChunk = new Chunk(context);
+			}
+		}
+		if (this.inPerson) {
+			// the parser re-uses the attributes object, so we have to copy it
+			this.currentChunk.tags.add(new Tag(name, new AttributesImpl(atts), null));
+		} else {
+			finishPersons();
+			this.reader.startTag(name, atts, context);
+		}
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (this.inPerson) {
+			this.currentChunk.tags.add(new Tag(name, null, content));
+			if (PERSON.equals(name)) {
+				this.inPerson = false;
+				this.currentChunk.nOfPersons++;
+				if (this.currentChunk.nOfPersons == PERSONS_PER_CHUNK) {
+					submitChunk();
+				}
+			}
+		} else {
+			finishPersons();
+			this.reader.endTag(name, content, context);
+		}
+	}
+
+	private void submitChunk() {
+		if (this.executor == null) {
+			initThreads();
+		}
+		final Chunk chunk = this.currentChunk;
+		this.currentChunk = null;
+		this.pending.add(this.executor.submit(new Callable<List<Person>>() {
+			@Override
+			public List<Person> call() throws Exception {
+				Worker worker = idleWorkers.take();
+				try {
+					return worker.read(chunk);
+				} finally {
+					idleWorkers.add(worker);
+				}
+			}
+		}));
+		// limit the number of persons waiting in memory, and add the finished ones to the population as early as possible
+		while (!this.pending.isEmpty() && (this.pending.size() > 4 * this.numThreads || this.pending.peek().isDone())) {
+			addPersons(this.pending.poll());
+		}
+	}
+
+	/**
+	 * Waits until all persons read so far are added to the population.
+	 */
+	private void finishPersons() {
+		if (this.currentChunk != null) {
+			submitChunk();
+		}
+		while (!this.pending.isEmpty()) {
+			addPersons(this.pending.poll());
+		}
+		if (this.executor != null) {
+			this.executor.shutdown();
+			this.executor = null;
+			this.idleWorkers = null;
+			log.info("Finished parallel population reading, " + this.nOfPersons + " persons read.");
+		}
+	}
+
+	private void addPersons(final Future<List<Person>> future) {
+		List<Person> persons;
+		try {
+			persons = future.get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			// re-throw the exception of the worker, so errors in the file are reported the same way as by the non-parallel readers
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+		for (Person person : persons) {
+			this.scenario.getPopulation().addPerson(person);
+		}
+		this.nOfPersons += persons.size();
+	}
+
+	private void initThreads() {
+		log.info("Start parallel population reading with " + this.numThreads + " threads...");
+		this.idleWorkers = new LinkedBlockingQueue<>();
+		for (int i = 0; i < this.numThreads; i++) {
+			CollectorPopulation population = new CollectorPopulation(this.scenario.getPopulation());
+			MatsimXmlParser workerReader = this.factory.createReader(new CollectorScenario(this.scenario, population));
+			this.idleWorkers.add(new Worker(workerReader, population));
+		}
+		this.executor = Executors.newFixedThreadPool(this.numThreads, new ThreadFactory() {
+			private int counter = 0;
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r);
+				thread.setDaemon(true);
+				thread.setName(ParallelPopulationReader.class.getSimpleName() + (this.counter++));
+				return thread;
+			}
+		});
+	}
+
+	private static class Tag {
+		final String name;
+		final Attributes atts; // null for end tags
+		final String content;
+
+		Tag(final String name, final Attributes atts, final String content) {
+			this.name = name;
+			this.atts = atts;
+			this.content = content;
+		}
+	}
+
+	private static class Chunk {
+		final List<String> context;
+		final List<Tag> tags = new ArrayList<>();
+		int nOfPersons = 0;
+
+		Chunk(final Stack<String> context) {
+			this.context = new ArrayList<>(context);
+		}
+	}
+
+	private static class Worker {
+		private final MatsimXmlParser reader;
+		private final CollectorPopulation population;
+
+		Worker(final MatsimXmlParser reader, final CollectorPopulation population) {
+			this.reader = reader;
+			this.population = population;
+		}
+
+		List<Person> read(final Chunk chunk) {
+			List<Person> persons = new ArrayList<>(chunk.nOfPersons);
+			this.population.persons = persons;
+			Stack<String> context = new Stack<>();
+			context.addAll(chunk.context);
+			for (Tag tag : chunk.tags) {
+				if (tag.atts != null) {
+					this.reader.startTag(tag.name, tag.atts, context);
+					context.push(tag.name);
+				} else {
+					context.pop();
+					this.reader.endTag(tag.name, tag.content, context);
+				}
+			}
+			this.population.persons = null;
+			return persons;
+		}
+	}
+
+	/**
+	 * Collects the persons created by a worker instead of adding them to the population.
+	 */
+	private static class CollectorPopulation implements Population {
+
+		private final Population population;
+		List<Person> persons = null;
+
+		CollectorPopulation(final Population population) {
+			this.population = population;
+		}
+
+		@Override
+		public PopulationFactory getFactory() {
+			return this.population.getFactory();
+		}
+
+		@Override
+		public void addPerson(final Person p) {
+			this.persons.add(p);
+		}
+
+		@Override
+		public ObjectAttributes getPersonAttributes() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public String getName() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public void setName(final String name) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public Map<Id<Person>, ? extends Person> getPersons() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public Person removePerson(final Id<Person> personId) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public org.matsim.utils.objectattributes.attributable.Attributes getAttributes() {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+	}
+
+	private static class CollectorScenario implements Scenario {
+
+		private final Scenario delegate;
+		private final CollectorPopulation population;
+
+		CollectorScenario(final Scenario scenario, final CollectorPopulation population) {
+			this.delegate = scenario;
+			this.population = population;
+		}
+
+		@Override
+		public Network getNetwork() {
+			return this.delegate.getNetwork();
+		}
+
+		@Override
+		public Population getPopulation() {
+			return this.population;
+		}
+
+		@Override
+		public ActivityFacilities getActivityFacilities() {
+			return this.delegate.getActivityFacilities();
+		}
+
+		@Override
+		public TransitSchedule getTransitSchedule() {
+			return this.delegate.getTransitSchedule();
+		}
+
+		@Override
+		public Config getConfig() {
+			return this.delegate.getConfig();
+		}
+
+		@Override
+		public void addScenarioElement(final String name, final Object o) {
+			throw new RuntimeException("Calls to this method are not expected to happen...");
+		}
+
+		@Override
+		public Object getScenarioElement(final String name) {
+			return this.delegate.getScenarioElement(name);
+		}
+
+		@Override
+		public Vehicles getTransitVehicles() {
+			return this.delegate.getTransitVehicles();
+		}
+
+		@Override
+		public Households getHouseholds() {
+			return this.delegate.getHouseholds();
+		}
+
+		@Override
+		public Lanes getLanes() {
+			return this.delegate.getLanes();
+		}
+
+		@Override
+		public Vehicles getVehicles() {
+			return this.delegate.getVehicles();
+		}
+	}
+}
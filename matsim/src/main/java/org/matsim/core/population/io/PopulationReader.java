@@ -97,23 +97,40 @@ public class PopulationReader extends MatsimXmlParser implements MatsimReader {
 		this.delegate.endTag(name, content, context);
 	}
 
+	private int getNumberOfThreads() {
+		return this.scenario.getConfig().global().getNumberOfThreads();
+	}
+
 	@Override
 	protected void setDoctype(final String doctype) {
 		super.setDoctype(doctype);
 		switch ( doctype ) {
 			case POPULATION_V6:
 				this.delegate =
-						new PopulationReaderMatsimV6(
-								coordinateTransformation,
-								this.scenario);
-				((PopulationReaderMatsimV6) delegate).putAttributeConverters( attributeConverters );
+						new ParallelPopulationReader(
+								this.scenario,
+								getNumberOfThreads(),
+								new ParallelPopulationReader.ReaderFactory() {
+									@Override
+									public MatsimXmlParser createReader(Scenario scenario) {
+										PopulationReaderMatsimV6 reader = new PopulationReaderMatsimV6( coordinateTransformation, scenario );
+										reader.putAttributeConverters( attributeConverters );
+										return reader;
+									}
+								});
 				log.info("using population_v6-reader.");
 				break;
 			case POPULATION_V5:
 				this.delegate =
-						new PopulationReaderMatsimV5(
-								coordinateTransformation,
-								this.scenario);
+						new ParallelPopulationReader(
+								this.scenario,
+								getNumberOfThreads(),
+								new ParallelPopulationReader.ReaderFactory() {
+									@Override
+									public MatsimXmlParser createReader(Scenario scenario) {
+										return new PopulationReaderMatsimV5( coordinateTransformation, scenario );
+									}
+								});
 				log.info("using population_v5-reader.");
 				break;
 			case PLANS_V4:
@@ -151,8 +151,7 @@ public class AStarEuclidean extends Dijkstra {
 	@Override
 	protected void initFromNode(final Node fromNode, final Node toNode, final double startTime, final RouterPriorityQueue<Node> pendingNodes) {
 		AStarNodeData data = getData(fromNode);
-		visitNode(fromNode, data, pendingNodes, startTime, 0, null);
-		data.setExpectedRemainingCost(estimateRemainingTravelCost(fromNode, toNode));
+		visitNode(fromNode, data, pendingNodes, startTime, 0, estimateRemainingTravelCost(fromNode, toNode), null);
 	}
 
 	@Override
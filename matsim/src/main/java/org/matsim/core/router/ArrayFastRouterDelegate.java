@@ -21,6 +21,10 @@
 package org.matsim.core.router;
 
 import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup.RoutingPriorityQueueType;
+import org.matsim.core.router.priorityqueue.BinaryMinHeap;
+import org.matsim.core.router.priorityqueue.MinHeap;
+import org.matsim.core.router.priorityqueue.RadixMinHeap;
 import org.matsim.core.router.util.ArrayRoutingNetwork;
 import org.matsim.core.router.util.ArrayRoutingNetworkNode;
 import org.matsim.core.router.util.NodeData;
@@ -28,35 +32,41 @@ import org.matsim.core.router.util.NodeDataFactory;
 
 /*package*/ class ArrayFastRouterDelegate extends AbstractFastRouterDelegate {
 
-	private final ArrayRoutingNetwork network;
 	private final NodeData[] nodeData;
-	private boolean isInitialized = false;
+	private final RoutingPriorityQueueType priorityQueueType;
 	
 	/*package*/ ArrayFastRouterDelegate(final Dijkstra dijkstra, final NodeDataFactory nodeDataFactory,
-			final ArrayRoutingNetwork network) {
+			final ArrayRoutingNetwork network, final RoutingPriorityQueueType priorityQueueType) {
 		super(dijkstra, nodeDataFactory);
-		this.network = network;
 		this.nodeData = new NodeData[network.getNodes().size()];
+		this.priorityQueueType = priorityQueueType;
 	}
-
+	
 	@Override
-	public final void initialize() {
-		// lazy initialization
-		if (!isInitialized) {
-			for (Node node : this.network.getNodes().values()) {
-				int index = ((ArrayRoutingNetworkNode) node).getArrayIndex();
-				this.nodeData[index] = nodeDataFactory.createNodeData();
-			}
-			
-			this.isInitialized = true;
+	public MinHeap<ArrayRoutingNetworkNode> createMinHeap(final int maxSize) {
+		switch (this.priorityQueueType) {
+		case BinaryMinHeap:
+			return new BinaryMinHeap<>(maxSize);
+		case FourAryMinHeap:
+			return new BinaryMinHeap<>(maxSize, 4, false);
+		case RadixMinHeap:
+			return new RadixMinHeap<>(maxSize);
+		default:
+			throw new RuntimeException("Undefined RoutingPriorityQueueType: " + this.priorityQueueType);
 		}
 	}
 	
 	/*
-	 * The NodeData is taken from the array.
+	 * The NodeData is taken from the array. It is created when a node is touched for the first
+	 * time, so a router only holds data for the part of the (shared) network it has searched.
 	 */
 	public NodeData getData(final Node n) {
 		ArrayRoutingNetworkNode routingNetworkNode = (ArrayRoutingNetworkNode) n;
-		return this.nodeData[routingNetworkNode.getArrayIndex()];
+		NodeData data = this.nodeData[routingNetworkNode.getArrayIndex()];
+		if (data == null) {
+			data = this.nodeDataFactory.createNodeData();
+			this.nodeData[routingNetworkNode.getArrayIndex()] = data;
+		}
+		return data;
 	}
 }
\ No newline at end of file
@@ -20,15 +20,26 @@
 
 package org.matsim.core.router;
 
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup.RoutingPriorityQueueType;
 import org.matsim.core.router.util.ArrayRoutingNetwork;
 import org.matsim.core.router.util.NodeDataFactory;
 import org.matsim.core.router.util.RoutingNetwork;
 
 public class ArrayFastRouterDelegateFactory implements FastRouterDelegateFactory {
 
+	private final RoutingPriorityQueueType priorityQueueType;
+
+	public ArrayFastRouterDelegateFactory() {
+		this(RoutingPriorityQueueType.BinaryMinHeap);
+	}
+
+	public ArrayFastRouterDelegateFactory(final RoutingPriorityQueueType priorityQueueType) {
+		this.priorityQueueType = priorityQueueType;
+	}
+
 	@Override
 	public ArrayFastRouterDelegate createFastRouterDelegate(Dijkstra dijkstra,
 			NodeDataFactory nodeDataFactory, RoutingNetwork routingNetwork) {
-		return new ArrayFastRouterDelegate(dijkstra, nodeDataFactory, (ArrayRoutingNetwork) routingNetwork);
+		return new ArrayFastRouterDelegate(dijkstra, nodeDataFactory, (ArrayRoutingNetwork) routingNetwork, this.priorityQueueType);
 	}
 }
\ No newline at end of file
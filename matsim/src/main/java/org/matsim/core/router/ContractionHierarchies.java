@@ -0,0 +1,246 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.ContractionHierarchyMetric.Slice;
+import org.matsim.core.router.priorityqueue.IntMinHeap;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least cost path calculator using a customizable contraction hierarchy.
+ * <p></p>
+ * A query runs a bidirectional Dijkstra search on the hierarchy, where both searches only follow
+ * arcs to higher ranked nodes. The costs are taken from the time slice of the {@link ContractionHierarchyMetric}
+ * containing the departure time, i.e. the route is chosen with the costs at departure time instead
+ * of the costs at the time a link is actually entered. The travel time and cost of the returned path
+ * are calculated along the path with the time-dependent {@link TravelTime} and {@link TravelDisutility},
+ * including person-specific parts, exactly as by {@link Dijkstra}.
+ * <p></p>
+ * Instances are not thread-safe, but several instances can share the same metric.
+ *
+ * @see ContractionHierarchy
+ * @see org.matsim.core.router.util.ContractionHierarchiesFactory
+ */
+public class ContractionHierarchies implements LeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchies.class);
+
+	private final ContractionHierarchy ch;
+	private final ContractionHierarchyMetric metric;
+	private final TravelDisutility travelCosts;
+	private final TravelTime travelTimes;
+
+	private final double[] forwardCost;
+	private final double[] backwardCost;
+	private final int[] forwardArc;
+	private final int[] backwardArc;
+	private final IntMinHeap forwardHeap;
+	private final IntMinHeap backwardHeap;
+	private int[] touched;
+	private int nOfTouched = 0;
+
+	private int[] stack = new int[64];
+
+	public ContractionHierarchies(final ContractionHierarchyMetric metric, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		this.metric = metric;
+		this.ch = metric.getHierarchy();
+		this.travelCosts = travelCosts;
+		this.travelTimes = travelTimes;
+		int nOfNodes = this.ch.nodes.length;
+		this.forwardCost = new double[nOfNodes];
+		this.backwardCost = new double[nOfNodes];
+		Arrays.fill(this.forwardCost, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.backwardCost, Double.POSITIVE_INFINITY);
+		this.forwardArc = new int[nOfNodes];
+		this.backwardArc = new int[nOfNodes];
+		this.forwardHeap = new IntMinHeap(nOfNodes);
+		this.backwardHeap = new IntMinHeap(nOfNodes);
+		this.touched = new int[64];
+	}
+
+	/*package*/ ContractionHierarchyMetric getMetric() {
+		return this.metric;
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		int source = this.ch.getRank(fromNode);
+		int target = this.ch.getRank(toNode);
+		if (source < 0 || target < 0) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+		Slice slice = this.metric.getSlice(starttime, this.travelCosts);
+
+		List<Link> links = new ArrayList<>();
+		if (source != target) {
+			int meeting = search(source, target, slice);
+			if (meeting < 0) {
+				reset();
+				log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId());
+				return null;
+			}
+			// the forward part is found backwards from the meeting node
+			List<Integer> forwardArcs = new ArrayList<>();
+			int node = meeting;
+			while (node != source) {
+				int arc = this.forwardArc[node];
+				forwardArcs.add(arc);
+				node = this.ch.arcTail[arc];
+			}
+			for (int i = forwardArcs.size() - 1; i >= 0; i--) {
+				unpack(forwardArcs.get(i), true, slice, links);
+			}
+			node = meeting;
+			while (node != target) {
+				int arc = this.backwardArc[node];
+				unpack(arc, false, slice, links);
+				node = this.ch.arcTail[arc];
+			}
+			reset();
+		}
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(fromNode);
+		double time = starttime;
+		double cost = 0.0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			cost += this.travelCosts.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.travelTimes.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - starttime, cost);
+	}
+
+	/**
+	 * @return the node where the forward and backward searches meet on the least cost path, or -1 if there is no path.
+	 */
+	private int search(final int source, final int target, final Slice slice) {
+		touch(source);
+		this.forwardCost[source] = 0.0;
+		this.forwardHeap.addOrDecrease(source, 0.0);
+		touch(target);
+		this.backwardCost[target] = 0.0;
+		this.backwardHeap.addOrDecrease(target, 0.0);
+
+		double best = Double.POSITIVE_INFINITY;
+		int meeting = -1;
+		boolean forward = true;
+		while (true) {
+			boolean forwardDone = this.forwardHeap.isEmpty() || this.forwardHeap.peekPriority() >= best;
+			boolean backwardDone = this.backwardHeap.isEmpty() || this.backwardHeap.peekPriority() >= best;
+			if (forwardDone && backwardDone) {
+				break;
+			}
+			forward = backwardDone || (!forwardDone && !forward);
+			IntMinHeap heap = forward ? this.forwardHeap : this.backwardHeap;
+			double[] cost = forward ? this.forwardCost : this.backwardCost;
+			double[] otherCost = forward ? this.backwardCost : this.forwardCost;
+			int[] parentArc = forward ? this.forwardArc : this.backwardArc;
+			float[] arcCost = forward ? slice.upCost : slice.downCost;
+
+			int node = heap.poll();
+			double nodeCost = cost[node];
+			if (nodeCost + otherCost[node] < best) {
+				best = nodeCost + otherCost[node];
+				meeting = node;
+			}
+			for (int arc = this.ch.firstArc[node]; arc < this.ch.firstArc[node + 1]; arc++) {
+				double newCost = nodeCost + arcCost[arc];
+				int head = this.ch.arcHead[arc];
+				if (newCost < cost[head]) {
+					if (cost[head] == Double.POSITIVE_INFINITY && otherCost[head] == Double.POSITIVE_INFINITY) {
+						touch(head);
+					}
+					cost[head] = newCost;
+					parentArc[head] = arc;
+					heap.addOrDecrease(head, newCost);
+				}
+			}
+		}
+		return meeting;
+	}
+
+	/**
+	 * Adds the original links of the given arc to the list, in the order of travel.
+	 */
+	private void unpack(final int arc, final boolean up, final Slice slice, final List<Link> links) {
+		// the stack contains arcs, encoded as 2*arc for upward and 2*arc+1 for downward direction
+		int size = 0;
+		this.stack[size++] = up ? 2 * arc : 2 * arc + 1;
+		while (size > 0) {
+			int entry = this.stack[--size];
+			int a = entry >> 1;
+			boolean isUp = (entry & 1) == 0;
+			int via = isUp ? slice.upVia[a] : slice.downVia[a];
+			if (via < 0) {
+				links.add(this.ch.links[-1 - via]);
+			} else {
+				int u = this.ch.arcTail[a];
+				int v = this.ch.arcHead[a];
+				int xu = this.ch.findArc(via, u);
+				int xv = this.ch.findArc(via, v);
+				if (size + 2 > this.stack.length) {
+					this.stack = Arrays.copyOf(this.stack, 2 * this.stack.length);
+				}
+				// push in reverse order of travel
+				if (isUp) {
+					// u -> x -> v
+					this.stack[size++] = 2 * xv;
+					this.stack[size++] = 2 * xu + 1;
+				} else {
+					// v -> x -> u
+					this.stack[size++] = 2 * xu;
+					this.stack[size++] = 2 * xv + 1;
+				}
+			}
+		}
+	}
+
+	private void touch(final int node) {
+		if (this.nOfTouched == this.touched.length) {
+			this.touched = Arrays.copyOf(this.touched, 2 * this.touched.length);
+		}
+		this.touched[this.nOfTouched++] = node;
+	}
+
+	private void reset() {
+		for (int i = 0; i < this.nOfTouched; i++) {
+			int node = this.touched[i];
+			this.forwardCost[node] = Double.POSITIVE_INFINITY;
+			this.backwardCost[node] = Double.POSITIVE_INFINITY;
+		}
+		this.nOfTouched = 0;
+		this.forwardHeap.clear();
+		this.backwardHeap.clear();
+	}
+}
@@ -0,0 +1,253 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchy.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * The metric-independent part of a customizable contraction hierarchy of a network.
+ * <p></p>
+ * The nodes are ordered by eliminating them one after another (minimum degree first) from the
+ * undirected graph of the network, connecting all remaining neighbors of an eliminated node with
+ * each other. The resulting hierarchy contains, for each node, an arc to every neighbor with a higher
+ * rank. Because no witness searches are used, the hierarchy is valid for <em>any</em> link costs, so it
+ * has to be built only once per network. Link costs are added later by a
+ * {@link ContractionHierarchyMetric}, which is cheap compared to the ordering and can be redone
+ * whenever the travel times change.
+ * <p></p>
+ * Within this class, nodes are identified by their rank, so every arc goes from a lower to a higher index.
+ *
+ * @see ContractionHierarchies
+ */
+public final class ContractionHierarchy {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchy.class);
+
+	private final Network network;
+
+	/** the nodes, by rank */
+	final Node[] nodes;
+	private final Map<Id<Node>, Integer> ranks;
+	final Link[] links;
+
+	/** the arcs of node <code>i</code> are <code>firstArc[i] .. firstArc[i+1]-1</code>, sorted by head */
+	final int[] firstArc;
+	final int[] arcTail;
+	final int[] arcHead;
+
+	/** the original links from tail to head of arc <code>a</code> are <code>upLinks[firstUpLink[a] .. firstUpLink[a+1]-1]</code> */
+	final int[] firstUpLink;
+	final int[] upLinks;
+	/** the original links from head to tail of each arc */
+	final int[] firstDownLink;
+	final int[] downLinks;
+
+	public ContractionHierarchy(final Network network) {
+		this.network = network;
+		long start = System.currentTimeMillis();
+
+		int nOfNodes = network.getNodes().size();
+		Node[] nodesByIndex = network.getNodes().values().toArray(new Node[nOfNodes]);
+		Map<Id<Node>, Integer> indices = new HashMap<>((int) (nOfNodes / 0.75) + 1);
+		for (int i = 0; i < nOfNodes; i++) {
+			indices.put(nodesByIndex[i].getId(), i);
+		}
+
+		// undirected graph, without loops and parallel links
+		List<Set<Integer>> neighbors = new ArrayList<>(nOfNodes);
+		for (int i = 0; i < nOfNodes; i++) {
+			neighbors.add(new HashSet<Integer>());
+		}
+		for (Link link : network.getLinks().values()) {
+			int from = indices.get(link.getFromNode().getId());
+			int to = indices.get(link.getToNode().getId());
+			if (from != to) {
+				neighbors.get(from).add(to);
+				neighbors.get(to).add(from);
+			}
+		}
+
+		// eliminate the nodes, minimum degree first
+		int[] order = new int[nOfNodes];
+		int[][] upNeighbors = new int[nOfNodes][];
+		boolean[] eliminated = new boolean[nOfNodes];
+		PriorityQueue<Long> queue = new PriorityQueue<>(Math.max(1, nOfNodes));
+		for (int i = 0; i < nOfNodes; i++) {
+			queue.add(priority(neighbors.get(i).size(), i));
+		}
+		int rank = 0;
+		while (!queue.isEmpty()) {
+			long entry = queue.poll();
+			int node = (int) entry;
+			Set<Integer> nodeNeighbors = neighbors.get(node);
+			if (eliminated[node] || (entry >>> 32) != nodeNeighbors.size()) {
+				continue; // outdated entry
+			}
+			eliminated[node] = true;
+			order[rank++] = node;
+			int[] up = new int[nodeNeighbors.size()];
+			int n = 0;
+			for (Integer neighbor : nodeNeighbors) {
+				up[n++] = neighbor;
+			}
+			upNeighbors[node] = up;
+			for (int u : up) {
+				Set<Integer> uNeighbors = neighbors.get(u);
+				uNeighbors.remove(node);
+				for (int v : up) {
+					if (u != v) {
+						uNeighbors.add(v);
+					}
+				}
+				queue.add(priority(uNeighbors.size(), u));
+			}
+			neighbors.set(node, null);
+		}
+
+		this.nodes = new Node[nOfNodes];
+		int[] rankOfIndex = new int[nOfNodes];
+		this.ranks = new HashMap<>((int) (nOfNodes / 0.75) + 1);
+		for (int r = 0; r < nOfNodes; r++) {
+			this.nodes[r] = nodesByIndex[order[r]];
+			rankOfIndex[order[r]] = r;
+			this.ranks.put(this.nodes[r].getId(), r);
+		}
+
+		// arcs, by rank of the tail
+		this.firstArc = new int[nOfNodes + 1];
+		int nOfArcs = 0;
+		for (int r = 0; r < nOfNodes; r++) {
+			this.firstArc[r] = nOfArcs;
+			nOfArcs += upNeighbors[order[r]].length;
+		}
+		this.firstArc[nOfNodes] = nOfArcs;
+		this.arcTail = new int[nOfArcs];
+		this.arcHead = new int[nOfArcs];
+		for (int r = 0; r < nOfNodes; r++) {
+			int[] up = upNeighbors[order[r]];
+			int first = this.firstArc[r];
+			for (int i = 0; i < up.length; i++) {
+				this.arcTail[first + i] = r;
+				this.arcHead[first + i] = rankOfIndex[up[i]];
+			}
+			Arrays.sort(this.arcHead, first, first + up.length);
+		}
+
+		// assign the original links to the arcs
+		this.links = network.getLinks().values().toArray(new Link[network.getLinks().size()]);
+		int[] upCount = new int[nOfArcs + 1];
+		int[] downCount = new int[nOfArcs + 1];
+		int[] linkArc = new int[this.links.length];
+		boolean[] linkUp = new boolean[this.links.length];
+		for (int l = 0; l < this.links.length; l++) {
+			int from = rankOfIndex[indices.get(this.links[l].getFromNode().getId())];
+			int to = rankOfIndex[indices.get(this.links[l].getToNode().getId())];
+			if (from == to) {
+				linkArc[l] = -1;
+			} else if (from < to) {
+				linkArc[l] = findArc(from, to);
+				linkUp[l] = true;
+				upCount[linkArc[l]]++;
+			} else {
+				linkArc[l] = findArc(to, from);
+				downCount[linkArc[l]]++;
+			}
+		}
+		this.firstUpLink = toOffsets(upCount);
+		this.firstDownLink = toOffsets(downCount);
+		this.upLinks = new int[this.firstUpLink[nOfArcs]];
+		this.downLinks = new int[this.firstDownLink[nOfArcs]];
+		Arrays.fill(upCount, 0);
+		Arrays.fill(downCount, 0);
+		for (int l = 0; l < this.links.length; l++) {
+			int arc = linkArc[l];
+			if (arc < 0) {
+				continue;
+			}
+			if (linkUp[l]) {
+				this.upLinks[this.firstUpLink[arc] + upCount[arc]++] = l;
+			} else {
+				this.downLinks[this.firstDownLink[arc] + downCount[arc]++] = l;
+			}
+		}
+
+		log.info("contraction hierarchy with " + nOfNodes + " nodes and " + nOfArcs + " arcs (" + this.links.length
+				+ " links) built in " + (System.currentTimeMillis() - start) / 1000.0 + " seconds.");
+	}
+
+	private static long priority(final int degree, final int node) {
+		return ((long) degree << 32) | node;
+	}
+
+	private static int[] toOffsets(final int[] counts) {
+		int[] offsets = new int[counts.length];
+		int sum = 0;
+		for (int i = 0; i < counts.length; i++) {
+			offsets[i] = sum;
+			sum += counts[i];
+		}
+		return offsets;
+	}
+
+	public Network getNetwork() {
+		return this.network;
+	}
+
+	int getNumberOfArcs() {
+		return this.arcHead.length;
+	}
+
+	/**
+	 * @return the rank of the given node, or -1 if the node is not part of the network.
+	 */
+	int getRank(final Node node) {
+		Integer rank = this.ranks.get(node.getId());
+		if (rank == null || this.nodes[rank] != node) {
+			return -1;
+		}
+		return rank;
+	}
+
+	/**
+	 * @return the index of the arc from <code>tail</code> to <code>head</code>, which must have a higher rank.
+	 */
+	int findArc(final int tail, final int head) {
+		int arc = Arrays.binarySearch(this.arcHead, this.firstArc[tail], this.firstArc[tail + 1], head);
+		if (arc < 0) {
+			throw new IllegalStateException("no arc from " + tail + " to " + head + " in contraction hierarchy.");
+		}
+		return arc;
+	}
+
+}
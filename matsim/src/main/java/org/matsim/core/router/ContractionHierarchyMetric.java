@@ -0,0 +1,170 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchyMetric.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.util.TravelDisutility;
+
+/**
+ * The link costs of a {@link ContractionHierarchy}, for a number of time slices.
+ * <p></p>
+ * For every time slice, the costs of all arcs of the hierarchy are calculated from the
+ * {@link TravelDisutility} at the start of the slice ("customization"). Slices are customized lazily,
+ * when they are first needed by a query, with the disutility of that query's router. A metric can thus be
+ * shared by several routers, also in several threads, as long as their disutilities are interchangeable,
+ * e.g. because they were created by the same factory
+ * (see {@link org.matsim.core.router.util.ContractionHierarchiesFactory}).
+ * <p></p>
+ * Person- or vehicle-specific parts of the travel disutility cannot be taken into account, the costs
+ * are calculated for an anonymous person (a person is passed to the disutility nevertheless, as some
+ * implementations, e.g. with routing randomness, require one).
+ */
+public final class ContractionHierarchyMetric {
+
+	/** marks an arc without any path */
+	static final int NONE = Integer.MIN_VALUE;
+
+	private static final Person CUSTOMIZATION_PERSON = PopulationUtils.getFactory().createPerson(
+			Id.create("contractionHierarchyCustomization", Person.class));
+
+	private final ContractionHierarchy hierarchy;
+	private final double timeSliceSize;
+	private final int nOfSlices;
+	private final AtomicReferenceArray<Slice> slices;
+
+	/**
+	 * @param timeSliceSize the duration of a time slice, in seconds
+	 * @param endTime queries starting at or after this time use the costs of the last slice before <code>endTime</code>
+	 */
+	public ContractionHierarchyMetric(final ContractionHierarchy hierarchy, final double timeSliceSize, final double endTime) {
+		if (timeSliceSize <= 0) {
+			throw new IllegalArgumentException("timeSliceSize must be positive.");
+		}
+		this.hierarchy = hierarchy;
+		this.timeSliceSize = timeSliceSize;
+		this.nOfSlices = Math.max(1, (int) Math.ceil(endTime / timeSliceSize));
+		this.slices = new AtomicReferenceArray<>(this.nOfSlices);
+	}
+
+	public ContractionHierarchy getHierarchy() {
+		return this.hierarchy;
+	}
+
+	/**
+	 * Returns the customized slice containing the given time, customizing it with the given disutility if required.
+	 */
+	Slice getSlice(final double time, final TravelDisutility travelCosts) {
+		int index = (int) (time / this.timeSliceSize);
+		if (index < 0 || Double.isNaN(time)) {
+			index = 0;
+		} else if (index >= this.nOfSlices) {
+			index = this.nOfSlices - 1;
+		}
+		Slice slice = this.slices.get(index);
+		if (slice == null) {
+			synchronized (this) {
+				slice = this.slices.get(index);
+				if (slice == null) {
+					slice = new Slice(this.hierarchy, index * this.timeSliceSize, travelCosts);
+					this.slices.set(index, slice);
+				}
+			}
+		}
+		return slice;
+	}
+
+	/**
+	 * The costs of all arcs of the hierarchy at one point in time. For every arc, the cost is stored
+	 * in both directions (upward: from the lower to the higher ranked node; downward: the opposite),
+	 * together with the information how to unpack the arc: either a middle node (rank &gt;= 0)
+	 * or an original link (<code>-1 - linkIndex</code>).
+	 */
+	static final class Slice {
+		final float[] upCost;
+		final float[] downCost;
+		final int[] upVia;
+		final int[] downVia;
+
+		Slice(final ContractionHierarchy ch, final double time, final TravelDisutility travelCosts) {
+			int nOfArcs = ch.getNumberOfArcs();
+			this.upCost = new float[nOfArcs];
+			this.downCost = new float[nOfArcs];
+			this.upVia = new int[nOfArcs];
+			this.downVia = new int[nOfArcs];
+
+			// original links
+			for (int arc = 0; arc < nOfArcs; arc++) {
+				this.upCost[arc] = Float.POSITIVE_INFINITY;
+				this.upVia[arc] = NONE;
+				for (int i = ch.firstUpLink[arc]; i < ch.firstUpLink[arc + 1]; i++) {
+					int l = ch.upLinks[i];
+					float cost = (float) travelCosts.getLinkTravelDisutility(ch.links[l], time, CUSTOMIZATION_PERSON, null);
+					if (cost < this.upCost[arc]) {
+						this.upCost[arc] = cost;
+						this.upVia[arc] = -1 - l;
+					}
+				}
+				this.downCost[arc] = Float.POSITIVE_INFINITY;
+				this.downVia[arc] = NONE;
+				for (int i = ch.firstDownLink[arc]; i < ch.firstDownLink[arc + 1]; i++) {
+					int l = ch.downLinks[i];
+					float cost = (float) travelCosts.getLinkTravelDisutility(ch.links[l], time, CUSTOMIZATION_PERSON, null);
+					if (cost < this.downCost[arc]) {
+						this.downCost[arc] = cost;
+						this.downVia[arc] = -1 - l;
+					}
+				}
+			}
+
+			// lower triangles, bottom-up: for x < u < v, u-x-v may be cheaper than the arc u-v
+			int nOfNodes = ch.nodes.length;
+			for (int x = 0; x < nOfNodes; x++) {
+				int first = ch.firstArc[x];
+				int last = ch.firstArc[x + 1];
+				for (int xu = first; xu < last; xu++) {
+					float uToX = this.downCost[xu];
+					float xToU = this.upCost[xu];
+					if (uToX == Float.POSITIVE_INFINITY && xToU == Float.POSITIVE_INFINITY) {
+						continue;
+					}
+					int u = ch.arcHead[xu];
+					for (int xv = xu + 1; xv < last; xv++) {
+						int uv = ch.findArc(u, ch.arcHead[xv]);
+						float up = uToX + this.upCost[xv];
+						if (up < this.upCost[uv]) {
+							this.upCost[uv] = up;
+							this.upVia[uv] = x;
+						}
+						float down = this.downCost[xv] + xToU;
+						if (down < this.downCost[uv]) {
+							this.downCost[uv] = down;
+							this.downVia[uv] = x;
+						}
+					}
+				}
+			}
+		}
+	}
+}
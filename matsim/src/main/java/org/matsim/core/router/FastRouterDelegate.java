@@ -21,6 +21,8 @@
 package org.matsim.core.router;
 
 import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.priorityqueue.MinHeap;
+import org.matsim.core.router.util.ArrayRoutingNetworkNode;
 import org.matsim.core.router.util.LeastCostPathCalculator.Path;
 import org.matsim.core.router.util.NodeData;
 import org.matsim.core.router.util.PreProcessDijkstra;
@@ -62,4 +64,9 @@ import org.matsim.core.utils.collections.RouterPriorityQueue;
 	 * The DeadEndData is taken from the RoutingNetworkNode and not from a map.
 	 */
 	/*package*/ PreProcessDijkstra.DeadEndData getPreProcessData(final Node n);
+	/*
+	 * Creates the priority queue for the nodes of the routing network. Routers re-use it for
+	 * all their requests.
+	 */
+	/*package*/ MinHeap<ArrayRoutingNetworkNode> createMinHeap(int maxSize);
 }
@@ -0,0 +1,300 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ManyToManyDijkstra.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.IntMinHeap;
+import org.matsim.core.router.util.ManyToManyLeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Computes cost and time matrices by growing one time-dependent least-cost path
+ * tree per origin. Each tree stops as soon as all destinations are settled, and the
+ * search state (arrays indexed by node, heap) is reused between trees instead of
+ * being re-allocated per origin.
+ * <br>
+ * The network is converted once into an adjacency array, so instances should be
+ * re-used for many calls. With more than one thread, the origins are distributed
+ * among the threads of a pool which is created by the first call and then kept;
+ * its threads are daemon threads, so they do not keep the JVM alive. The travel time
+ * and disutility objects are then called concurrently and must be thread-safe.
+ */
+public class ManyToManyDijkstra implements ManyToManyLeastCostPathCalculator {
+
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+	private final int numberOfThreads;
+
+	private final Map<Id<Node>, Integer> nodeIndices;
+	private final int[] firstOut;
+	private final Link[] outLinks;
+	private final int[] outHeads;
+
+	private final Queue<Search> searches = new ConcurrentLinkedQueue<>();
+	private ExecutorService executor = null;
+
+	public ManyToManyDijkstra(final Network network, final TravelDisutility costFunction, final TravelTime timeFunction) {
+		this(network, costFunction, timeFunction, 1);
+	}
+
+	public ManyToManyDijkstra(final Network network, final TravelDisutility costFunction, final TravelTime timeFunction,
+			final int numberOfThreads) {
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+
+		int nodeCount = network.getNodes().size();
+		this.nodeIndices = new HashMap<>(nodeCount * 2);
+		for (Node node : network.getNodes().values()) {
+			this.nodeIndices.put(node.getId(), this.nodeIndices.size());
+		}
+		this.firstOut = new int[nodeCount + 1];
+		int linkCount = 0;
+		for (Node node : network.getNodes().values()) {
+			linkCount += node.getOutLinks().size();
+		}
+		this.outLinks = new Link[linkCount];
+		this.outHeads = new int[linkCount];
+		int n = 0;
+		int l = 0;
+		for (Node node : network.getNodes().values()) {
+			this.firstOut[n] = l;
+			for (Link link : node.getOutLinks().values()) {
+				Integer head = this.nodeIndices.get(link.getToNode().getId());
+				if (head == null) {
+					continue;
+				}
+				this.outLinks[l] = link;
+				this.outHeads[l] = head;
+				l++;
+			}
+			n++;
+		}
+		this.firstOut[nodeCount] = l;
+	}
+
+	@Override
+	public Matrix calcLeastCostPaths(final List<? extends Node> fromNodes, final List<? extends Node> toNodes,
+			final double starttime, final Person person, final Vehicle vehicle) {
+		final Matrix matrix = new Matrix(fromNodes.size(), toNodes.size());
+		final Targets targets = new Targets(toNodes);
+
+		if (this.numberOfThreads == 1 || fromNodes.size() < 2) {
+			Search search = acquireSearch();
+			try {
+				for (int i = 0; i < fromNodes.size(); i++) {
+					search.run(i, fromNodes.get(i), targets, starttime, person, vehicle, matrix);
+				}
+			} finally {
+				this.searches.add(search);
+			}
+			return matrix;
+		}
+
+		int nThreads = Math.min(this.numberOfThreads, fromNodes.size());
+		ExecutorService executor = getExecutor();
+		try {
+			List<Future<?>> futures = new ArrayList<>(nThreads);
+			for (int t = 0; t < nThreads; t++) {
+				final int offset = t;
+				final int stride = nThreads;
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						Search search = acquireSearch();
+						try {
+							for (int i = offset; i < fromNodes.size(); i += stride) {
+								search.run(i, fromNodes.get(i), targets, starttime, person, vehicle, matrix);
+							}
+						} finally {
+							searches.add(search);
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		return matrix;
+	}
+
+	private synchronized ExecutorService getExecutor() {
+		if (this.executor == null) {
+			this.executor = Executors.newFixedThreadPool(this.numberOfThreads, new ThreadFactory() {
+				private int count = 0;
+
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					Thread thread = new Thread(runnable, "ManyToManyDijkstra-" + this.count++);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return this.executor;
+	}
+
+	private Search acquireSearch() {
+		Search search = this.searches.poll();
+		return search == null ? new Search() : search;
+	}
+
+	/**
+	 * Maps each node index to the matrix columns it stands for. A node may be
+	 * requested as destination more than once.
+	 */
+	private final class Targets {
+		private final int[] firstColumn;
+		private final int[] columns;
+		private final int distinctCount;
+
+		Targets(final List<? extends Node> toNodes) {
+			int nodeCount = firstOut.length - 1;
+			this.firstColumn = new int[nodeCount + 1];
+			int[] nodeOfColumn = new int[toNodes.size()];
+			int distinct = 0;
+			for (int j = 0; j < toNodes.size(); j++) {
+				Integer index = nodeIndices.get(toNodes.get(j).getId());
+				nodeOfColumn[j] = index == null ? -1 : index;
+				if (index != null) {
+					if (this.firstColumn[index + 1] == 0) {
+						distinct++;
+					}
+					this.firstColumn[index + 1]++;
+				}
+			}
+			for (int n = 0; n < nodeCount; n++) {
+				this.firstColumn[n + 1] += this.firstColumn[n];
+			}
+			int[] pos = Arrays.copyOf(this.firstColumn, nodeCount);
+			this.columns = new int[this.firstColumn[nodeCount]];
+			for (int j = 0; j < nodeOfColumn.length; j++) {
+				if (nodeOfColumn[j] >= 0) {
+					this.columns[pos[nodeOfColumn[j]]++] = j;
+				}
+			}
+			this.distinctCount = distinct;
+		}
+	}
+
+	/**
+	 * The per-thread state of a search. Node entries are valid only if their
+	 * stamp equals the stamp of the current search, so apart from the entries left
+	 * in the heap nothing needs to be reset between two origins.
+	 */
+	private final class Search {
+		private final double[] cost;
+		private final double[] time;
+		private final int[] stamp;
+		private final boolean[] settled;
+		private final IntMinHeap heap;
+		private int currentStamp = 0;
+
+		Search() {
+			int nodeCount = firstOut.length - 1;
+			this.cost = new double[nodeCount];
+			this.time = new double[nodeCount];
+			this.stamp = new int[nodeCount];
+			this.settled = new boolean[nodeCount];
+			this.heap = new IntMinHeap(nodeCount);
+		}
+
+		void run(final int row, final Node fromNode, final Targets targets, final double starttime,
+				final Person person, final Vehicle vehicle, final Matrix matrix) {
+			for (int j = 0; j < matrix.getToCount(); j++) {
+				matrix.set(row, j, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+			}
+			Integer source = nodeIndices.get(fromNode.getId());
+			if (source == null || targets.distinctCount == 0) {
+				return;
+			}
+			this.currentStamp++;
+			this.heap.clear();
+			visit(source, 0.0, starttime);
+
+			int remaining = targets.distinctCount;
+			while (!this.heap.isEmpty() && remaining > 0) {
+				int node = this.heap.poll();
+				this.settled[node] = true;
+				double nodeCost = this.cost[node];
+				double nodeTime = this.time[node];
+				int firstCol = targets.firstColumn[node];
+				int lastCol = targets.firstColumn[node + 1];
+				if (firstCol < lastCol) {
+					for (int c = firstCol; c < lastCol; c++) {
+						matrix.set(row, targets.columns[c], nodeCost, nodeTime - starttime);
+					}
+					remaining--;
+				}
+				for (int a = firstOut[node], end = firstOut[node + 1]; a < end; a++) {
+					int next = outHeads[a];
+					if (this.stamp[next] == this.currentStamp && this.settled[next]) {
+						continue;
+					}
+					Link link = outLinks[a];
+					double nextCost = nodeCost + costFunction.getLinkTravelDisutility(link, nodeTime, person, vehicle);
+					if (this.stamp[next] != this.currentStamp || nextCost < this.cost[next]) {
+						double nextTime = nodeTime + timeFunction.getLinkTravelTime(link, nodeTime, person, vehicle);
+						visit(next, nextCost, nextTime);
+					}
+				}
+			}
+		}
+
+		private void visit(final int node, final double nodeCost, final double nodeTime) {
+			if (this.stamp[node] != this.currentStamp) {
+				this.stamp[node] = this.currentStamp;
+				this.settled[node] = false;
+			}
+			this.cost[node] = nodeCost;
+			this.time[node] = nodeTime;
+			this.heap.addOrDecrease(node, nodeCost);
+		}
+	}
+}
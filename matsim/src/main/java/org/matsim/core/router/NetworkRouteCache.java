@@ -0,0 +1,299 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkRouteCache.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+/**
+ * Re-uses network routes across iterations. Routes are cached per mode, keyed by origin node, destination node
+ * and departure time bin (the bins of the {@link org.matsim.core.trafficmonitoring.TravelTimeCalculator}).
+ * <p>
+ * At the start of every iteration, the travel times of all links used by cached routes are compared to the
+ * travel times they had when they were first cached. Routes over links whose travel time changed by more than
+ * the configured relative threshold in any time bin are dropped and re-computed on demand; all other routes
+ * survive.
+ * <p>
+ * The routes of every mode are bounded by a memory budget, based on an estimate of their size; once it is
+ * exceeded, the least recently used routes are evicted.
+ * <p>
+ * Cached routes are shared between all persons and vehicles, so this is only correct if the travel disutility
+ * does not depend on the person. Also, the returned travel time and cost are the ones from the time the route
+ * was computed, and all departures within one time bin get the same route.
+ */
+public final class NetworkRouteCache implements IterationStartsListener {
+
+	private final static Logger log = Logger.getLogger(NetworkRouteCache.class);
+
+	private final double travelTimeChangeThreshold;
+	private final int timeBinSize;
+	private final int numberOfTimeBins;
+	private final long memoryBudget;
+
+	private final Map<String, ModeCache> modeCaches = new ConcurrentHashMap<>();
+
+	@Inject
+	NetworkRouteCache(PlansCalcRouteConfigGroup routeConfigGroup, TravelTimeCalculatorConfigGroup ttConfigGroup) {
+		this(routeConfigGroup.getRouteCacheTravelTimeChangeThreshold(), ttConfigGroup.getTraveltimeBinSize(), ttConfigGroup.getMaxTime(),
+				routeConfigGroup.getRouteCacheMemoryBudgetMB() * 1024L * 1024L);
+	}
+
+	/**
+	 * @param memoryBudget approximate upper bound (in bytes) of the memory used by the cached routes of one mode
+	 */
+	public NetworkRouteCache(double travelTimeChangeThreshold, int timeBinSize, int maxTime, long memoryBudget) {
+		this.travelTimeChangeThreshold = travelTimeChangeThreshold;
+		this.timeBinSize = timeBinSize;
+		this.numberOfTimeBins = maxTime / timeBinSize + 1;
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * @return a calculator answering from the cache of the given mode and delegating to <code>routeAlgo</code> on misses.
+	 */
+	public LeastCostPathCalculator createCachingCalculator(String mode, TravelTime travelTime, LeastCostPathCalculator routeAlgo) {
+		return new CachingLeastCostPathCalculator(getModeCache(mode, travelTime), routeAlgo);
+	}
+
+	private synchronized ModeCache getModeCache(String mode, TravelTime travelTime) {
+		ModeCache cache = this.modeCaches.get(mode);
+		if (cache == null) {
+			// the travel time objects handed out per mode are all views of the same observed travel times
+			cache = new ModeCache(travelTime);
+			this.modeCaches.put(mode, cache);
+		}
+		return cache;
+	}
+
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		for (Map.Entry<String, ModeCache> e : this.modeCaches.entrySet()) {
+			long sizeBefore = e.getValue().routes.size();
+			int removed = e.getValue().invalidateChangedLinks();
+			log.info("route cache for mode " + e.getKey() + ": " + removed + " of " + sizeBefore + " routes invalidated.");
+		}
+	}
+
+	/**
+	 * Drops all cached routes which use a link whose travel time changed beyond the threshold. Must not be called
+	 * while routes are being computed.
+	 *
+	 * @return the number of routes removed
+	 */
+	int invalidateChangedLinks() {
+		int removed = 0;
+		for (ModeCache cache : this.modeCaches.values()) {
+			removed += cache.invalidateChangedLinks();
+		}
+		return removed;
+	}
+
+	long size() {
+		long size = 0;
+		for (ModeCache cache : this.modeCaches.values()) {
+			size += cache.routes.size();
+		}
+		return size;
+	}
+
+	private int getTimeBin(double time) {
+		int bin = (int) (time / this.timeBinSize);
+		return bin < 0 ? 0 : Math.min(bin, this.numberOfTimeBins - 1);
+	}
+
+	private final class ModeCache {
+
+		final TravelTime travelTime;
+		final Cache<RouteKey, CachedRoute> routes = CacheBuilder.newBuilder()
+				.maximumWeight(memoryBudget)
+				.weigher(new Weigher<RouteKey, CachedRoute>() {
+					@Override
+					public int weigh(RouteKey key, CachedRoute value) {
+						return value.estimateMemory();
+					}
+				})
+				.build();
+		/** per link and time bin, the travel time the cached routes were computed with */
+		final ConcurrentMap<Link, float[]> referenceTravelTimes = new ConcurrentHashMap<>();
+
+		ModeCache(TravelTime travelTime) {
+			this.travelTime = travelTime;
+		}
+
+		void put(RouteKey key, Path path) {
+			for (Link link : path.links) {
+				if (!this.referenceTravelTimes.containsKey(link)) {
+					this.referenceTravelTimes.putIfAbsent(link, getTravelTimes(link));
+				}
+			}
+			this.routes.put(key, new CachedRoute(path));
+		}
+
+		float[] getTravelTimes(Link link) {
+			float[] times = new float[numberOfTimeBins];
+			for (int bin = 0; bin < numberOfTimeBins; bin++) {
+				times[bin] = (float) this.travelTime.getLinkTravelTime(link, bin * timeBinSize, null, null);
+			}
+			return times;
+		}
+
+		int invalidateChangedLinks() {
+			Set<Link> changedLinks = new HashSet<>();
+			for (Map.Entry<Link, float[]> e : this.referenceTravelTimes.entrySet()) {
+				float[] reference = e.getValue();
+				float[] current = getTravelTimes(e.getKey());
+				for (int bin = 0; bin < numberOfTimeBins; bin++) {
+					if (Math.abs(current[bin] - reference[bin]) > travelTimeChangeThreshold * reference[bin]) {
+						changedLinks.add(e.getKey());
+						break;
+					}
+				}
+			}
+			if (changedLinks.isEmpty()) {
+				return 0;
+			}
+			int removed = 0;
+			for (Iterator<CachedRoute> it = this.routes.asMap().values().iterator(); it.hasNext(); ) {
+				for (Link link : it.next().links) {
+					if (changedLinks.contains(link)) {
+						it.remove();
+						removed++;
+						break;
+					}
+				}
+			}
+			// the reference of a changed link is taken anew as soon as a route using it gets cached again
+			for (Link link : changedLinks) {
+				this.referenceTravelTimes.remove(link);
+			}
+			return removed;
+		}
+	}
+
+	private final class CachingLeastCostPathCalculator implements LeastCostPathCalculator {
+
+		private final ModeCache cache;
+		private final LeastCostPathCalculator delegate;
+
+		CachingLeastCostPathCalculator(ModeCache cache, LeastCostPathCalculator delegate) {
+			this.cache = cache;
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person, Vehicle vehicle) {
+			RouteKey key = new RouteKey(fromNode.getId(), toNode.getId(), getTimeBin(starttime));
+			CachedRoute route = this.cache.routes.getIfPresent(key);
+			if (route != null) {
+				return route.toPath(fromNode);
+			}
+			Path path = this.delegate.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+			if (path != null) {
+				this.cache.put(key, path);
+			}
+			return path;
+		}
+	}
+
+	private static final class RouteKey {
+
+		private final Id<Node> fromNodeId;
+		private final Id<Node> toNodeId;
+		private final int timeBin;
+
+		RouteKey(Id<Node> fromNodeId, Id<Node> toNodeId, int timeBin) {
+			this.fromNodeId = fromNodeId;
+			this.toNodeId = toNodeId;
+			this.timeBin = timeBin;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof RouteKey)) {
+				return false;
+			}
+			RouteKey other = (RouteKey) obj;
+			return this.timeBin == other.timeBin && this.fromNodeId.equals(other.fromNodeId) && this.toNodeId.equals(other.toNodeId);
+		}
+
+		@Override
+		public int hashCode() {
+			return (31 * this.fromNodeId.hashCode() + this.toNodeId.hashCode()) * 31 + this.timeBin;
+		}
+	}
+
+	private static final class CachedRoute {
+
+		final Link[] links;
+		final double travelTime;
+		final double travelCost;
+
+		CachedRoute(Path path) {
+			this.links = path.links.toArray(new Link[path.links.size()]);
+			this.travelTime = path.travelTime;
+			this.travelCost = path.travelCost;
+		}
+
+		Path toPath(Node fromNode) {
+			List<Node> nodes = new ArrayList<>(this.links.length + 1);
+			nodes.add(fromNode);
+			for (Link link : this.links) {
+				nodes.add(link.getToNode());
+			}
+			return new Path(nodes, new ArrayList<>(Arrays.asList(this.links)), this.travelTime, this.travelCost);
+		}
+
+		/**
+		 * Object headers, fields, the link array and the key, with compressed references.
+		 */
+		int estimateMemory() {
+			return 96 + 4 * this.links.length;
+		}
+	}
+}
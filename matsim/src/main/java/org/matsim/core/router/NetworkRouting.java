@@ -7,6 +7,7 @@ import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.util.ContractionHierarchiesFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.TravelTime;
@@ -42,6 +43,9 @@ public class NetworkRouting implements Provider<RoutingModule> {
 	@Inject
     LeastCostPathCalculatorFactory leastCostPathCalculatorFactory;
 
+	@Inject
+	NetworkRouteCache networkRouteCache;
+
 	public NetworkRouting(String mode) {
 		this.mode = mode;
 	}
@@ -73,11 +77,22 @@ public class NetworkRouting implements Provider<RoutingModule> {
 		if (travelTime == null) {
 			throw new RuntimeException("No TravelTime bound for mode "+mode+".");
 		}
-		LeastCostPathCalculator routeAlgo =
-				leastCostPathCalculatorFactory.createPathCalculator(
+		LeastCostPathCalculator routeAlgo;
+		if ( leastCostPathCalculatorFactory instanceof ContractionHierarchiesFactory ) {
+			// lets all routers of the mode share their link costs, instead of each customizing its own
+			routeAlgo = ((ContractionHierarchiesFactory) leastCostPathCalculatorFactory).createPathCalculator(
+						filteredNetwork,
+						travelDisutilityFactory,
+						travelTime);
+		} else {
+			routeAlgo = leastCostPathCalculatorFactory.createPathCalculator(
 						filteredNetwork,
 						travelDisutilityFactory.createTravelDisutility(travelTime),
 						travelTime);
+		}
+		if ( plansCalcRouteConfigGroup.isRouteCache() ) {
+			routeAlgo = networkRouteCache.createCachingCalculator(mode, travelTime, routeAlgo);
+		}
 
 		if ( plansCalcRouteConfigGroup.isInsertingAccessEgressWalk() ) {
 			return DefaultRoutingModules.createAccessEgressNetworkRouter(mode, populationFactory, filteredNetwork, routeAlgo,
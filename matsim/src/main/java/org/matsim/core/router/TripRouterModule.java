@@ -32,6 +32,7 @@ import org.matsim.pt.router.TransitRouterModule;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
+import javax.inject.Singleton;
 import java.util.Map;
 
 public class TripRouterModule extends AbstractModule {
@@ -43,7 +44,11 @@ public class TripRouterModule extends AbstractModule {
         install(new LeastCostPathCalculatorModule());
         install(new TransitRouterModule());
         bind(SingleModeNetworksCache.class).asEagerSingleton();
+        bind(NetworkRouteCache.class).in(Singleton.class);
         PlansCalcRouteConfigGroup routeConfigGroup = getConfig().plansCalcRoute();
+        if (routeConfigGroup.isRouteCache()) {
+            addControlerListenerBinding().to(NetworkRouteCache.class);
+        }
         for (String mode : routeConfigGroup.getTeleportedModeFreespeedFactors().keySet()) {
             if (getConfig().transit().isUseTransit() && getConfig().transit().getTransitModes().contains(mode)) {
                 // default config contains "pt" as teleported mode, but if we have simulated transit, this is supposed to override it
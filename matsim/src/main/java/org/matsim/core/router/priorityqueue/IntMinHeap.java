@@ -0,0 +1,144 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntMinHeap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of int elements from <code>0</code> to <code>capacity - 1</code>, e.g. node
+ * indices of an array based graph, with their priorities. Unlike {@link BinaryMinHeap}, elements
+ * are plain ints, so the heap needs no objects and no index lookup; the position of every element
+ * is kept in an array, so decreasing a priority is logarithmic.
+ * <p>
+ * Of two elements with the same priority, either may be polled first.
+ */
+public final class IntMinHeap {
+
+	private final int[] heap;
+	private final double[] priorities;
+	private final int[] positions;
+	private int size = 0;
+
+	public IntMinHeap(final int capacity) {
+		this.heap = new int[capacity];
+		this.priorities = new double[capacity];
+		this.positions = new int[capacity];
+		Arrays.fill(this.positions, -1);
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean contains(final int element) {
+		return this.positions[element] >= 0;
+	}
+
+	/**
+	 * Adds the element, or lowers its priority if it is already in the heap. The new priority
+	 * of an element in the heap must not be higher than its old one.
+	 */
+	public void addOrDecrease(final int element, final double priority) {
+		int pos = this.positions[element];
+		if (pos < 0) {
+			pos = this.size++;
+		}
+		siftUp(pos, element, priority);
+	}
+
+	/**
+	 * @return the priority of the element {@link #poll()} would return; undefined if the heap is empty
+	 */
+	public double peekPriority() {
+		return this.priorities[0];
+	}
+
+	/**
+	 * Removes and returns the element with the lowest priority; the heap must not be empty.
+	 */
+	public int poll() {
+		int element = this.heap[0];
+		this.positions[element] = -1;
+		this.size--;
+		if (this.size > 0) {
+			siftDown(this.heap[this.size], this.priorities[this.size]);
+		}
+		return element;
+	}
+
+	/**
+	 * Removes all elements, in time linear in the number of elements in the heap.
+	 */
+	public void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.positions[this.heap[i]] = -1;
+		}
+		this.size = 0;
+	}
+
+	private void siftUp(int pos, final int element, final double priority) {
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (this.priorities[parent] <= priority) {
+				break;
+			}
+			move(parent, pos);
+			pos = parent;
+		}
+		set(pos, element, priority);
+	}
+
+	private void siftDown(final int element, final double priority) {
+		int pos = 0;
+		while (true) {
+			int child = 2 * pos + 1;
+			if (child >= this.size) {
+				break;
+			}
+			if (child + 1 < this.size && this.priorities[child + 1] < this.priorities[child]) {
+				child++;
+			}
+			if (this.priorities[child] >= priority) {
+				break;
+			}
+			move(child, pos);
+			pos = child;
+		}
+		set(pos, element, priority);
+	}
+
+	private void move(final int from, final int to) {
+		int element = this.heap[from];
+		this.heap[to] = element;
+		this.priorities[to] = this.priorities[from];
+		this.positions[element] = to;
+	}
+
+	private void set(final int pos, final int element, final double priority) {
+		this.heap[pos] = element;
+		this.priorities[pos] = priority;
+		this.positions[element] = pos;
+	}
+}
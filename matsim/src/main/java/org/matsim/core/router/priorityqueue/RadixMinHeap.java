@@ -0,0 +1,279 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RadixMinHeap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A radix heap: a monotone priority queue, i.e. priorities of added elements must not be
+ * smaller than the priority of the element polled last, as in Dijkstra's algorithm with
+ * non-negative costs or A* with a consistent estimate.
+ * <p>
+ * Priorities are mapped to 64 bit keys preserving their order. An element is kept in the
+ * bucket given by the highest bit in which its key differs from the key polled last, so
+ * adding and decreasing a key are constant time. When the lowest bucket is empty, the next
+ * non-empty bucket is split into lower ones; every element moves down at most 64 times.
+ * <p>
+ * Priorities below the last polled one by no more than a relative rounding tolerance, e.g. due to
+ * rounding of an A* estimate, are treated as equal to it; lower priorities are rejected with an
+ * {@link IllegalArgumentException}. Like {@link BinaryMinHeap}, elements are identified by
+ * {@link HasIndex#getArrayIndex()}; elements with equal priority are polled in no particular order.
+ *
+ * @param <E> the type of elements held in this collection
+ */
+public class RadixMinHeap<E extends HasIndex> implements MinHeap<E> {
+
+	private static final int BUCKETS = 65;
+
+	/** relative amount by which a priority may be below the last polled one, to absorb rounding */
+	private static final double ROUNDING_TOLERANCE = 1e-9;
+
+	private final E[][] buckets;
+	private final int[] bucketSizes;
+
+	/** by element index: the key, the bucket (-1 if not in the heap) and the position in the bucket */
+	private final long[] keys;
+	private final int[] elementBuckets;
+	private final int[] positions;
+
+	private long lastKey = 0;
+	private int size = 0;
+
+	@SuppressWarnings("unchecked")
+	public RadixMinHeap(int maxSize) {
+		this.buckets = (E[][]) new HasIndex[BUCKETS][];
+		for (int b = 0; b < BUCKETS; b++) {
+			this.buckets[b] = (E[]) new HasIndex[4];
+		}
+		this.bucketSizes = new int[BUCKETS];
+		this.keys = new long[maxSize];
+		this.elementBuckets = new int[maxSize];
+		Arrays.fill(this.elementBuckets, -1);
+		this.positions = new int[maxSize];
+	}
+
+	/**
+	 * Maps the priority to a key which, compared unsigned, has the same order.
+	 */
+	private static long toKey(double priority) {
+		long bits = Double.doubleToLongBits(priority + 0.0); // + 0.0 turns -0.0 into 0.0
+		return bits < 0 ? ~bits : bits | Long.MIN_VALUE;
+	}
+
+	private static double toPriority(long key) {
+		return Double.longBitsToDouble(key < 0 ? key & Long.MAX_VALUE : ~key);
+	}
+
+	private static boolean lessUnsigned(long a, long b) {
+		return (a + Long.MIN_VALUE) < (b + Long.MIN_VALUE);
+	}
+
+	private int getBucket(long key) {
+		return key == this.lastKey ? 0 : 64 - Long.numberOfLeadingZeros(key ^ this.lastKey);
+	}
+
+	private void insert(E value, int index, long key) {
+		int bucket = getBucket(key);
+		E[] entries = this.buckets[bucket];
+		int bucketSize = this.bucketSizes[bucket];
+		if (bucketSize == entries.length) {
+			entries = Arrays.copyOf(entries, 2 * entries.length);
+			this.buckets[bucket] = entries;
+		}
+		entries[bucketSize] = value;
+		this.bucketSizes[bucket] = bucketSize + 1;
+		this.keys[index] = key;
+		this.elementBuckets[index] = bucket;
+		this.positions[index] = bucketSize;
+	}
+
+	private void delete(int index) {
+		int bucket = this.elementBuckets[index];
+		int position = this.positions[index];
+		E[] entries = this.buckets[bucket];
+		int last = --this.bucketSizes[bucket];
+		E moved = entries[last];
+		entries[position] = moved;
+		entries[last] = null;
+		this.positions[moved.getArrayIndex()] = position;
+		this.elementBuckets[index] = -1;
+	}
+
+	/**
+	 * Makes sure the minimum is in bucket 0 by splitting the first non-empty bucket.
+	 */
+	private void redistribute() {
+		if (this.bucketSizes[0] > 0) return;
+		int bucket = 1;
+		while (this.bucketSizes[bucket] == 0) bucket++;
+		E[] entries = this.buckets[bucket];
+		int bucketSize = this.bucketSizes[bucket];
+		long minKey = this.keys[entries[0].getArrayIndex()];
+		for (int i = 1; i < bucketSize; i++) {
+			long key = this.keys[entries[i].getArrayIndex()];
+			if (lessUnsigned(key, minKey)) minKey = key;
+		}
+		this.lastKey = minKey;
+		this.bucketSizes[bucket] = 0;
+		for (int i = 0; i < bucketSize; i++) {
+			E value = entries[i];
+			entries[i] = null;
+			int index = value.getArrayIndex();
+			insert(value, index, this.keys[index]);
+		}
+	}
+
+	@Override
+	public boolean add(E value, double priority) {
+		if (value == null) {
+			throw new NullPointerException("null values are not supported!");
+		}
+		int index = value.getArrayIndex();
+		if (this.elementBuckets[index] >= 0) return false;
+		long key = toKey(priority);
+		if (lessUnsigned(key, this.lastKey)) key = checkRounding(priority);
+		insert(value, index, key);
+		this.size++;
+		return true;
+	}
+
+	/**
+	 * @return the last polled key, if the priority is below it only by rounding
+	 */
+	private long checkRounding(double priority) {
+		double lastPriority = toPriority(this.lastKey);
+		if (lastPriority - priority > ROUNDING_TOLERANCE * Math.max(1.0, Math.abs(lastPriority))) {
+			throw new IllegalArgumentException("Priority " + priority + " is below the priority " + lastPriority
+					+ " polled last. The radix heap requires non-decreasing priorities, e.g. non-negative link costs.");
+		}
+		return this.lastKey;
+	}
+
+	@Override
+	public E poll() {
+		if (this.size == 0) return null;
+		redistribute();
+		E value = this.buckets[0][this.bucketSizes[0] - 1];
+		delete(value.getArrayIndex());
+		this.size--;
+		return value;
+	}
+
+	@Override
+	public boolean remove(E value) {
+		if (value == null) return false;
+		int index = value.getArrayIndex();
+		if (this.elementBuckets[index] < 0) return false;
+		delete(index);
+		this.size--;
+		return true;
+	}
+
+	/**
+	 * Retrieves, but does not remove, the head of this queue. This searches the lowest
+	 * non-empty bucket, so prefer {@link #poll()} where possible.
+	 */
+	@Override
+	public E peek() {
+		if (this.size == 0) return null;
+		int bucket = 0;
+		while (this.bucketSizes[bucket] == 0) bucket++;
+		E[] entries = this.buckets[bucket];
+		E min = entries[0];
+		for (int i = 1; i < this.bucketSizes[bucket]; i++) {
+			if (lessUnsigned(this.keys[entries[i].getArrayIndex()], this.keys[min.getArrayIndex()])) min = entries[i];
+		}
+		return min;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean decreaseKey(E value, double priority) {
+		int index = value.getArrayIndex();
+		if (this.elementBuckets[index] < 0) {
+			return this.add(value, priority);
+		}
+		long key = toKey(priority);
+		if (lessUnsigned(this.keys[index], key)) return false;
+		if (lessUnsigned(key, this.lastKey)) key = checkRounding(priority);
+		delete(index);
+		insert(value, index, key);
+		return true;
+	}
+
+	@Override
+	public void reset() {
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			E[] entries = this.buckets[bucket];
+			for (int i = 0; i < this.bucketSizes[bucket]; i++) {
+				this.elementBuckets[entries[i].getArrayIndex()] = -1;
+				entries[i] = null;
+			}
+			this.bucketSizes[bucket] = 0;
+		}
+		this.lastKey = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * Returns an iterator over the elements in this queue, which are NOT returned sorted
+	 * by their priority. Removing elements is not supported via the iterator.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private int bucket = 0;
+			private int position = 0;
+
+			@Override
+			public boolean hasNext() {
+				while (this.bucket < BUCKETS && this.position >= RadixMinHeap.this.bucketSizes[this.bucket]) {
+					this.bucket++;
+					this.position = 0;
+				}
+				return this.bucket < BUCKETS;
+			}
+
+			@Override
+			public E next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				return RadixMinHeap.this.buckets[this.bucket][this.position++];
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -20,8 +20,10 @@
 
 package org.matsim.core.router.util;
 
+import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -35,6 +37,14 @@ public class ArrayRoutingNetworkFactory extends AbstractRoutingNetworkFactory {
 	
 	private final static Logger log = Logger.getLogger(ArrayRoutingNetworkFactory.class);
 	
+	private final static Object NO_PREPROCESSING = new Object();
+	
+	/*
+	 * Routing networks shared by all routers, by network and pre-processing data. Keys and values are weak,
+	 * so a routing network is dropped once no router uses it anymore and its network is not kept alive by it.
+	 */
+	private final static Map<Network, Map<Object, WeakReference<ArrayRoutingNetwork>>> sharedRoutingNetworks = new WeakHashMap<>();
+	
 	private int nodeArrayIndexCounter;
 	private int linkArrayIndexCounter;
 	
@@ -42,6 +52,29 @@ public class ArrayRoutingNetworkFactory extends AbstractRoutingNetworkFactory {
 		super(preProcessData);
 	}
 	
+	/**
+	 * Returns the routing network for the given network and pre-processing data, creating it only if no
+	 * router holds one yet. The routing network is not modified after its creation, so it can be used by
+	 * any number of routers in parallel; each router only keeps its own search state.
+	 */
+	public static ArrayRoutingNetwork getSharedRoutingNetwork(Network network, PreProcessDijkstra preProcessData) {
+		synchronized (sharedRoutingNetworks) {
+			Map<Object, WeakReference<ArrayRoutingNetwork>> routingNetworks = sharedRoutingNetworks.get(network);
+			if (routingNetworks == null) {
+				routingNetworks = new WeakHashMap<>();
+				sharedRoutingNetworks.put(network, routingNetworks);
+			}
+			Object key = preProcessData == null ? NO_PREPROCESSING : preProcessData;
+			WeakReference<ArrayRoutingNetwork> ref = routingNetworks.get(key);
+			ArrayRoutingNetwork routingNetwork = ref == null ? null : ref.get();
+			if (routingNetwork == null) {
+				routingNetwork = new ArrayRoutingNetworkFactory(preProcessData).createRoutingNetwork(network);
+				routingNetworks.put(key, new WeakReference<>(routingNetwork));
+			}
+			return routingNetwork;
+		}
+	}
+	
 	@Override
 	public ArrayRoutingNetwork createRoutingNetwork(Network network) {
 		this.nodeArrayIndexCounter = 0;
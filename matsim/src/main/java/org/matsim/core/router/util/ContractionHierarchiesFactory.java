@@ -0,0 +1,149 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.ContractionHierarchies;
+import org.matsim.core.router.ContractionHierarchy;
+import org.matsim.core.router.ContractionHierarchyMetric;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+
+/**
+ * Creates {@link ContractionHierarchies} routers.
+ * <p></p>
+ * The {@link ContractionHierarchy} of a network is built once and kept as long as the factory lives.
+ * The link costs ({@link ContractionHierarchyMetric}) are shared by all routers created for the same network
+ * and travel time, and either the same {@link TravelDisutilityFactory}
+ * (see {@link #createPathCalculator(Network, TravelDisutilityFactory, TravelTime)}, which the network routing of
+ * the controler uses, so all routers of a mode share their costs) or the same travel disutility instance.
+ * The costs are discarded at the start of every iteration, so the routers of an iteration always use the latest
+ * travel times. When the factory is used outside of a controler, {@link #reset()} has to be called whenever the
+ * travel times have changed.
+ * <p></p>
+ * The costs are calculated per time slice. The slices are as long as the travel time bins, but at least
+ * {@link #MIN_TIME_SLICE_SIZE} seconds, as every slice needs memory in the order of the network size.
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	public static final double MIN_TIME_SLICE_SIZE = 3600.0;
+
+	private final double timeSliceSize;
+	private final double endTime;
+	private final Map<Network, ContractionHierarchy> hierarchies = new HashMap<>();
+	private final Map<MetricKey, ContractionHierarchyMetric> metrics = new HashMap<>();
+
+	@Inject
+	ContractionHierarchiesFactory(Config config) {
+		this(Math.max(MIN_TIME_SLICE_SIZE, config.travelTimeCalculator().getTraveltimeBinSize()),
+				config.travelTimeCalculator().getMaxTime());
+	}
+
+	public ContractionHierarchiesFactory(final double timeSliceSize, final double endTime) {
+		this.timeSliceSize = timeSliceSize;
+		this.endTime = endTime;
+	}
+
+	/**
+	 * The router shares its link costs only with routers which get the same travel disutility instance, as
+	 * differently parameterized disutilities may be of the same class.
+	 */
+	@Override
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		return new ContractionHierarchies(getMetric(network, travelTimes, travelCosts), travelCosts, travelTimes);
+	}
+
+	/**
+	 * Creates a router with a new travel disutility from the given factory. All routers created with the same
+	 * factory for the same network and travel time share their link costs. The disutilities created by one factory
+	 * are assumed to be interchangeable: every time slice is customized with the disutility of the router which
+	 * first needs the slice, i.e. person-independent differences between the instances are not taken into account.
+	 */
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutilityFactory travelDisutilityFactory, final TravelTime travelTimes) {
+		TravelDisutility travelCosts = travelDisutilityFactory.createTravelDisutility(travelTimes);
+		return new ContractionHierarchies(getMetric(network, travelTimes, travelDisutilityFactory), travelCosts, travelTimes);
+	}
+
+	private synchronized ContractionHierarchyMetric getMetric(final Network network, final TravelTime travelTimes, final Object costsKey) {
+		ContractionHierarchy hierarchy = this.hierarchies.get(network);
+		if (hierarchy == null) {
+			hierarchy = new ContractionHierarchy(network);
+			this.hierarchies.put(network, hierarchy);
+		}
+		MetricKey key = new MetricKey(network, travelTimes, costsKey);
+		ContractionHierarchyMetric metric = this.metrics.get(key);
+		if (metric == null) {
+			metric = new ContractionHierarchyMetric(hierarchy, this.timeSliceSize, this.endTime);
+			this.metrics.put(key, metric);
+		}
+		return metric;
+	}
+
+	/**
+	 * Discards the link costs, so routers created afterwards use the current travel times.
+	 */
+	public synchronized void reset() {
+		this.metrics.clear();
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		reset();
+	}
+
+	private static final class MetricKey {
+		private final Network network;
+		private final TravelTime travelTime;
+		/* the travel disutility or its factory */
+		private final Object travelDisutility;
+
+		MetricKey(final Network network, final TravelTime travelTime, final Object travelDisutility) {
+			this.network = network;
+			this.travelTime = travelTime;
+			this.travelDisutility = travelDisutility;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof MetricKey)) {
+				return false;
+			}
+			MetricKey other = (MetricKey) obj;
+			return this.network == other.network && this.travelTime == other.travelTime
+					&& this.travelDisutility == other.travelDisutility;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * System.identityHashCode(this.network) + System.identityHashCode(this.travelTime))
+					+ System.identityHashCode(this.travelDisutility);
+		}
+	}
+}
@@ -21,13 +21,10 @@
 package org.matsim.core.router.util;
 
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup.RoutingPriorityQueueType;
 import org.matsim.core.router.ArrayFastRouterDelegateFactory;
 import org.matsim.core.router.FastAStarEuclidean;
 import org.matsim.core.router.FastRouterDelegateFactory;
-import org.matsim.core.router.FastRouterType;
-
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * @author cdobler
@@ -35,42 +32,24 @@ import java.util.Map;
 public class FastAStarEuclideanFactory implements LeastCostPathCalculatorFactory {
 
 	private final PreProcessEuclidean preProcessData;
-	private final RoutingNetworkFactory routingNetworkFactory;
-	private final Map<Network, RoutingNetwork> routingNetworks;
+	private final RoutingPriorityQueueType priorityQueueType;
 
 	public FastAStarEuclideanFactory(Network network, final TravelDisutility fsttc) {
-		this(network, fsttc, FastRouterType.ARRAY);		
+		this(network, fsttc, RoutingPriorityQueueType.BinaryMinHeap);
 	}
 
-	private FastAStarEuclideanFactory(Network network, final TravelDisutility fsttc,
-			FastRouterType fastRouterType) {
+	public FastAStarEuclideanFactory(Network network, final TravelDisutility fsttc, final RoutingPriorityQueueType priorityQueueType) {
+		this.priorityQueueType = priorityQueueType;
 		this.preProcessData = new PreProcessEuclidean(fsttc);
 		this.preProcessData.run(network);
-
-		this.routingNetworks = new HashMap<Network, RoutingNetwork>();
-		
-		switch (fastRouterType) {
-		case ARRAY:
-			this.routingNetworkFactory = new ArrayRoutingNetworkFactory(preProcessData);
-			break;
-		case POINTER:
-			throw new RuntimeException("PointerRoutingNetworks are no longer supported. "
-					+ "Use ArrayRoutingNetworks instead. Aborting!");
-		default:
-			throw new RuntimeException("Undefined FastRouterType: " + fastRouterType);
-		}
 	}
 
 	@Override
 	public LeastCostPathCalculator createPathCalculator(Network network,
 			TravelDisutility travelCosts, TravelTime travelTimes) {
 	
-		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
-		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
-			this.routingNetworks.put(network, routingNetwork);
-		}
-		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
+		RoutingNetwork routingNetwork = ArrayRoutingNetworkFactory.getSharedRoutingNetwork(network, this.preProcessData);
+		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory(this.priorityQueueType);
 		
 		return new FastAStarEuclidean(routingNetwork, this.preProcessData, travelCosts, travelTimes, 1,
 			fastRouterFactory);
@@ -23,15 +23,14 @@ package org.matsim.core.router.util;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup.RoutingPriorityQueueType;
 import org.matsim.core.router.ArrayFastRouterDelegateFactory;
 import org.matsim.core.router.FastAStarLandmarks;
 import org.matsim.core.router.FastRouterDelegateFactory;
-import org.matsim.core.router.FastRouterType;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -41,48 +40,35 @@ import java.util.Map;
 public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory {
 
 	private final PreProcessLandmarks preProcessData;
-	private final RoutingNetworkFactory routingNetworkFactory;
-	private final Map<Network, RoutingNetwork> routingNetworks;
+	private final RoutingPriorityQueueType priorityQueueType;
 
 	@Inject
 	FastAStarLandmarksFactory(Network network, Config config, Map<String,TravelTime> travelTime, Map<String,TravelDisutilityFactory> fsttc) {
 		//TODO: No guarantee that these are the same travel times for which the router is later requested.
-		this(network, fsttc.get(TransportMode.car).createTravelDisutility(travelTime.get(TransportMode.car)), FastRouterType.ARRAY);
+		this(network, fsttc.get(TransportMode.car).createTravelDisutility(travelTime.get(TransportMode.car)),
+				config.global().getNumberOfThreads(), config.controler().getLandmarksCacheDirectory(),
+				config.plansCalcRoute().getRoutingPriorityQueue());
 	}
 
 	public FastAStarLandmarksFactory(Network network, final TravelDisutility fsttc) {
-		this(network, fsttc, FastRouterType.ARRAY);
+		this(network, fsttc, 8, null, RoutingPriorityQueueType.BinaryMinHeap);
 	}
 
 	private FastAStarLandmarksFactory(Network network, final TravelDisutility fsttc,
-			FastRouterType fastRouterType) {
+			int numberOfThreads, String cacheDirectory, RoutingPriorityQueueType priorityQueueType) {
+		this.priorityQueueType = priorityQueueType;
 		this.preProcessData = new PreProcessLandmarks(fsttc);
+		this.preProcessData.setNumberOfThreads(numberOfThreads);
+		this.preProcessData.setCacheDirectory(cacheDirectory);
 		this.preProcessData.run(network);
-		
-		this.routingNetworks = new HashMap<>();
-		
-		switch (fastRouterType) {
-		case ARRAY:
-			this.routingNetworkFactory = new ArrayRoutingNetworkFactory(preProcessData);
-			break;
-		case POINTER:
-			throw new RuntimeException("PointerRoutingNetworks are no longer supported. "
-					+ "Use ArrayRoutingNetworks instead. Aborting!");
-		default:
-			throw new RuntimeException("Undefined FastRouterType: " + fastRouterType);
-		}
 	}
 
 	@Override
 	public LeastCostPathCalculator createPathCalculator(Network network,
 			TravelDisutility travelCosts, TravelTime travelTimes) {
 		
-		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
-		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
-			this.routingNetworks.put(network, routingNetwork);
-		}
-		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
+		RoutingNetwork routingNetwork = ArrayRoutingNetworkFactory.getSharedRoutingNetwork(network, this.preProcessData);
+		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory(this.priorityQueueType);
 
 		return new FastAStarLandmarks(routingNetwork, this.preProcessData, travelCosts, travelTimes, 1,
 				fastRouterFactory);
@@ -21,58 +21,44 @@
 package org.matsim.core.router.util;
 
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup.RoutingPriorityQueueType;
 import org.matsim.core.router.ArrayFastRouterDelegateFactory;
 import org.matsim.core.router.FastDijkstra;
 import org.matsim.core.router.FastRouterDelegateFactory;
-import org.matsim.core.router.FastRouterType;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.HashMap;
-import java.util.Map;
 
 @Singleton
 public class FastDijkstraFactory implements LeastCostPathCalculatorFactory {
 	
 	private final PreProcessDijkstra preProcessData;
-	private final RoutingNetworkFactory routingNetworkFactory;
-	private final Map<Network, RoutingNetwork> routingNetworks;
+	private final RoutingPriorityQueueType priorityQueueType;
 
 	@Inject
+	FastDijkstraFactory(final PlansCalcRouteConfigGroup routeConfigGroup) {
+		this(null, routeConfigGroup.getRoutingPriorityQueue());
+	}
+
 	public FastDijkstraFactory() {
-		this(null, FastRouterType.ARRAY);
+		this(null, RoutingPriorityQueueType.BinaryMinHeap);
 	}
 
     public FastDijkstraFactory(final PreProcessDijkstra preProcessData) {
-		this(preProcessData, FastRouterType.ARRAY);
+		this(preProcessData, RoutingPriorityQueueType.BinaryMinHeap);
 	}
 
-	private FastDijkstraFactory(final PreProcessDijkstra preProcessData, FastRouterType fastRouterType) {
+	public FastDijkstraFactory(final PreProcessDijkstra preProcessData, final RoutingPriorityQueueType priorityQueueType) {
 		this.preProcessData = preProcessData;
-		
-		this.routingNetworks = new HashMap<Network, RoutingNetwork>();
-		
-		switch (fastRouterType) {
-		case ARRAY:
-			this.routingNetworkFactory = new ArrayRoutingNetworkFactory(preProcessData);
-			break;
-		case POINTER:
-			throw new RuntimeException("PointerRoutingNetworks are no longer supported. "
-					+ "Use ArrayRoutingNetworks instead. Aborting!");
-		default:
-			throw new RuntimeException("Undefined FastRouterType: " + fastRouterType);
-		}
+		this.priorityQueueType = priorityQueueType;
 	}
 
 	@Override
 	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
 			
-		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
-		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
-			this.routingNetworks.put(network, routingNetwork);
-		}
-		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
+		RoutingNetwork routingNetwork = ArrayRoutingNetworkFactory.getSharedRoutingNetwork(network, this.preProcessData);
+		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory(this.priorityQueueType);
 		
 		return new FastDijkstra(routingNetwork, travelCosts, travelTimes, preProcessData, fastRouterFactory);
 	}
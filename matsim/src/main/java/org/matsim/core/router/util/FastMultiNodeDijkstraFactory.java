@@ -20,10 +20,8 @@
 
 package org.matsim.core.router.util;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup.RoutingPriorityQueueType;
 import org.matsim.core.router.ArrayFastRouterDelegateFactory;
 import org.matsim.core.router.FastMultiNodeDijkstra;
 import org.matsim.core.router.FastRouterDelegateFactory;
@@ -32,8 +30,7 @@ public class FastMultiNodeDijkstraFactory implements LeastCostPathCalculatorFact
 	
 	private final boolean searchAllEndNodes;
 	private final PreProcessDijkstra preProcessData;
-	private final RoutingNetworkFactory routingNetworkFactory;
-	private final Map<Network, RoutingNetwork> routingNetworks;
+	private final RoutingPriorityQueueType priorityQueueType;
 	
 	public FastMultiNodeDijkstraFactory() {
 		this(false);
@@ -44,22 +41,21 @@ public class FastMultiNodeDijkstraFactory implements LeastCostPathCalculatorFact
 	}
 		
 	public FastMultiNodeDijkstraFactory(final PreProcessDijkstra preProcessData, final boolean searchAllEndNodes) {
+		this(preProcessData, searchAllEndNodes, RoutingPriorityQueueType.BinaryMinHeap);
+	}
+
+	public FastMultiNodeDijkstraFactory(final PreProcessDijkstra preProcessData, final boolean searchAllEndNodes,
+			final RoutingPriorityQueueType priorityQueueType) {
 		this.preProcessData = preProcessData;
 		this.searchAllEndNodes = searchAllEndNodes;
-		
-		this.routingNetworks = new HashMap<Network, RoutingNetwork>();
-		this.routingNetworkFactory = new ArrayRoutingNetworkFactory(preProcessData);
+		this.priorityQueueType = priorityQueueType;
 	}
 
 	@Override
 	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
 		
-		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
-		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
-		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
-			this.routingNetworks.put(network, routingNetwork);
-		}
+		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory(this.priorityQueueType);
+		RoutingNetwork routingNetwork = ArrayRoutingNetworkFactory.getSharedRoutingNetwork(network, this.preProcessData);
 		
 		return new FastMultiNodeDijkstra(routingNetwork, travelCosts, travelTimes, 
 				this.preProcessData, fastRouterFactory, this.searchAllEndNodes);
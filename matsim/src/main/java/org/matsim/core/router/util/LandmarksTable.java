@@ -0,0 +1,236 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LandmarksTable.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.matsim.core.router.priorityqueue.IntMinHeap;
+
+/**
+ * Least-cost distances between every node of a network and a set of landmarks,
+ * stored in two flat arrays. Row <code>n</code> holds the values of the node
+ * with index <code>n</code>, where nodes are numbered in the iteration order of
+ * <code>network.getNodes().values()</code>, i.e. the same numbering as used by
+ * {@link ArrayRoutingNetworkFactory} for the array index of its nodes.
+ * <br>
+ * For each node and landmark, the smaller of the two costs (node to landmark
+ * and landmark to node) is stored in <code>minCosts</code>, the larger one in
+ * <code>maxCosts</code>. Unreachable entries are {@link Double#POSITIVE_INFINITY}.
+ * <br>
+ * Instances are immutable once computed and may be shared between threads.
+ */
+final class LandmarksTable {
+
+	private static final int MAGIC = 0x4d4c4d4b;
+	private static final int VERSION = 1;
+
+	final int nodeCount;
+	final int landmarkCount;
+	final double[] minCosts;
+	final double[] maxCosts;
+
+	private LandmarksTable(final int nodeCount, final int landmarkCount) {
+		this.nodeCount = nodeCount;
+		this.landmarkCount = landmarkCount;
+		this.minCosts = new double[nodeCount * landmarkCount];
+		this.maxCosts = new double[nodeCount * landmarkCount];
+		Arrays.fill(this.minCosts, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.maxCosts, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Computes the table with one forward and one backward Dijkstra search per
+	 * landmark. The searches of different landmarks run in parallel.
+	 *
+	 * @param graph the network in compressed adjacency form
+	 * @param landmarks the node indices of the landmarks
+	 * @param landmarkCount the number of columns; columns beyond <code>landmarks.length</code> stay infinite
+	 * @param numberOfThreads the parallelism of the fork/join pool
+	 */
+	static LandmarksTable compute(final Graph graph, final int[] landmarks, final int landmarkCount, final int numberOfThreads) {
+		final LandmarksTable table = new LandmarksTable(graph.nodeCount, landmarkCount);
+		if (landmarks.length == 0) {
+			return table;
+		}
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(numberOfThreads, landmarks.length)));
+		try {
+			pool.invoke(new LandmarksTask(table, graph, landmarks, 0, landmarks.length));
+		} finally {
+			pool.shutdown();
+		}
+		return table;
+	}
+
+	/*package*/ static LandmarksTable read(final DataInputStream in, final int expectedNodeCount, final int expectedLandmarkCount) throws IOException {
+		if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+			throw new IOException("Not a landmarks cache file.");
+		}
+		int nodeCount = in.readInt();
+		int landmarkCount = in.readInt();
+		if (nodeCount != expectedNodeCount || landmarkCount != expectedLandmarkCount) {
+			throw new IOException("Landmarks cache file does not match the network.");
+		}
+		LandmarksTable table = new LandmarksTable(nodeCount, landmarkCount);
+		for (int i = 0; i < table.minCosts.length; i++) {
+			table.minCosts[i] = in.readDouble();
+			table.maxCosts[i] = in.readDouble();
+		}
+		return table;
+	}
+
+	/*package*/ void write(final DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(this.nodeCount);
+		out.writeInt(this.landmarkCount);
+		for (int i = 0; i < this.minCosts.length; i++) {
+			out.writeDouble(this.minCosts[i]);
+			out.writeDouble(this.maxCosts[i]);
+		}
+	}
+
+	/**
+	 * The network in compressed sparse row form, with the minimal travel
+	 * disutility of every link evaluated once.
+	 */
+	/*package*/ static final class Graph {
+		final int nodeCount;
+		final int[] firstOut;
+		final int[] outHead;
+		final double[] outCost;
+		final int[] firstIn;
+		final int[] inTail;
+		final double[] inCost;
+
+		/**
+		 * @param nodeCount the number of nodes
+		 * @param linkFrom from node index of every link
+		 * @param linkTo to node index of every link
+		 * @param linkCost the minimal travel disutility of every link
+		 */
+		Graph(final int nodeCount, final int[] linkFrom, final int[] linkTo, final double[] linkCost) {
+			this.nodeCount = nodeCount;
+			this.firstOut = new int[nodeCount + 1];
+			this.outHead = new int[linkFrom.length];
+			this.outCost = new double[linkFrom.length];
+			this.firstIn = new int[nodeCount + 1];
+			this.inTail = new int[linkFrom.length];
+			this.inCost = new double[linkFrom.length];
+			for (int l = 0; l < linkFrom.length; l++) {
+				this.firstOut[linkFrom[l] + 1]++;
+				this.firstIn[linkTo[l] + 1]++;
+			}
+			for (int n = 0; n < nodeCount; n++) {
+				this.firstOut[n + 1] += this.firstOut[n];
+				this.firstIn[n + 1] += this.firstIn[n];
+			}
+			int[] outPos = Arrays.copyOf(this.firstOut, nodeCount);
+			int[] inPos = Arrays.copyOf(this.firstIn, nodeCount);
+			for (int l = 0; l < linkFrom.length; l++) {
+				int o = outPos[linkFrom[l]]++;
+				this.outHead[o] = linkTo[l];
+				this.outCost[o] = linkCost[l];
+				int i = inPos[linkTo[l]]++;
+				this.inTail[i] = linkFrom[l];
+				this.inCost[i] = linkCost[l];
+			}
+		}
+	}
+
+	/**
+	 * Splits the range of landmarks until a single landmark remains, which is then
+	 * expanded in both directions. Every task only writes its own column of the table.
+	 */
+	private static final class LandmarksTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final LandmarksTable table;
+		private final Graph graph;
+		private final int[] landmarks;
+		private final int from;
+		private final int to;
+
+		LandmarksTask(final LandmarksTable table, final Graph graph, final int[] landmarks, final int from, final int to) {
+			this.table = table;
+			this.graph = graph;
+			this.landmarks = landmarks;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from > 1) {
+				int mid = (this.from + this.to) >>> 1;
+				invokeAll(new LandmarksTask(this.table, this.graph, this.landmarks, this.from, mid),
+						new LandmarksTask(this.table, this.graph, this.landmarks, mid, this.to));
+				return;
+			}
+			int landmark = this.landmarks[this.from];
+			double[] fromLandmark = new double[this.graph.nodeCount];
+			double[] toLandmark = new double[this.graph.nodeCount];
+			IntMinHeap heap = new IntMinHeap(this.graph.nodeCount);
+			expand(landmark, this.graph.firstOut, this.graph.outHead, this.graph.outCost, fromLandmark, heap);
+			expand(landmark, this.graph.firstIn, this.graph.inTail, this.graph.inCost, toLandmark, heap);
+
+			int column = this.from;
+			int width = this.table.landmarkCount;
+			for (int n = 0; n < this.graph.nodeCount; n++) {
+				double a = toLandmark[n];
+				double b = fromLandmark[n];
+				int pos = n * width + column;
+				if (a > b) {
+					this.table.minCosts[pos] = b;
+					this.table.maxCosts[pos] = a;
+				} else {
+					this.table.minCosts[pos] = a;
+					this.table.maxCosts[pos] = b;
+				}
+			}
+		}
+
+		private static void expand(final int source, final int[] first, final int[] adjacent, final double[] cost,
+				final double[] dist, final IntMinHeap heap) {
+			Arrays.fill(dist, Double.POSITIVE_INFINITY);
+			dist[source] = 0.0;
+			heap.addOrDecrease(source, 0.0);
+			while (!heap.isEmpty()) {
+				int node = heap.poll();
+				double d = dist[node];
+				for (int a = first[node], end = first[node + 1]; a < end; a++) {
+					int next = adjacent[a];
+					double nd = d + cost[a];
+					if (nd < dist[next]) {
+						dist[next] = nd;
+						heap.addOrDecrease(next, nd);
+					}
+				}
+			}
+		}
+	}
+
+}
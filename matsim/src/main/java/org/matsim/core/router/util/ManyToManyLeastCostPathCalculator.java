@@ -0,0 +1,104 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ManyToManyLeastCostPathCalculator.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router.util;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Computes least-cost travel costs and times between every node of a set of
+ * origins and every node of a set of destinations in one call, e.g. for dispatching,
+ * location choice, accessibility or skim matrices.
+ * <p></p>
+ * No implementation is bound by the controler, as the network, travel time and disutility
+ * depend on the use case; create one, e.g. a {@link org.matsim.core.router.ManyToManyDijkstra},
+ * with the ones of the mode at hand and keep it for many calls.
+ *
+ * @see org.matsim.core.router.ManyToManyDijkstra
+ */
+public interface ManyToManyLeastCostPathCalculator {
+
+	/**
+	 * @param fromNodes the origins, defining the rows of the returned matrix
+	 * @param toNodes the destinations, defining the columns of the returned matrix
+	 * @param starttime the departure time at every origin
+	 * @param person passed on to the travel time and disutility functions, may be <code>null</code>
+	 * @param vehicle passed on to the travel time and disutility functions, may be <code>null</code>
+	 */
+	public Matrix calcLeastCostPaths(List<? extends Node> fromNodes, List<? extends Node> toNodes, double starttime,
+			final Person person, final Vehicle vehicle);
+
+	/**
+	 * Travel costs and times, indexed by the position of the origin and destination
+	 * in the lists passed to {@link ManyToManyLeastCostPathCalculator#calcLeastCostPaths}.
+	 * Unreachable destinations have a cost and time of {@link Double#POSITIVE_INFINITY}.
+	 * The matrix is stored in flat arrays, so it can have at most {@link Integer#MAX_VALUE} entries.
+	 */
+	public class Matrix {
+		private final int fromCount;
+		private final int toCount;
+		private final double[] travelCosts;
+		private final double[] travelTimes;
+
+		/**
+		 * @throws IllegalArgumentException if a count is negative or the matrix has more than
+		 * {@link Integer#MAX_VALUE} entries
+		 */
+		public Matrix(final int fromCount, final int toCount) {
+			if (fromCount < 0 || toCount < 0) {
+				throw new IllegalArgumentException("Negative matrix size " + fromCount + " x " + toCount + ".");
+			}
+			if ((long) fromCount * toCount > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("A matrix of " + fromCount + " x " + toCount
+						+ " entries is too large; split the origins into several calls.");
+			}
+			this.fromCount = fromCount;
+			this.toCount = toCount;
+			this.travelCosts = new double[fromCount * toCount];
+			this.travelTimes = new double[fromCount * toCount];
+		}
+
+		public int getFromCount() {
+			return this.fromCount;
+		}
+
+		public int getToCount() {
+			return this.toCount;
+		}
+
+		public double getTravelCost(final int fromIndex, final int toIndex) {
+			return this.travelCosts[fromIndex * this.toCount + toIndex];
+		}
+
+		public double getTravelTime(final int fromIndex, final int toIndex) {
+			return this.travelTimes[fromIndex * this.toCount + toIndex];
+		}
+
+		public void set(final int fromIndex, final int toIndex, final double travelCost, final double travelTime) {
+			this.travelCosts[fromIndex * this.toCount + toIndex] = travelCost;
+			this.travelTimes[fromIndex * this.toCount + toIndex] = travelTime;
+		}
+	}
+}
@@ -24,15 +24,15 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
-import org.matsim.core.api.internal.MatsimComparator;
+import org.matsim.core.utils.io.PrecomputedDataCache;
 
 import java.awt.geom.Rectangle2D;
-import java.util.Comparator;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Pre-processes a given network, gathering information which can be used by
@@ -40,6 +40,11 @@ import java.util.concurrent.TimeUnit;
  * between a start and an end node. Specifically, designates some
  * nodes in the network that act as landmarks and computes the last-cost-path
  * from and to each node in the network to each of the landmarks.
+ * <br>
+ * The distances are kept in flat arrays indexed by node (see {@link LandmarksTable}),
+ * computed in parallel with one task per landmark, and cached in memory and
+ * optionally on disk (see {@link #setCacheDirectory(String)}), so unchanged
+ * networks are not pre-processed again.
  *
  * @author lnicolas
  */
@@ -53,6 +58,17 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	
 	private int numberOfThreads = 8;
 
+	private String cacheDirectory = null;
+
+	private LandmarksTable table = null;
+
+	/**
+	 * Landmark tables computed or loaded in this JVM, so that routers of all
+	 * replanning threads and repeated pre-processing of an unchanged network
+	 * share a single copy.
+	 */
+	private static final PrecomputedDataCache<LandmarksTable> tableCache = new PrecomputedDataCache<>("landmarks");
+
 	private static final Logger log = Logger.getLogger(PreProcessLandmarks.class);
 
 	public PreProcessLandmarks(final TravelDisutility costFunction) {
@@ -105,6 +121,17 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		this.landmarker = landmarker;
 	}
 
+	/**
+	 * Sets a directory in which computed landmark tables are stored and looked up
+	 * again, keyed by a hash of the network, the minimal link costs and the chosen
+	 * landmarks. <code>null</code> (the default) disables the disk cache.
+	 *
+	 * @param cacheDirectory
+	 */
+	public void setCacheDirectory(final String cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
 	@Override
 	public void run(final Network network) {
 		super.run(network);
@@ -114,122 +141,87 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		landmarks = landmarker.identifyLandmarks( landmarkCount , network );
 		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
 
-		log.info("Initializing landmarks data");
+		now = System.currentTimeMillis();
+		Map<Node, Integer> nodeIndices = new HashMap<>(network.getNodes().size() * 2);
+		Node[] nodes = new Node[network.getNodes().size()];
 		for (Node node : network.getNodes().values()) {
-			this.nodeData.put(node, new LandmarksData(this.landmarkCount));
-		}
-		
-		int nOfThreads = this.numberOfThreads;
-		if (nOfThreads > this.landmarks.length) {
-			nOfThreads = this.landmarks.length;
+			nodes[nodeIndices.size()] = node;
+			nodeIndices.put(node, nodeIndices.size());
 		}
-		if (nOfThreads < 2) {
-			nOfThreads = 2; // always use at least two threads
+		int[] linkFrom = new int[network.getLinks().size()];
+		int[] linkTo = new int[linkFrom.length];
+		double[] linkCost = new double[linkFrom.length];
+		int l = 0;
+		for (Link link : network.getLinks().values()) {
+			linkFrom[l] = nodeIndices.get(link.getFromNode());
+			linkTo[l] = nodeIndices.get(link.getToNode());
+			linkCost[l] = this.costFunction.getLinkMinimumTravelDisutility(link);
+			l++;
 		}
- 		log.info("Calculating distance from each node to each of the " + this.landmarkCount + " landmarks using " + nOfThreads + " threads...");
-		now = System.currentTimeMillis();
-
-		
-		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
+		int[] landmarkIndices = new int[this.landmarks.length];
 		for (int i = 0; i < this.landmarks.length; i++) {
-			executor.execute(new Calculator(i, this.landmarks[i], this.nodeData, this.costFunction));
-		}
-		executor.shutdown();
-		while (!executor.isTerminated()) {
-			log.info("wait for landmarks Calculator to finish...");
-			try {
-				executor.awaitTermination(10, TimeUnit.MINUTES);
-			} catch (InterruptedException e) {
-				throw new RuntimeException(e);
-			}
+			landmarkIndices[i] = nodeIndices.get(this.landmarks[i]);
 		}
 
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = getNodeData(node);
-			r.updateMinMaxTravelTimes();
-		}
-
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = getNodeData(node);
-			for (int i = 0; i < this.landmarks.length; i++) {
-				if (r.getMinLandmarkTravelTime(i) > r.getMaxLandmarkTravelTime(i)) {
-					log.info("Min > max for node " + node.getId() + " and landmark " + i);
+		String key = createCacheKey(nodes, linkFrom, linkTo, linkCost, landmarkIndices);
+		this.table = getCachedTable(key, nodes.length);
+		if (this.table == null) {
+			int nOfThreads = Math.max(1, Math.min(this.numberOfThreads, this.landmarks.length));
+			log.info("Calculating distance from each node to each of the " + this.landmarkCount + " landmarks using " + nOfThreads + " threads...");
+			LandmarksTable.Graph graph = new LandmarksTable.Graph(nodes.length, linkFrom, linkTo, linkCost);
+			this.table = LandmarksTable.compute(graph, landmarkIndices, this.landmarkCount, nOfThreads);
+			tableCache.putInMemory(key, this.table);
+			tableCache.write(this.cacheDirectory, key, this.table, new PrecomputedDataCache.Writer<LandmarksTable>() {
+				@Override
+				public void write(LandmarksTable data, DataOutputStream out) throws IOException {
+					data.write(out);
 				}
-			}
+			});
+			log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+		} else {
+			log.info("Re-using cached landmarks data for " + this.landmarkCount + " landmarks.");
 		}
 
-		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+		for (int n = 0; n < nodes.length; n++) {
+			getNodeData(nodes[n]).setTable(this.table, n);
+		}
 	}
 
-	private static class Calculator implements Runnable {
-		
-		private final int landmarkIdx;
-		private final Node landmark;
-		private final Map<Node, DeadEndData> nodeData;
-		private final TravelDisutility costFunction;
-		
-		public Calculator(final int landmarkIdx, final Node landmark, final Map<Node, DeadEndData> nodeData, final TravelDisutility costFunction) {
-			this.landmarkIdx = landmarkIdx;
-			this.landmark = landmark;
-			this.nodeData = nodeData;
-			this.costFunction = costFunction;
+	private String createCacheKey(final Node[] nodes, final int[] linkFrom, final int[] linkTo, final double[] linkCost,
+			final int[] landmarkIndices) {
+		PrecomputedDataCache.KeyBuilder key = tableCache.createKey();
+		key.putInt(nodes.length).putInt(linkFrom.length).putInt(this.landmarkCount);
+		for (Node node : nodes) {
+			key.putString(node.getId().toString());
 		}
-		
-		@Override
-		public void run() {
-			expandLandmarkFrom();
-			expandLandmarkTo();
+		for (int l = 0; l < linkFrom.length; l++) {
+			key.putInt(linkFrom[l]).putInt(linkTo[l]).putDouble(linkCost[l]);
 		}
-	
-		private void expandLandmarkFrom() {
-			LandmarksFromTravelTimeComparator comparator = new LandmarksFromTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
-			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double fromTravTime = ((LandmarksData) this.nodeData.get(node)).getFromLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getOutLinks().values()) {
-					Node n;
-					n = l.getToNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = fromTravTime + linkTravTime;
-					if (role2.getFromLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setFromLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
-					}
-				}
-			}
+		for (int landmark : landmarkIndices) {
+			key.putInt(landmark);
 		}
+		return key.build();
+	}
 
-		private void expandLandmarkTo() {
-			LandmarksToTravelTimeComparator comparator = new LandmarksToTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
-			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double toTravTime = ((LandmarksData) this.nodeData.get(node)).getToLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getInLinks().values()) {
-					Node n = l.getFromNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = toTravTime + linkTravTime;
-					if (role2.getToLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setToLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
-					}
+	private LandmarksTable getCachedTable(final String key, final int nodeCount) {
+		LandmarksTable cached = tableCache.getFromMemory(key);
+		if (cached == null) {
+			cached = tableCache.read(this.cacheDirectory, key, new PrecomputedDataCache.Reader<LandmarksTable>() {
+				@Override
+				public LandmarksTable read(DataInputStream in) throws IOException {
+					return LandmarksTable.read(in, nodeCount, PreProcessLandmarks.this.landmarkCount);
 				}
+			});
+			if (cached != null) {
+				tableCache.putInMemory(key, cached);
 			}
 		}
-	
+		return cached;
+	}
+
+	/** drops the landmark tables held in memory, so the next {@link #run} reads or computes them again */
+	/*package*/ static void clearMemoryCache() {
+		tableCache.clearMemory();
 	}
 
 	public Node[] getLandmarks() {
@@ -251,122 +243,37 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		return (LandmarksData) r;
 	}
 
+	/**
+	 * View on the row of a node in the landmarks table. Before the table is computed,
+	 * or for nodes that are not part of the pre-processed network, all values are
+	 * infinite.
+	 */
 	public static class LandmarksData extends DeadEndData {
 
-		private final double[] landmarkTravelTime1;
-		private final double[] landmarkTravelTime2;
+		private double[] minTravelTimes;
+		private double[] maxTravelTimes;
+		private int offset;
 
 		LandmarksData(final int landmarkCount) {
-			this.landmarkTravelTime2 = new double[landmarkCount];
-			this.landmarkTravelTime1 = new double[landmarkCount];
-			for (int i = 0; i < this.landmarkTravelTime2.length; i++) {
-				this.landmarkTravelTime2[i] = Double.POSITIVE_INFINITY;
-				this.landmarkTravelTime1[i] = Double.POSITIVE_INFINITY;
-			}
-		}
-
-		void setToLandmarkTravelTime(final int landmarkIndex, final double travelTime) {
-			this.landmarkTravelTime2[landmarkIndex] = travelTime;
-		}
-
-		void setFromLandmarkTravelTime(final int landmarkIndex, final double travelTime) {
-			this.landmarkTravelTime1[landmarkIndex] = travelTime;
-		}
-
-		double getToLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime2[landmarkIndex];
-		}
-
-		double getFromLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime1[landmarkIndex];
+			this.minTravelTimes = new double[landmarkCount];
+			this.maxTravelTimes = this.minTravelTimes;
+			Arrays.fill(this.minTravelTimes, Double.POSITIVE_INFINITY);
+			this.offset = 0;
 		}
 
-		void updateMinMaxTravelTimes() {
-			for (int i = 0; i < this.landmarkTravelTime1.length; i++) {
-				setTravelTimes(i, this.landmarkTravelTime2[i], this.landmarkTravelTime1[i]);
-			}
-		}
-
-		private void setTravelTimes(final int landmarkIndex, final double travelTime1,
-				final double travelTime2) {
-			if (travelTime1 > travelTime2) {
-				this.landmarkTravelTime2[landmarkIndex] = travelTime1;
-				this.landmarkTravelTime1[landmarkIndex] = travelTime2;
-			} else {
-				this.landmarkTravelTime1[landmarkIndex] = travelTime1;
-				this.landmarkTravelTime2[landmarkIndex] = travelTime2;
-			}
+		void setTable(final LandmarksTable table, final int nodeIndex) {
+			this.minTravelTimes = table.minCosts;
+			this.maxTravelTimes = table.maxCosts;
+			this.offset = nodeIndex * table.landmarkCount;
 		}
 
 		public double getMinLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime1[landmarkIndex];
+			return this.minTravelTimes[this.offset + landmarkIndex];
 		}
 
 		public double getMaxLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime2[landmarkIndex];
-		}
-	}
-
-    /**
-	 * Sorts the Nodes ascending according to their ToLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksToTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-
-		protected LandmarksToTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-
-		@Override
-		public int compare(final Node n1, final Node n2) {
-
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getToLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getToLandmarkTravelTime(this.landmarkIndex);
-
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
+			return this.maxTravelTimes[this.offset + landmarkIndex];
 		}
 	}
 
-	/**
-	 * Sorts the Nodes ascending according to their FromLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksFromTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-		
-		protected LandmarksFromTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-		
-		@Override
-		public int compare(final Node n1, final Node n2) {
-			
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getFromLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getFromLandmarkTravelTime(this.landmarkIndex);
-			
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
-		}
-	}
-	
 }
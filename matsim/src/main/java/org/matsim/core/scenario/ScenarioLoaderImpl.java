@@ -34,10 +34,12 @@ import org.matsim.core.config.ConfigGroup;
 import org.matsim.core.network.NetworkChangeEvent;
 import org.matsim.core.network.NetworkChangeEventsParser;
 import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.BinaryNetworkReader;
 import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.io.PopulationReader;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.MatsimFileTypeGuesser;
@@ -128,17 +130,20 @@ class ScenarioLoaderImpl {
 		if ((this.config.network() != null) && (this.config.network().getInputFile() != null)) {
 			URL networkUrl = this.config.network().getInputFileURL(this.config.getContext());
 			log.info("loading network from " + networkUrl);
-			if ( config.network().getInputCRS() == null ) {
-				MatsimNetworkReader reader = new MatsimNetworkReader(this.scenario.getNetwork());
-				reader.putAttributeConverters( attributeConverters );
-				reader.parse(networkUrl);
-			}
-			else {
+			CoordinateTransformation transformation = new IdentityTransformation();
+			if ( config.network().getInputCRS() != null ) {
 				log.info( "re-projecting network from "+config.network().getInputCRS()+" to "+config.global().getCoordinateSystem()+" for import" );
-				final CoordinateTransformation transformation =
+				transformation =
 						TransformationFactory.getCoordinateTransformation(
 								config.network().getInputCRS(),
 								config.global().getCoordinateSystem() );
+			}
+			if ( BinaryNetworkReader.isBinaryNetworkFile(networkUrl) ) {
+				BinaryNetworkReader reader = new BinaryNetworkReader( transformation , this.scenario.getNetwork());
+				reader.putAttributeConverters( attributeConverters );
+				reader.parse(networkUrl);
+			}
+			else {
 				MatsimNetworkReader reader = new MatsimNetworkReader( transformation , this.scenario.getNetwork());
 				reader.putAttributeConverters( attributeConverters );
 				reader.parse(networkUrl);
@@ -0,0 +1,237 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PrecomputedDataCache.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Cache for data that is expensive to compute from its inputs, such as routing
+ * tables. Entries are identified by a {@link KeyBuilder hash of the inputs}. They
+ * are held in memory with soft references, so all users within one JVM share a
+ * single copy as long as there is enough memory, and can optionally be stored in
+ * a directory, from where later runs read them instead of computing them again.
+ * <br>
+ * Failures to read or write cache files are logged and otherwise ignored; callers
+ * then compute the data again. Thread-safe.
+ *
+ * @param <T> the type of the cached data, which should be immutable
+ */
+public final class PrecomputedDataCache<T> {
+
+	private static final Logger log = Logger.getLogger(PrecomputedDataCache.class);
+
+	public interface Reader<T> {
+		/**
+		 * @throws IOException also if the file content does not match the expected data
+		 */
+		T read(DataInputStream in) throws IOException;
+	}
+
+	public interface Writer<T> {
+		void write(T data, DataOutputStream out) throws IOException;
+	}
+
+	private final String name;
+
+	private final Map<String, SoftReference<T>> memory = new HashMap<>();
+
+	/**
+	 * @param name describes the data in log messages and prefixes the keys, e.g. <code>landmarks</code>
+	 */
+	public PrecomputedDataCache(final String name) {
+		this.name = name;
+	}
+
+	public KeyBuilder createKey() {
+		return new KeyBuilder(this.name);
+	}
+
+	/**
+	 * @return the data held in memory for the key, or <code>null</code>
+	 */
+	public T getFromMemory(final String key) {
+		synchronized (this.memory) {
+			SoftReference<T> ref = this.memory.get(key);
+			return ref == null ? null : ref.get();
+		}
+	}
+
+	/**
+	 * Also drops the entries of data which was garbage collected in the meantime.
+	 */
+	public void putInMemory(final String key, final T data) {
+		synchronized (this.memory) {
+			Iterator<SoftReference<T>> iter = this.memory.values().iterator();
+			while (iter.hasNext()) {
+				if (iter.next().get() == null) {
+					iter.remove();
+				}
+			}
+			this.memory.put(key, new SoftReference<>(data));
+		}
+	}
+
+	public void clearMemory() {
+		synchronized (this.memory) {
+			this.memory.clear();
+		}
+	}
+
+	/**
+	 * @param cacheDirectory may be <code>null</code>, meaning that there is no disk cache
+	 * @return the data read from the cache file of the key, or <code>null</code> if there is none or it cannot be read
+	 */
+	public T read(final String cacheDirectory, final String key, final Reader<T> reader) {
+		if (cacheDirectory == null) {
+			return null;
+		}
+		File file = new File(cacheDirectory, key + ".bin");
+		if (!file.exists()) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			T data = reader.read(in);
+			log.info("read " + this.name + " from " + file);
+			return data;
+		} catch (IOException e) {
+			log.warn("Could not read " + this.name + " cache file " + file + ", the data will be re-calculated.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the data to a temporary file next to the cache file of the key and renames
+	 * it afterwards, so concurrent runs never see a partially written cache file.
+	 *
+	 * @param cacheDirectory may be <code>null</code>, then nothing is written
+	 */
+	public void write(final String cacheDirectory, final String key, final T data, final Writer<T> writer) {
+		if (cacheDirectory == null) {
+			return;
+		}
+		File dir = new File(cacheDirectory);
+		File file = new File(dir, key + ".bin");
+		File tmpFile = new File(file.getPath() + ".tmp" + Thread.currentThread().getId());
+		try {
+			if (!dir.exists() && !dir.mkdirs()) {
+				throw new IOException("Could not create directory " + dir);
+			}
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 16))) {
+				writer.write(data, out);
+			}
+			if (!tmpFile.renameTo(file)) {
+				file.delete();
+				if (!tmpFile.renameTo(file)) {
+					throw new IOException("Could not move " + tmpFile + " to " + file);
+				}
+			}
+		} catch (IOException e) {
+			tmpFile.delete();
+			log.warn("Could not write " + this.name + " cache file " + file + ".", e);
+		}
+	}
+
+	/**
+	 * Builds a cache key from the SHA-1 hash of the values put into it, which are
+	 * hashed in blocks as they are added.
+	 */
+	public static final class KeyBuilder {
+
+		private final String prefix;
+		private final MessageDigest digest;
+		private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+		KeyBuilder(final String prefix) {
+			this.prefix = prefix;
+			try {
+				this.digest = MessageDigest.getInstance("SHA-1");
+			} catch (NoSuchAlgorithmException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		public KeyBuilder putInt(final int value) {
+			ensureRemaining(4);
+			this.buffer.putInt(value);
+			return this;
+		}
+
+		public KeyBuilder putDouble(final double value) {
+			ensureRemaining(8);
+			this.buffer.putDouble(value);
+			return this;
+		}
+
+		/**
+		 * Adds the UTF-8 bytes of the string followed by a zero byte.
+		 */
+		public KeyBuilder putString(final String value) {
+			for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+				ensureRemaining(1);
+				this.buffer.put(b);
+			}
+			ensureRemaining(1);
+			this.buffer.put((byte) 0);
+			return this;
+		}
+
+		/**
+		 * @return the name of the cache, an underscore and the hash in hex digits
+		 */
+		public String build() {
+			flush();
+			StringBuilder key = new StringBuilder(this.prefix).append('_');
+			for (byte b : this.digest.digest()) {
+				key.append(String.format("%02x", b));
+			}
+			return key.toString();
+		}
+
+		private void ensureRemaining(final int bytes) {
+			if (this.buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+
+		private void flush() {
+			this.buffer.flip();
+			this.digest.update(this.buffer);
+			this.buffer.clear();
+		}
+	}
+}
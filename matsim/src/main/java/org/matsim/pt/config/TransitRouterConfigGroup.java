@@ -31,11 +31,19 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 	/*package*/ static final String EXTENSION_RADIUS = "extensionRadius";
 	/*package*/ static final String MAX_BEELINE_WALK_CONNECTION_DISTANCE = "maxBeelineWalkConnectionDistance";
 	/*package*/ static final String ADDITIONAL_TRANSFER_TIME = "additionalTransferTime";
+	/*package*/ static final String ROUTER_TYPE = "routerType";
+	/*package*/ static final String RAPTOR_MAX_TRANSFERS = "raptorMaxTransfers";
+	/*package*/ static final String FOOTPATH_CACHE_DIRECTORY = "footpathCacheDirectory";
+
+	public enum TransitRouterType {Dijkstra, Raptor}
 
 	private double searchRadius = 1000.0;
 	private double extensionRadius = 200.0;
 	private double maxBeelineWalkConnectionDistance = 100.0;
 	private double additionalTransferTime = 0.0;
+	private TransitRouterType routerType = TransitRouterType.Dijkstra;
+	private int raptorMaxTransfers = 10;
+	private String footpathCacheDirectory = null;
 
 	private double directWalkFactor = 1. ;
 
@@ -54,6 +62,12 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 		comments.put(MAX_BEELINE_WALK_CONNECTION_DISTANCE, "maximum beeline distance between stops that agents could transfer to by walking");
 		comments.put(ADDITIONAL_TRANSFER_TIME, "additional time the router allocates when a line switch happens. Can be interpreted as a 'safety' time that agents need to safely transfer from one line to another");
 		comments.put(DIRECT_WALK_FACTOR, DIRECT_WALK_FACTOR_CMT);
+		comments.put(ROUTER_TYPE, "the transit router implementation, may have the values: " + TransitRouterType.Dijkstra + " (searches the "
+				+ "transit router network for the least generalized cost) or " + TransitRouterType.Raptor + " (round-based search on "
+				+ "the schedule, returns the cheapest of the journeys that are optimal in arrival time and number of transfers)");
+		comments.put(RAPTOR_MAX_TRANSFERS, "maximum number of transfers in a journey found by the " + TransitRouterType.Raptor + " router");
+		comments.put(FOOTPATH_CACHE_DIRECTORY, "directory where the precomputed walking connections between stops and from coordinates to "
+				+ "stops are stored and read from in later runs, e.g. the directory of the transit schedule. null to compute them in every run");
 		return comments;
 	}
 
@@ -101,6 +115,39 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 		return this.additionalTransferTime;
 	}
 
+	@StringSetter( ROUTER_TYPE )
+	public void setRouterType(final TransitRouterType routerType) {
+		testForLocked() ;
+		this.routerType = routerType;
+	}
+
+	@StringGetter( ROUTER_TYPE )
+	public TransitRouterType getRouterType() {
+		return this.routerType;
+	}
+
+	@StringSetter( RAPTOR_MAX_TRANSFERS )
+	public void setRaptorMaxTransfers(final int raptorMaxTransfers) {
+		testForLocked() ;
+		this.raptorMaxTransfers = raptorMaxTransfers;
+	}
+
+	@StringGetter( RAPTOR_MAX_TRANSFERS )
+	public int getRaptorMaxTransfers() {
+		return this.raptorMaxTransfers;
+	}
+
+	@StringSetter( FOOTPATH_CACHE_DIRECTORY )
+	public void setFootpathCacheDirectory(final String footpathCacheDirectory) {
+		testForLocked() ;
+		this.footpathCacheDirectory = footpathCacheDirectory;
+	}
+
+	@StringGetter( FOOTPATH_CACHE_DIRECTORY )
+	public String getFootpathCacheDirectory() {
+		return this.footpathCacheDirectory;
+	}
+
 	/**
 	 * {@value #DIRECT_WALK_FACTOR_CMT}
 	 */
@@ -0,0 +1,493 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.facilities.Facility;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Round-based public transport router (RAPTOR, Delling et al. 2012) working on a {@link RaptorTransitSchedule}.
+ * Round <i>k</i> finds the earliest arrival at every stop using at most <i>k</i> transit vehicles, which gives
+ * the journeys that are Pareto-optimal with respect to arrival time and number of transfers. Among those
+ * ending near the destination, the one with the least generalized cost according to the {@link TransitRouterConfig}
+ * is returned, in the same leg structure as {@link TransitRouterImpl}.
+ * <p>
+ * Not thread-safe because it re-uses its per-query arrays; use one instance per thread. The schedule
+ * data can be shared.
+ */
+public class RaptorTransitRouter implements TransitRouter {
+
+	private final RaptorTransitSchedule data;
+	private final TransitRouterConfig config;
+	private final TransitTravelDisutility travelDisutility;
+	private final int maxRounds;
+
+	// per-query state, valid where the stamp equals the current query
+	private int query = 0;
+	private int markRound = 0;
+	private final int[] bestStamp;
+	private final double[] bestArrival;
+	private final double[] egressTimes;
+	private final int[] egressStamp;
+
+	private final int[][] transitStamp;
+	private final double[][] transitArrival;
+	private final int[][] transitRoute;
+	private final int[][] transitBoardPosition;
+	private final int[][] transitAlightPosition;
+	private final double[][] transitTripDeparture;
+	private final boolean[][] transitBoardedAfterWalk;
+
+	private final int[][] walkStamp;
+	private final double[][] walkArrival;
+	private final int[][] walkFrom;
+
+	private final int[] markedStopsStamp;
+	private final int[] markedStops;
+	private int markedStopCount = 0;
+	private final int[] routeEarliestPosition;
+	private final int[] markedRoutes;
+
+	private boolean readyAfterWalk;
+
+	public RaptorTransitRouter(final TransitRouterConfig config, final RaptorTransitSchedule data,
+			final TransitTravelDisutility travelDisutility, final int maxTransfers) {
+		this.config = config;
+		this.data = data;
+		this.travelDisutility = travelDisutility;
+		this.maxRounds = maxTransfers + 1;
+		int n = data.getStopCount();
+		this.bestStamp = new int[n];
+		this.bestArrival = new double[n];
+		this.egressTimes = new double[n];
+		this.egressStamp = new int[n];
+		this.transitStamp = new int[this.maxRounds + 1][n];
+		this.transitArrival = new double[this.maxRounds + 1][n];
+		this.transitRoute = new int[this.maxRounds + 1][n];
+		this.transitBoardPosition = new int[this.maxRounds + 1][n];
+		this.transitAlightPosition = new int[this.maxRounds + 1][n];
+		this.transitTripDeparture = new double[this.maxRounds + 1][n];
+		this.transitBoardedAfterWalk = new boolean[this.maxRounds + 1][n];
+		this.walkStamp = new int[this.maxRounds + 1][n];
+		this.walkArrival = new double[this.maxRounds + 1][n];
+		this.walkFrom = new int[this.maxRounds + 1][n];
+		this.markedStopsStamp = new int[n];
+		this.markedStops = new int[n];
+		this.routeEarliestPosition = new int[data.getRouteCount()];
+		Arrays.fill(this.routeEarliestPosition, -1);
+		this.markedRoutes = new int[data.getRouteCount()];
+	}
+
+	@Override
+	public List<Leg> calcRoute(final Facility<?> fromFacility, final Facility<?> toFacility, final double departureTime, final Person person) {
+		if (this.data.getStopCount() == 0) {
+			return null;
+		}
+		this.query++;
+		this.markRound++;
+		this.markedStopCount = 0;
+		Coord fromCoord = fromFacility.getCoord();
+		Coord toCoord = toFacility.getCoord();
+
+		for (int s : locateNearestStops(fromCoord)) {
+			double arrival = departureTime + this.travelDisutility.getTravelTime(person, fromCoord, this.data.stops[s].getCoord());
+			setTransitLabel(0, s, arrival, -1, -1, -1, Double.NaN, false);
+		}
+		relaxTransfers(0, Double.POSITIVE_INFINITY);
+		Collection<Integer> egressStops = locateNearestStops(toCoord);
+		for (int s : egressStops) {
+			this.egressStamp[s] = this.query;
+			this.egressTimes[s] = this.travelDisutility.getTravelTime(person, this.data.stops[s].getCoord(), toCoord);
+		}
+
+		double bestTargetArrival = Double.POSITIVE_INFINITY;
+		int rounds = 0;
+		for (int k = 1; k <= this.maxRounds && this.markedStopCount > 0; k++) {
+			rounds = k;
+			bestTargetArrival = scanRoutes(k, bestTargetArrival);
+			bestTargetArrival = relaxTransfers(k, bestTargetArrival);
+		}
+
+		// pick the cheapest of the Pareto-optimal journeys; round 0 means walking via a stop close to both ends.
+		// A journey may also end with a footpath from the stop where the last vehicle is left to a stop close to the destination.
+		double bestCost = Double.POSITIVE_INFINITY;
+		int bestRound = -1;
+		int bestStop = -1;
+		int bestWalkStop = -1;
+		for (int k = 0; k <= rounds; k++) {
+			for (int s : egressStops) {
+				if (this.transitStamp[k][s] == this.query) {
+					double cost = calcCost(k, s, -1, fromCoord, toCoord, person);
+					if (cost < bestCost) {
+						bestCost = cost;
+						bestRound = k;
+						bestStop = s;
+						bestWalkStop = -1;
+					}
+				}
+				if (k > 0 && this.walkStamp[k][s] == this.query) {
+					double cost = calcCost(k, this.walkFrom[k][s], s, fromCoord, toCoord, person);
+					if (cost < bestCost) {
+						bestCost = cost;
+						bestRound = k;
+						bestStop = this.walkFrom[k][s];
+						bestWalkStop = s;
+					}
+				}
+			}
+		}
+		if (bestRound < 0) {
+			return null;
+		}
+
+		double directWalkCost = this.travelDisutility.getTravelDisutility(person, fromCoord, toCoord);
+		if (directWalkCost * this.config.getDirectWalkFactor() < bestCost) {
+			return createDirectWalkLegList(person, fromCoord, toCoord);
+		}
+		return createLegList(reconstruct(bestRound, bestStop), bestWalkStop, departureTime, fromCoord, toCoord, person);
+	}
+
+	private Collection<Integer> locateNearestStops(Coord coord) {
+		Collection<Integer> nearestStops = this.data.getNearestStops(coord, this.config.getSearchRadius());
+		if (nearestStops.size() < 2) {
+			// also enlarge search area if only one stop found, maybe a second one is near the border of the search area
+			int nearestStop = this.data.getNearestStop(coord);
+			double distance = CoordUtils.calcEuclideanDistance(coord, this.data.stops[nearestStop].getCoord());
+			nearestStops = this.data.getNearestStops(coord, distance + this.config.getExtensionRadius());
+		}
+		return nearestStops;
+	}
+
+	private double scanRoutes(final int k, double bestTargetArrival) {
+		int routeCount = 0;
+		for (int i = 0; i < this.markedStopCount; i++) {
+			int s = this.markedStops[i];
+			for (int j = this.data.stopRoutesStart[s]; j < this.data.stopRoutesStart[s + 1]; j++) {
+				int r = this.data.stopRouteRoutes[j];
+				int position = this.data.stopRoutePositions[j];
+				if (this.routeEarliestPosition[r] < 0) {
+					this.markedRoutes[routeCount++] = r;
+					this.routeEarliestPosition[r] = position;
+				} else if (position < this.routeEarliestPosition[r]) {
+					this.routeEarliestPosition[r] = position;
+				}
+			}
+		}
+		this.markedStopCount = 0;
+		this.markRound++;
+
+		for (int i = 0; i < routeCount; i++) {
+			int r = this.markedRoutes[i];
+			int first = this.data.routeStopsStart[r];
+			int last = this.data.routeStopsStart[r + 1] - 1;
+			double tripDeparture = Double.NaN;
+			int boardPosition = -1;
+			boolean boardedAfterWalk = false;
+			for (int rs = first + this.routeEarliestPosition[r]; rs <= last; rs++) {
+				int s = this.data.routeStopStops[rs];
+				if (boardPosition >= 0) {
+					double arrival = tripDeparture + this.data.routeStopArrivalOffsets[rs];
+					if (arrival < getBestArrival(s) && arrival < bestTargetArrival) {
+						setTransitLabel(k, s, arrival, r, boardPosition, rs - first, tripDeparture, boardedAfterWalk);
+						if (this.egressStamp[s] == this.query) {
+							bestTargetArrival = Math.min(bestTargetArrival, arrival + this.egressTimes[s]);
+						}
+					}
+				}
+				if (rs < last) {
+					double ready = getReadyTime(k - 1, s);
+					if (ready < Double.POSITIVE_INFINITY && (boardPosition < 0 || ready <= tripDeparture + this.data.routeStopDepartureOffsets[rs])) {
+						double candidate = this.data.getNextTripDepartureTime(r, rs - first, ready);
+						if (boardPosition < 0 || candidate < tripDeparture) {
+							tripDeparture = candidate;
+							boardPosition = rs - first;
+							boardedAfterWalk = this.readyAfterWalk;
+						}
+					}
+				}
+			}
+			this.routeEarliestPosition[r] = -1;
+		}
+		return bestTargetArrival;
+	}
+
+	private double relaxTransfers(final int k, double bestTargetArrival) {
+		int count = this.markedStopCount;
+		for (int i = 0; i < count; i++) {
+			int s = this.markedStops[i];
+			double arrival = this.transitArrival[k][s];
+			for (int j = this.data.transfersStart[s]; j < this.data.transfersStart[s + 1]; j++) {
+				int to = this.data.transferStops[j];
+				double time = arrival + getTransferTime(this.data.transferDistances[j]);
+				if (time < getBestArrival(to) && time < bestTargetArrival) {
+					this.walkStamp[k][to] = this.query;
+					this.walkArrival[k][to] = time;
+					this.walkFrom[k][to] = s;
+					this.bestStamp[to] = this.query;
+					this.bestArrival[to] = time;
+					mark(to);
+					if (this.egressStamp[to] == this.query) {
+						bestTargetArrival = Math.min(bestTargetArrival, time + this.egressTimes[to]);
+					}
+				}
+			}
+		}
+		return bestTargetArrival;
+	}
+
+	private void setTransitLabel(int k, int s, double arrival, int route, int boardPosition, int alightPosition,
+			double tripDeparture, boolean boardedAfterWalk) {
+		this.transitStamp[k][s] = this.query;
+		this.transitArrival[k][s] = arrival;
+		this.transitRoute[k][s] = route;
+		this.transitBoardPosition[k][s] = boardPosition;
+		this.transitAlightPosition[k][s] = alightPosition;
+		this.transitTripDeparture[k][s] = tripDeparture;
+		this.transitBoardedAfterWalk[k][s] = boardedAfterWalk;
+		this.bestStamp[s] = this.query;
+		this.bestArrival[s] = arrival;
+		mark(s);
+	}
+
+	private void mark(int s) {
+		if (this.markedStopsStamp[s] != this.markRound) {
+			this.markedStopsStamp[s] = this.markRound;
+			this.markedStops[this.markedStopCount++] = s;
+		}
+	}
+
+	private double getBestArrival(int s) {
+		return this.bestStamp[s] == this.query ? this.bestArrival[s] : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * @return the earliest time a vehicle can be boarded at the stop with the label of round <code>k</code>; sets
+	 * {@link #readyAfterWalk} to tell where it comes from.
+	 */
+	private double getReadyTime(int k, int s) {
+		double ready = Double.POSITIVE_INFINITY;
+		this.readyAfterWalk = false;
+		if (this.transitStamp[k][s] == this.query) {
+			ready = this.transitArrival[k][s] + (k > 0 ? this.config.getAdditionalTransferTime() : 0.0);
+		}
+		if (this.walkStamp[k][s] == this.query && this.walkArrival[k][s] < ready) {
+			ready = this.walkArrival[k][s];
+			this.readyAfterWalk = true;
+		}
+		return ready;
+	}
+
+	private double getTransferTime(double distance) {
+		return distance / this.config.getBeelineWalkSpeed() + this.config.getAdditionalTransferTime();
+	}
+
+	private List<Segment> reconstruct(int k, int s) {
+		List<Segment> segments = new ArrayList<>(k);
+		while (k > 0) {
+			Segment segment = new Segment();
+			segment.route = this.transitRoute[k][s];
+			segment.boardPosition = this.transitBoardPosition[k][s];
+			segment.alightPosition = this.transitAlightPosition[k][s];
+			segment.tripDeparture = this.transitTripDeparture[k][s];
+			int boardStop = this.data.routeStopStops[this.data.routeStopsStart[segment.route] + segment.boardPosition];
+			boolean afterWalk = this.transitBoardedAfterWalk[k][s];
+			k--;
+			if (afterWalk) {
+				segment.ready = this.walkArrival[k][boardStop];
+				s = this.walkFrom[k][boardStop];
+			} else {
+				segment.ready = this.transitArrival[k][boardStop] + (k > 0 ? this.config.getAdditionalTransferTime() : 0.0);
+				s = boardStop;
+			}
+			segment.fromStop = s;
+			segments.add(0, segment);
+		}
+		return segments;
+	}
+
+	/**
+	 * @param walkStop the stop walked to after leaving the last vehicle at <code>s</code>, or -1 if the passenger
+	 * walks to the destination from <code>s</code>
+	 */
+	private double calcCost(int k, int s, int walkStop, Coord fromCoord, Coord toCoord, Person person) {
+		if (k == 0) {
+			Coord stopCoord = this.data.stops[s].getCoord();
+			return this.travelDisutility.getTravelDisutility(person, fromCoord, stopCoord)
+					+ this.travelDisutility.getTravelDisutility(person, stopCoord, toCoord);
+		}
+		List<Segment> segments = reconstruct(k, s);
+		TransitStopFacility previousStop = null;
+		double cost = 0.0;
+		for (Segment segment : segments) {
+			int first = this.data.routeStopsStart[segment.route];
+			int board = first + segment.boardPosition;
+			int alight = first + segment.alightPosition;
+			TransitStopFacility boardStop = this.data.stops[this.data.routeStopStops[board]];
+			if (previousStop == null) {
+				TransitStopFacility accessStop = this.data.stops[segment.fromStop];
+				cost += this.travelDisutility.getTravelDisutility(person, fromCoord, accessStop.getCoord());
+				if (accessStop != boardStop) {
+					cost += calcTransferCost(accessStop, boardStop, false);
+				}
+			} else {
+				cost += calcTransferCost(previousStop, boardStop, true);
+			}
+			double vehicleDeparture = segment.tripDeparture + this.data.routeStopDepartureOffsets[board];
+			double waitTime = Math.max(0.0, vehicleDeparture - segment.ready);
+			double inVehicleTime = segment.tripDeparture + this.data.routeStopArrivalOffsets[alight] - segment.ready - waitTime;
+			double distance = 0.0;
+			for (int rs = board + 1; rs <= alight; rs++) {
+				distance += this.data.routeStopDistances[rs];
+			}
+			cost += - inVehicleTime * this.config.getMarginalUtilityOfTravelTimePt_utl_s()
+					- waitTime * this.config.getMarginalUtilityOfWaitingPt_utl_s()
+					- distance * this.config.getMarginalUtilityOfTravelDistancePt_utl_m();
+			previousStop = this.data.stops[this.data.routeStopStops[alight]];
+		}
+		if (walkStop >= 0) {
+			TransitStopFacility egressStop = this.data.stops[walkStop];
+			cost += calcTransferCost(previousStop, egressStop, false);
+			previousStop = egressStop;
+		}
+		cost += this.travelDisutility.getTravelDisutility(person, previousStop.getCoord(), toCoord);
+		return cost;
+	}
+
+	/**
+	 * Same as TransitRouterNetworkTravelTimeAndDisutility.defaultTransferCost. The utility of a line switch is only
+	 * added for walks between two vehicles, not for those from the access stop or to the egress stop.
+	 */
+	private double calcTransferCost(TransitStopFacility fromStop, TransitStopFacility toStop, boolean lineSwitch) {
+		double distance = CoordUtils.calcEuclideanDistance(fromStop.getCoord(), toStop.getCoord());
+		double cost = - distance / this.config.getBeelineWalkSpeed() * this.config.getMarginalUtilityOfTravelTimeWalk_utl_s()
+				- distance * this.config.getMarginalUtilityOfTravelDistanceWalk_utl_m()
+				- this.config.getAdditionalTransferTime() * this.config.getMarginalUtilityOfWaitingPt_utl_s();
+		if (lineSwitch) {
+			cost -= this.config.getUtilityOfLineSwitch_utl();
+		}
+		return cost;
+	}
+
+	private List<Leg> createDirectWalkLegList(Person person, Coord fromCoord, Coord toCoord) {
+		List<Leg> legs = new ArrayList<>();
+		Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+		double walkTime = this.travelDisutility.getTravelTime(person, fromCoord, toCoord);
+		leg.setTravelTime(walkTime);
+		Route walkRoute = new GenericRouteImpl(null, null);
+		walkRoute.setTravelTime(walkTime);
+		leg.setRoute(walkRoute);
+		legs.add(leg);
+		return legs;
+	}
+
+	private List<Leg> createLegList(List<Segment> segments, int walkStop, double departureTime, Coord fromCoord, Coord toCoord, Person person) {
+		List<Leg> legs = new ArrayList<>();
+		if (segments.isEmpty()) {
+			// it seems, the agent only walked
+			Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+			leg.setTravelTime(this.travelDisutility.getTravelTime(person, fromCoord, toCoord));
+			legs.add(leg);
+			return legs;
+		}
+		double time = departureTime;
+		TransitStopFacility previousStop = null;
+		for (Segment segment : segments) {
+			int first = this.data.routeStopsStart[segment.route];
+			TransitStopFacility accessStop = this.data.stops[this.data.routeStopStops[first + segment.boardPosition]];
+			TransitStopFacility egressStop = this.data.stops[this.data.routeStopStops[first + segment.alightPosition]];
+			if (previousStop == null) {
+				// walk to the access stop; the passenger may walk on from there to the boarding stop
+				previousStop = this.data.stops[segment.fromStop];
+				Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+				double walkTime = this.travelDisutility.getTravelTime(person, fromCoord, previousStop.getCoord());
+				Route walkRoute = new GenericRouteImpl(null, previousStop.getLinkId());
+				walkRoute.setTravelTime(walkTime);
+				walkRoute.setDistance(this.config.getBeelineDistanceFactor() * NetworkUtils.getEuclideanDistance(fromCoord, previousStop.getCoord()));
+				leg.setRoute(walkRoute);
+				leg.setTravelTime(walkTime);
+				time += walkTime;
+				legs.add(leg);
+			}
+			if (previousStop != accessStop) {
+				Leg leg = createTransferLeg(previousStop, accessStop);
+				time += leg.getTravelTime();
+				legs.add(leg);
+			}
+			Leg leg = PopulationUtils.createLeg(TransportMode.pt);
+			ExperimentalTransitRoute ptRoute = new ExperimentalTransitRoute(accessStop, this.data.routeLines[segment.route],
+					this.data.routes[segment.route], egressStop);
+			double arrivalTime = segment.tripDeparture + this.data.routeStopArrivalOffsets[first + segment.alightPosition];
+			ptRoute.setTravelTime(arrivalTime - time);
+			ptRoute.setDistance(this.config.getBeelineDistanceFactor() * NetworkUtils.getEuclideanDistance(accessStop.getCoord(), egressStop.getCoord()));
+			leg.setRoute(ptRoute);
+			leg.setTravelTime(arrivalTime - time);
+			time = arrivalTime;
+			legs.add(leg);
+			previousStop = egressStop;
+		}
+		if (walkStop >= 0) {
+			legs.add(createTransferLeg(previousStop, this.data.stops[walkStop]));
+			previousStop = this.data.stops[walkStop];
+		}
+		Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+		leg.setTravelTime(this.travelDisutility.getTravelTime(person, previousStop.getCoord(), toCoord));
+		legs.add(leg);
+		return legs;
+	}
+
+	private Leg createTransferLeg(TransitStopFacility fromStop, TransitStopFacility toStop) {
+		Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+		double transferTime = getTransferTime(CoordUtils.calcEuclideanDistance(fromStop.getCoord(), toStop.getCoord()));
+		Route walkRoute = new GenericRouteImpl(fromStop.getLinkId(), toStop.getLinkId());
+		walkRoute.setTravelTime(transferTime);
+		walkRoute.setDistance(this.config.getBeelineDistanceFactor() * NetworkUtils.getEuclideanDistance(fromStop.getCoord(), toStop.getCoord()));
+		leg.setRoute(walkRoute);
+		leg.setTravelTime(transferTime);
+		return leg;
+	}
+
+	private static class Segment {
+		int route;
+		int boardPosition;
+		int alightPosition;
+		double tripDeparture;
+		/** the stop the passenger comes from: where the previous segment was left, or for the first one the access stop */
+		int fromStop;
+		/** the time the passenger is ready to board at the boarding stop */
+		double ready;
+	}
+}
@@ -0,0 +1,81 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouterFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.router;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.matsim.core.config.Config;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+
+/**
+ * Creates {@link RaptorTransitRouter}s sharing one {@link RaptorTransitSchedule}, which is built once.
+ */
+@Singleton
+public class RaptorTransitRouterFactory implements Provider<TransitRouter> {
+
+	private final TransitRouterConfig config;
+	private final RaptorTransitSchedule data;
+	private final PreparedTransitSchedule preparedTransitSchedule;
+	private final int maxTransfers;
+
+	@Inject
+	RaptorTransitRouterFactory(final TransitSchedule schedule, final Config config) {
+		this(schedule, new TransitRouterConfig(
+				config.planCalcScore(),
+				config.plansCalcRoute(),
+				config.transitRouter(),
+				config.vspExperimental()),
+				config.transitRouter().getRaptorMaxTransfers(),
+				config.transitRouter().getFootpathCacheDirectory(),
+				config.global().getNumberOfThreads());
+	}
+
+	private RaptorTransitRouterFactory(final TransitSchedule schedule, final TransitRouterConfig config, final int maxTransfers,
+			final String footpathCacheDirectory, final int numberOfThreads) {
+		this(schedule, config, maxTransfers, TransitStopFootpaths.create(schedule, config.getBeelineWalkConnectionDistance(),
+				config.getSearchRadius(), footpathCacheDirectory, numberOfThreads));
+	}
+
+	public RaptorTransitRouterFactory(final TransitSchedule schedule, final TransitRouterConfig config, final int maxTransfers) {
+		this.config = config;
+		this.maxTransfers = maxTransfers;
+		this.data = new RaptorTransitSchedule(schedule, this.config.getBeelineWalkConnectionDistance());
+		this.preparedTransitSchedule = new PreparedTransitSchedule(schedule);
+	}
+
+	public RaptorTransitRouterFactory(final TransitSchedule schedule, final TransitRouterConfig config, final int maxTransfers,
+			final TransitStopFootpaths footpaths) {
+		this.config = config;
+		this.maxTransfers = maxTransfers;
+		this.data = new RaptorTransitSchedule(schedule, this.config.getBeelineWalkConnectionDistance(), footpaths);
+		this.preparedTransitSchedule = new PreparedTransitSchedule(schedule);
+	}
+
+	@Override
+	public TransitRouter get() {
+		TransitRouterNetworkTravelTimeAndDisutility ttCalculator = new TransitRouterNetworkTravelTimeAndDisutility(this.config, this.preparedTransitSchedule);
+		return new RaptorTransitRouter(this.config, this.data, ttCalculator, this.maxTransfers);
+	}
+
+}
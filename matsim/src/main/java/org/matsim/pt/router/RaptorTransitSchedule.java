@@ -0,0 +1,254 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitSchedule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Array-packed, read-only view of a {@link TransitSchedule} for the {@link RaptorTransitRouter}.
+ * Stops and transit routes are numbered consecutively; all per-route and per-stop lists are stored
+ * in flat arrays indexed by offset tables (<code>xxxStart[i]</code> to <code>xxxStart[i+1]</code>).
+ * <p>
+ * All departures of a {@link TransitRoute} share the route's stop offsets, so a trip is completely
+ * described by its departure time at the first stop.
+ * <p>
+ * Thread-safe once constructed. Like {@link TransitRouterNetwork}, it does not follow later changes
+ * of the schedule; create a new instance instead.
+ */
+public final class RaptorTransitSchedule {
+
+	private final static Logger log = Logger.getLogger(RaptorTransitSchedule.class);
+
+	final TransitStopFacility[] stops;
+	private final Map<TransitStopFacility, Integer> stopIndices = new HashMap<>();
+	private final TransitStopFootpaths footpaths;
+
+	final TransitLine[] routeLines;
+	final TransitRoute[] routes;
+
+	/** per route, the offset into the route stop arrays */
+	final int[] routeStopsStart;
+	final int[] routeStopStops;
+	final double[] routeStopArrivalOffsets;
+	final double[] routeStopDepartureOffsets;
+	/** beeline distance from the previous stop of the route */
+	final double[] routeStopDistances;
+
+	/** per route, the offset into the sorted departure times at the first stop */
+	final int[] routeDeparturesStart;
+	final double[] departureTimes;
+
+	/** per stop, the routes serving it and the position of the stop within each route */
+	final int[] stopRoutesStart;
+	final int[] stopRouteRoutes;
+	final int[] stopRoutePositions;
+
+	/** per stop, the other stops within walking distance */
+	final int[] transfersStart;
+	final int[] transferStops;
+	final double[] transferDistances;
+
+	public RaptorTransitSchedule(final TransitSchedule schedule, final double maxBeelineWalkConnectionDistance) {
+		this(schedule, maxBeelineWalkConnectionDistance, TransitStopFootpaths.create(schedule, maxBeelineWalkConnectionDistance, 0.0, null, 1));
+	}
+
+	/**
+	 * Uses the stop numbering, transfers and nearest-stop lookups of precomputed footpaths.
+	 *
+	 * @param footpaths footpaths of the schedule with a maximal transfer distance of at least
+	 * <code>maxBeelineWalkConnectionDistance</code>
+	 */
+	public RaptorTransitSchedule(final TransitSchedule schedule, final double maxBeelineWalkConnectionDistance,
+			final TransitStopFootpaths footpaths) {
+		if (footpaths.maxTransferDistance < maxBeelineWalkConnectionDistance) {
+			throw new IllegalArgumentException("footpaths only contain transfers up to " + footpaths.maxTransferDistance
+					+ ", but " + maxBeelineWalkConnectionDistance + " are required.");
+		}
+		this.footpaths = footpaths;
+		List<TransitLine> lines = new ArrayList<>();
+		List<TransitRoute> usableRoutes = new ArrayList<>();
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				if (route.getStops().size() < 2 || route.getDepartures().isEmpty()) {
+					continue;
+				}
+				lines.add(line);
+				usableRoutes.add(route);
+			}
+		}
+		this.stops = new TransitStopFacility[footpaths.getStopCount()];
+		for (int s = 0; s < this.stops.length; s++) {
+			this.stops[s] = footpaths.getStop(s);
+			this.stopIndices.put(this.stops[s], s);
+		}
+		this.routeLines = lines.toArray(new TransitLine[lines.size()]);
+		this.routes = usableRoutes.toArray(new TransitRoute[usableRoutes.size()]);
+
+		int routeStopCount = 0;
+		int departureCount = 0;
+		for (TransitRoute route : this.routes) {
+			routeStopCount += route.getStops().size();
+			departureCount += route.getDepartures().size();
+		}
+		this.routeStopsStart = new int[this.routes.length + 1];
+		this.routeStopStops = new int[routeStopCount];
+		this.routeStopArrivalOffsets = new double[routeStopCount];
+		this.routeStopDepartureOffsets = new double[routeStopCount];
+		this.routeStopDistances = new double[routeStopCount];
+		this.routeDeparturesStart = new int[this.routes.length + 1];
+		this.departureTimes = new double[departureCount];
+		int[] stopRouteCounts = new int[this.stops.length];
+
+		int rs = 0;
+		int d = 0;
+		for (int r = 0; r < this.routes.length; r++) {
+			this.routeStopsStart[r] = rs;
+			Coord prevCoord = null;
+			for (TransitRouteStop stop : this.routes[r].getStops()) {
+				int s = this.stopIndices.get(stop.getStopFacility());
+				this.routeStopStops[rs] = s;
+				this.routeStopDepartureOffsets[rs] = stop.getDepartureOffset();
+				this.routeStopArrivalOffsets[rs] = (stop.getArrivalOffset() != Time.UNDEFINED_TIME) ? stop.getArrivalOffset() : stop.getDepartureOffset();
+				Coord coord = stop.getStopFacility().getCoord();
+				this.routeStopDistances[rs] = prevCoord == null ? 0.0 : CoordUtils.calcEuclideanDistance(prevCoord, coord);
+				prevCoord = coord;
+				stopRouteCounts[s]++;
+				rs++;
+			}
+			this.routeDeparturesStart[r] = d;
+			for (Departure departure : this.routes[r].getDepartures().values()) {
+				this.departureTimes[d++] = departure.getDepartureTime();
+			}
+			Arrays.sort(this.departureTimes, this.routeDeparturesStart[r], d);
+		}
+		this.routeStopsStart[this.routes.length] = rs;
+		this.routeDeparturesStart[this.routes.length] = d;
+
+		this.stopRoutesStart = new int[this.stops.length + 1];
+		for (int s = 0; s < this.stops.length; s++) {
+			this.stopRoutesStart[s + 1] = this.stopRoutesStart[s] + stopRouteCounts[s];
+		}
+		this.stopRouteRoutes = new int[routeStopCount];
+		this.stopRoutePositions = new int[routeStopCount];
+		int[] fill = Arrays.copyOf(this.stopRoutesStart, this.stops.length);
+		for (int r = 0; r < this.routes.length; r++) {
+			for (int i = this.routeStopsStart[r]; i < this.routeStopsStart[r + 1]; i++) {
+				int s = this.routeStopStops[i];
+				this.stopRouteRoutes[fill[s]] = r;
+				this.stopRoutePositions[fill[s]] = i - this.routeStopsStart[r];
+				fill[s]++;
+			}
+		}
+
+		int transferCount = 0;
+		for (int i = 0; i < footpaths.transferDistances.length; i++) {
+			if (footpaths.transferDistances[i] <= maxBeelineWalkConnectionDistance) {
+				transferCount++;
+			}
+		}
+		this.transfersStart = new int[this.stops.length + 1];
+		this.transferStops = new int[transferCount];
+		this.transferDistances = new double[transferCount];
+		int t = 0;
+		for (int s = 0; s < this.stops.length; s++) {
+			this.transfersStart[s] = t;
+			for (int i = footpaths.transfersStart[s]; i < footpaths.transfersStart[s + 1]; i++) {
+				if (footpaths.transferDistances[i] <= maxBeelineWalkConnectionDistance) {
+					this.transferStops[t] = footpaths.transferStops[i];
+					this.transferDistances[t] = footpaths.transferDistances[i];
+					t++;
+				}
+			}
+		}
+		this.transfersStart[this.stops.length] = t;
+
+		log.info("raptor transit schedule: " + this.stops.length + " stops, " + this.routes.length + " routes, "
+				+ departureCount + " departures, " + this.transferStops.length + " transfers.");
+	}
+
+	int getStopCount() {
+		return this.stops.length;
+	}
+
+	int getRouteCount() {
+		return this.routes.length;
+	}
+
+	Integer getStopIndex(TransitStopFacility stop) {
+		return this.stopIndices.get(stop);
+	}
+
+	Collection<Integer> getNearestStops(Coord coord, double distance) {
+		return this.footpaths.getNearestStops(coord, distance);
+	}
+
+	int getNearestStop(Coord coord) {
+		return this.footpaths.getNearestStop(coord);
+	}
+
+	/**
+	 * Same semantics as {@link PreparedTransitSchedule#getNextDepartureTime(TransitRoute, TransitRouteStop, double)}:
+	 * the next departure at the stop at the given position of the route, wrapping around midnight.
+	 *
+	 * @return the departure time of that trip at its first stop, in the same day as the returned departure
+	 */
+	double getNextTripDepartureTime(final int route, final int position, final double time) {
+		double departureOffset = this.routeStopDepartureOffsets[this.routeStopsStart[route] + position];
+		double earliestDepartureTimeAtTerminus = time - departureOffset;
+		if (earliestDepartureTimeAtTerminus >= TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT) {
+			earliestDepartureTimeAtTerminus = earliestDepartureTimeAtTerminus % TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		if (earliestDepartureTimeAtTerminus < 0) {
+			earliestDepartureTimeAtTerminus += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		int from = this.routeDeparturesStart[route];
+		int to = this.routeDeparturesStart[route + 1];
+		int pos = Arrays.binarySearch(this.departureTimes, from, to, earliestDepartureTimeAtTerminus);
+		if (pos < 0) {
+			pos = -(pos + 1);
+		}
+		if (pos >= to) {
+			pos = from; // there is no later departure time, take the first in the morning
+		}
+		double departureTime = this.departureTimes[pos] + departureOffset;
+		while (departureTime < time) {
+			departureTime += TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		return departureTime - departureOffset;
+	}
+}
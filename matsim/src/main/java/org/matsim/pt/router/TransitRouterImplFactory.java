@@ -43,7 +43,15 @@ public class TransitRouterImplFactory implements Provider<TransitRouter> {
 				config.planCalcScore(),
 				config.plansCalcRoute(),
 				config.transitRouter(),
-				config.vspExperimental()));
+				config.vspExperimental()),
+				config.transitRouter().getFootpathCacheDirectory(),
+				config.global().getNumberOfThreads());
+	}
+
+	private TransitRouterImplFactory(final TransitSchedule schedule, final TransitRouterConfig config, final String footpathCacheDirectory,
+			final int numberOfThreads) {
+		this(schedule, config, TransitStopFootpaths.create(schedule, config.getBeelineWalkConnectionDistance(), config.getSearchRadius(),
+				footpathCacheDirectory, numberOfThreads));
 	}
 
 	public TransitRouterImplFactory(final TransitSchedule schedule, final TransitRouterConfig config) {
@@ -52,6 +60,12 @@ public class TransitRouterImplFactory implements Provider<TransitRouter> {
 		this.preparedTransitSchedule = new PreparedTransitSchedule(schedule);
 	}
 
+	public TransitRouterImplFactory(final TransitSchedule schedule, final TransitRouterConfig config, final TransitStopFootpaths footpaths) {
+		this.config = config;
+		this.routerNetwork = TransitRouterNetwork.createFromSchedule(schedule, this.config.getBeelineWalkConnectionDistance(), footpaths);
+		this.preparedTransitSchedule = new PreparedTransitSchedule(schedule);
+	}
+
 	@Override
 	public TransitRouter get() {
 		TransitRouterNetworkTravelTimeAndDisutility ttCalculator = new TransitRouterNetworkTravelTimeAndDisutility(this.config, this.preparedTransitSchedule);
@@ -23,6 +23,7 @@
 package org.matsim.pt.router;
 
 import org.matsim.core.controler.AbstractModule;
+import org.matsim.pt.config.TransitRouterConfigGroup;
 
 import javax.inject.Provider;
 
@@ -30,7 +31,9 @@ public class TransitRouterModule extends AbstractModule {
 
     @Override
     public void install() {
-        if (getConfig().transit().isUseTransit()) {
+        if (getConfig().transit().isUseTransit() && getConfig().transitRouter().getRouterType() == TransitRouterConfigGroup.TransitRouterType.Raptor) {
+            bind(TransitRouter.class).toProvider(RaptorTransitRouterFactory.class);
+        } else if (getConfig().transit().isUseTransit()) {
             bind(TransitRouter.class).toProvider(TransitRouterImplFactory.class);
         }
     }
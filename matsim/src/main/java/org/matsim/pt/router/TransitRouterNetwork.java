@@ -20,6 +20,7 @@
 
 package org.matsim.pt.router;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -61,6 +62,9 @@ public final class TransitRouterNetwork implements Network {
 	private final Map<Id<Link>, TransitRouterNetworkLink> links = new LinkedHashMap<Id<Link>, TransitRouterNetworkLink>();
 	private final Map<Id<Node>, TransitRouterNetworkNode> nodes = new LinkedHashMap<Id<Node>, TransitRouterNetworkNode>();
 	private QuadTree<TransitRouterNetworkNode> qtNodes = null;
+	private TransitStopFootpaths footpaths = null;
+	/** the nodes of each stop of {@link #footpaths}, by stop index */
+	private final List<List<TransitRouterNetworkNode>> stopNodes = new ArrayList<List<TransitRouterNetworkNode>>();
 
 	private long nextNodeId = 0;
 	private long nextLinkId = 0;
@@ -361,6 +365,13 @@ public final class TransitRouterNetwork implements Network {
 	}
 
 	public Collection<TransitRouterNetworkNode> getNearestNodes(final Coord coord, final double distance) {
+		if (this.footpaths != null) {
+			List<TransitRouterNetworkNode> nearestNodes = new ArrayList<TransitRouterNetworkNode>();
+			for (int s : this.footpaths.getNearestStops(coord, distance)) {
+				nearestNodes.addAll(this.stopNodes.get(s));
+			}
+			return nearestNodes;
+		}
 		return this.qtNodes.getDisk(coord.getX(), coord.getY(), distance);
 	}
 
@@ -404,8 +415,29 @@ public final class TransitRouterNetwork implements Network {
 	}
 
 	public static TransitRouterNetwork createFromSchedule(final TransitSchedule schedule, final double maxBeelineWalkConnectionDistance) {
+		return createFromSchedule(schedule, maxBeelineWalkConnectionDistance,
+				TransitStopFootpaths.create(schedule, maxBeelineWalkConnectionDistance, 0.0, null, 1));
+	}
+
+	/**
+	 * Creates the network with the transfer links taken from precomputed footpaths, which are also used
+	 * to find the nodes near a coordinate.
+	 *
+	 * @param footpaths footpaths of the schedule with a maximal transfer distance of at least
+	 * <code>maxBeelineWalkConnectionDistance</code>
+	 */
+	public static TransitRouterNetwork createFromSchedule(final TransitSchedule schedule, final double maxBeelineWalkConnectionDistance,
+			final TransitStopFootpaths footpaths) {
+		if (footpaths.maxTransferDistance < maxBeelineWalkConnectionDistance) {
+			throw new IllegalArgumentException("footpaths only contain transfers up to " + footpaths.maxTransferDistance
+					+ ", but " + maxBeelineWalkConnectionDistance + " are required.");
+		}
 		log.info("start creating transit network");
 		final TransitRouterNetwork network = new TransitRouterNetwork();
+		network.footpaths = footpaths;
+		for (int s = 0; s < footpaths.getStopCount(); s++) {
+			network.stopNodes.add(new ArrayList<TransitRouterNetworkNode>(2));
+		}
 		final Counter linkCounter = new Counter(" link #");
 		final Counter nodeCounter = new Counter(" node #");
 		// build nodes and links connecting the nodes according to the transit routes
@@ -414,6 +446,7 @@ public final class TransitRouterNetwork implements Network {
 				TransitRouterNetworkNode prevNode = null;
 				for (TransitRouteStop stop : route.getStops()) {
 					TransitRouterNetworkNode node = network.createNode(stop, route, line);
+					network.stopNodes.get(footpaths.getStopIndex(stop.getStopFacility())).add(node);
 					nodeCounter.incCounter();
 					if (prevNode != null) {
 						network.createLink(prevNode, node, route, line);
@@ -436,14 +469,24 @@ public final class TransitRouterNetwork implements Network {
 		// connect all stops with walking links if they're located less than beelineWalkConnectionDistance from each other
 		for (TransitRouterNetworkNode node : network.getNodes().values()) {
 			if (node.getInLinks().size() > 0) { // only add links from this node to other nodes if agents actually can arrive here
-				for (TransitRouterNetworkNode node2 : network.getNearestNodes(node.stop.getStopFacility().getCoord(), maxBeelineWalkConnectionDistance)) {
+				int stopIndex = footpaths.getStopIndex(node.stop.getStopFacility());
+				for (TransitRouterNetworkNode node2 : network.stopNodes.get(stopIndex)) {
 					if ((node != node2) && (node2.getOutLinks().size() > 0)) { // only add links to other nodes when agents can depart there
-						if ((node.line != node2.line) || (node.stop.getStopFacility() != node2.stop.getStopFacility())) {
+						if (node.line != node2.line) { // other stops are connected by the footpaths below
 							// do not yet add them to the network, as this would change in/out-links
 							toBeAdded.add(new Tuple<TransitRouterNetworkNode, TransitRouterNetworkNode>(node, node2));
 						}
 					}
 				}
+				for (int i = footpaths.transfersStart[stopIndex]; i < footpaths.transfersStart[stopIndex + 1]; i++) {
+					if (footpaths.transferDistances[i] <= maxBeelineWalkConnectionDistance) {
+						for (TransitRouterNetworkNode node2 : network.stopNodes.get(footpaths.transferStops[i])) {
+							if (node2.getOutLinks().size() > 0) { // only add links to other nodes when agents can depart there
+								toBeAdded.add(new Tuple<TransitRouterNetworkNode, TransitRouterNetworkNode>(node, node2));
+							}
+						}
+					}
+				}
 			}
 		}
 		log.info(toBeAdded.size() + " transfer links to be added.");
@@ -0,0 +1,488 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TransitStopFootpaths.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.router;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.io.PrecomputedDataCache;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Precomputed walking connections of the stops served by a {@link TransitSchedule}:
+ * <ul>
+ * <li>for every stop, all other stops within the maximal transfer (beeline) distance, and</li>
+ * <li>for every cell of a regular grid, all stops that may be within the access radius of a
+ * coordinate in that cell, so that the stops near a start or end coordinate are found without
+ * searching a quad tree.</li>
+ * </ul>
+ * Stops are numbered in the order they first appear in the transit routes of the schedule.
+ * Lists are stored in flat arrays indexed by offset tables.
+ * <p>
+ * Instances are immutable and shared: {@link #create} returns the same instance for the same stops
+ * and distances within one JVM as long as it is referenced, and optionally stores it in a cache
+ * directory, from where later runs read it instead of computing it again.
+ */
+public final class TransitStopFootpaths {
+
+	private final static Logger log = Logger.getLogger(TransitStopFootpaths.class);
+
+	private static final int MAGIC = 0x4d465450;
+	private static final int VERSION = 1;
+	private static final int MAX_GRID_CELLS = 1 << 24;
+
+	private static final PrecomputedDataCache<TransitStopFootpaths> cache = new PrecomputedDataCache<>("footpaths");
+
+	private final TransitStopFacility[] stops;
+	private final Map<TransitStopFacility, Integer> stopIndices = new HashMap<>();
+	private final QuadTree<Integer> stopsQuadTree;
+
+	final double maxTransferDistance;
+	final int[] transfersStart;
+	final int[] transferStops;
+	final double[] transferDistances;
+
+	final double accessRadius;
+	private final double gridMinX;
+	private final double gridMinY;
+	private final double cellSize;
+	private final int columns;
+	private final int rows;
+	private final int[] cellsStart;
+	private final int[] cellStops;
+
+	private TransitStopFootpaths(final TransitStopFacility[] stops, final double maxTransferDistance, final double accessRadius,
+			final int[] transfersStart, final int[] transferStops, final double[] transferDistances,
+			final double gridMinX, final double gridMinY, final double cellSize, final int columns, final int rows,
+			final int[] cellsStart, final int[] cellStops) {
+		this.stops = stops;
+		for (int s = 0; s < stops.length; s++) {
+			this.stopIndices.put(stops[s], s);
+		}
+		this.stopsQuadTree = createQuadTree(stops);
+		this.maxTransferDistance = maxTransferDistance;
+		this.transfersStart = transfersStart;
+		this.transferStops = transferStops;
+		this.transferDistances = transferDistances;
+		this.accessRadius = accessRadius;
+		this.gridMinX = gridMinX;
+		this.gridMinY = gridMinY;
+		this.cellSize = cellSize;
+		this.columns = columns;
+		this.rows = rows;
+		this.cellsStart = cellsStart;
+		this.cellStops = cellStops;
+	}
+
+	/**
+	 * @param maxTransferDistance the maximal beeline distance of transfers between stops
+	 * @param accessRadius the radius for which the access grid is built, usually the search radius of the
+	 * transit router; 0 to build no grid
+	 * @param cacheDirectory where the index is stored and read from by later runs; may be <code>null</code>
+	 * @param numberOfThreads the parallelism used to compute the index
+	 */
+	public static TransitStopFootpaths create(final TransitSchedule schedule, final double maxTransferDistance,
+			final double accessRadius, final String cacheDirectory, final int numberOfThreads) {
+		final TransitStopFacility[] stops = collectServedStops(schedule);
+		String key = createCacheKey(stops, maxTransferDistance, accessRadius);
+		TransitStopFootpaths cached = cache.getFromMemory(key);
+		if (cached != null) {
+			return Arrays.equals(cached.stops, stops) ? cached : cached.withStops(stops);
+		}
+		TransitStopFootpaths footpaths = cache.read(cacheDirectory, key, new PrecomputedDataCache.Reader<TransitStopFootpaths>() {
+			@Override
+			public TransitStopFootpaths read(DataInputStream in) throws IOException {
+				return TransitStopFootpaths.read(in, stops, maxTransferDistance, accessRadius);
+			}
+		});
+		if (footpaths == null) {
+			footpaths = compute(stops, maxTransferDistance, accessRadius, numberOfThreads);
+			cache.write(cacheDirectory, key, footpaths, new PrecomputedDataCache.Writer<TransitStopFootpaths>() {
+				@Override
+				public void write(TransitStopFootpaths data, DataOutputStream out) throws IOException {
+					data.write(out);
+				}
+			});
+		}
+		cache.putInMemory(key, footpaths);
+		return footpaths;
+	}
+
+	/**
+	 * @return footpaths sharing the precomputed lists, but referring to other facility objects with the same ids and
+	 * coordinates, e.g. those of a schedule that was read again
+	 */
+	private TransitStopFootpaths withStops(final TransitStopFacility[] otherStops) {
+		return new TransitStopFootpaths(otherStops, this.maxTransferDistance, this.accessRadius, this.transfersStart, this.transferStops,
+				this.transferDistances, this.gridMinX, this.gridMinY, this.cellSize, this.columns, this.rows, this.cellsStart, this.cellStops);
+	}
+
+	/** drops the footpaths held in memory, so the next {@link #create} reads or computes them again */
+	/*package*/ static void clearMemoryCache() {
+		cache.clearMemory();
+	}
+
+	public int getStopCount() {
+		return this.stops.length;
+	}
+
+	public TransitStopFacility getStop(final int index) {
+		return this.stops[index];
+	}
+
+	/**
+	 * @return the index of the stop, or -1 if the stop is not served by any transit route
+	 */
+	public int getStopIndex(final TransitStopFacility stop) {
+		Integer index = this.stopIndices.get(stop);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return the indices of all stops within <code>distance</code> of the coordinate. Uses the access grid
+	 * if <code>distance</code> is not larger than the radius the grid was built for.
+	 */
+	public List<Integer> getNearestStops(final Coord coord, final double distance) {
+		if (this.cellsStart == null || distance > this.accessRadius) {
+			return new ArrayList<>(this.stopsQuadTree.getDisk(coord.getX(), coord.getY(), distance));
+		}
+		List<Integer> nearestStops = new ArrayList<>();
+		int column = (int) Math.floor((coord.getX() - this.gridMinX) / this.cellSize);
+		int row = (int) Math.floor((coord.getY() - this.gridMinY) / this.cellSize);
+		if (column < 0 || row < 0 || column >= this.columns || row >= this.rows) {
+			// the grid covers all coordinates within the access radius of any stop
+			return nearestStops;
+		}
+		int cell = row * this.columns + column;
+		for (int i = this.cellsStart[cell]; i < this.cellsStart[cell + 1]; i++) {
+			int s = this.cellStops[i];
+			if (CoordUtils.calcEuclideanDistance(coord, this.stops[s].getCoord()) <= distance) {
+				nearestStops.add(s);
+			}
+		}
+		return nearestStops;
+	}
+
+	/**
+	 * @return the index of the stop closest to the coordinate
+	 */
+	public int getNearestStop(final Coord coord) {
+		return this.stopsQuadTree.getClosest(coord.getX(), coord.getY());
+	}
+
+	private static TransitStopFacility[] collectServedStops(final TransitSchedule schedule) {
+		Map<TransitStopFacility, Integer> seen = new HashMap<>();
+		List<TransitStopFacility> stops = new ArrayList<>();
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				for (TransitRouteStop stop : route.getStops()) {
+					if (!seen.containsKey(stop.getStopFacility())) {
+						seen.put(stop.getStopFacility(), stops.size());
+						stops.add(stop.getStopFacility());
+					}
+				}
+			}
+		}
+		return stops.toArray(new TransitStopFacility[stops.size()]);
+	}
+
+	private static QuadTree<Integer> createQuadTree(final TransitStopFacility[] stops) {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (TransitStopFacility stop : stops) {
+			Coord c = stop.getCoord();
+			minX = Math.min(minX, c.getX());
+			minY = Math.min(minY, c.getY());
+			maxX = Math.max(maxX, c.getX());
+			maxY = Math.max(maxY, c.getY());
+		}
+		if (stops.length == 0) {
+			minX = minY = maxX = maxY = 0.0;
+		}
+		QuadTree<Integer> quadTree = new QuadTree<>(minX, minY, maxX, maxY);
+		for (int s = 0; s < stops.length; s++) {
+			Coord c = stops[s].getCoord();
+			quadTree.put(c.getX(), c.getY(), s);
+		}
+		return quadTree;
+	}
+
+	/**
+	 * Searches the transfers of every stop and the stops of every grid cell in parallel; every
+	 * task writes only its own range of the result lists, which are packed afterwards.
+	 */
+	private static TransitStopFootpaths compute(final TransitStopFacility[] stops, final double maxTransferDistance,
+			final double accessRadius, final int numberOfThreads) {
+		long start = System.currentTimeMillis();
+		final QuadTree<Integer> quadTree = createQuadTree(stops);
+
+		final int[][] transfers = new int[stops.length][];
+		final double[][] distances = new double[stops.length][];
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (TransitStopFacility stop : stops) {
+			minX = Math.min(minX, stop.getCoord().getX());
+			minY = Math.min(minY, stop.getCoord().getY());
+			maxX = Math.max(maxX, stop.getCoord().getX());
+			maxY = Math.max(maxY, stop.getCoord().getY());
+		}
+		int columns = 0;
+		int rows = 0;
+		double cellSize = accessRadius;
+		final double gridMinX = minX - accessRadius;
+		final double gridMinY = minY - accessRadius;
+		if (accessRadius > 0 && stops.length > 0) {
+			while (true) {
+				columns = (int) ((maxX + accessRadius - gridMinX) / cellSize) + 1;
+				rows = (int) ((maxY + accessRadius - gridMinY) / cellSize) + 1;
+				if ((long) columns * rows <= MAX_GRID_CELLS) {
+					break;
+				}
+				cellSize *= 2;
+			}
+		}
+		final int[][] cells = new int[columns * rows][];
+
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, numberOfThreads));
+		try {
+			pool.invoke(new FootpathsTask(stops, quadTree, maxTransferDistance, transfers, distances,
+					gridMinX, gridMinY, cellSize, columns, accessRadius, cells, 0, Math.max(stops.length, cells.length)));
+		} finally {
+			pool.shutdown();
+		}
+
+		int[] transfersStart = new int[stops.length + 1];
+		for (int s = 0; s < stops.length; s++) {
+			transfersStart[s + 1] = transfersStart[s] + transfers[s].length;
+		}
+		int[] transferStops = new int[transfersStart[stops.length]];
+		double[] transferDistances = new double[transferStops.length];
+		for (int s = 0; s < stops.length; s++) {
+			System.arraycopy(transfers[s], 0, transferStops, transfersStart[s], transfers[s].length);
+			System.arraycopy(distances[s], 0, transferDistances, transfersStart[s], distances[s].length);
+		}
+		int[] cellsStart = null;
+		int[] cellStops = null;
+		if (cells.length > 0) {
+			cellsStart = new int[cells.length + 1];
+			for (int c = 0; c < cells.length; c++) {
+				cellsStart[c + 1] = cellsStart[c] + cells[c].length;
+			}
+			cellStops = new int[cellsStart[cells.length]];
+			for (int c = 0; c < cells.length; c++) {
+				System.arraycopy(cells[c], 0, cellStops, cellsStart[c], cells[c].length);
+			}
+		}
+		log.info("computed footpaths of " + stops.length + " stops: " + transferStops.length + " transfers, " + cells.length
+				+ " access grid cells, took " + (System.currentTimeMillis() - start) + " ms.");
+		return new TransitStopFootpaths(stops, maxTransferDistance, accessRadius, transfersStart, transferStops, transferDistances,
+				gridMinX, gridMinY, cellSize, columns, rows, cellsStart, cellStops);
+	}
+
+	private static final class FootpathsTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private static final int THRESHOLD = 256;
+
+		private final TransitStopFacility[] stops;
+		private final QuadTree<Integer> quadTree;
+		private final double maxTransferDistance;
+		private final int[][] transfers;
+		private final double[][] distances;
+		private final double gridMinX;
+		private final double gridMinY;
+		private final double cellSize;
+		private final int columns;
+		private final double accessRadius;
+		private final int[][] cells;
+		private final int from;
+		private final int to;
+
+		FootpathsTask(final TransitStopFacility[] stops, final QuadTree<Integer> quadTree, final double maxTransferDistance,
+				final int[][] transfers, final double[][] distances, final double gridMinX, final double gridMinY,
+				final double cellSize, final int columns, final double accessRadius, final int[][] cells, final int from, final int to) {
+			this.stops = stops;
+			this.quadTree = quadTree;
+			this.maxTransferDistance = maxTransferDistance;
+			this.transfers = transfers;
+			this.distances = distances;
+			this.gridMinX = gridMinX;
+			this.gridMinY = gridMinY;
+			this.cellSize = cellSize;
+			this.columns = columns;
+			this.accessRadius = accessRadius;
+			this.cells = cells;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from > THRESHOLD) {
+				int mid = (this.from + this.to) >>> 1;
+				invokeAll(split(this.from, mid), split(mid, this.to));
+				return;
+			}
+			for (int i = this.from; i < this.to; i++) {
+				if (i < this.stops.length) {
+					computeTransfers(i);
+				}
+				if (i < this.cells.length) {
+					computeCell(i);
+				}
+			}
+		}
+
+		private FootpathsTask split(final int from, final int to) {
+			return new FootpathsTask(this.stops, this.quadTree, this.maxTransferDistance, this.transfers, this.distances,
+					this.gridMinX, this.gridMinY, this.cellSize, this.columns, this.accessRadius, this.cells, from, to);
+		}
+
+		private void computeTransfers(final int s) {
+			Coord coord = this.stops[s].getCoord();
+			List<Integer> others = new ArrayList<>(this.quadTree.getDisk(coord.getX(), coord.getY(), this.maxTransferDistance));
+			others.remove(Integer.valueOf(s));
+			int[] stopIndices = new int[others.size()];
+			double[] stopDistances = new double[others.size()];
+			for (int i = 0; i < stopIndices.length; i++) {
+				stopIndices[i] = others.get(i);
+				stopDistances[i] = CoordUtils.calcEuclideanDistance(coord, this.stops[stopIndices[i]].getCoord());
+			}
+			this.transfers[s] = stopIndices;
+			this.distances[s] = stopDistances;
+		}
+
+		private void computeCell(final int cell) {
+			double centerX = this.gridMinX + (cell % this.columns + 0.5) * this.cellSize;
+			double centerY = this.gridMinY + (cell / this.columns + 0.5) * this.cellSize;
+			// every point of the cell is at most half a diagonal away from its center; add a meter against rounding
+			double radius = this.accessRadius + this.cellSize * Math.sqrt(0.5) + 1.0;
+			int[] cellStops = new int[0];
+			int n = 0;
+			for (Integer s : this.quadTree.getDisk(centerX, centerY, radius)) {
+				if (n == cellStops.length) {
+					cellStops = Arrays.copyOf(cellStops, Math.max(4, 2 * n));
+				}
+				cellStops[n++] = s;
+			}
+			cellStops = Arrays.copyOf(cellStops, n);
+			Arrays.sort(cellStops);
+			this.cells[cell] = cellStops;
+		}
+	}
+
+	private static String createCacheKey(final TransitStopFacility[] stops, final double maxTransferDistance, final double accessRadius) {
+		PrecomputedDataCache.KeyBuilder key = cache.createKey();
+		key.putInt(stops.length).putDouble(maxTransferDistance).putDouble(accessRadius);
+		for (TransitStopFacility stop : stops) {
+			key.putString(stop.getId().toString()).putDouble(stop.getCoord().getX()).putDouble(stop.getCoord().getY());
+		}
+		return key.build();
+	}
+
+	private static TransitStopFootpaths read(final DataInputStream in, final TransitStopFacility[] stops, final double maxTransferDistance,
+			final double accessRadius) throws IOException {
+		if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+			throw new IOException("Not a footpath cache file.");
+		}
+		if (in.readInt() != stops.length || in.readDouble() != maxTransferDistance || in.readDouble() != accessRadius) {
+			throw new IOException("Footpath cache file does not match the schedule.");
+		}
+		int[] transfersStart = readInts(in, stops.length + 1);
+		int[] transferStops = readInts(in, transfersStart[stops.length]);
+		double[] transferDistances = new double[transferStops.length];
+		for (int i = 0; i < transferDistances.length; i++) {
+			transferDistances[i] = in.readDouble();
+		}
+		double gridMinX = in.readDouble();
+		double gridMinY = in.readDouble();
+		double cellSize = in.readDouble();
+		int columns = in.readInt();
+		int rows = in.readInt();
+		int[] cellsStart = null;
+		int[] cellStops = null;
+		if (columns * rows > 0) {
+			cellsStart = readInts(in, columns * rows + 1);
+			cellStops = readInts(in, cellsStart[columns * rows]);
+		}
+		return new TransitStopFootpaths(stops, maxTransferDistance, accessRadius, transfersStart, transferStops, transferDistances,
+				gridMinX, gridMinY, cellSize, columns, rows, cellsStart, cellStops);
+	}
+
+	private static int[] readInts(final DataInputStream in, final int length) throws IOException {
+		int[] values = new int[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = in.readInt();
+		}
+		return values;
+	}
+
+	private void write(final DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(this.stops.length);
+		out.writeDouble(this.maxTransferDistance);
+		out.writeDouble(this.accessRadius);
+		for (int v : this.transfersStart) {
+			out.writeInt(v);
+		}
+		for (int v : this.transferStops) {
+			out.writeInt(v);
+		}
+		for (double v : this.transferDistances) {
+			out.writeDouble(v);
+		}
+		out.writeDouble(this.gridMinX);
+		out.writeDouble(this.gridMinY);
+		out.writeDouble(this.cellSize);
+		out.writeInt(this.columns);
+		out.writeInt(this.rows);
+		if (this.cellsStart != null) {
+			for (int v : this.cellsStart) {
+				out.writeInt(v);
+			}
+			for (int v : this.cellStops) {
+				out.writeInt(v);
+			}
+		}
+	}
+}
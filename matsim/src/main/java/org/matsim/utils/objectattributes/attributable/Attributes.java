@@ -15,8 +15,12 @@ public final class Attributes {
 	// This makes insertion costly, but query can be kept efficient even when the number of mappings
 	// increases, using binary search. This should be fine, as the typical usage is to set once and
 	// access often. Replacing a value is also efficient.
-	String[] keys = new String[0];
-	Object[] values = new Object[0];
+	// Empty instances share the same empty arrays, insertion always creates new ones.
+	private static final String[] EMPTY_KEYS = new String[0];
+	private static final Object[] EMPTY_VALUES = new Object[0];
+
+	String[] keys = EMPTY_KEYS;
+	Object[] values = EMPTY_VALUES;
 
 	@Override
 	public String toString() {
@@ -82,8 +86,8 @@ public final class Attributes {
 	}
 
 	public void clear() {
-		keys = new String[ 0 ];
-		values = new Object[ 0 ];
+		keys = EMPTY_KEYS;
+		values = EMPTY_VALUES;
 	}
 
 	int size() {
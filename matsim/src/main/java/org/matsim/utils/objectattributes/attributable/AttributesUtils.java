@@ -2,6 +2,7 @@ package org.matsim.utils.objectattributes.attributable;
 
 import org.matsim.utils.objectattributes.AttributeConverter;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -18,6 +19,21 @@ public class AttributesUtils {
 		}
 	}
 
+	/**
+	 * @return the mappings of the given attributes, sorted by name. Changes to the returned map do not affect the attributes.
+	 */
+	public static Map<String, Object> toMap( Attributes attributes ) {
+		Map<String, Object> map = new LinkedHashMap<>();
+		for ( int i=0; i < attributes.keys.length; i++ ) {
+			map.put( attributes.keys[ i ] , attributes.values[ i ] );
+		}
+		return map;
+	}
+
+	public static boolean isEmpty( Attributes attributes ) {
+		return attributes.size() == 0;
+	}
+
 	/**
 	 * Adds the mappings from "from" to "to". Nothing is done to copy the Object themselves,
 	 * which should be fine for 99.9% of the usecases of Attributes (value objects)
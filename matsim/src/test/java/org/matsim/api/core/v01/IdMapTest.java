@@ -0,0 +1,133 @@
+package org.matsim.api.core.v01;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IdMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		Id<TLink> id1 = Id.create("1", TLink.class);
+		Id<TLink> id2 = Id.create("2", TLink.class);
+		Id<TLink> id3 = Id.create("3", TLink.class);
+
+		IdMap<TLink, String> map = new IdMap<>(TLink.class, 1);
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.put(id2, "two"));
+		Assert.assertNull(map.put(id1, "one"));
+		Assert.assertEquals("two", map.put(id2, "zwei"));
+		Assert.assertEquals(2, map.size());
+
+		Assert.assertEquals("one", map.get(id1));
+		Assert.assertEquals("zwei", map.get(id2));
+		Assert.assertEquals("zwei", map.get(id2.index()));
+		Assert.assertNull(map.get(id3));
+		Assert.assertNull(map.get("1"));
+		Assert.assertTrue(map.containsKey(id1));
+		Assert.assertFalse(map.containsKey(id3));
+
+		Assert.assertEquals("one", map.remove(id1));
+		Assert.assertNull(map.remove(id1));
+		Assert.assertEquals(1, map.size());
+		Assert.assertFalse(map.containsKey(id1));
+	}
+
+	@Test
+	public void testIdsOfOtherTypes() {
+		Id<TNode> nodeId = Id.create("a", TNode.class);
+		Id<TNode> nodeIdB = Id.create("b", TNode.class);
+		Id<TLink> linkIdB = Id.create("b", TLink.class);
+
+		IdMap<TLink, String> map = new IdMap<>(TLink.class);
+		map.put(linkIdB, "link");
+		// Ids are equal if their textual representation is equal, like in a HashMap
+		Assert.assertEquals("link", map.get(nodeIdB));
+		Assert.assertNull(map.get(nodeId));
+	}
+
+	@Test
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public void testPutRejectsIdsOfOtherTypes() {
+		Id<TNode> nodeId = Id.create("c", TNode.class);
+
+		IdMap map = new IdMap<>(TLink.class);
+		try {
+			map.put(nodeId, "node");
+			Assert.fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(Id.find("c", TLink.class));
+
+		IdSet set = new IdSet<>(TLink.class);
+		try {
+			set.add(nodeId);
+			Assert.fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		Assert.assertTrue(set.isEmpty());
+	}
+
+	@Test
+	public void testIteration() {
+		Id<TPerson> id1 = Id.create("1", TPerson.class);
+		Id<TPerson> id2 = Id.create("2", TPerson.class);
+		Id<TPerson> id3 = Id.create("3", TPerson.class);
+
+		IdMap<TPerson, Integer> map = new IdMap<>(TPerson.class);
+		map.put(id3, 3);
+		map.put(id1, 1);
+		map.put(id2, 2);
+
+		Iterator<Map.Entry<Id<TPerson>, Integer>> iter = map.entrySet().iterator();
+		Map.Entry<Id<TPerson>, Integer> e = iter.next();
+		Assert.assertSame(id1, e.getKey());
+		Assert.assertEquals(1, e.getValue().intValue());
+		iter.remove();
+		Assert.assertSame(id2, iter.next().getKey());
+		Assert.assertSame(id3, iter.next().getKey());
+		Assert.assertFalse(iter.hasNext());
+
+		Assert.assertEquals(2, map.size());
+		Assert.assertFalse(map.containsKey(id1));
+		int sum = 0;
+		for (Integer value : map.values()) {
+			sum += value;
+		}
+		Assert.assertEquals(5, sum);
+	}
+
+	@Test
+	public void testIdSet() {
+		Id<TPerson> id1 = Id.create("1", TPerson.class);
+		Id<TPerson> id2 = Id.create("2", TPerson.class);
+
+		IdSet<TPerson> set = new IdSet<>(TPerson.class);
+		Assert.assertTrue(set.add(id2));
+		Assert.assertFalse(set.add(id2));
+		Assert.assertTrue(set.contains(id2));
+		Assert.assertTrue(set.contains(id2.index()));
+		Assert.assertFalse(set.contains(id1));
+		Assert.assertTrue(set.add(id1));
+		Assert.assertEquals(2, set.size());
+
+		Iterator<Id<TPerson>> iter = set.iterator();
+		Assert.assertSame(id1, iter.next());
+		Assert.assertSame(id2, iter.next());
+		Assert.assertFalse(iter.hasNext());
+
+		Assert.assertTrue(set.remove(id1));
+		Assert.assertFalse(set.remove(id1));
+		Assert.assertEquals(1, set.size());
+	}
+
+	private static class TLink {}
+	private static class TNode {}
+	private static class TPerson {}
+
+}
@@ -63,6 +63,19 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_CustomEventHandler_notSynchronizing() {
+		EventsManager manager = new EventsManagerImpl(false);
+		CountingMyEventHandler handler1 = new CountingMyEventHandler();
+		CountingMyEventHandler handler2 = new CountingMyEventHandler();
+		manager.addHandler(handler1);
+		manager.addHandler(handler2);
+		manager.processEvent(new MyEvent(123.45));
+		manager.processEvent(new MyEvent(123.46));
+		Assert.assertEquals("EventHandler was not called.", 2, handler1.counter);
+		Assert.assertEquals("EventHandler was not called.", 2, handler2.counter);
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -0,0 +1,153 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinaryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+public class EventWriterBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteRead() {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		writer.handleEvent(new PersonDepartureEvent(3600.0, Id.create("1", Person.class), Id.create("l1", Link.class), "car"));
+		writer.handleEvent(new LinkLeaveEvent(3600.5, Id.create("vehicle>3", Vehicle.class), Id.create("link<2", Link.class)));
+		GenericEvent generic = new GenericEvent("TEST", 3601.0);
+		generic.getAttributes().put("dummy", null);
+		generic.getAttributes().put("value", "1.5");
+		writer.handleEvent(generic);
+		writer.closeFile();
+		Assert.assertTrue(new File(filename).exists());
+		Assert.assertTrue(EventsReaderBinary.isBinaryEventsFile(filename));
+
+		EventsManager manager = EventsUtils.createEventsManager();
+		List<Event> events = readEvents(new MatsimEventsReader(manager), manager, filename);
+		Assert.assertEquals(3, events.size());
+
+		PersonDepartureEvent e1 = (PersonDepartureEvent) events.get(0);
+		Assert.assertEquals(3600.0, e1.getTime(), 0.0);
+		Assert.assertEquals("1", e1.getPersonId().toString());
+		Assert.assertEquals("l1", e1.getLinkId().toString());
+		Assert.assertEquals("car", e1.getLegMode());
+
+		LinkLeaveEvent e2 = (LinkLeaveEvent) events.get(1);
+		Assert.assertEquals(3600.5, e2.getTime(), 0.0);
+		Assert.assertEquals("vehicle>3", e2.getVehicleId().toString());
+		Assert.assertEquals("link<2", e2.getLinkId().toString());
+
+		GenericEvent e3 = (GenericEvent) events.get(2);
+		Assert.assertEquals("TEST", e3.getEventType());
+		Assert.assertEquals(3601.0, e3.getTime(), 0.0);
+		Assert.assertEquals("1.5", e3.getAttributes().get("value"));
+		Assert.assertTrue(e3.getAttributes().containsKey("dummy"));
+		Assert.assertNull(e3.getAttributes().get("dummy"));
+	}
+
+	@Test
+	public void testTimeWindowAndEventTypes() {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		// small time bins and blocks, so that there is actually something to skip
+		EventWriterBinary writer = new EventWriterBinary(filename, 60.0, 7);
+		for (int i = 0; i < 1000; i++) {
+			double time = i * 10.0;
+			Id<Vehicle> vehicleId = Id.create(i % 13, Vehicle.class);
+			Id<Link> linkId = Id.create(i % 17, Link.class);
+			writer.handleEvent(new LinkEnterEvent(time, vehicleId, linkId));
+			writer.handleEvent(new LinkLeaveEvent(time + 5.0, vehicleId, linkId));
+		}
+		writer.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		List<Event> all = readEvents(new EventsReaderBinary(events), events, filename);
+		Assert.assertEquals(2000, all.size());
+		for (int i = 0; i < all.size(); i++) {
+			Assert.assertEquals(i * 5.0, all.get(i).getTime(), 0.0);
+		}
+
+		events = EventsUtils.createEventsManager();
+		EventsReaderBinary reader = new EventsReaderBinary(events);
+		reader.setTimeWindow(1000.0, 1995.0);
+		List<Event> window = readEvents(reader, events, filename);
+		Assert.assertEquals(200, window.size());
+		Assert.assertEquals(1000.0, window.get(0).getTime(), 0.0);
+		Assert.assertEquals(1995.0, window.get(199).getTime(), 0.0);
+
+		events = EventsUtils.createEventsManager();
+		reader = new EventsReaderBinary(events);
+		reader.setTimeWindow(1000.0, 1995.0);
+		reader.setEventTypes(Collections.singleton(LinkLeaveEvent.EVENT_TYPE));
+		List<Event> leaves = readEvents(reader, events, filename);
+		Assert.assertEquals(100, leaves.size());
+		for (Event e : leaves) {
+			Assert.assertTrue(e instanceof LinkLeaveEvent);
+		}
+		LinkLeaveEvent first = (LinkLeaveEvent) leaves.get(0);
+		Assert.assertEquals(1005.0, first.getTime(), 0.0);
+		Assert.assertEquals(Id.create(100 % 13, Vehicle.class), first.getVehicleId());
+		Assert.assertEquals(Id.create(100 % 17, Link.class), first.getLinkId());
+
+		events = EventsUtils.createEventsManager();
+		reader = new EventsReaderBinary(events);
+		reader.setEventTypes(Collections.singleton("unknownType"));
+		Assert.assertEquals(0, readEvents(reader, events, filename).size());
+	}
+
+	@Test
+	public void testXmlIsNotBinary() {
+		String filename = this.utils.getOutputDirectory() + "testEvents.xml";
+		EventWriterXML writer = new EventWriterXML(filename);
+		writer.handleEvent(new LinkLeaveEvent(3600.0, Id.create("1", Vehicle.class), Id.create("2", Link.class)));
+		writer.closeFile();
+		Assert.assertFalse(EventsReaderBinary.isBinaryEventsFile(filename));
+		Assert.assertFalse(EventsReaderBinary.isBinaryEventsFile(this.utils.getOutputDirectory() + "doesNotExist.bin"));
+	}
+
+	private static List<Event> readEvents(final MatsimReader reader, final EventsManager events, final String filename) {
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		reader.readFile(filename);
+		return collector.getEvents();
+	}
+}
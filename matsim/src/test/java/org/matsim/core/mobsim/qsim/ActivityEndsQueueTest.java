@@ -0,0 +1,141 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ActivityEndsQueueTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+public class ActivityEndsQueueTest {
+
+	@Test
+	public void testPollOrder() {
+		ActivityEndsQueue queue = new ActivityEndsQueue(2);
+		DummyMobsimAgent a = new DummyMobsimAgent("a");
+		DummyMobsimAgent b = new DummyMobsimAgent("b");
+		DummyMobsimAgent c = new DummyMobsimAgent("c");
+		DummyMobsimAgent d = new DummyMobsimAgent("d");
+		queue.add(a, 300.0);
+		queue.add(b, 100.0);
+		queue.add(c, 200.0);
+		queue.add(d, 100.0);
+		Assert.assertEquals(4, queue.size());
+
+		// same end time -> the agent with the larger id comes first
+		Assert.assertSame(d, queue.peek().agent);
+		Assert.assertSame(d, queue.poll().agent);
+		Assert.assertSame(b, queue.poll().agent);
+		Assert.assertSame(c, queue.poll().agent);
+		Assert.assertSame(a, queue.poll().agent);
+		Assert.assertNull(queue.peek());
+		Assert.assertNull(queue.poll());
+	}
+
+	@Test
+	public void testRemoveAndReschedule() {
+		ActivityEndsQueue queue = new ActivityEndsQueue(10);
+		DummyMobsimAgent a = new DummyMobsimAgent("a");
+		DummyMobsimAgent b = new DummyMobsimAgent("b");
+		DummyMobsimAgent c = new DummyMobsimAgent("c");
+		queue.add(a, 100.0);
+		queue.add(b, 200.0);
+		queue.add(c, 300.0);
+
+		ActivityEndsQueue.Entry removed = queue.remove(a);
+		Assert.assertSame(a, removed.agent);
+		Assert.assertEquals(100.0, removed.activityEndTime, 0.0);
+		Assert.assertNull(queue.remove(a));
+		Assert.assertEquals(2, queue.size());
+
+		queue.add(c, 50.0); // replaces the old entry of c
+		Assert.assertEquals(2, queue.size());
+		Assert.assertSame(c, queue.poll().agent);
+		Assert.assertSame(b, queue.poll().agent);
+		Assert.assertNull(queue.poll());
+
+		queue.add(a, 10.0);
+		queue.clear();
+		Assert.assertEquals(0, queue.size());
+		Assert.assertNull(queue.remove(a));
+		Assert.assertFalse(queue.iterator().hasNext());
+	}
+
+	/**
+	 * Reschedules random agents and compares the order in which they leave the queue
+	 * with the one of a {@link PriorityQueue}.
+	 */
+	@Test
+	public void testSameOrderAsPriorityQueue() {
+		final int n = 500;
+		Random random = new Random(4711);
+		ActivityEndsQueue queue = new ActivityEndsQueue(10);
+		PriorityQueue<ActivityEndsQueue.Entry> reference = new PriorityQueue<>(10, new Comparator<ActivityEndsQueue.Entry>() {
+			@Override
+			public int compare(ActivityEndsQueue.Entry e1, ActivityEndsQueue.Entry e2) {
+				int cmp = Double.compare(e1.activityEndTime, e2.activityEndTime);
+				return cmp != 0 ? cmp : e2.agent.getId().compareTo(e1.agent.getId());
+			}
+		});
+		List<DummyMobsimAgent> agents = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			DummyMobsimAgent agent = new DummyMobsimAgent(Integer.toString(i));
+			agents.add(agent);
+			double time = random.nextInt(100);
+			queue.add(agent, time);
+			reference.add(new ActivityEndsQueue.Entry(agent, time));
+		}
+		for (int i = 0; i < n; i++) {
+			DummyMobsimAgent agent = agents.get(random.nextInt(n));
+			double time = random.nextInt(100);
+			queue.add(agent, time);
+			Iterator<ActivityEndsQueue.Entry> iterator = reference.iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().agent == agent) {
+					iterator.remove();
+				}
+			}
+			reference.add(new ActivityEndsQueue.Entry(agent, time));
+		}
+
+		Set<MobsimAgent> queued = Collections.newSetFromMap(new IdentityHashMap<MobsimAgent, Boolean>());
+		for (ActivityEndsQueue.Entry entry : queue) {
+			queued.add(entry.agent);
+		}
+		Assert.assertEquals(n, queued.size());
+
+		while (!reference.isEmpty()) {
+			Assert.assertSame(reference.poll().agent, queue.poll().agent);
+		}
+		Assert.assertEquals(0, queue.size());
+	}
+
+}
@@ -0,0 +1,106 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DummyMobsimAgent.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.facilities.Facility;
+
+/**
+ * Agent that only has an id, for tests of the queues of the mobsim engines.
+ */
+/*package*/ class DummyMobsimAgent implements MobsimAgent {
+
+	private final Id<Person> id;
+
+	DummyMobsimAgent(String id) {
+		this.id = Id.create(id, Person.class);
+	}
+
+	@Override
+	public Id<Person> getId() {
+		return this.id;
+	}
+
+	@Override
+	public Id<Link> getCurrentLinkId() {
+		return null;
+	}
+
+	@Override
+	public Id<Link> getDestinationLinkId() {
+		return null;
+	}
+
+	@Override
+	public String getMode() {
+		return null;
+	}
+
+	@Override
+	public State getState() {
+		return State.ACTIVITY;
+	}
+
+	@Override
+	public double getActivityEndTime() {
+		return 0;
+	}
+
+	@Override
+	public void endActivityAndComputeNextState(double now) {
+	}
+
+	@Override
+	public void endLegAndComputeNextState(double now) {
+	}
+
+	@Override
+	public void setStateToAbort(double now) {
+	}
+
+	@Override
+	public Double getExpectedTravelTime() {
+		return null;
+	}
+
+	@Override
+	public Double getExpectedTravelDistance() {
+		return null;
+	}
+
+	@Override
+	public void notifyArrivalOnLinkByNonNetworkMode(Id<Link> linkId) {
+	}
+
+	@Override
+	public Facility<? extends Facility<?>> getCurrentFacility() {
+		return null;
+	}
+
+	@Override
+	public Facility<? extends Facility<?>> getDestinationFacility() {
+		return null;
+	}
+}
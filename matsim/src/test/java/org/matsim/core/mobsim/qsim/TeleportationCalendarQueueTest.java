@@ -0,0 +1,172 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TeleportationCalendarQueueTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+public class TeleportationCalendarQueueTest {
+
+	@Test
+	public void testArrivalsAreDueInTheirSecond() {
+		TeleportationCalendarQueue queue = new TeleportationCalendarQueue();
+		DummyMobsimAgent a = new DummyMobsimAgent("a");
+		DummyMobsimAgent b = new DummyMobsimAgent("b");
+		DummyMobsimAgent c = new DummyMobsimAgent("c");
+		DummyMobsimAgent d = new DummyMobsimAgent("d");
+		queue.add(a, 100.5);
+		queue.add(b, 100.0);
+		queue.add(c, 100.0 + 3 * 3600); // later than the ring of buckets
+		queue.add(d, 100.0);
+
+		Assert.assertNull(queue.pollDue(99.0));
+		// same arrival time -> the agent with the larger id comes first
+		Assert.assertSame(d, queue.pollDue(100.0));
+		Assert.assertSame(b, queue.pollDue(100.0));
+		Assert.assertNull(queue.pollDue(100.0));
+		Assert.assertSame(a, queue.pollDue(101.0));
+		Assert.assertNull(queue.pollDue(101.0));
+		Assert.assertEquals(1, queue.size());
+
+		// arrivals in the past are due in the next time step
+		queue.add(b, 50.0);
+		Assert.assertSame(b, queue.pollDue(102.0));
+
+		for (double time = 103; time < 100.0 + 3 * 3600; time++) {
+			Assert.assertNull(queue.pollDue(time));
+		}
+		Assert.assertSame(c, queue.pollDue(100.0 + 3 * 3600));
+		Assert.assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testGetAgents() {
+		TeleportationCalendarQueue queue = new TeleportationCalendarQueue();
+		DummyMobsimAgent a = new DummyMobsimAgent("a");
+		DummyMobsimAgent b = new DummyMobsimAgent("b");
+		DummyMobsimAgent c = new DummyMobsimAgent("c");
+		queue.add(a, 20000.0);
+		queue.add(b, Double.POSITIVE_INFINITY);
+		queue.add(c, 10.0);
+
+		List<MobsimAgent> agents = queue.getAgents();
+		Assert.assertEquals(3, agents.size());
+		Assert.assertSame(c, agents.get(0));
+		Assert.assertSame(a, agents.get(1));
+		Assert.assertSame(b, agents.get(2));
+
+		queue.clear();
+		Assert.assertEquals(0, queue.size());
+		Assert.assertTrue(queue.getAgents().isEmpty());
+	}
+
+	@Test
+	public void testSameOrderAsPriorityQueueWithFullSeconds() {
+		runRandomSimulation(1.0);
+	}
+
+	@Test
+	public void testSameOrderAsPriorityQueueWithSubSecondSteps() {
+		runRandomSimulation(0.25);
+	}
+
+	@Test
+	public void testSameOrderAsPriorityQueueWithLargeSteps() {
+		runRandomSimulation(7.0);
+	}
+
+	/**
+	 * Adds random arrivals in every time step, some of them when the due agents of the
+	 * time step are processed, and compares the agents leaving the queue with the ones
+	 * leaving a {@link PriorityQueue}.
+	 */
+	private static void runRandomSimulation(double stepSize) {
+		Random random = new Random(4711);
+		TeleportationCalendarQueue queue = new TeleportationCalendarQueue();
+		PriorityQueue<Arrival> reference = new PriorityQueue<>(10, new Comparator<Arrival>() {
+			@Override
+			public int compare(Arrival o1, Arrival o2) {
+				int ret = Double.compare(o1.time, o2.time);
+				return ret != 0 ? ret : o2.agent.getId().compareTo(o1.agent.getId());
+			}
+		});
+		List<DummyMobsimAgent> idle = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			idle.add(new DummyMobsimAgent(Integer.toString(i)));
+		}
+
+		for (double now = 6 * 3600; now < 20 * 3600; now += stepSize) {
+			while (!idle.isEmpty() && random.nextDouble() < 0.3) {
+				DummyMobsimAgent agent = idle.remove(idle.size() - 1);
+				double arrivalTime = now + randomTravelTime(random);
+				queue.add(agent, arrivalTime);
+				reference.add(new Arrival(agent, arrivalTime));
+			}
+			while (!reference.isEmpty() && reference.peek().time <= now) {
+				Arrival expected = reference.poll();
+				MobsimAgent agent = queue.pollDue(now);
+				Assert.assertSame(expected.agent, agent);
+				if (random.nextDouble() < 0.2) {
+					// next teleported leg directly after a zero duration activity
+					double arrivalTime = now + (random.nextBoolean() ? 0.0 : randomTravelTime(random));
+					queue.add(agent, arrivalTime);
+					reference.add(new Arrival(agent, arrivalTime));
+				} else {
+					idle.add((DummyMobsimAgent) agent);
+				}
+			}
+			Assert.assertNull(queue.pollDue(now));
+			Assert.assertEquals(reference.size(), queue.size());
+		}
+	}
+
+	private static double randomTravelTime(Random random) {
+		switch (random.nextInt(4)) {
+		case 0:
+			return random.nextInt(60); // full seconds
+		case 1:
+			return random.nextDouble() * 3600;
+		case 2:
+			return 3 * 3600 + random.nextDouble() * 3600; // later than the ring of buckets
+		default:
+			return random.nextDouble() * 2;
+		}
+	}
+
+	private static class Arrival {
+		final MobsimAgent agent;
+		final double time;
+
+		Arrival(MobsimAgent agent, double time) {
+			this.agent = agent;
+			this.time = time;
+		}
+	}
+
+}
@@ -0,0 +1,166 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkWakeUpScheduleTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.NetworkPartitioning;
+import org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.qsim.ActivityEngine;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.TeleportationEngine;
+import org.matsim.core.mobsim.qsim.agents.AgentFactory;
+import org.matsim.core.mobsim.qsim.agents.DefaultAgentFactory;
+import org.matsim.core.mobsim.qsim.agents.PopulationAgentSource;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+/**
+ * Skipping links until they can next do something must not change the traffic dynamics.  With a single runner, even the
+ * order of the events needs to be the same.  The capacities are reduced so that there is congestion on the equil network.
+ */
+public class LinkWakeUpScheduleTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameEventsWithFIFOQueue() {
+		Config config = createConfig();
+		Assert.assertEquals(runQSim(config, false), runQSim(config, true));
+	}
+
+	@Test
+	public void testSameEventsWithPassingQueue() {
+		Config config = createConfig();
+		config.qsim().setLinkDynamics(LinkDynamics.PassingQ.toString());
+		Assert.assertEquals(runQSim(config, false), runQSim(config, true));
+	}
+
+	@Test
+	public void testSameEventsWithHoles() {
+		Config config = createConfig();
+		config.qsim().setTrafficDynamics(TrafficDynamics.withHoles);
+		Assert.assertEquals(runQSim(config, false), runQSim(config, true));
+	}
+
+	@Test
+	public void testSameEventsWithoutFastCapacityUpdate() {
+		Config config = createConfig();
+		config.qsim().setUsingFastCapacityUpdate(false);
+		Assert.assertEquals(runQSim(config, false), runQSim(config, true));
+	}
+
+	/**
+	 * With capacity 700 veh/h and flowCapFactor 0.1, 1/flowCapacityPerTimeStep is no integer, so the link must be visited in
+	 * the time step in which the accumulated flow capacity first becomes positive.
+	 */
+	@Test
+	public void testSameEventsWithNonIntegerInverseFlowCapacity() {
+		Config config = createConfig();
+		config.qsim().setFlowCapFactor(0.1);
+		config.qsim().setStorageCapFactor(0.1);
+		Assert.assertEquals(runQSim(config, false, 700.), runQSim(config, true, 700.));
+	}
+
+	@Test
+	public void testSameEventsWithSeveralRunnersAndRebalancing() {
+		Config config = createConfig();
+		config.qsim().setNumberOfThreads(4);
+		config.qsim().setUsingThreadpool(false);
+		config.qsim().setNetworkPartitioning(NetworkPartitioning.spatial);
+		config.qsim().setNetsimRebalancingInterval(60.);
+		List<String> events = runQSim(config, false);
+		List<String> scheduledEvents = runQSim(config, true);
+		Collections.sort(events);
+		Collections.sort(scheduledEvents);
+		Assert.assertEquals(events, scheduledEvents);
+	}
+
+	private Config createConfig() {
+		Config config = utils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.qsim().setUsingFastCapacityUpdate(true);
+		config.qsim().setFlowCapFactor(0.02);
+		config.qsim().setStorageCapFactor(0.02);
+		return config;
+	}
+
+	private List<String> runQSim(Config config, boolean usingLinkWakeUpSchedule) {
+		return runQSim(config, usingLinkWakeUpSchedule, Double.NaN);
+	}
+
+	/**
+	 * @param capacity the capacity set for all links, or NaN to keep those of the network file
+	 */
+	private List<String> runQSim(Config config, boolean usingLinkWakeUpSchedule, double capacity) {
+		config.qsim().setUsingLinkWakeUpSchedule(usingLinkWakeUpSchedule);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		if (!Double.isNaN(capacity)) {
+			for (Link link : scenario.getNetwork().getLinks().values()) {
+				link.setCapacity(capacity);
+			}
+		}
+
+		final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				events.add(event.toString());
+			}
+
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+
+		QSim qSim = new QSim(scenario, eventsManager);
+		AgentFactory agentFactory = new DefaultAgentFactory(qSim);
+		qSim.addAgentSource(new PopulationAgentSource(scenario.getPopulation(), agentFactory, qSim));
+		ActivityEngine activityEngine = new ActivityEngine(eventsManager, qSim.getAgentCounter());
+		qSim.addMobsimEngine(activityEngine);
+		qSim.addActivityHandler(activityEngine);
+		TeleportationEngine teleportationEngine = new TeleportationEngine(scenario, eventsManager);
+		qSim.addMobsimEngine(teleportationEngine);
+		QNetsimEngineModule.configure(qSim);
+		qSim.run();
+
+		Assert.assertFalse(events.isEmpty());
+		return events;
+	}
+
+}
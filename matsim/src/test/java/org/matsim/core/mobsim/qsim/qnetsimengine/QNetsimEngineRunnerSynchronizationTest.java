@@ -0,0 +1,115 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineRunnerSynchronizationTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.QSimConfigGroup.NetworkPartitioning;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.qsim.ActivityEngine;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.TeleportationEngine;
+import org.matsim.core.mobsim.qsim.agents.AgentFactory;
+import org.matsim.core.mobsim.qsim.agents.DefaultAgentFactory;
+import org.matsim.core.mobsim.qsim.agents.PopulationAgentSource;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+/**
+ * Runs the same scenario with global barriers and with local runner synchronization, and with and without moving nodes
+ * between runners; since neither must change the traffic dynamics, the same events need to come out (possibly in a
+ * different order within a time step).
+ */
+public class QNetsimEngineRunnerSynchronizationTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testLocalSynchronizationProducesSameEvents() {
+		List<String> globalEvents = runQSim(false, 0., 0);
+		List<String> localEvents = runQSim(true, 0., 0);
+		Assert.assertFalse(globalEvents.isEmpty());
+		Assert.assertEquals(globalEvents, localEvents);
+	}
+
+	@Test
+	public void testRebalancingProducesSameEvents() {
+		List<String> staticEvents = runQSim(false, 0., 0);
+		List<String> rebalancedEvents = runQSim(false, 60., 1);
+		List<String> rebalancedLocalEvents = runQSim(true, 60., 1);
+		Assert.assertEquals(staticEvents, rebalancedEvents);
+		Assert.assertEquals(staticEvents, rebalancedLocalEvents);
+	}
+
+	private List<String> runQSim(boolean usingLocalRunnerSynchronization, double rebalancingInterval, int minMigratedNodes) {
+		Config config = utils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.qsim().setNumberOfThreads(4);
+		config.qsim().setUsingThreadpool(false);
+		config.qsim().setNetworkPartitioning(NetworkPartitioning.spatial);
+		config.qsim().setUsingLocalRunnerSynchronization(usingLocalRunnerSynchronization);
+		config.qsim().setNetsimRebalancingInterval(rebalancingInterval);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				events.add(event.toString());
+			}
+
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+
+		QSim qSim = new QSim(scenario, eventsManager);
+		AgentFactory agentFactory = new DefaultAgentFactory(qSim);
+		qSim.addAgentSource(new PopulationAgentSource(scenario.getPopulation(), agentFactory, qSim));
+		ActivityEngine activityEngine = new ActivityEngine(eventsManager, qSim.getAgentCounter());
+		qSim.addMobsimEngine(activityEngine);
+		qSim.addActivityHandler(activityEngine);
+		TeleportationEngine teleportationEngine = new TeleportationEngine(scenario, eventsManager);
+		qSim.addMobsimEngine(teleportationEngine);
+		QNetsimEngine netsimEngine = new QNetsimEngine(qSim);
+		qSim.addMobsimEngine(netsimEngine);
+		qSim.addDepartureHandler(netsimEngine.getDepartureHandler());
+		qSim.run();
+		Assert.assertTrue("expected nodes to be moved between runners", netsimEngine.getNumberOfMigratedNodes() >= minMigratedNodes);
+
+		Collections.sort(events);
+		return events;
+	}
+
+}
@@ -0,0 +1,87 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QueueWithBufferHolesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QueueWithBufferHolesTest {
+
+	@Test
+	public void testAddAndPoll() {
+		QueueWithBuffer.Holes holes = new QueueWithBuffer.Holes();
+		Assert.assertTrue(holes.isEmpty());
+		holes.add(10.0, 1.0);
+		holes.add(12.0, 2.5);
+		Assert.assertEquals(2, holes.size());
+		Assert.assertEquals(10.0, holes.peekEarliestLinkExitTime(), 0.0);
+		Assert.assertEquals(1.0, holes.pollSizeInEquivalents(), 0.0);
+		Assert.assertEquals(12.0, holes.peekEarliestLinkExitTime(), 0.0);
+		Assert.assertEquals(2.5, holes.pollSizeInEquivalents(), 0.0);
+		Assert.assertTrue(holes.isEmpty());
+	}
+
+	@Test
+	public void testWrapAroundAndGrowth() {
+		QueueWithBuffer.Holes holes = new QueueWithBuffer.Holes();
+		ArrayDeque<double[]> expected = new ArrayDeque<>();
+		double time = 0.0;
+		for (int round = 0; round < 100; round++) {
+			// add more than is polled, so that the array both wraps around and has to grow
+			for (int i = 0; i < 3; i++) {
+				time += 1.0;
+				holes.add(time, round + i * 0.1);
+				expected.add(new double[] { time, round + i * 0.1 });
+			}
+			for (int i = 0; i < 2; i++) {
+				Assert.assertEquals(expected.peek()[0], holes.peekEarliestLinkExitTime(), 0.0);
+				Assert.assertEquals(expected.poll()[1], holes.pollSizeInEquivalents(), 0.0);
+			}
+			Assert.assertEquals(expected.size(), holes.size());
+			Iterator<double[]> it = expected.iterator();
+			for (int i = 0; i < holes.size(); i++) {
+				double[] hole = it.next();
+				Assert.assertEquals(hole[0], holes.getEarliestLinkExitTime(i), 0.0);
+				Assert.assertEquals(hole[1], holes.getSizeInEquivalents(i), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testClear() {
+		QueueWithBuffer.Holes holes = new QueueWithBuffer.Holes();
+		for (int i = 0; i < 20; i++) {
+			holes.add(i, 1.0);
+		}
+		holes.pollSizeInEquivalents();
+		holes.clear();
+		Assert.assertTrue(holes.isEmpty());
+		Assert.assertEquals(0, holes.size());
+		holes.add(5.0, 3.0);
+		Assert.assertEquals(5.0, holes.peekEarliestLinkExitTime(), 0.0);
+		Assert.assertEquals(3.0, holes.getSizeInEquivalents(0), 0.0);
+	}
+
+}
@@ -0,0 +1,105 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpatialNetworkPartitionerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+public class SpatialNetworkPartitionerTest {
+
+	@Test
+	public void testGridIsSplitIntoQuadrants() {
+		Network network = createGrid(10);
+		Map<Id<Node>, Integer> partition = new SpatialNetworkPartitioner().partition(network, 4);
+
+		Assert.assertEquals(100, partition.size());
+		int[] counts = new int[4];
+		for (Node node : network.getNodes().values()) {
+			counts[partition.get(node.getId())]++;
+		}
+		for (int count : counts) {
+			Assert.assertEquals(25, count);
+		}
+
+		// with quadrants, only the links crossing the two cut lines connect different partitions
+		int cutLinks = 0;
+		for (Link link : network.getLinks().values()) {
+			if (!partition.get(link.getFromNode().getId()).equals(partition.get(link.getToNode().getId()))) {
+				cutLinks++;
+			}
+		}
+		Assert.assertEquals(2 * 2 * 10, cutLinks);
+	}
+
+	@Test
+	public void testRoundRobin() {
+		Network network = createGrid(3);
+		Map<Id<Node>, Integer> partition = new RoundRobinNetworkPartitioner().partition(network, 2);
+		int i = 0;
+		for (Node node : network.getNodes().values()) {
+			Assert.assertEquals(i % 2, partition.get(node.getId()).intValue());
+			i++;
+		}
+	}
+
+	@Test
+	public void testMorePartitionsThanNodes() {
+		Network network = createGrid(1);
+		Map<Id<Node>, Integer> partition = new SpatialNetworkPartitioner().partition(network, 4);
+		Assert.assertEquals(1, partition.size());
+		Assert.assertEquals(0, partition.values().iterator().next().intValue());
+	}
+
+	private static Network createGrid(int size) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100., y * 100.));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y]);
+				}
+				if (y + 1 < size) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1]);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(Network network, Node a, Node b) {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(a.getId() + "-" + b.getId()), a, b, 100., 10., 1000., 1.);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(b.getId() + "-" + a.getId()), b, a, 100., 10., 1000., 1.);
+	}
+
+}
@@ -0,0 +1,145 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PassingVehicleQTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleImpl;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleTypeImpl;
+
+public class PassingVehicleQTest {
+
+	private final VehicleType vehicleType = new VehicleTypeImpl(Id.create("defaultVehicleType", VehicleType.class));
+
+	@Test
+	public void testPassingAndAddFirst() {
+		PassingVehicleQ queue = new PassingVehicleQ();
+		QVehicle slow = createVehicle(1, 100.0);
+		QVehicle fast = createVehicle(2, 50.0);
+		QVehicle transit = createVehicle(3, 200.0);
+		queue.add(slow);
+		queue.add(fast);
+		queue.addFirst(transit);
+		Assert.assertEquals(3, queue.size());
+
+		Assert.assertSame(transit, queue.poll());
+		Assert.assertSame(fast, queue.peek());
+		Assert.assertTrue(queue.remove(fast));
+		Assert.assertFalse(queue.remove(fast));
+		Assert.assertSame(slow, queue.poll());
+		Assert.assertNull(queue.poll());
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	/**
+	 * A vehicle whose exit time is increased at a transit stop that blocks the lane must stay at the head,
+	 * also for vehicles added afterwards.
+	 */
+	@Test
+	public void testRaisedExitTimeBlocks() {
+		PassingVehicleQ queue = new PassingVehicleQ();
+		QVehicle transit = createVehicle(1, 10.0);
+		QVehicle car = createVehicle(2, 20.0);
+		QVehicle slow = createVehicle(3, 30.0);
+		queue.add(slow);
+		queue.add(car);
+		queue.add(transit);
+		Assert.assertSame(transit, queue.peek());
+
+		transit.setEarliestLinkExitTime(25.0);
+		QVehicle late = createVehicle(4, 22.0);
+		queue.add(late);
+		Assert.assertSame(transit, queue.peek());
+
+		Assert.assertSame(transit, queue.poll());
+		Assert.assertSame(car, queue.poll());
+		Assert.assertSame(late, queue.poll());
+		Assert.assertSame(slow, queue.poll());
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testFifoQueue() {
+		FIFOVehicleQ queue = new FIFOVehicleQ();
+		QVehicle first = createVehicle(1, 100.0);
+		QVehicle second = createVehicle(2, 50.0);
+		QVehicle third = createVehicle(3, 200.0);
+		queue.add(first);
+		queue.add(second);
+		queue.addFirst(third);
+		Assert.assertTrue(queue.remove(first));
+		Assert.assertSame(third, queue.poll());
+		Assert.assertSame(second, queue.poll());
+		Assert.assertNull(queue.peek());
+	}
+
+	/**
+	 * The queue should return vehicles in the same order as a {@link PriorityQueue}, also for equal exit times.
+	 */
+	@Test
+	public void testSameOrderAsPriorityQueue() {
+		Random random = new Random(4711);
+		PassingVehicleQ queue = new PassingVehicleQ();
+		PriorityQueue<QVehicle> reference = new PriorityQueue<>(11, new Comparator<QVehicle>() {
+			@Override
+			public int compare(QVehicle arg0, QVehicle arg1) {
+				return Double.compare(arg0.getEarliestLinkExitTime(), arg1.getEarliestLinkExitTime());
+			}
+		});
+		List<QVehicle> vehicles = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			QVehicle vehicle = createVehicle(i, random.nextInt(50));
+			vehicles.add(vehicle);
+			queue.add(vehicle);
+			reference.add(vehicle);
+			if (random.nextInt(3) == 0) {
+				Assert.assertSame(reference.poll(), queue.poll());
+			}
+			if (random.nextInt(5) == 0) {
+				QVehicle removed = vehicles.get(random.nextInt(vehicles.size()));
+				Assert.assertEquals(reference.remove(removed), queue.remove(removed));
+			}
+		}
+		Assert.assertEquals(reference.size(), queue.size());
+		while (!reference.isEmpty()) {
+			Assert.assertSame(reference.poll(), queue.poll());
+		}
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	private QVehicle createVehicle(int id, double earliestLinkExitTime) {
+		QVehicle vehicle = new QVehicle(new VehicleImpl(Id.create(id, Vehicle.class), this.vehicleType));
+		vehicle.setEarliestLinkExitTime(earliestLinkExitTime);
+		return vehicle;
+	}
+
+}
@@ -0,0 +1,109 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkWriterReaderBinaryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import java.net.URL;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.io.BinaryNetworkReader;
+import org.matsim.core.network.io.BinaryNetworkWriter;
+import org.matsim.core.network.io.NetworkWriter;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+
+public class NetworkWriterReaderBinaryTest extends AbstractNetworkWriterReaderTest {
+
+	@Override
+	protected void writeNetwork(final Network network, final String filename) {
+		new BinaryNetworkWriter(network).write(filename);
+	}
+
+	@Override
+	protected void readNetwork(final Scenario scenario, final String filename) {
+		new BinaryNetworkReader(scenario.getNetwork()).readFile(filename);
+	}
+
+	public void testAttributesTypesAndOrigIds() throws Exception {
+		Network network = NetworkUtils.createNetwork();
+		network.setName("test network");
+		network.setCapacityPeriod(7200.0);
+		network.getAttributes().putAttribute("year", 2016);
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0.0, 0.0, 400.0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000.0, 0.0));
+		NetworkUtils.setType(n1, "junction");
+		NetworkUtils.setOrigId(n2, "osm-2");
+		n1.getAttributes().putAttribute("Internet", "good");
+		Link l1 = NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), n1, n2, 1000.0, 10.0, 3600.0, 2.0);
+		Link l2 = NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), n2, n1, 1000.0, 20.0, 1800.0, 1.0);
+		NetworkUtils.setType(l2, "residential");
+		l1.getAttributes().putAttribute("toll", true);
+		l1.getAttributes().putAttribute("slope", 0.02);
+
+		String filename = getOutputDirectory() + "network.bin";
+		new BinaryNetworkWriter(network).write(filename);
+		URL url = IOUtils.newUrl(null, filename);
+		assertTrue(BinaryNetworkReader.isBinaryNetworkFile(url));
+
+		Network network2 = ScenarioUtils.createScenario(ConfigUtils.createConfig()).getNetwork();
+		new BinaryNetworkReader(network2).parse(url);
+
+		assertEquals("test network", network2.getName());
+		assertEquals(7200.0, network2.getCapacityPeriod(), EPSILON);
+		assertEquals(2016, network2.getAttributes().getAttribute("year"));
+		Node r1 = network2.getNodes().get(n1.getId());
+		Node r2 = network2.getNodes().get(n2.getId());
+		assertEquals(n1.getCoord(), r1.getCoord());
+		assertTrue(r1.getCoord().hasZ());
+		assertFalse(r2.getCoord().hasZ());
+		assertEquals("junction", NetworkUtils.getType(r1));
+		assertNull(NetworkUtils.getOrigId(r1));
+		assertEquals("osm-2", NetworkUtils.getOrigId(r2));
+		assertEquals("good", r1.getAttributes().getAttribute("Internet"));
+
+		Link r11 = network2.getLinks().get(l1.getId());
+		Link r12 = network2.getLinks().get(l2.getId());
+		assertSame(r1, r11.getFromNode());
+		assertSame(r2, r11.getToNode());
+		assertEquals(2.0, r11.getNumberOfLanes(), EPSILON);
+		assertEquals(20.0, r12.getFreespeed(), EPSILON);
+		assertEquals(1800.0, r12.getCapacity(), EPSILON);
+		assertEquals(l1.getAllowedModes(), r11.getAllowedModes());
+		assertEquals("residential", NetworkUtils.getType(r12));
+		assertEquals(true, r11.getAttributes().getAttribute("toll"));
+		assertEquals(0.02, r11.getAttributes().getAttribute("slope"));
+		assertEquals(1, r2.getOutLinks().size());
+	}
+
+	public void testXmlFileIsNotBinary() throws Exception {
+		Network network = NetworkUtils.createNetwork();
+		NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0.0, 0.0));
+		String filename = getOutputDirectory() + "network.xml";
+		new NetworkWriter(network).write(filename);
+		assertFalse(BinaryNetworkReader.isBinaryNetworkFile(IOUtils.newUrl(null, filename)));
+	}
+
+}
@@ -342,6 +342,79 @@ public class TimeVariantLinkImplTest extends MatsimTestCase {
 	}
 
 
+	/**
+	 * Tests that the time-variant attributes can be read concurrently while change
+	 * events are added, and that the readers always see a consistent step function.
+	 */
+	public void testConcurrentReadsWhileAddingEvents() throws InterruptedException {
+		for (LinkFactory lf : linkFactories(15 * 60, 30 * 3600)) {
+			final Network network = NetworkUtils.createNetwork();
+			NetworkFactory nf = network.getFactory();
+			nf.setLinkFactory(lf);
+			((NetworkImpl)network).setFactory(nf);
+
+			Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord((double) 0, (double) 0));
+			Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord((double) 100, (double) 0));
+			final TimeVariantLinkImpl link = (TimeVariantLinkImpl)NetworkUtils.createAndAddLink(network,Id.create("1", Link.class), node1, node2, (double) 100, (double) 10, (double) 3600, (double) 1 );
+
+			final int hours = 24;
+			final boolean[] done = new boolean[1];
+			final Throwable[] failure = new Throwable[1];
+			Thread[] readers = new Thread[4];
+			for (int t = 0; t < readers.length; t++) {
+				readers[t] = new Thread() {
+					@Override
+					public void run() {
+						try {
+							while (true) {
+								boolean last;
+								synchronized (done) {
+									last = done[0];
+								}
+								for (int h = 0; h < hours; h++) {
+									double value = link.getFreespeed(h * 3600.0 + 1800.0);
+									// events are added in increasing time order, so either no event
+									// covering this time has been seen yet, or one of the first h events
+									if (value != 10.0 && (value < 1.0 || value > h)) {
+										throw new RuntimeException("Unexpected freespeed " + value + " at hour " + h);
+									}
+								}
+								if (last) {
+									return;
+								}
+							}
+						} catch (Throwable e) {
+							synchronized (failure) {
+								failure[0] = e;
+							}
+						}
+					}
+				};
+				readers[t].start();
+			}
+			for (int h = 1; h < hours; h++) {
+				NetworkChangeEvent change = new NetworkChangeEvent(h * 3600.0);
+				change.addLink(link);
+				change.setFreespeedChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, h));
+				link.applyEvent(change);
+			}
+			synchronized (done) {
+				done[0] = true;
+			}
+			for (Thread reader : readers) {
+				reader.join();
+			}
+			assertNull(failure[0]);
+
+			for (int h = 1; h < hours; h++) {
+				assertEquals(h, link.getFreespeed(h * 3600.0 + 1800.0), EPSILON);
+			}
+			link.clearEvents();
+			assertEquals(10.0, link.getFreespeed(12 * 3600.0), EPSILON);
+		}
+	}
+
+
     static LinkFactory[] linkFactories(int interval, int maxTime)
     {
         return new LinkFactory[] {
@@ -0,0 +1,230 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ColumnarPlanTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.population.routes.GenericRouteImpl;
+
+public class ColumnarPlanTest {
+
+	@Test
+	public void testPopulationConvertsPlans() {
+		PlansConfigGroup plansConfig = ConfigUtils.createConfig().plans();
+		plansConfig.setInMemoryRepresentation(PlansConfigGroup.InMemoryRepresentation.columnar);
+		Population population = PopulationUtils.createPopulation(plansConfig, null);
+
+		Person person = population.getFactory().createPerson(Id.create(1, Person.class));
+		Plan plan1 = createPlan(person, 5.0);
+		Plan plan2 = createPlan(person, 7.0);
+		person.setSelectedPlan(plan2);
+		population.addPerson(person);
+
+		Assert.assertEquals(2, person.getPlans().size());
+		Plan columnar1 = person.getPlans().get(0);
+		Plan columnar2 = person.getPlans().get(1);
+		Assert.assertTrue(columnar1 instanceof ColumnarPlan);
+		Assert.assertTrue(columnar2 instanceof ColumnarPlan);
+		Assert.assertSame(columnar2, person.getSelectedPlan());
+		Assert.assertSame(person, columnar1.getPerson());
+		Assert.assertEquals(5.0, columnar1.getScore(), 0.0);
+		assertSameContent(plan1, columnar1);
+		assertSameContent(plan2, columnar2);
+	}
+
+	@Test
+	public void testViewsWriteThrough() {
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		Plan plan = ColumnarPlan.copyOf(createPlan(person, 0.0));
+
+		Activity act = (Activity) plan.getPlanElements().get(0);
+		Assert.assertSame(act, plan.getPlanElements().get(0));
+		act.setEndTime(8 * 3600);
+		act.setCoord(new Coord(3.0, 4.0, 5.0));
+		act.setType("work");
+		act.getAttributes().putAttribute("x", "y");
+
+		Activity sameAct = (Activity) plan.getPlanElements().get(0);
+		Assert.assertEquals(8 * 3600, sameAct.getEndTime(), 0.0);
+		Assert.assertEquals(new Coord(3.0, 4.0, 5.0), sameAct.getCoord());
+		Assert.assertEquals("work", sameAct.getType());
+		Assert.assertEquals("y", sameAct.getAttributes().getAttribute("x"));
+
+		Leg leg = (Leg) plan.getPlanElements().get(1);
+		leg.setMode(TransportMode.pt);
+		leg.setTravelTime(600.0);
+		Assert.assertEquals(TransportMode.pt, ((Leg) plan.getPlanElements().get(1)).getMode());
+		Assert.assertEquals(600.0, ((Leg) plan.getPlanElements().get(1)).getTravelTime(), 0.0);
+	}
+
+	@Test
+	public void testInsertRemoveAndCompact() {
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		ColumnarPlan plan = ColumnarPlan.copyOf(createPlan(person, 0.0));
+		Activity home = (Activity) plan.getPlanElements().get(0);
+		Activity work = (Activity) plan.getPlanElements().get(2);
+
+		// replace the leg by leg - stage activity - leg, as the trip router does
+		plan.getPlanElements().remove(1);
+		Leg walk = PopulationUtils.createLeg(TransportMode.walk);
+		Activity interaction = PopulationUtils.createActivityFromLinkId("pt interaction", Id.create(2, Link.class));
+		Leg pt = PopulationUtils.createLeg(TransportMode.pt);
+		plan.getPlanElements().add(1, walk);
+		plan.getPlanElements().add(2, interaction);
+		plan.getPlanElements().add(3, pt);
+
+		Assert.assertEquals(5, plan.getPlanElements().size());
+		Assert.assertSame(home, plan.getPlanElements().get(0));
+		Assert.assertSame(walk, plan.getPlanElements().get(1));
+		Assert.assertSame(interaction, plan.getPlanElements().get(2));
+		Assert.assertSame(work, plan.getPlanElements().get(4));
+		// foreign elements stay connected to the plan
+		interaction.setEndTime(100.0);
+		Assert.assertEquals(100.0, ((Activity) plan.getPlanElements().get(2)).getEndTime(), 0.0);
+
+		plan.compact();
+		Assert.assertSame(home, plan.getPlanElements().get(0));
+		Activity compacted = (Activity) plan.getPlanElements().get(2);
+		Assert.assertNotSame(interaction, compacted);
+		Assert.assertEquals("pt interaction", compacted.getType());
+		Assert.assertEquals(100.0, compacted.getEndTime(), 0.0);
+		Assert.assertEquals(Id.create(2, Link.class), compacted.getLinkId());
+		Assert.assertEquals(TransportMode.pt, ((Leg) plan.getPlanElements().get(3)).getMode());
+		Assert.assertEquals(1, plan.getPlanElements().indexOf(plan.getPlanElements().get(1)));
+		// the row of the removed leg is dropped, the views of the other elements move along
+		Assert.assertSame(work, plan.getPlanElements().get(4));
+		Assert.assertEquals("work", work.getType());
+		Assert.assertEquals(8 * 3600, work.getMaximumDuration(), 0.0);
+		Assert.assertEquals("value", work.getAttributes().getAttribute("attr"));
+		Assert.assertEquals(new Coord(0.0, 1.0), home.getCoord());
+		Assert.assertSame(home.getCoord(), home.getCoord());
+	}
+
+	@Test
+	public void testCopyOfSelectedPlan() {
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		createPlan(person, 3.0);
+		ColumnarPlan.makeColumnar(person, null);
+		Plan original = person.getSelectedPlan();
+
+		Plan copy = person.createCopyOfSelectedPlanAndMakeSelected();
+		Assert.assertTrue(copy instanceof ColumnarPlan);
+		Assert.assertSame(copy, person.getSelectedPlan());
+		Assert.assertSame(person, copy.getPerson());
+		assertSameContent(original, copy);
+		Assert.assertNotSame(((Leg) original.getPlanElements().get(1)).getRoute(), ((Leg) copy.getPlanElements().get(1)).getRoute());
+
+		((Activity) copy.getPlanElements().get(0)).setEndTime(1.0);
+		Assert.assertEquals(7 * 3600, ((Activity) original.getPlanElements().get(0)).getEndTime(), 0.0);
+	}
+
+	@Test
+	public void testCompactPlansAfterReplanning() {
+		PlansConfigGroup plansConfig = ConfigUtils.createConfig().plans();
+		plansConfig.setInMemoryRepresentation(PlansConfigGroup.InMemoryRepresentation.columnar);
+		Population population = PopulationUtils.createPopulation(plansConfig, null);
+		Person person = population.getFactory().createPerson(Id.create(1, Person.class));
+		createPlan(person, 3.0);
+		population.addPerson(person);
+
+		// what replanning strategies do: copy the selected plan and re-route it, or add plans of other implementations
+		Plan rerouted = person.createCopyOfSelectedPlanAndMakeSelected();
+		rerouted.getPlanElements().remove(1);
+		rerouted.getPlanElements().add(1, PopulationUtils.createLeg(TransportMode.walk));
+		Plan added = createPlan(person, 1.0);
+		Assert.assertFalse(added instanceof ColumnarPlan);
+
+		Plan original = person.getPlans().get(0);
+		Leg walk = (Leg) rerouted.getPlanElements().get(1);
+		Activity work = (Activity) rerouted.getPlanElements().get(2);
+
+		PopulationUtils.compactPlans(population);
+		Assert.assertEquals(3, person.getPlans().size());
+		// the plan objects are not replaced
+		Assert.assertSame(original, person.getPlans().get(0));
+		Assert.assertSame(rerouted, person.getPlans().get(1));
+		Assert.assertSame(rerouted, person.getSelectedPlan());
+		Assert.assertSame(added, person.getPlans().get(2));
+		// the re-routed plan is compacted in place
+		Leg compactedWalk = (Leg) rerouted.getPlanElements().get(1);
+		Assert.assertNotSame(walk, compactedWalk);
+		Assert.assertEquals(TransportMode.walk, compactedWalk.getMode());
+		Assert.assertSame(work, rerouted.getPlanElements().get(2));
+		Assert.assertEquals("work", work.getType());
+		Assert.assertEquals(3, rerouted.getPlanElements().size());
+	}
+
+	private static Plan createPlan(final Person person, final double score) {
+		Plan plan = PopulationUtils.createPlan(person);
+		person.addPlan(plan);
+		plan.setScore(score);
+		Activity home = PopulationUtils.createAndAddActivityFromCoord(plan, "home", new Coord(0.0, 1.0));
+		home.setLinkId(Id.create(1, Link.class));
+		home.setEndTime(7 * 3600);
+		Leg leg = PopulationUtils.createAndAddLeg(plan, TransportMode.car);
+		leg.setDepartureTime(7 * 3600);
+		leg.setRoute(new GenericRouteImpl(Id.create(1, Link.class), Id.create(3, Link.class)));
+		Activity work = PopulationUtils.createAndAddActivityFromLinkId(plan, "work", Id.create(3, Link.class));
+		work.setMaximumDuration(8 * 3600);
+		work.getAttributes().putAttribute("attr", "value");
+		return plan;
+	}
+
+	private static void assertSameContent(final Plan expected, final Plan actual) {
+		Assert.assertEquals(expected.getPlanElements().size(), actual.getPlanElements().size());
+		for (int i = 0; i < expected.getPlanElements().size(); i++) {
+			Object e = expected.getPlanElements().get(i);
+			Object a = actual.getPlanElements().get(i);
+			if (e instanceof Activity) {
+				Activity eAct = (Activity) e;
+				Activity aAct = (Activity) a;
+				Assert.assertEquals(eAct.getType(), aAct.getType());
+				Assert.assertEquals(eAct.getCoord(), aAct.getCoord());
+				Assert.assertEquals(eAct.getLinkId(), aAct.getLinkId());
+				Assert.assertEquals(eAct.getFacilityId(), aAct.getFacilityId());
+				Assert.assertEquals(eAct.getStartTime(), aAct.getStartTime(), 0.0);
+				Assert.assertEquals(eAct.getEndTime(), aAct.getEndTime(), 0.0);
+				Assert.assertEquals(eAct.getMaximumDuration(), aAct.getMaximumDuration(), 0.0);
+				Assert.assertEquals(eAct.getAttributes().getAttribute("attr"), aAct.getAttributes().getAttribute("attr"));
+			} else {
+				Leg eLeg = (Leg) e;
+				Leg aLeg = (Leg) a;
+				Assert.assertEquals(eLeg.getMode(), aLeg.getMode());
+				Assert.assertEquals(eLeg.getDepartureTime(), aLeg.getDepartureTime(), 0.0);
+				Assert.assertEquals(eLeg.getTravelTime(), aLeg.getTravelTime(), 0.0);
+				Assert.assertEquals(eLeg.getRoute().getStartLinkId(), aLeg.getRoute().getStartLinkId());
+				Assert.assertEquals(eLeg.getRoute().getEndLinkId(), aLeg.getRoute().getEndLinkId());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,188 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelPopulationReaderTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testV6() {
+		Population population = createPopulation(1000);
+		String file = this.utils.getOutputDirectory() + "population_v6.xml";
+		new PopulationWriter(population).writeV6(file);
+
+		assertSamePopulation(population, readParallel(file, 3), true);
+		assertSamePopulation(population, readParallel(file, 1), true);
+	}
+
+	@Test
+	public void testV5() {
+		Population population = createPopulation(1000);
+		String file = this.utils.getOutputDirectory() + "population_v5.xml";
+		new PopulationWriter(population).writeV5(file);
+
+		assertSamePopulation(population, readParallel(file, 3), false);
+	}
+
+	@Test
+	public void testErrorInWorkerIsReported() {
+		Population population = createPopulation(10);
+		String file = this.utils.getOutputDirectory() + "population_v6.xml";
+		new PopulationWriter(population).writeV6(file);
+		// make the file invalid for the reader in one of the persons only
+		String broken = this.utils.getOutputDirectory() + "broken_v6.xml";
+		List<String> lines = new ArrayList<>();
+		try {
+			for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+				lines.add(line.replace("selected=\"no\"", "selected=\"maybe\""));
+			}
+			Files.write(Paths.get(broken), lines, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		try {
+			readParallel(broken, 2);
+			Assert.fail("expected exception.");
+		} catch (IllegalArgumentException e) {
+			// expected, the same exception as thrown by the non-parallel reader
+		}
+	}
+
+	private Population readParallel(final String file, final int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(numberOfThreads);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new PopulationReader(scenario).readFile(file);
+		return scenario.getPopulation();
+	}
+
+	private static Population createPopulation(final int nOfPersons) {
+		Population population = ScenarioUtils.createScenario(ConfigUtils.createConfig()).getPopulation();
+		PopulationFactory pf = population.getFactory();
+		population.getAttributes().putAttribute("description", "test");
+		for (int i = 0; i < nOfPersons; i++) {
+			// ids are not sorted, so the test fails if the order is lost
+			Person person = pf.createPerson(Id.create((i * 7919) % 10007, Person.class));
+			person.getAttributes().putAttribute("index", i);
+			for (int p = 0; p < 2; p++) {
+				Plan plan = pf.createPlan();
+				plan.setScore((double) i + p);
+				Activity home = pf.createActivityFromCoord("home", new Coord(i, p));
+				home.setLinkId(Id.create("l" + i, Link.class));
+				home.setEndTime(6 * 3600 + i);
+				plan.addActivity(home);
+				Leg leg = pf.createLeg(p == 0 ? "walk" : "bike");
+				leg.setDepartureTime(6 * 3600 + i);
+				leg.setTravelTime(600);
+				Route route = new GenericRouteImpl(Id.create("l" + i, Link.class), Id.create("w" + i, Link.class));
+				route.setDistance(1000.0 + i);
+				route.setTravelTime(600);
+				leg.setRoute(route);
+				leg.getAttributes().putAttribute("plan", p);
+				plan.addLeg(leg);
+				Activity work = pf.createActivityFromCoord("work", new Coord(i + 1000, p));
+				work.setLinkId(Id.create("w" + i, Link.class));
+				plan.addActivity(work);
+				person.addPlan(plan);
+			}
+			person.setSelectedPlan(person.getPlans().get(1));
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+	private static void assertSamePopulation(final Population expected, final Population actual, final boolean withAttributes) {
+		Assert.assertEquals(expected.getPersons().size(), actual.getPersons().size());
+		if (withAttributes) {
+			Assert.assertEquals("test", actual.getAttributes().getAttribute("description"));
+		}
+		Iterator<? extends Person> it = actual.getPersons().values().iterator();
+		for (Person expectedPerson : expected.getPersons().values()) {
+			Person person = it.next();
+			Assert.assertEquals("order of persons must not change.", expectedPerson.getId(), person.getId());
+			if (withAttributes) {
+				Assert.assertEquals(expectedPerson.getAttributes().getAttribute("index"), person.getAttributes().getAttribute("index"));
+			}
+			Assert.assertEquals(2, person.getPlans().size());
+			Assert.assertSame(person.getPlans().get(1), person.getSelectedPlan());
+			for (int p = 0; p < 2; p++) {
+				Plan expectedPlan = expectedPerson.getPlans().get(p);
+				Plan plan = person.getPlans().get(p);
+				Assert.assertEquals(expectedPlan.getScore(), plan.getScore());
+				Assert.assertEquals(expectedPlan.getPlanElements().size(), plan.getPlanElements().size());
+				for (int e = 0; e < plan.getPlanElements().size(); e++) {
+					PlanElement expectedElement = expectedPlan.getPlanElements().get(e);
+					PlanElement element = plan.getPlanElements().get(e);
+					if (expectedElement instanceof Activity) {
+						Activity expectedAct = (Activity) expectedElement;
+						Activity act = (Activity) element;
+						Assert.assertEquals(expectedAct.getType(), act.getType());
+						Assert.assertEquals(expectedAct.getLinkId(), act.getLinkId());
+						Assert.assertEquals(expectedAct.getCoord(), act.getCoord());
+						Assert.assertEquals(expectedAct.getEndTime(), act.getEndTime(), 0.0);
+					} else {
+						Leg expectedLeg = (Leg) expectedElement;
+						Leg leg = (Leg) element;
+						Assert.assertEquals(expectedLeg.getMode(), leg.getMode());
+						Assert.assertEquals(expectedLeg.getDepartureTime(), leg.getDepartureTime(), 0.0);
+						Assert.assertEquals(expectedLeg.getRoute().getStartLinkId(), leg.getRoute().getStartLinkId());
+						Assert.assertEquals(expectedLeg.getRoute().getEndLinkId(), leg.getRoute().getEndLinkId());
+						Assert.assertEquals(expectedLeg.getRoute().getDistance(), leg.getRoute().getDistance(), 0.0);
+						if (withAttributes) {
+							Assert.assertEquals(expectedLeg.getAttributes().getAttribute("plan"), leg.getAttributes().getAttribute("plan"));
+						}
+					}
+				}
+			}
+		}
+	}
+}
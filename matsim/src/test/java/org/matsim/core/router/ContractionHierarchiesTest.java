@@ -0,0 +1,176 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2008 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.util.ContractionHierarchiesFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+public class ContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new ContractionHierarchiesFactory(3600.0, 30 * 3600.0).createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	/**
+	 * Compares the costs of the paths found with the ones of {@link Dijkstra} on a grid network
+	 * with random link lengths and speeds, where some links are missing.
+	 */
+	public void testSameCostsAsDijkstra() {
+		Random random = new Random(4711);
+		Network network = createGridNetwork(random);
+
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator ch = getLeastCostPathCalculator(network);
+		assertSameCosts(network, ch, new Dijkstra(network, travelTimeCostCalculator, travelTimeCostCalculator), random);
+	}
+
+	/**
+	 * Routers with different travel disutilities of the same type must not share their link costs.
+	 */
+	public void testDisutilitiesOfSameTypeAreNotShared() {
+		Random random = new Random(4711);
+		Network network = createGridNetwork(random);
+
+		FreespeedTravelTimeAndDisutility fastest = new FreespeedTravelTimeAndDisutility(-6.0 / 3600, 0.0, 0.0);
+		FreespeedTravelTimeAndDisutility shortest = new FreespeedTravelTimeAndDisutility(-6.0 / 3600, 0.0, -0.01);
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory(3600.0, 30 * 3600.0);
+		LeastCostPathCalculator chFastest = factory.createPathCalculator(network, fastest, fastest);
+		LeastCostPathCalculator chShortest = factory.createPathCalculator(network, shortest, fastest);
+
+		assertSameCosts(network, chFastest, new Dijkstra(network, fastest, fastest), random);
+		assertSameCosts(network, chShortest, new Dijkstra(network, shortest, fastest), random);
+	}
+
+	/**
+	 * Routers whose disutilities come from the same factory share their link costs, as the routers of one mode do
+	 * in the controler.
+	 */
+	public void testRoutersOfOneDisutilityFactoryShareCosts() {
+		Random random = new Random(4711);
+		Network network = createGridNetwork(random);
+
+		final FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(-6.0 / 3600, 0.0, 0.0);
+		TravelDisutilityFactory disutilityFactory = new TravelDisutilityFactory() {
+			@Override
+			public TravelDisutility createTravelDisutility(final TravelTime timeCalculator) {
+				return new FreespeedTravelTimeAndDisutility(-6.0 / 3600, 0.0, 0.0);
+			}
+		};
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory(3600.0, 30 * 3600.0);
+		ContractionHierarchies ch1 = (ContractionHierarchies) factory.createPathCalculator(network, disutilityFactory, freespeed);
+		ContractionHierarchies ch2 = (ContractionHierarchies) factory.createPathCalculator(network, disutilityFactory, freespeed);
+		ContractionHierarchies other = (ContractionHierarchies) factory.createPathCalculator(network, freespeed, freespeed);
+		assertSame(ch1.getMetric(), ch2.getMetric());
+		assertNotSame(ch1.getMetric(), other.getMetric());
+
+		Dijkstra dijkstra = new Dijkstra(network, freespeed, freespeed);
+		assertSameCosts(network, ch1, dijkstra, random);
+		assertSameCosts(network, ch2, dijkstra, random);
+
+		factory.reset();
+		ContractionHierarchies afterReset = (ContractionHierarchies) factory.createPathCalculator(network, disutilityFactory, freespeed);
+		assertNotSame(ch1.getMetric(), afterReset.getMetric());
+	}
+
+	private static Network createGridNetwork(final Random random) {
+		Network network = NetworkUtils.createNetwork();
+		NetworkFactory nf = network.getFactory();
+		int size = 20;
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = nf.createNode(Id.create(x + "_" + y, Node.class), new Coord(x * 100.0, y * 100.0));
+				network.addNode(nodes[x][y]);
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					linkId = addLink(network, nodes[x][y], nodes[x + 1][y], linkId, random);
+					linkId = addLink(network, nodes[x + 1][y], nodes[x][y], linkId, random);
+				}
+				if (y + 1 < size) {
+					linkId = addLink(network, nodes[x][y], nodes[x][y + 1], linkId, random);
+					linkId = addLink(network, nodes[x][y + 1], nodes[x][y], linkId, random);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void assertSameCosts(final Network network, final LeastCostPathCalculator ch, final Dijkstra dijkstra, final Random random) {
+		List<Node> allNodes = new ArrayList<>(network.getNodes().values());
+		for (int i = 0; i < 500; i++) {
+			Node from = allNodes.get(random.nextInt(allNodes.size()));
+			Node to = allNodes.get(random.nextInt(allNodes.size()));
+			Path expected = dijkstra.calcLeastCostPath(from, to, 7.0 * 3600, null, null);
+			Path path = ch.calcLeastCostPath(from, to, 7.0 * 3600, null, null);
+			if (expected == null) {
+				assertNull(path);
+				continue;
+			}
+			assertNotNull(path);
+			assertEquals(expected.travelCost, path.travelCost, 1e-6 * Math.max(1.0, expected.travelCost));
+			assertEquals(path.links.size() + 1, path.nodes.size());
+			Node node = from;
+			for (int l = 0; l < path.links.size(); l++) {
+				Link link = path.links.get(l);
+				assertSame(node, link.getFromNode());
+				assertSame(node, path.nodes.get(l));
+				node = link.getToNode();
+			}
+			assertSame(to, node);
+		}
+	}
+
+	private static int addLink(final Network network, final Node from, final Node to, final int linkId, final Random random) {
+		if (random.nextDouble() < 0.1) {
+			return linkId;
+		}
+		Link link = network.getFactory().createLink(Id.create(linkId, Link.class), from, to);
+		link.setLength(100.0 + random.nextInt(200));
+		link.setFreespeed(5.0 + random.nextInt(25));
+		link.setCapacity(1000.0);
+		link.setNumberOfLanes(1.0);
+		network.addLink(link);
+		return linkId + 1;
+	}
+}
@@ -0,0 +1,120 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ManyToManyDijkstraTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.ManyToManyLeastCostPathCalculator.Matrix;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class ManyToManyDijkstraTest {
+
+	@Test
+	public void testSameCostsAsDijkstra() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(network).readFile("test/scenarios/equil/network.xml");
+		FreespeedTravelTimeAndDisutility costFunction = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		Dijkstra dijkstra = new Dijkstra(network, costFunction, costFunction);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		List<Node> toNodes = new ArrayList<>(nodes);
+		toNodes.add(nodes.get(0)); // duplicate destinations get their own column
+
+		for (int numberOfThreads : new int[] {1, 3}) {
+			ManyToManyDijkstra manyToMany = new ManyToManyDijkstra(network, costFunction, costFunction, numberOfThreads);
+			Matrix matrix = manyToMany.calcLeastCostPaths(nodes, toNodes, 7.0 * 3600, null, null);
+			Assert.assertEquals(nodes.size(), matrix.getFromCount());
+			Assert.assertEquals(toNodes.size(), matrix.getToCount());
+			for (int i = 0; i < nodes.size(); i++) {
+				for (int j = 0; j < toNodes.size(); j++) {
+					Path path = dijkstra.calcLeastCostPath(nodes.get(i), toNodes.get(j), 7.0 * 3600, null, null);
+					if (path == null) {
+						Assert.assertEquals(Double.POSITIVE_INFINITY, matrix.getTravelCost(i, j), 0.0);
+					} else {
+						Assert.assertEquals(path.travelCost, matrix.getTravelCost(i, j), 1e-8);
+						Assert.assertEquals(path.travelTime, matrix.getTravelTime(i, j), 1e-8);
+					}
+				}
+			}
+
+			// a second call re-uses the search state and, with several threads, the thread pool
+			Matrix again = manyToMany.calcLeastCostPaths(nodes, toNodes, 7.0 * 3600, null, null);
+			for (int i = 0; i < nodes.size(); i++) {
+				for (int j = 0; j < toNodes.size(); j++) {
+					Assert.assertEquals(matrix.getTravelCost(i, j), again.getTravelCost(i, j), 0.0);
+					Assert.assertEquals(matrix.getTravelTime(i, j), again.getTravelTime(i, j), 0.0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testMatrixSize() {
+		Matrix empty = new Matrix(0, 5);
+		Assert.assertEquals(0, empty.getFromCount());
+		try {
+			new Matrix(100000, 100000);
+			Assert.fail("missing IllegalArgumentException.");
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			new Matrix(-1, 5);
+			Assert.fail("missing IllegalArgumentException.");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	@Test
+	public void testSingleDestination() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(network).readFile("test/scenarios/equil/network.xml");
+		FreespeedTravelTimeAndDisutility costFunction = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+
+		Node node12 = network.getNodes().get(Id.create("12", Node.class));
+		Node node15 = network.getNodes().get(Id.create("15", Node.class));
+		List<Node> from = new ArrayList<>();
+		from.add(node12);
+		from.add(node15);
+		List<Node> to = new ArrayList<>();
+		to.add(node12);
+
+		Matrix matrix = new ManyToManyDijkstra(network, costFunction, costFunction).calcLeastCostPaths(from, to, 0.0, null, null);
+		Assert.assertEquals(0.0, matrix.getTravelCost(0, 0), 0.0);
+		Assert.assertEquals(0.0, matrix.getTravelTime(0, 0), 0.0);
+		Assert.assertTrue(matrix.getTravelCost(1, 0) > 0.0);
+	}
+
+}
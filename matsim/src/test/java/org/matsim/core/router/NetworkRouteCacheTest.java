@@ -0,0 +1,154 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkRouteCacheTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class NetworkRouteCacheTest {
+
+	@Test
+	public void testSelectiveInvalidation() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(network).readFile("test/scenarios/equil/network.xml");
+		Node node1 = network.getNodes().get(Id.createNodeId("1"));
+		Node node12 = network.getNodes().get(Id.createNodeId("12"));
+		Node node13 = network.getNodes().get(Id.createNodeId("13"));
+
+		final Map<Link, Double> travelTimes = new HashMap<>();
+		for (Link link : network.getLinks().values()) {
+			travelTimes.put(link, link.getLength() / link.getFreespeed());
+		}
+		TravelTime travelTime = new TravelTime() {
+			@Override
+			public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+				return travelTimes.get(link);
+			}
+		};
+		final int[] calls = new int[1];
+		final Dijkstra dijkstra = new Dijkstra(network, new OnlyTimeDependentDisutility(travelTime), travelTime);
+		LeastCostPathCalculator counting = new LeastCostPathCalculator() {
+			@Override
+			public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person, Vehicle vehicle) {
+				calls[0]++;
+				return dijkstra.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+			}
+		};
+
+		NetworkRouteCache cache = new NetworkRouteCache(0.05, 900, 30 * 3600, 1024 * 1024);
+		LeastCostPathCalculator router = cache.createCachingCalculator(TransportMode.car, travelTime, counting);
+
+		Path path = router.calcLeastCostPath(node1, node12, 7.0 * 3600, null, null);
+		Path longerPath = router.calcLeastCostPath(node1, node13, 7.0 * 3600, null, null);
+		Assert.assertEquals(2, calls[0]);
+
+		Path cached = router.calcLeastCostPath(node1, node12, 7.0 * 3600 + 60, null, null);
+		Assert.assertEquals(2, calls[0]);
+		Assert.assertEquals(path.links, cached.links);
+		Assert.assertEquals(path.nodes, cached.nodes);
+		Assert.assertEquals(path.travelCost, cached.travelCost, 0.0);
+
+		router.calcLeastCostPath(node1, node12, 8.0 * 3600, null, null);
+		Assert.assertEquals("other time bin must not hit the cache", 3, calls[0]);
+
+		// a small change does not invalidate anything
+		Link lastLink = longerPath.links.get(longerPath.links.size() - 1);
+		Assert.assertFalse(path.links.contains(lastLink));
+		travelTimes.put(lastLink, travelTimes.get(lastLink) * 1.01);
+		Assert.assertEquals(0, cache.invalidateChangedLinks());
+		Assert.assertEquals(3, cache.size());
+
+		// a large change only invalidates the routes using the link
+		travelTimes.put(lastLink, travelTimes.get(lastLink) * 2.0);
+		Assert.assertEquals(1, cache.invalidateChangedLinks());
+		Assert.assertEquals(2, cache.size());
+		router.calcLeastCostPath(node1, node12, 7.0 * 3600, null, null);
+		Assert.assertEquals(3, calls[0]);
+		router.calcLeastCostPath(node1, node13, 7.0 * 3600, null, null);
+		Assert.assertEquals(4, calls[0]);
+	}
+
+	@Test
+	public void testMemoryBudget() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		new MatsimNetworkReader(network).readFile("test/scenarios/equil/network.xml");
+		Node node1 = network.getNodes().get(Id.createNodeId("1"));
+		Node node12 = network.getNodes().get(Id.createNodeId("12"));
+
+		TravelTime travelTime = new TravelTime() {
+			@Override
+			public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+				return link.getLength() / link.getFreespeed();
+			}
+		};
+		Dijkstra dijkstra = new Dijkstra(network, new OnlyTimeDependentDisutility(travelTime), travelTime);
+
+		// each route weighs more than 100 bytes, so at most 10 fit
+		NetworkRouteCache cache = new NetworkRouteCache(0.05, 900, 30 * 3600, 1000);
+		LeastCostPathCalculator router = cache.createCachingCalculator(TransportMode.car, travelTime, dijkstra);
+		for (int bin = 0; bin < 100; bin++) {
+			Path path = router.calcLeastCostPath(node1, node12, bin * 900, null, null);
+			Assert.assertNotNull(path);
+		}
+		Assert.assertTrue(cache.size() > 0);
+		Assert.assertTrue(cache.size() <= 10);
+	}
+
+	private static class OnlyTimeDependentDisutility implements TravelDisutility {
+
+		private final TravelTime travelTime;
+
+		OnlyTimeDependentDisutility(TravelTime travelTime) {
+			this.travelTime = travelTime;
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			return this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return link.getLength() / link.getFreespeed();
+		}
+	}
+}
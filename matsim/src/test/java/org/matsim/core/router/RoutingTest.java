@@ -32,6 +32,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.PopulationWriter;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup.RoutingPriorityQueueType;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.controler.Injector;
 import org.matsim.core.network.io.MatsimNetworkReader;
@@ -89,6 +90,32 @@ public class RoutingTest  {
 			}
 		});
 	}
+	@Test
+	public void testFastDijkstraFourAryMinHeap() {
+		doTest(new RouterProvider() {
+			@Override
+			public String getName() {
+				return "FastDijkstraFourAryMinHeap";
+			}
+			@Override
+			public LeastCostPathCalculatorFactory getFactory(final Network network, final TravelDisutility costCalc, final TravelTime timeCalc) {
+				return new FastDijkstraFactory(null, RoutingPriorityQueueType.FourAryMinHeap);
+			}
+		});
+	}
+	@Test
+	public void testFastDijkstraRadixMinHeap() {
+		doTest(new RouterProvider() {
+			@Override
+			public String getName() {
+				return "FastDijkstraRadixMinHeap";
+			}
+			@Override
+			public LeastCostPathCalculatorFactory getFactory(final Network network, final TravelDisutility costCalc, final TravelTime timeCalc) {
+				return new FastDijkstraFactory(null, RoutingPriorityQueueType.RadixMinHeap);
+			}
+		});
+	}
 	@Test	
 	public void testDijkstraPruneDeadEnds() {
 		doTest(new RouterProvider() {
@@ -145,6 +172,19 @@ public class RoutingTest  {
 			}
 		});
 	}
+	@Test
+	public void testFastAStarEuclideanRadixMinHeap() {
+		doTest(new RouterProvider() {
+			@Override
+			public String getName() {
+				return "FastAStarEuclideanRadixMinHeap";
+			}
+			@Override
+			public LeastCostPathCalculatorFactory getFactory(final Network network, final TravelDisutility costCalc, final TravelTime timeCalc) {
+				return new FastAStarEuclideanFactory(network, costCalc, RoutingPriorityQueueType.RadixMinHeap);
+			}
+		});
+	}
 	@Test	
 	public void testAStarLandmarks() {
 		doTest(new RouterProvider() {
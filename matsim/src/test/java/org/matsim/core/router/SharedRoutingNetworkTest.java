@@ -0,0 +1,85 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SharedRoutingNetworkTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.ArrayRoutingNetworkFactory;
+import org.matsim.core.router.util.FastDijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.PreProcessDijkstra;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class SharedRoutingNetworkTest {
+
+	@Test
+	public void testOneRoutingNetworkPerNetworkAndPreProcessing() {
+		Network network = loadNetwork();
+		PreProcessDijkstra preProcessData = new PreProcessDijkstra();
+		preProcessData.run(network);
+
+		Assert.assertSame(ArrayRoutingNetworkFactory.getSharedRoutingNetwork(network, null),
+				ArrayRoutingNetworkFactory.getSharedRoutingNetwork(network, null));
+		Assert.assertSame(ArrayRoutingNetworkFactory.getSharedRoutingNetwork(network, preProcessData),
+				ArrayRoutingNetworkFactory.getSharedRoutingNetwork(network, preProcessData));
+		Assert.assertNotSame(ArrayRoutingNetworkFactory.getSharedRoutingNetwork(network, null),
+				ArrayRoutingNetworkFactory.getSharedRoutingNetwork(network, preProcessData));
+		Assert.assertNotSame(ArrayRoutingNetworkFactory.getSharedRoutingNetwork(network, null),
+				ArrayRoutingNetworkFactory.getSharedRoutingNetwork(loadNetwork(), null));
+	}
+
+	@Test
+	public void testRoutersOnSharedNetworkKeepOwnState() {
+		Network network = loadNetwork();
+		FreespeedTravelTimeAndDisutility costs = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator first = new FastDijkstraFactory().createPathCalculator(network, costs, costs);
+		LeastCostPathCalculator second = new FastDijkstraFactory().createPathCalculator(network, costs, costs);
+		Dijkstra reference = new Dijkstra(network, costs, costs);
+
+		for (Node from : network.getNodes().values()) {
+			for (Node to : network.getNodes().values()) {
+				Path expected = reference.calcLeastCostPath(from, to, 8.0 * 3600, null, null);
+				Path path1 = first.calcLeastCostPath(from, to, 8.0 * 3600, null, null);
+				Path path2 = second.calcLeastCostPath(to, from, 8.0 * 3600, null, null);
+				Path path3 = second.calcLeastCostPath(from, to, 8.0 * 3600, null, null);
+				Assert.assertEquals(expected.travelCost, path1.travelCost, 1e-9);
+				Assert.assertEquals(expected.travelCost, path3.travelCost, 1e-9);
+				Assert.assertEquals(reference.calcLeastCostPath(to, from, 8.0 * 3600, null, null).travelCost, path2.travelCost, 1e-9);
+			}
+		}
+	}
+
+	private static Network loadNetwork() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario.getNetwork()).readFile("test/scenarios/equil/network.xml");
+		return scenario.getNetwork();
+	}
+
+}
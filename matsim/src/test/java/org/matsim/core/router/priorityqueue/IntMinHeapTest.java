@@ -0,0 +1,123 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntMinHeapTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntMinHeapTest {
+
+	@Test
+	public void testAddAndPoll() {
+		IntMinHeap pq = new IntMinHeap(10);
+		pq.addOrDecrease(5, 5.0);
+		pq.addOrDecrease(3, 3.0);
+		pq.addOrDecrease(6, 1e7);
+		Assert.assertEquals(3, pq.size());
+		Assert.assertTrue(pq.contains(6));
+		Assert.assertFalse(pq.contains(1));
+		Assert.assertEquals(3.0, pq.peekPriority(), 0.0);
+		Assert.assertEquals(3, pq.poll());
+		Assert.assertFalse(pq.contains(3));
+
+		pq.addOrDecrease(1, 4.0);
+		Assert.assertEquals(1, pq.poll());
+		Assert.assertEquals(5, pq.poll());
+		Assert.assertEquals(6, pq.poll());
+		Assert.assertTrue(pq.isEmpty());
+	}
+
+	@Test
+	public void testDecrease() {
+		IntMinHeap pq = new IntMinHeap(10);
+		pq.addOrDecrease(0, 10.0);
+		pq.addOrDecrease(1, 20.0);
+		pq.addOrDecrease(2, 30.0);
+		pq.addOrDecrease(2, 5.0);
+		Assert.assertEquals(3, pq.size());
+		Assert.assertEquals(5.0, pq.peekPriority(), 0.0);
+		Assert.assertEquals(2, pq.poll());
+		Assert.assertEquals(0, pq.poll());
+		pq.addOrDecrease(2, 25.0); // polled before, so it is added again
+		Assert.assertEquals(1, pq.poll());
+		Assert.assertEquals(2, pq.poll());
+		Assert.assertTrue(pq.isEmpty());
+	}
+
+	@Test
+	public void testClear() {
+		IntMinHeap pq = new IntMinHeap(10);
+		for (int i = 0; i < 10; i++) {
+			pq.addOrDecrease(i, 100.0 - i);
+		}
+		Assert.assertEquals(9, pq.poll());
+		pq.clear();
+		Assert.assertTrue(pq.isEmpty());
+		for (int i = 0; i < 10; i++) {
+			Assert.assertFalse(pq.contains(i));
+		}
+		pq.addOrDecrease(3, 50.0); // would only be sifted up if 3 were still in the heap
+		pq.addOrDecrease(4, 40.0);
+		Assert.assertEquals(2, pq.size());
+		Assert.assertEquals(4, pq.poll());
+		Assert.assertEquals(3, pq.poll());
+	}
+
+	/**
+	 * Adds and decreases random priorities and checks that the elements are polled
+	 * in the order of their final priorities.
+	 */
+	@Test
+	public void testPollsInPriorityOrder() {
+		int n = 2000;
+		Random random = new Random(4711);
+		IntMinHeap pq = new IntMinHeap(n);
+		double[] priorities = new double[n];
+		Arrays.fill(priorities, Double.POSITIVE_INFINITY);
+		for (int k = 0; k < 5 * n; k++) {
+			int element = random.nextInt(n);
+			double priority = random.nextDouble() * 1000.0;
+			if (priority < priorities[element]) {
+				priorities[element] = priority;
+				pq.addOrDecrease(element, priority);
+			}
+		}
+		double last = Double.NEGATIVE_INFINITY;
+		int count = 0;
+		while (!pq.isEmpty()) {
+			double priority = pq.peekPriority();
+			int element = pq.poll();
+			Assert.assertEquals(priorities[element], priority, 0.0);
+			Assert.assertTrue(priority >= last);
+			last = priority;
+			count++;
+		}
+		int expected = 0;
+		for (double p : priorities) {
+			if (p != Double.POSITIVE_INFINITY) expected++;
+		}
+		Assert.assertEquals(expected, count);
+	}
+}
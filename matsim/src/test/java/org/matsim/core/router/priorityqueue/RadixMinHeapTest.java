@@ -0,0 +1,169 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RadixMinHeapTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RadixMinHeapTest {
+
+	@Test
+	public void testAddAndPoll() {
+		RadixMinHeap<HasIndex> pq = new RadixMinHeap<>(10);
+		DummyHeapEntry entry0 = new DummyHeapEntry(5);
+		DummyHeapEntry entry1 = new DummyHeapEntry(3);
+		DummyHeapEntry entry2 = new DummyHeapEntry(6);
+		DummyHeapEntry entry3 = new DummyHeapEntry(1);
+
+		Assert.assertTrue(pq.add(entry0, 5.0));
+		Assert.assertTrue(pq.add(entry1, 3.0));
+		Assert.assertTrue(pq.add(entry2, 1e7));
+		Assert.assertFalse(pq.add(entry2, 3.0)); // same element, should not be added
+		Assert.assertEquals(3, pq.size());
+		Assert.assertSame(entry1, pq.peek());
+		Assert.assertSame(entry1, pq.poll());
+
+		pq.add(entry3, 4.0);
+		Assert.assertSame(entry3, pq.poll());
+		Assert.assertSame(entry0, pq.poll());
+		Assert.assertSame(entry2, pq.poll());
+		Assert.assertNull(pq.poll());
+		Assert.assertTrue(pq.isEmpty());
+	}
+
+	@Test
+	public void testDecreaseKeyAndRemove() {
+		RadixMinHeap<HasIndex> pq = new RadixMinHeap<>(10);
+		DummyHeapEntry entry0 = new DummyHeapEntry(0);
+		DummyHeapEntry entry1 = new DummyHeapEntry(1);
+		DummyHeapEntry entry2 = new DummyHeapEntry(2);
+
+		pq.add(entry0, 10.0);
+		pq.add(entry1, 20.0);
+		pq.add(entry2, 30.0);
+		Assert.assertFalse(pq.decreaseKey(entry0, 15.0)); // higher priority value is not accepted
+		Assert.assertTrue(pq.decreaseKey(entry2, 5.0));
+		Assert.assertTrue(pq.remove(entry0));
+		Assert.assertFalse(pq.remove(entry0));
+		Assert.assertEquals(2, pq.size());
+		Assert.assertSame(entry2, pq.poll());
+		Assert.assertSame(entry1, pq.poll());
+		Assert.assertTrue(pq.decreaseKey(entry0, 25.0)); // not in the queue, so it is added
+		Assert.assertSame(entry0, pq.poll());
+	}
+
+	@Test
+	public void testReset() {
+		RadixMinHeap<HasIndex> pq = new RadixMinHeap<>(10);
+		for (int i = 0; i < 10; i++) {
+			pq.add(new DummyHeapEntry(i), 100.0 - i);
+		}
+		Assert.assertEquals(9, pq.poll().getArrayIndex());
+		pq.reset();
+		Assert.assertEquals(0, pq.size());
+		Assert.assertFalse(pq.iterator().hasNext());
+		DummyHeapEntry entry = new DummyHeapEntry(3);
+		Assert.assertTrue(pq.add(entry, 0.5)); // lower than before the reset
+		Assert.assertSame(entry, pq.poll());
+	}
+
+	@Test
+	public void testPriorityBelowLastPolled() {
+		RadixMinHeap<HasIndex> pq = new RadixMinHeap<>(10);
+		DummyHeapEntry entry0 = new DummyHeapEntry(0);
+		DummyHeapEntry entry1 = new DummyHeapEntry(1);
+		DummyHeapEntry entry2 = new DummyHeapEntry(2);
+
+		pq.add(entry0, 1000.0);
+		Assert.assertSame(entry0, pq.poll());
+		Assert.assertTrue(pq.add(entry1, 1000.0 - 1e-10)); // rounding, treated as 1000
+		try {
+			pq.add(entry2, 999.0);
+			Assert.fail("missing IllegalArgumentException.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			pq.decreaseKey(entry1, 999.0);
+			Assert.fail("missing IllegalArgumentException.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		Assert.assertEquals(1, pq.size());
+		Assert.assertSame(entry1, pq.poll());
+	}
+
+	/**
+	 * Runs a Dijkstra-like sequence of operations on a radix heap and a binary heap
+	 * and compares the polled elements.
+	 */
+	@Test
+	public void testSameOrderAsBinaryMinHeap() {
+		int n = 2000;
+		Random random = new Random(4711);
+		RadixMinHeap<HasIndex> radix = new RadixMinHeap<>(n);
+		BinaryMinHeap<HasIndex> binary = new BinaryMinHeap<>(n);
+		DummyHeapEntry[] entries = new DummyHeapEntry[n];
+		double[] priorities = new double[n];
+		boolean[] polled = new boolean[n];
+		for (int i = 0; i < n; i++) {
+			entries[i] = new DummyHeapEntry(i);
+		}
+		radix.add(entries[0], 0.0);
+		binary.add(entries[0], 0.0);
+		while (!binary.isEmpty()) {
+			HasIndex expected = binary.poll();
+			HasIndex actual = radix.poll();
+			Assert.assertSame(expected, actual);
+			polled[actual.getArrayIndex()] = true;
+			double current = priorities[actual.getArrayIndex()];
+			for (int k = 0; k < 5; k++) {
+				int next = random.nextInt(n);
+				if (polled[next]) continue;
+				// element-specific fraction, so that no two elements share a priority
+				double priority = current + random.nextInt(100) + (next + 1.0) / (2.0 * n);
+				if (radix.decreaseKey(entries[next], priority)) {
+					priorities[next] = priority;
+				}
+				binary.decreaseKey(entries[next], priority);
+			}
+			Assert.assertEquals(binary.size(), radix.size());
+		}
+		Assert.assertNull(radix.poll());
+	}
+
+	private static class DummyHeapEntry implements HasIndex {
+
+		final int index;
+
+		public DummyHeapEntry(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public int getArrayIndex() {
+			return this.index;
+		}
+	}
+}
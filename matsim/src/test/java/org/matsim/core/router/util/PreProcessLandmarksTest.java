@@ -0,0 +1,83 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PreProcessLandmarksTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.AStarLandmarks;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class PreProcessLandmarksTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testCachedLandmarks() {
+		Network network = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(network).readFile("test/scenarios/equil/network.xml");
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		String cacheDirectory = this.utils.getOutputDirectory() + "landmarks";
+
+		PreProcessLandmarks.clearMemoryCache();
+		PreProcessLandmarks first = new PreProcessLandmarks(travelTimeCostCalculator, 4);
+		first.setCacheDirectory(cacheDirectory);
+		first.run(network);
+		File[] files = new File(cacheDirectory).listFiles();
+		assertNotNull("cache directory not created.", files);
+		assertEquals("expected exactly one cache file.", 1, files.length);
+		// the file must be read, not written again
+		assertTrue(files[0].setLastModified(0));
+
+		PreProcessLandmarks.clearMemoryCache();
+		PreProcessLandmarks second = new PreProcessLandmarks(travelTimeCostCalculator, 4);
+		second.setCacheDirectory(cacheDirectory);
+		second.run(network);
+		assertEquals("no additional cache file expected.", 1, new File(cacheDirectory).listFiles().length);
+		assertEquals("cache file was written again.", 0, files[0].lastModified());
+
+		for (Node node : network.getNodes().values()) {
+			for (int i = 0; i < 4; i++) {
+				assertEquals(first.getNodeData(node).getMinLandmarkTravelTime(i), second.getNodeData(node).getMinLandmarkTravelTime(i), 0.0);
+				assertEquals(first.getNodeData(node).getMaxLandmarkTravelTime(i), second.getNodeData(node).getMaxLandmarkTravelTime(i), 0.0);
+				assertTrue(first.getNodeData(node).getMinLandmarkTravelTime(i) <= first.getNodeData(node).getMaxLandmarkTravelTime(i));
+			}
+		}
+
+		Path path = new AStarLandmarks(network, second, travelTimeCostCalculator).calcLeastCostPath(
+				network.getNodes().get(Id.create("12", Node.class)), network.getNodes().get(Id.create("15", Node.class)), 8.0*3600, null, null);
+		assertEquals("number of links wrong.", 3, path.links.size());
+	}
+
+}
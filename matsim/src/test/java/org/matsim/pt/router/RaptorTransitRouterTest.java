@@ -0,0 +1,311 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestCase;
+
+public class RaptorTransitRouterTest {
+
+	private static TransitRouterConfig createConfig(Fixture f) {
+		return new TransitRouterConfig(f.scenario.getConfig().planCalcScore(),
+				f.scenario.getConfig().plansCalcRoute(), f.scenario.getConfig().transitRouter(),
+				f.scenario.getConfig().vspExperimental());
+	}
+
+	@Test
+	public void testSingleLine() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		TransitRouter router = new RaptorTransitRouterFactory(f.schedule, config, 10).get();
+		Coord toCoord = new Coord((double) 16100, (double) 5050);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) 3800, (double) 5100)), new FakeFacility(toCoord), 5.0*3600, null);
+		assertEquals(3, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(TransportMode.pt, legs.get(1).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(2).getMode());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("6", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.blueLine.getId(), ptRoute.getLineId());
+		assertEquals(Id.create("blue A > I", TransitRoute.class), ptRoute.getRouteId());
+		double expectedTravelTime = 29.0 * 60 + // agent takes the *:06 course, arriving in D at *:29
+				CoordUtils.calcEuclideanDistance(f.schedule.getFacilities().get(Id.create("6", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, getTotalTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testLineChange() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		TransitRouter router = new RaptorTransitRouterFactory(f.schedule, config, 10).get();
+		Coord toCoord = new Coord((double) 16100, (double) 10050);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) 3800, (double) 5100)), new FakeFacility(toCoord), 6.0*3600, null);
+		assertEquals(5, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(TransportMode.pt, legs.get(1).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(2).getMode());
+		assertEquals(TransportMode.pt, legs.get(3).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(4).getMode());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("4", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.blueLine.getId(), ptRoute.getLineId());
+		ptRoute = (ExperimentalTransitRoute) legs.get(3).getRoute();
+		assertEquals(Id.create("18", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("19", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.greenLine.getId(), ptRoute.getLineId());
+		assertEquals(Id.create("green clockwise", TransitRoute.class), ptRoute.getRouteId());
+		double expectedTravelTime = 31.0 * 60 + // agent takes the *:06 course, arriving in C at *:18, departing at *:21, arriving in K at*:31
+				CoordUtils.calcEuclideanDistance(f.schedule.getFacilities().get(Id.create("19", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, getTotalTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testAfterMidnight() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		config.setBeelineWalkSpeed(0.1); // something very slow, so the agent does not walk over night
+		TransitRouter router = new RaptorTransitRouterFactory(f.schedule, config, 10).get();
+		Coord toCoord = new Coord((double) 16100, (double) 5050);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) 3800, (double) 5100)), new FakeFacility(toCoord), 25.0*3600, null);
+		assertEquals(3, legs.size());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("6", TransitStopFacility.class), ptRoute.getEgressStopId());
+		double expectedTravelTime = 4*3600 + 29.0 * 60 + // arrival at 05:29 at D
+				CoordUtils.calcEuclideanDistance(f.schedule.getFacilities().get(Id.create("6", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, getTotalTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testFromToSameStop() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		TransitRouter router = new RaptorTransitRouterFactory(f.schedule, config, 10).get();
+		Coord fromCoord = new Coord((double) 3800, (double) 5100);
+		Coord toCoord = new Coord((double) 4100, (double) 5050);
+		List<Leg> legs = router.calcRoute(new FakeFacility(fromCoord), new FakeFacility(toCoord), 5.0*3600, null);
+		assertEquals(1, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(CoordUtils.calcEuclideanDistance(fromCoord, toCoord) / config.getBeelineWalkSpeed(), getTotalTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testSameTravelTimesAsTransitRouterImpl() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		TransitRouter raptor = new RaptorTransitRouterFactory(f.schedule, config, 10).get();
+		TransitRouterImpl dijkstra = new TransitRouterImpl(config, f.schedule);
+		Coord[] coords = new Coord[] { new Coord((double) 3800, (double) 5100), new Coord((double) 16100, (double) 5050),
+				new Coord((double) 16100, (double) 10050), new Coord((double) 28100, (double) 4950), new Coord((double) 24100, (double) 200) };
+		for (Coord from : coords) {
+			for (Coord to : coords) {
+				if (from == to) {
+					continue;
+				}
+				for (double time = 5.0 * 3600; time < 8.0 * 3600; time += 17.0 * 60) {
+					List<Leg> expected = dijkstra.calcRoute(new FakeFacility(from), new FakeFacility(to), time, null);
+					List<Leg> actual = raptor.calcRoute(new FakeFacility(from), new FakeFacility(to), time, null);
+					assertTrue(actual != null);
+					assertEquals("from " + from + " to " + to + " at " + time, getTotalTravelTime(expected), getTotalTravelTime(actual), MatsimTestCase.EPSILON);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testShortestFootpathWins() {
+		Scenario scenario = createFootpathScenario();
+		TransitRouterConfig config = createConfig(scenario);
+		TransitRouter router = new RaptorTransitRouterFactory(scenario.getTransitSchedule(), config, 10).get();
+		Coord toCoord = new Coord((double) 10000, (double) 150);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) 100, (double) -50)), new FakeFacility(toCoord), 6.0*3600 + 55*60, null);
+		assertEquals(5, legs.size());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("S0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		// the footpath from S1 to T is shorter than the one from S2, which the vehicle reaches later
+		assertEquals(Id.create("S1", TransitStopFacility.class), ptRoute.getEgressStopId());
+		ptRoute = (ExperimentalTransitRoute) legs.get(3).getRoute();
+		assertEquals(Id.create("T", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("D", TransitStopFacility.class), ptRoute.getEgressStopId());
+		double expectedTravelTime = 28.0 * 60 + // agent takes the 07:00 course, walks to T and takes the 07:13 course, arriving in D at 07:23
+				CoordUtils.calcEuclideanDistance(scenario.getTransitSchedule().getFacilities().get(Id.create("D", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, getTotalTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testFootpathFromAccessStop() {
+		Scenario scenario = createFootpathScenario();
+		TransitRouterConfig config = createConfig(scenario);
+		TransitRouter router = new RaptorTransitRouterFactory(scenario.getTransitSchedule(), config, 10).get();
+		Coord toCoord = new Coord((double) 10000, (double) 150);
+		// W is the only stop close to the start, the passenger has to walk on from there to S0
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) -1700, (double) 0)), new FakeFacility(toCoord), 6.0*3600 + 35*60, null);
+		assertEquals(6, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(1).getMode());
+		assertEquals(800.0 / config.getBeelineWalkSpeed(), legs.get(0).getTravelTime(), MatsimTestCase.EPSILON);
+		assertEquals(900.0 / config.getBeelineWalkSpeed() + config.getAdditionalTransferTime(), legs.get(1).getTravelTime(), MatsimTestCase.EPSILON);
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(2).getRoute();
+		assertEquals(Id.create("S0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("S1", TransitStopFacility.class), ptRoute.getEgressStopId());
+		double expectedTravelTime = 78.0 * 60 + // agent misses the 07:00 course, takes the 07:30 one and the 07:43 course from T, arriving in D at 07:53
+				CoordUtils.calcEuclideanDistance(scenario.getTransitSchedule().getFacilities().get(Id.create("D", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, getTotalTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testFootpathToEgressStop() {
+		Scenario scenario = createFootpathScenario();
+		TransitRouterConfig config = createConfig(scenario);
+		config.setSearchRadius(160.0);
+		config.setExtensionRadius(0.0);
+		TransitRouter router = new RaptorTransitRouterFactory(scenario.getTransitSchedule(), config, 10).get();
+		Coord toCoord = new Coord((double) 5000, (double) 250);
+		// T is the only stop close to the destination, but no vehicle stops there; the passenger walks on from S1
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) 100, (double) -50)), new FakeFacility(toCoord), 6.0*3600 + 55*60, null);
+		assertEquals(4, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(TransportMode.pt, legs.get(1).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(2).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(3).getMode());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("S0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("S1", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(100.0 / config.getBeelineWalkSpeed() + config.getAdditionalTransferTime(), legs.get(2).getTravelTime(), MatsimTestCase.EPSILON);
+		double expectedTravelTime = 15.0 * 60 + // agent takes the 07:00 course, arriving in S1 at 07:10
+				100.0 / config.getBeelineWalkSpeed() + config.getAdditionalTransferTime() + 150.0 / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, getTotalTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testNoLineSwitchForFootpathFromAccessStop() {
+		Scenario scenario = createFootpathScenario();
+		TransitRouterConfig config = createConfig(scenario);
+		// a single vehicle is used, so a line switch must not be charged and cannot make walking all the way cheaper
+		config.setUtilityOfLineSwitch_utl(-1000.0);
+		TransitRouter router = new RaptorTransitRouterFactory(scenario.getTransitSchedule(), config, 10).get();
+		Coord toCoord = new Coord((double) 5000, (double) -100);
+		List<Leg> legs = router.calcRoute(new FakeFacility(new Coord((double) -1700, (double) 0)), new FakeFacility(toCoord), 6.0*3600 + 35*60, null);
+		assertEquals(4, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(1).getMode());
+		assertEquals(TransportMode.pt, legs.get(2).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(3).getMode());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(2).getRoute();
+		assertEquals(Id.create("S0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("S1", TransitStopFacility.class), ptRoute.getEgressStopId());
+	}
+
+	private static TransitRouterConfig createConfig(Scenario scenario) {
+		scenario.getConfig().transitRouter().setMaxBeelineWalkConnectionDistance(1000.0);
+		return new TransitRouterConfig(scenario.getConfig().planCalcScore(),
+				scenario.getConfig().plansCalcRoute(), scenario.getConfig().transitRouter(),
+				scenario.getConfig().vspExperimental());
+	}
+
+	/**
+	 * Line 1 runs S0 - S1 - S2 at 07:00 and 07:30, line 2 runs T - D at 07:13 and 07:43. T can be reached on foot from
+	 * S1 (100m) and S2 (950m), S0 from W (900m). Line 3 only serves W.
+	 */
+	private static Scenario createFootpathScenario() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		TransitSchedule schedule = scenario.getTransitSchedule();
+		TransitScheduleFactory f = schedule.getFactory();
+		TransitStopFacility s0 = createStop(schedule, "S0", 0, 0);
+		TransitStopFacility s1 = createStop(schedule, "S1", 5000, 0);
+		TransitStopFacility s2 = createStop(schedule, "S2", 5000, 1050);
+		TransitStopFacility t = createStop(schedule, "T", 5000, 100);
+		TransitStopFacility d = createStop(schedule, "D", 10000, 100);
+		TransitStopFacility w = createStop(schedule, "W", -900, 0);
+		TransitStopFacility x = createStop(schedule, "X", -900, -5000);
+
+		List<TransitRouteStop> stops = new ArrayList<>();
+		stops.add(f.createTransitRouteStop(s0, Time.UNDEFINED_TIME, 0.0));
+		stops.add(f.createTransitRouteStop(s1, 600.0, 600.0));
+		stops.add(f.createTransitRouteStop(s2, 720.0, Time.UNDEFINED_TIME));
+		createLine(schedule, "1", stops, 7.0*3600, 7.5*3600);
+		stops = new ArrayList<>();
+		stops.add(f.createTransitRouteStop(t, Time.UNDEFINED_TIME, 0.0));
+		stops.add(f.createTransitRouteStop(d, 600.0, Time.UNDEFINED_TIME));
+		createLine(schedule, "2", stops, 7.0*3600 + 13*60, 7.0*3600 + 43*60);
+		stops = new ArrayList<>();
+		stops.add(f.createTransitRouteStop(w, Time.UNDEFINED_TIME, 0.0));
+		stops.add(f.createTransitRouteStop(x, 600.0, Time.UNDEFINED_TIME));
+		createLine(schedule, "3", stops, 5.0*3600);
+		return scenario;
+	}
+
+	private static TransitStopFacility createStop(TransitSchedule schedule, String id, double x, double y) {
+		TransitStopFacility stop = schedule.getFactory().createTransitStopFacility(Id.create(id, TransitStopFacility.class), new Coord(x, y), false);
+		schedule.addStopFacility(stop);
+		return stop;
+	}
+
+	private static void createLine(TransitSchedule schedule, String id, List<TransitRouteStop> stops, double... departures) {
+		TransitScheduleFactory f = schedule.getFactory();
+		TransitLine line = f.createTransitLine(Id.create(id, TransitLine.class));
+		TransitRoute route = f.createTransitRoute(Id.create(id, TransitRoute.class), null, stops, "pt");
+		for (int i = 0; i < departures.length; i++) {
+			route.addDeparture(f.createDeparture(Id.create(id + "_" + i, Departure.class), departures[i]));
+		}
+		line.addRoute(route);
+		schedule.addTransitLine(line);
+	}
+
+	private static double getTotalTravelTime(List<Leg> legs) {
+		double travelTime = 0.0;
+		for (Leg leg : legs) {
+			travelTime += leg.getTravelTime();
+		}
+		return travelTime;
+	}
+}
@@ -0,0 +1,129 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TransitStopFootpathsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2016 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.pt.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class TransitStopFootpathsTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testTransfers() {
+		Fixture f = new Fixture();
+		f.init();
+		double maxDistance = 4000.0;
+		TransitStopFootpaths footpaths = TransitStopFootpaths.create(f.schedule, maxDistance, 0.0, null, 2);
+		for (int s = 0; s < footpaths.getStopCount(); s++) {
+			Set<Integer> expected = new TreeSet<>();
+			for (int o = 0; o < footpaths.getStopCount(); o++) {
+				if (o != s && CoordUtils.calcEuclideanDistance(footpaths.getStop(s).getCoord(), footpaths.getStop(o).getCoord()) <= maxDistance) {
+					expected.add(o);
+				}
+			}
+			Set<Integer> actual = new TreeSet<>();
+			for (int i = footpaths.transfersStart[s]; i < footpaths.transfersStart[s + 1]; i++) {
+				actual.add(footpaths.transferStops[i]);
+				assertEquals(CoordUtils.calcEuclideanDistance(footpaths.getStop(s).getCoord(),
+						footpaths.getStop(footpaths.transferStops[i]).getCoord()), footpaths.transferDistances[i], 1e-9);
+			}
+			assertEquals("wrong transfers of stop " + footpaths.getStop(s).getId(), expected, actual);
+		}
+	}
+
+	@Test
+	public void testNearestStopsWithAccessGrid() {
+		Fixture f = new Fixture();
+		f.init();
+		double radius = 1500.0;
+		TransitStopFootpaths footpaths = TransitStopFootpaths.create(f.schedule, 100.0, radius, null, 2);
+		for (double x = -3000.0; x <= 43000.0; x += 370.0) {
+			for (double y = -3000.0; y <= 13000.0; y += 410.0) {
+				Coord coord = new Coord(x, y);
+				for (double distance : new double[] {radius, 700.0, 0.0}) {
+					Set<Integer> expected = new TreeSet<>();
+					for (int s = 0; s < footpaths.getStopCount(); s++) {
+						if (CoordUtils.calcEuclideanDistance(coord, footpaths.getStop(s).getCoord()) <= distance) {
+							expected.add(s);
+						}
+					}
+					assertEquals("wrong stops near " + coord, expected, new TreeSet<>(footpaths.getNearestStops(coord, distance)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testCacheDirectory() {
+		Fixture f = new Fixture();
+		f.init();
+		String cacheDirectory = this.utils.getOutputDirectory() + "footpaths";
+		TransitStopFootpaths first = TransitStopFootpaths.create(f.schedule, 1000.0, 500.0, cacheDirectory, 2);
+		assertSame(first, TransitStopFootpaths.create(f.schedule, 1000.0, 500.0, cacheDirectory, 2));
+		File[] files = new File(cacheDirectory).listFiles();
+		assertNotNull("cache directory not created.", files);
+		assertEquals("expected exactly one cache file.", 1, files.length);
+
+		TransitStopFootpaths.clearMemoryCache();
+		TransitStopFootpaths second = TransitStopFootpaths.create(f.schedule, 1000.0, 500.0, cacheDirectory, 2);
+		assertNotSame(first, second);
+		assertEquals("no additional cache file expected.", 1, new File(cacheDirectory).listFiles().length);
+		assertEquals(first.getStopCount(), second.getStopCount());
+		assertTrue(Arrays.equals(first.transfersStart, second.transfersStart));
+		assertTrue(Arrays.equals(first.transferStops, second.transferStops));
+		assertTrue(Arrays.equals(first.transferDistances, second.transferDistances));
+		Coord coord = f.schedule.getFacilities().values().iterator().next().getCoord();
+		assertEquals(new TreeSet<>(first.getNearestStops(coord, 500.0)), new TreeSet<>(second.getNearestStops(coord, 500.0)));
+	}
+
+	@Test
+	public void testMemoryCacheWithOtherScheduleInstance() {
+		Fixture f1 = new Fixture();
+		f1.init();
+		Fixture f2 = new Fixture();
+		f2.init();
+		TransitStopFootpaths first = TransitStopFootpaths.create(f1.schedule, 100.0, 0.0, null, 1);
+		TransitStopFootpaths second = TransitStopFootpaths.create(f2.schedule, 100.0, 0.0, null, 1);
+		assertSame(first.transferStops, second.transferStops);
+		for (int s = 0; s < second.getStopCount(); s++) {
+			assertSame(f2.schedule.getFacilities().get(second.getStop(s).getId()), second.getStop(s));
+			assertEquals(s, second.getStopIndex(second.getStop(s)));
+		}
+		assertEquals(-1, second.getStopIndex(first.getStop(0)));
+	}
+
+}